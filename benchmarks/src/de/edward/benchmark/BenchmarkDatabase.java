@@ -0,0 +1,90 @@
+package de.edward.benchmark;
+
+import de.edward.DatabaseHandler;
+import de.edward.DictionaryEntry;
+import de.edward.Repository;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Die {@link BenchmarkDatabase} stellt die Verbindung zu der Datenbank her, gegen die die Benchmarks laufen. Die
+ * Verbindungsdaten werden über System-Properties festgelegt, damit dieselben Benchmarks gegen einen lokalen MariaDB-Server
+ * oder gegen einen eingebetteten Ersatz laufen können. Die Benchmarks nutzen eine eigene Datenbank, damit sie keine
+ * echten Daten verändern.
+ */
+final class BenchmarkDatabase {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die System-Property, mit der die Adresse der Benchmark-Datenbank festgelegt wird. */
+    private static final String JDBC_URL_PROPERTY = "bench.jdbcUrl";
+    /** Die System-Property, mit der der Nutzer der Benchmark-Datenbank festgelegt wird. */
+    private static final String USER_PROPERTY = "bench.user";
+    /** Die System-Property, mit der das Passwort der Benchmark-Datenbank festgelegt wird. */
+    private static final String PASSWORD_PROPERTY = "bench.password";
+    /** Die System-Property, mit der das {@link de.edward.PoolProfile} der Benchmarks festgelegt wird. */
+    private static final String PROFILE_PROPERTY = "bench.profile";
+    /** Die System-Property, mit der die Adressen der Replikate der Benchmark-Datenbank festgelegt werden. */
+    private static final String REPLICA_URLS_PROPERTY = "bench.replicaUrls";
+    /** Die Adresse der Benchmark-Datenbank, wenn keine festgelegt wurde. */
+    private static final String DEFAULT_JDBC_URL = "jdbc:mariadb://localhost:3306/bench";
+    /** Der Nutzer der Benchmark-Datenbank, wenn keiner festgelegt wurde. */
+    private static final String DEFAULT_USER = "edward";
+    /** Das Passwort der Benchmark-Datenbank, wenn keines festgelegt wurde. */
+    private static final String DEFAULT_PASSWORD = "admin";
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+    private BenchmarkDatabase() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Erzeugt einen neuen {@link DatabaseHandler} für die Benchmark-Datenbank und legt die benötigten Tabellen an.
+     *
+     * @param poolName Der Pool-Name, mit dem der {@link DatabaseHandler} initialisiert wird.
+     *
+     * @return Der neue {@link DatabaseHandler} für die Benchmark-Datenbank.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabellen nicht angelegt werden konnten.
+     */
+    static DatabaseHandler open(final String poolName) throws SQLException {
+        return open(poolName, new Properties());
+    }
+
+    /**
+     * Erzeugt einen neuen {@link DatabaseHandler} für die Benchmark-Datenbank mit zusätzlichen Eigenschaften und legt
+     * die benötigten Tabellen an.
+     *
+     * @param poolName   Der Pool-Name, mit dem der {@link DatabaseHandler} initialisiert wird.
+     * @param additional Die zusätzlichen Eigenschaften, etwa die Optionen des {@link DatabaseHandler}.
+     *
+     * @return Der neue {@link DatabaseHandler} für die Benchmark-Datenbank.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabellen nicht angelegt werden konnten.
+     */
+    static DatabaseHandler open(
+            final String poolName,
+            final Properties additional
+    ) throws SQLException {
+        final Properties properties = new Properties();
+        properties.putAll(additional);
+        properties.put("jdbcUrl", System.getProperty(JDBC_URL_PROPERTY, DEFAULT_JDBC_URL));
+        properties.put("dataSource.user", System.getProperty(USER_PROPERTY, DEFAULT_USER));
+        properties.put("dataSource.password", System.getProperty(PASSWORD_PROPERTY, DEFAULT_PASSWORD));
+        properties.put(DatabaseHandler.PROFILE_PROPERTY, System.getProperty(PROFILE_PROPERTY, "DEFAULT"));
+        if (System.getProperty(REPLICA_URLS_PROPERTY) != null) {
+            properties.put(DatabaseHandler.REPLICA_URLS_PROPERTY, System.getProperty(REPLICA_URLS_PROPERTY));
+        }
+
+        final DatabaseHandler databaseHandler = new DatabaseHandler(poolName, properties);
+        new Repository<>(databaseHandler, DictionaryEntry.DESCRIPTOR).createTable();
+        return databaseHandler;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,130 @@
+package de.edward.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Stream;
+
+/**
+ * Der {@link BenchmarkRunner} führt alle Benchmarks dieses Moduls nacheinander mit einem, vier und so vielen Threads
+ * aus, wie Prozessorkerne verfügbar sind. Die Ergebnisse werden je Thread-Anzahl als JSON-Datei abgelegt, deren Name
+ * die Auswahl der Benchmarks und den Startzeitpunkt des Laufs enthält, damit frühere Läufe erhalten bleiben und mit
+ * ihnen verglichen werden kann. Der {@link GCProfiler} ergänzt jedes Ergebnis um die Menge an Speicher, die je Aufruf
+ * angelegt wird ({@code gc.alloc.rate.norm}).
+ *
+ * <p>Ohne IntelliJ wird das Modul von Hand übersetzt; dabei muss der JMH-Annotation-Processor laufen, damit die
+ * Benchmarks gefunden werden:</p>
+ * <pre>{@code
+ * javac -cp <Hauptmodul>:<Bibliotheken> -processorpath jmh-generator-annprocess-1.37.jar:jmh-core-1.37.jar \
+ *       -d out/benchmarks $(find benchmarks/src -name "*.java")
+ * java -cp out/benchmarks:<Hauptmodul>:<Bibliotheken> de.edward.benchmark.BenchmarkRunner
+ * }</pre>
+ */
+public final class BenchmarkRunner {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die System-Property, mit der das Verzeichnis für die Ergebnisse festgelegt wird. */
+    private static final String RESULT_DIRECTORY_PROPERTY = "bench.resultDir";
+    /** Die System-Property, mit der die Auswahl der Benchmarks per regulärem Ausdruck eingeschränkt wird. */
+    private static final String INCLUDE_PROPERTY = "bench.include";
+    /** Das Verzeichnis für die Ergebnisse, wenn keines festgelegt wurde. */
+    private static final String DEFAULT_RESULT_DIRECTORY = "benchmark-results";
+    /** Der Name der Auswahl in den Ergebnis-Dateien, wenn alle Benchmarks ausgeführt werden. */
+    private static final String ALL_BENCHMARKS = "all";
+    /** Das Format des Startzeitpunkts in den Namen der Ergebnis-Dateien. */
+    private static final DateTimeFormatter RUN_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    /** Das JVM-Argument, mit dem virtuelle Threads gemeldet werden, die an ihren Träger-Thread gebunden bleiben. */
+    static final String TRACE_PINNED_THREADS = "-Djdk.tracePinnedThreads=short";
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+    private BenchmarkRunner() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="main">
+
+    /**
+     * Führt alle Benchmarks mit einem, vier und allen verfügbaren Threads aus.
+     *
+     * @param args Die Argumente, die beim Ausführen dieser Anwendung übergeben wird.
+     *
+     * @throws RunnerException Die Fehlermeldung, die auftreten kann, wenn ein Benchmark nicht ausgeführt werden konnte.
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final File resultDirectory = new File(System.getProperty(RESULT_DIRECTORY_PROPERTY, DEFAULT_RESULT_DIRECTORY));
+        if (!resultDirectory.isDirectory() && !resultDirectory.mkdirs()) {
+            throw new IllegalStateException("The result directory " + resultDirectory + " could not be created!");
+        }
+
+        final String selection = System.getProperty(INCLUDE_PROPERTY);
+        final String include = selection != null ? selection : BenchmarkRunner.class.getPackageName() + ".*";
+        final String prefix = "results-" + fileNameOf(selection) + "-" + LocalDateTime.now().format(RUN_TIMESTAMP);
+        final int cores = Runtime.getRuntime().availableProcessors();
+
+        for (final int threads : new int[]{1, 4, cores}) {
+            final Options options = new OptionsBuilder()
+                    .include(include)
+                    .exclude(BenchmarkRunner.class.getName())
+                    .threads(threads)
+                    .forks(1)
+                    .jvmArgsAppend(forwardedProperties())
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDirectory, prefix + "-" + threads + "-threads.json").getPath())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Gibt den Namen zurück, unter dem eine Auswahl an Benchmarks in den Namen der Ergebnis-Dateien erscheint. Der
+     * Paketname wird weggelassen, und alle Zeichen, die in Dateinamen stören, werden ersetzt.
+     *
+     * @param selection Der reguläre Ausdruck, mit dem die Benchmarks ausgewählt wurden, oder {@code null} für alle.
+     *
+     * @return Der Name der Auswahl in den Ergebnis-Dateien.
+     */
+    private static String fileNameOf(final String selection) {
+        if (selection == null || selection.isBlank()) {
+            return ALL_BENCHMARKS;
+        }
+
+        final String name = selection
+                .replace(BenchmarkRunner.class.getPackageName() + ".", "")
+                .replaceAll("[^A-Za-z0-9_-]+", "_")
+                .replaceAll("^_+|_+$", "");
+        return name.isEmpty() ? ALL_BENCHMARKS : name;
+    }
+
+    /**
+     * Gibt alle System-Properties der Benchmarks als JVM-Argumente zurück, damit sie in den geforkten JVMs gelten.
+     * Zusätzlich werden virtuelle Threads gemeldet, die an ihren Träger-Thread gebunden bleiben.
+     *
+     * @return Die System-Properties der Benchmarks als JVM-Argumente.
+     */
+    private static String[] forwardedProperties() {
+        return Stream.concat(
+                System.getProperties().stringPropertyNames().stream()
+                        .filter(name -> name.startsWith("bench."))
+                        .map(name -> "-D" + name + "=" + System.getProperty(name)),
+                Stream.of(TRACE_PINNED_THREADS)
+        ).toArray(String[]::new);
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,68 @@
+package de.edward.benchmark;
+
+import de.edward.DatabaseHandler;
+import de.edward.DictionaryEntry;
+import de.edward.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst das Nachschlagen eines häufig gesuchten Wortes über das {@link Repository}, einmal aus dem Cache und
+ * einmal mit einem Cache der Größe eins, der bei wechselnden Wörtern immer die Datenbank fragen muss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheBenchmark {
+
+    /** Das Wort, welches aus dem Cache beantwortet wird. */
+    private static final String HOT_WORD = "bench-hot";
+    /** Das Wort, welches im Wechsel mit {@code HOT_WORD} ohne Cache nachgeschlagen wird. */
+    private static final String COLD_WORD = "bench-cold";
+
+    /** Der {@link DatabaseHandler}, über den gelesen wird. */
+    private DatabaseHandler databaseHandler;
+    /** Das {@link Repository} mit ausreichend großem Cache. */
+    private Repository<String, DictionaryEntry> cached;
+    /** Das {@link Repository}, dessen Cache nur ein Wort hält. */
+    private Repository<String, DictionaryEntry> uncached;
+    /** Ob als nächstes das häufige Wort nachgeschlagen wird. */
+    private boolean hot;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseHandler = BenchmarkDatabase.open("bench-cache");
+        cached = new Repository<>(databaseHandler, DictionaryEntry.DESCRIPTOR, 1024, Duration.ZERO);
+        uncached = new Repository<>(databaseHandler, DictionaryEntry.DESCRIPTOR, 1, Duration.ZERO);
+
+        cached.upsert(new DictionaryEntry(HOT_WORD, "hot", "noun", "benchmark entry"));
+        cached.upsert(new DictionaryEntry(COLD_WORD, "cold", "noun", "benchmark entry"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        databaseHandler.close();
+    }
+
+    @Benchmark
+    public Optional<DictionaryEntry> cacheHit() throws SQLException {
+        return cached.find(HOT_WORD);
+    }
+
+    @Benchmark
+    public Optional<DictionaryEntry> cacheMiss() throws SQLException {
+        hot = !hot;
+        return uncached.find(hot ? HOT_WORD : COLD_WORD);
+    }
+}
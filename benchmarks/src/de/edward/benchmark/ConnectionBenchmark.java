@@ -0,0 +1,46 @@
+package de.edward.benchmark;
+
+import de.edward.DatabaseHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst, wie lange es dauert, eine Verbindung über {@link DatabaseHandler#getConnection()} aus dem Pool zu leihen und
+ * wieder zurückzugeben. Mit mehr Threads als Verbindungen im Pool zeigt dieser Benchmark die Wartezeit im Pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConnectionBenchmark {
+
+    /** Der {@link DatabaseHandler}, aus dessen Pool die Verbindungen geliehen werden. */
+    private DatabaseHandler databaseHandler;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseHandler = BenchmarkDatabase.open("bench-connection");
+    }
+
+    @TearDown
+    public void tearDown() {
+        databaseHandler.close();
+    }
+
+    @Benchmark
+    public void checkout(final Blackhole blackhole) throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection()) {
+            blackhole.consume(conn);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package de.edward.benchmark;
+
+import de.edward.DAVEntry;
+import de.edward.DatabaseHandler;
+import de.edward.DatabaseMetrics;
+import de.edward.DictionaryEntry;
+import de.edward.LatencyHistogram;
+import de.edward.Repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Der {@link LoadGenerator} spielt eine realistische Mischung aus Wörterbuch-Abfragen, Abfragen der neuesten
+ * Teilnehmer und Schreibzugriffen auf die DAV-Tabelle mit vielen Threads über einen echten {@link DatabaseHandler} ab.
+ * Anders als die JMH-Benchmarks arbeitet er offen: Die Anfragen werden zu ihren geplanten Zeitpunkten abgeschickt,
+ * unabhängig davon, ob frühere Anfragen schon beantwortet sind. Die Antwortzeit wird ab dem geplanten Zeitpunkt
+ * gemessen, sodass auch die Zeit in der Warteschlange zählt und die Perzentile nicht unter "coordinated omission"
+ * leiden.
+ *
+ * <p>Die Last wird entweder mit einer festen Rate erzeugt oder aus einer Aufzeichnung ({@code bench.load.trace})
+ * abgespielt; eine erzeugte Last kann mit {@code bench.load.record} aufgezeichnet werden. Alle System-Properties, die
+ * mit {@code handler.} beginnen, werden als Optionen an den {@link DatabaseHandler} weitergereicht, sodass etwa
+ * Pool-Profile oder die Zulassungskontrolle unter derselben Last verglichen werden können.</p>
+ */
+public final class LoadGenerator {
+
+    //<editor-fold desc="CONSTANTS">
+
+    //<editor-fold desc="properties">
+    /** Die System-Property, mit der die mittlere Anzahl an Anfragen je Sekunde festgelegt wird. */
+    private static final String RATE_PROPERTY = "bench.load.rate";
+    /** Die System-Property, mit der die Dauer der erzeugten Last in Sekunden festgelegt wird. */
+    private static final String DURATION_PROPERTY = "bench.load.durationSeconds";
+    /** Die System-Property, mit der die Anzahl der Threads festgelegt wird, die die Anfragen ausführen. */
+    private static final String THREADS_PROPERTY = "bench.load.threads";
+    /** Die System-Property, mit der die Gewichte der {@link WorkloadTrace.Operation Arten} festgelegt werden. */
+    private static final String MIX_PROPERTY = "bench.load.mix";
+    /** Die System-Property, mit der die Anzahl an unterschiedlichen Schlüsseln festgelegt wird. */
+    private static final String KEYS_PROPERTY = "bench.load.keys";
+    /** Die System-Property, mit der der Exponent der Zipf-Verteilung der Schlüssel festgelegt wird. */
+    private static final String SKEW_PROPERTY = "bench.load.zipfExponent";
+    /** Die System-Property, mit der der Startwert des Zufallsgenerators festgelegt wird. */
+    private static final String SEED_PROPERTY = "bench.load.seed";
+    /** Die System-Property, mit der die Datei einer Aufzeichnung festgelegt wird, die abgespielt wird. */
+    private static final String TRACE_PROPERTY = "bench.load.trace";
+    /** Die System-Property, mit der die Datei festgelegt wird, in die die abgespielte Last aufgezeichnet wird. */
+    private static final String RECORD_PROPERTY = "bench.load.record";
+    /** Die System-Property, mit der eine Aufzeichnung schneller oder langsamer abgespielt wird. */
+    private static final String SPEED_PROPERTY = "bench.load.speed";
+    /** Die System-Property, mit der der Abstand zwischen zwei Berichten in Sekunden festgelegt wird. */
+    private static final String REPORT_PROPERTY = "bench.load.reportSeconds";
+    /** Die System-Property, mit der die Größe des Caches der Wörterbuch-Abfragen festgelegt wird. */
+    private static final String CACHE_SIZE_PROPERTY = "bench.load.cacheSize";
+    /** Das Präfix der System-Properties, die als Optionen an den {@link DatabaseHandler} weitergereicht werden. */
+    private static final String HANDLER_OPTION_PREFIX = "handler.";
+    //</editor-fold>
+
+    //<editor-fold desc="defaults">
+    /** Die mittlere Anzahl an Anfragen je Sekunde, wenn keine festgelegt wurde. */
+    private static final double DEFAULT_RATE = 1000;
+    /** Die Dauer der erzeugten Last in Sekunden, wenn keine festgelegt wurde. */
+    private static final long DEFAULT_DURATION = 60;
+    /** Die Anzahl der ausführenden Threads, wenn keine festgelegt wurde. */
+    private static final int DEFAULT_THREADS = 256;
+    /** Die Gewichte der Arten von Anfragen, wenn keine festgelegt wurden. */
+    private static final String DEFAULT_MIX = "80,10,10";
+    /** Die Anzahl an unterschiedlichen Schlüsseln, wenn keine festgelegt wurde. */
+    private static final int DEFAULT_KEYS = 10_000;
+    /** Der Exponent der Zipf-Verteilung, wenn keiner festgelegt wurde. */
+    private static final double DEFAULT_SKEW = 0.99;
+    /** Der Abstand zwischen zwei Berichten in Sekunden, wenn keiner festgelegt wurde. */
+    private static final long DEFAULT_REPORT_INTERVAL = 1;
+    //</editor-fold>
+
+    /** Der Pool-Name des {@link DatabaseHandler}, über den die Last läuft. */
+    private static final String POOL_NAME = "bench-load";
+    /** Die Zeit in Sekunden, die nach dem Ende der Last auf ausstehende Anfragen gewartet wird. */
+    private static final long DRAIN_TIMEOUT = 60;
+    /** Der früheste Geburtstag der geschriebenen Teilnehmer als Tag seit 1970. */
+    private static final long BIRTH_EPOCH_DAY = LocalDate.of(1960, 1, 1).toEpochDay();
+    /** Die Anzahl an Tagen, über die die Geburtstage der geschriebenen Teilnehmer verteilt sind. */
+    private static final int BIRTH_SPREAD_DAYS = 50 * 365;
+    /** Die Quantile, die je Art von Anfrage berichtet werden. */
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der {@link DatabaseHandler}, über den die Last läuft. */
+    private final DatabaseHandler databaseHandler;
+    /** Das {@link Repository} des Wörterbuchs, aus dem gelesen wird. */
+    private final Repository<String, DictionaryEntry> dictionary;
+    /** Das {@link Repository} der DAV-Tabelle, in das geschrieben wird. */
+    private final Repository<String, DAVEntry> dav;
+    /**
+     * Ein zweites {@link Repository} der DAV-Tabelle, das nie schreibt und daher die neuesten Teilnehmer wie ein
+     * getrennter Abfragender aus der Datenbank liest.
+     */
+    private final Repository<String, DAVEntry> poller;
+    /** Die Antwortzeiten ab dem geplanten Zeitpunkt je Art von Anfrage seit dem letzten Bericht. */
+    private final AtomicReferenceArray<LatencyHistogram> intervals;
+    /** Die Antwortzeiten ab dem geplanten Zeitpunkt je Art von Anfrage über den gesamten Lauf. */
+    private final LatencyHistogram[] totals;
+    /** Die reinen Bearbeitungszeiten ohne Warteschlange über den gesamten Lauf, zum Vergleich. */
+    private final LatencyHistogram serviceTimes = new LatencyHistogram();
+    /** Die Anzahl an abgeschickten Anfragen. */
+    private final LongAdder dispatched = new LongAdder();
+    /** Die Anzahl an beantworteten Anfragen. */
+    private final LongAdder completed = new LongAdder();
+    /** Die Anzahl an fehlgeschlagenen Anfragen. */
+    private final LongAdder errors = new LongAdder();
+    /** Der Zeitpunkt des Beginns der Last in Nanosekunden. */
+    private long startNanos;
+    /** Der Zeitpunkt des letzten Berichts in Nanosekunden. */
+    private long lastReportNanos;
+    /** Die Anzahl an beantworteten Anfragen zum Zeitpunkt des letzten Berichts. */
+    private long lastCompleted;
+    /** Die Anzahl an fehlgeschlagenen Anfragen zum Zeitpunkt des letzten Berichts. */
+    private long lastErrors;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link LoadGenerator}.
+     *
+     * @param databaseHandler Der {@link DatabaseHandler}, über den die Last läuft.
+     * @param cacheSize       Die Größe des Caches der Wörterbuch-Abfragen oder {@code 0}, wenn keiner genutzt wird.
+     */
+    private LoadGenerator(
+            final DatabaseHandler databaseHandler,
+            final int cacheSize
+    ) {
+        this.databaseHandler = databaseHandler;
+        this.dictionary = new Repository<>(databaseHandler, DictionaryEntry.DESCRIPTOR, cacheSize, Duration.ZERO);
+        this.dav = new Repository<>(databaseHandler, DAVEntry.DESCRIPTOR);
+        this.poller = new Repository<>(databaseHandler, DAVEntry.DESCRIPTOR);
+
+        final int operations = WorkloadTrace.Operation.values().length;
+        this.intervals = new AtomicReferenceArray<>(operations);
+        this.totals = new LatencyHistogram[operations];
+        for (int i = 0; i < operations; i++) {
+            intervals.set(i, new LatencyHistogram());
+            totals[i] = new LatencyHistogram();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="main">
+
+    /**
+     * Erzeugt die Last oder spielt eine Aufzeichnung ab und berichtet laufend über Durchsatz und Antwortzeiten.
+     *
+     * @param args Die Argumente, die beim Ausführen dieser Anwendung übergeben wird.
+     *
+     * @throws SQLException         Die Fehlermeldung, die auftreten kann, wenn die Tabellen nicht vorbereitet werden
+     *                              konnten.
+     * @throws IOException          Die Fehlermeldung, die auftreten kann, wenn eine Aufzeichnung nicht gelesen oder
+     *                              geschrieben werden konnte.
+     * @throws InterruptedException Die Fehlermeldung, die auftreten kann, wenn beim Warten unterbrochen wurde.
+     */
+    public static void main(final String[] args) throws SQLException, IOException, InterruptedException {
+        // forward the handler options
+        final Properties options = new Properties();
+        for (final String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(HANDLER_OPTION_PREFIX)) {
+                options.put(name, System.getProperty(name));
+            }
+        }
+
+        final int keys = Integer.getInteger(KEYS_PROPERTY, DEFAULT_KEYS);
+        final DatabaseHandler databaseHandler = BenchmarkDatabase.open(POOL_NAME, options);
+        final LoadGenerator generator = new LoadGenerator(databaseHandler, Integer.getInteger(CACHE_SIZE_PROPERTY, 0));
+
+        final String record = System.getProperty(RECORD_PROPERTY);
+        try (final BufferedWriter recording = record == null ? null : WorkloadTrace.record(Paths.get(record))) {
+            generator.prepare(keys);
+
+            final String trace = System.getProperty(TRACE_PROPERTY);
+            if (trace != null) {
+                try (final WorkloadTrace.Reader reader = WorkloadTrace.read(Paths.get(trace))) {
+                    generator.run(reader, Double.parseDouble(System.getProperty(SPEED_PROPERTY, "1")), recording);
+                }
+            } else {
+                generator.run(WorkloadTrace.synthesize(
+                        Double.parseDouble(System.getProperty(RATE_PROPERTY, String.valueOf(DEFAULT_RATE))),
+                        TimeUnit.SECONDS.toNanos(Long.getLong(DURATION_PROPERTY, DEFAULT_DURATION)),
+                        parseMix(System.getProperty(MIX_PROPERTY, DEFAULT_MIX)),
+                        new ZipfianGenerator(
+                                keys,
+                                Double.parseDouble(System.getProperty(SKEW_PROPERTY, String.valueOf(DEFAULT_SKEW)))
+                        ),
+                        Long.getLong(SEED_PROPERTY, 0)
+                ), 1, recording);
+            }
+        } finally {
+            generator.dictionary.close();
+            generator.dav.close();
+            databaseHandler.close();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="run">
+
+    /**
+     * Legt die DAV-Tabelle an und schreibt alle Schlüssel des Wörterbuchs, damit die Abfragen Treffer liefern.
+     *
+     * @param keys Die Anzahl an unterschiedlichen Schlüsseln.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabellen nicht vorbereitet werden konnten.
+     */
+    private void prepare(final int keys) throws SQLException {
+        dav.createTable();
+
+        final List<DictionaryEntry> entries = new ArrayList<>(keys);
+        for (int rank = 0; rank < keys; rank++) {
+            entries.add(new DictionaryEntry(
+                    WorkloadTrace.Operation.LOOKUP.keyOf(rank),
+                    "word",
+                    "noun",
+                    "Generated by the load generator."
+            ));
+        }
+        dictionary.upsertAll(entries);
+    }
+
+    /**
+     * Schickt alle Anfragen zu ihren geplanten Zeitpunkten ab, wartet auf ihre Antworten und berichtet dabei in festen
+     * Abständen. Der abschickende Thread wartet nie auf eine Antwort, sodass eine langsame Datenbank die Last nicht
+     * drosselt, sondern die Warteschlange und damit die gemessenen Antwortzeiten wachsen lässt.
+     *
+     * @param requests  Die Anfragen in der Reihenfolge ihrer Zeitpunkte.
+     * @param speed     Der Faktor, mit dem die Zeitpunkte gestaucht werden; {@code 2} spielt doppelt so schnell ab.
+     * @param recording Die Aufzeichnung, in die die abgeschickten Anfragen geschrieben werden, oder {@code null}.
+     *
+     * @throws IOException          Die Fehlermeldung, die auftreten kann, wenn nicht aufgezeichnet werden konnte.
+     * @throws InterruptedException Die Fehlermeldung, die auftreten kann, wenn beim Warten unterbrochen wurde.
+     */
+    private void run(
+            final Iterator<WorkloadTrace.Request> requests,
+            final double speed,
+            final BufferedWriter recording
+    ) throws IOException, InterruptedException {
+        // check the speed for validity
+        if (speed <= 0) {
+            throw new IllegalArgumentException("The supplied speed must be positive!");
+        }
+
+        final ExecutorService workers = Executors.newFixedThreadPool(
+                Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, POOL_NAME + "-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, POOL_NAME + "-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        printHeader();
+        startNanos = System.nanoTime();
+        lastReportNanos = startNanos;
+        final long reportInterval = Long.getLong(REPORT_PROPERTY, DEFAULT_REPORT_INTERVAL);
+        reporter.scheduleAtFixedRate(this::report, reportInterval, reportInterval, TimeUnit.SECONDS);
+
+        try {
+            while (requests.hasNext()) {
+                final WorkloadTrace.Request request = requests.next();
+                final long intended = startNanos + (long) (request.offsetNanos / speed);
+
+                long delay;
+                while ((delay = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+
+                if (recording != null) {
+                    WorkloadTrace.write(recording, request);
+                }
+                dispatched.increment();
+                workers.execute(() -> execute(request, intended));
+            }
+        } finally {
+            workers.shutdown();
+            if (!workers.awaitTermination(DRAIN_TIMEOUT, TimeUnit.SECONDS)) {
+                System.out.println("Gave up waiting for " + (dispatched.sum() - completed.sum()) + " requests.");
+                workers.shutdownNow();
+            }
+            reporter.shutdownNow();
+        }
+
+        report();
+        printSummary();
+    }
+
+    /**
+     * Führt eine einzelne Anfrage aus und erfasst ihre Antwortzeit ab dem geplanten Zeitpunkt.
+     *
+     * @param request  Die Anfrage, die ausgeführt wird.
+     * @param intended Der geplante Zeitpunkt der Anfrage in Nanosekunden.
+     */
+    private void execute(
+            final WorkloadTrace.Request request,
+            final long intended
+    ) {
+        final long begin = System.nanoTime();
+        try {
+            switch (request.operation) {
+                case LOOKUP:
+                    dictionary.find(request.key);
+                    break;
+                case NEWEST:
+                    poller.newest(Repository.LATEST_ENTRIES_SIZE);
+                    break;
+                case UPSERT:
+                    dav.upsert(athleteOf(request.key));
+                    break;
+                default:
+                    throw new IllegalStateException("The operation " + request.operation + " is not supported!");
+            }
+        } catch (final SQLException | RuntimeException e) {
+            errors.increment();
+        }
+
+        final long end = System.nanoTime();
+        intervals.get(request.operation.ordinal()).record(end - intended);
+        serviceTimes.record(end - begin);
+        completed.increment();
+    }
+
+    /**
+     * Erzeugt einen Teilnehmer, dessen Werte allein aus seinem Namen folgen, damit ein abgespielter Lauf dieselben
+     * Daten schreibt wie der aufgezeichnete.
+     *
+     * @param name Der Name des Teilnehmers.
+     *
+     * @return Der Teilnehmer zu dem Namen.
+     */
+    private static DAVEntry athleteOf(final String name) {
+        final int hash = name.hashCode();
+        return new DAVEntry(
+                name,
+                "Load",
+                (hash & 1) == 0 ? "m" : "w",
+                LocalDate.ofEpochDay(BIRTH_EPOCH_DAY + Math.floorMod(hash, BIRTH_SPREAD_DAYS)),
+                String.valueOf((char) ('A' + Math.floorMod(hash >>> 1, 4)))
+        );
+    }
+
+    /**
+     * Liest die Gewichte der Arten von Anfragen aus einer durch Kommas getrennten Liste.
+     *
+     * @param mix Die durch Kommas getrennten Gewichte in der Reihenfolge der {@link WorkloadTrace.Operation Arten}.
+     *
+     * @return Die Gewichte der Arten von Anfragen.
+     */
+    private static double[] parseMix(final String mix) {
+        final String[] parts = mix.split(",");
+        final double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i].trim());
+        }
+        return weights;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="report">
+
+    /**
+     * Gibt die Überschrift der laufenden Berichte aus.
+     */
+    private static void printHeader() {
+        final StringBuilder header = new StringBuilder(String.format(
+                "%8s %10s %8s %7s %7s",
+                "time",
+                "ops/s",
+                "backlog",
+                "errors",
+                "pending"
+        ));
+        for (final WorkloadTrace.Operation operation : WorkloadTrace.Operation.values()) {
+            header.append(String.format(" | %-6s %8s %8s %8s %8s", operation, "p50", "p99", "p99.9", "max"));
+        }
+        System.out.println(header.append("   (µs)"));
+    }
+
+    /**
+     * Berichtet über den Durchsatz und die Antwortzeiten seit dem letzten Bericht und übernimmt diese in die Werte des
+     * gesamten Laufs.
+     */
+    private synchronized void report() {
+        final long now = System.nanoTime();
+        final long completedNow = completed.sum();
+        final long errorsNow = errors.sum();
+        final double seconds = Math.max(1, now - lastReportNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        final DatabaseMetrics metrics = databaseHandler.getMetrics();
+
+        final StringBuilder line = new StringBuilder(String.format(
+                "%7.1fs %10.1f %8d %7d %7d",
+                (now - startNanos) / (double) TimeUnit.SECONDS.toNanos(1),
+                (completedNow - lastCompleted) / seconds,
+                dispatched.sum() - completedNow,
+                errorsNow - lastErrors,
+                metrics.getPendingThreads()
+        ));
+        for (final WorkloadTrace.Operation operation : WorkloadTrace.Operation.values()) {
+            final LatencyHistogram interval = intervals.getAndSet(operation.ordinal(), new LatencyHistogram());
+            totals[operation.ordinal()].add(interval);
+            line.append(String.format(" | %-6s", ""));
+            appendLatencies(line, interval);
+        }
+        System.out.println(line);
+
+        lastReportNanos = now;
+        lastCompleted = completedNow;
+        lastErrors = errorsNow;
+    }
+
+    /**
+     * Gibt die Antwortzeiten des gesamten Laufs je Art von Anfrage aus und stellt ihnen die reinen Bearbeitungszeiten
+     * gegenüber. Liegen beide weit auseinander, hat sich eine Warteschlange vor dem Pool gebildet.
+     */
+    private void printSummary() {
+        System.out.println();
+        System.out.println("Summary after " + completed.sum() + " requests with " + errors.sum() + " errors:");
+        for (final WorkloadTrace.Operation operation : WorkloadTrace.Operation.values()) {
+            final LatencyHistogram total = totals[operation.ordinal()];
+            final StringBuilder line = new StringBuilder(String.format("%-8s %10d", operation, total.getCount()));
+            appendLatencies(line, total);
+            System.out.println(line);
+        }
+
+        final StringBuilder service = new StringBuilder(String.format("%-8s %10d", "service", serviceTimes.getCount()));
+        appendLatencies(service, serviceTimes);
+        System.out.println(service);
+
+        final DatabaseMetrics metrics = databaseHandler.getMetrics();
+        System.out.println("Connection acquire p99: " + metrics.getAcquireP99Micros() + " µs, timeouts: "
+                + metrics.getConnectionTimeouts() + ", admission rejections: " + metrics.getAdmissionRejections());
+    }
+
+    /**
+     * Hängt die berichteten Quantile und das Maximum eines Histogramms in Mikrosekunden an eine Zeile an.
+     *
+     * @param line      Die Zeile, an die angehängt wird.
+     * @param histogram Das Histogramm mit Zeiten in Nanosekunden.
+     */
+    private static void appendLatencies(
+            final StringBuilder line,
+            final LatencyHistogram histogram
+    ) {
+        for (final double quantile : QUANTILES) {
+            line.append(String.format(" %8d", TimeUnit.NANOSECONDS.toMicros(histogram.getValueAtQuantile(quantile))));
+        }
+        line.append(String.format(" %8d", TimeUnit.NANOSECONDS.toMicros(histogram.getMaximum())));
+    }
+    //</editor-fold>
+}
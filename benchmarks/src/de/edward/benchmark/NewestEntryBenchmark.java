@@ -0,0 +1,91 @@
+package de.edward.benchmark;
+
+import de.edward.DatabaseHandler;
+import de.edward.LatestEntryTracker;
+import de.edward.QueryResultCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die Frage nach dem neuesten Eintrag über den Index auf dem Zeitstempel mit der Antwort aus dem
+ * {@link LatestEntryTracker} und aus dem {@link QueryResultCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NewestEntryBenchmark {
+
+    /** Die Größe des {@link QueryResultCache} in Bytes. */
+    private static final String RESULT_CACHE_BYTES = String.valueOf(1024 * 1024);
+    /** Die Abfrage des neuesten Eintrags über den Index auf dem Zeitstempel. */
+    private static final String NEWEST_SQL =
+            "SELECT strangWord FROM dictionaryTable WHERE date IS NOT NULL ORDER BY date DESC LIMIT 1";
+
+    /** Der {@link DatabaseHandler}, über den gelesen wird. */
+    private DatabaseHandler databaseHandler;
+    /** Der {@link DatabaseHandler} mit eingeschaltetem {@link QueryResultCache}. */
+    private DatabaseHandler cachingHandler;
+    /** Der {@link LatestEntryTracker}, aus dem der neueste Eintrag gelesen wird. */
+    private LatestEntryTracker<String> tracker;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseHandler = BenchmarkDatabase.open("bench-newest");
+        final Properties properties = new Properties();
+        properties.put(DatabaseHandler.RESULT_CACHE_BYTES_PROPERTY, RESULT_CACHE_BYTES);
+        cachingHandler = BenchmarkDatabase.open("bench-newest-cached", properties);
+        tracker = new LatestEntryTracker<>(16);
+        tracker.record(queryNewest());
+    }
+
+    @TearDown
+    public void tearDown() {
+        databaseHandler.close();
+        cachingHandler.close();
+    }
+
+    @Benchmark
+    public String indexedQuery() throws SQLException {
+        return queryNewest();
+    }
+
+    @Benchmark
+    public String tracker() {
+        return tracker.getNewest().getKey();
+    }
+
+    @Benchmark
+    public String resultCache() throws SQLException {
+        final List<String> newest = cachingHandler.queryCached(NEWEST_SQL, rs -> rs.getString(1));
+        return newest.isEmpty() ? "" : newest.get(0);
+    }
+
+    /**
+     * Liest den neuesten Eintrag über den Index auf dem Zeitstempel.
+     *
+     * @return Das fremde Wort des neuesten Eintrags oder ein leerer Text, wenn die Tabelle leer ist.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage fehlschlägt.
+     */
+    private String queryNewest() throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection();
+             final PreparedStatement stmt = conn.prepareStatement(NEWEST_SQL);
+             final ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getString(1) : "";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.edward.benchmark;
+
+import de.edward.DatabaseHandler;
+import de.edward.DictionaryEntry;
+import de.edward.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vergleicht das Schreiben einzelner Einträge mit je einer Anfrage und Bestätigung gegen das Schreiben derselben Anzahl
+ * an Einträgen in einer Stapel-Verarbeitung. Beide Varianten schreiben je Aufruf {@link #ROWS} Einträge, sodass die
+ * Ergebnisse je geschriebenem Eintrag vergleichbar sind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UpsertBenchmark {
+
+    /** Die Anzahl an Einträgen, die je Aufruf geschrieben werden. */
+    private static final int ROWS = 500;
+
+    /** Der {@link DatabaseHandler}, über den geschrieben wird. */
+    private DatabaseHandler databaseHandler;
+    /** Das {@link Repository}, über das geschrieben wird. */
+    private Repository<String, DictionaryEntry> repository;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseHandler = BenchmarkDatabase.open("bench-upsert");
+        repository = new Repository<>(databaseHandler, DictionaryEntry.DESCRIPTOR, 1, Duration.ZERO);
+    }
+
+    @TearDown
+    public void tearDown() {
+        databaseHandler.close();
+    }
+
+    /**
+     * Die Einträge, die ein einzelner Thread schreibt. Jeder Thread nutzt eigene Schlüssel, damit sich die Threads nicht
+     * gegenseitig sperren.
+     */
+    @State(Scope.Thread)
+    public static class Rows {
+
+        /** Der Zähler, mit dem jedem Thread ein eigener Bereich an Schlüsseln zugewiesen wird. */
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        /** Die Einträge, die je Aufruf geschrieben werden. */
+        private final List<DictionaryEntry> entries = new ArrayList<>(ROWS);
+
+        @Setup
+        public void setUp() {
+            final int thread = THREADS.getAndIncrement();
+            for (int i = 0; i < ROWS; i++) {
+                entries.add(new DictionaryEntry("bench-" + thread + "-" + i, "word", "noun", "benchmark entry"));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleRow(final Rows rows) throws SQLException {
+        for (final DictionaryEntry entry : rows.entries) {
+            repository.upsert(entry);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void batched(final Rows rows) throws SQLException {
+        repository.upsertAll(rows.entries);
+    }
+}
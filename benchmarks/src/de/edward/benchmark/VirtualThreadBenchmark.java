@@ -0,0 +1,75 @@
+package de.edward.benchmark;
+
+import de.edward.DatabaseHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht die asynchronen Aufrufe des {@link DatabaseHandler} auf virtuellen Threads mit denselben Aufrufen auf
+ * Plattform-Threads. Je Aufruf werden {@link #REQUESTS} gleichzeitige Abfragen gestartet, die sich die Verbindungen des
+ * Pools teilen. Die geforkte JVM meldet mit {@code jdk.tracePinnedThreads} jeden virtuellen Thread, der während einer
+ * blockierenden Operation im Treiber an seinen Träger-Thread gebunden bleibt; tauchen diese Meldungen auf, sperrt der
+ * MariaDB-Treiber intern mit {@code synchronized}, und die virtuellen Threads können ihren Vorteil nicht ausspielen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = BenchmarkRunner.TRACE_PINNED_THREADS)
+public class VirtualThreadBenchmark {
+
+    /** Die Anzahl an gleichzeitigen Abfragen je Aufruf. */
+    private static final int REQUESTS = 1000;
+
+    /** Ob die asynchronen Aufrufe auf virtuellen Threads ausgeführt werden. */
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    /** Der {@link DatabaseHandler}, über den abgefragt wird. */
+    private DatabaseHandler databaseHandler;
+
+    @Setup
+    public void setUp() throws SQLException {
+        final Properties properties = new Properties();
+        properties.put(DatabaseHandler.VIRTUAL_THREADS_PROPERTY, String.valueOf(virtualThreads));
+        databaseHandler = BenchmarkDatabase.open("bench-virtual", properties);
+
+        if (virtualThreads && !databaseHandler.isVirtualThreads()) {
+            throw new IllegalStateException("The runtime does not offer virtual threads, use at least JDK 21!");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        databaseHandler.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void concurrentQueries(final Blackhole blackhole) {
+        final List<CompletableFuture<List<Integer>>> results = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(databaseHandler.submitQuery("SELECT ?", (final ResultSet rs) -> rs.getInt(1), i));
+        }
+        for (final CompletableFuture<List<Integer>> result : results) {
+            blackhole.consume(result.join());
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package de.edward.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ein {@link WorkloadTrace} beschreibt eine Folge von {@link Request Anfragen} mit ihren geplanten Zeitpunkten, die der
+ * {@link LoadGenerator} gegen die Datenbank abspielt. Eine Folge wird entweder mit einer festen Rate und einer
+ * Zipf-Verteilung der Schlüssel erzeugt oder aus einer aufgezeichneten Datei gelesen.
+ *
+ * <p>Eine Datei enthält je Zeile eine Anfrage in der Form {@code offsetMicros,OPERATION,key}; der Versatz wird ab dem
+ * Beginn der Aufzeichnung gezählt. Leere Zeilen und Zeilen, die mit {@code #} beginnen, werden übersprungen.</p>
+ */
+final class WorkloadTrace {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Das Zeichen, mit dem die Felder einer Zeile getrennt werden. */
+    private static final char SEPARATOR = ',';
+    /** Das Zeichen, mit dem eine Kommentarzeile beginnt. */
+    private static final String COMMENT = "#";
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+    private WorkloadTrace() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="synthesize">
+
+    /**
+     * Erzeugt eine offene Folge von Anfragen: Die Abstände zwischen zwei Anfragen sind exponentialverteilt (Poisson-
+     * Ankünfte) und hängen nicht davon ab, wie schnell die Datenbank antwortet. Die Art jeder Anfrage wird nach den
+     * übergebenen Gewichten gewählt, ihr Schlüssel nach dem übergebenen {@link ZipfianGenerator}. Dieselben Parameter
+     * ergeben immer dieselbe Folge.
+     *
+     * @param rate     Die mittlere Anzahl an Anfragen je Sekunde.
+     * @param duration Die Dauer der Folge in Nanosekunden.
+     * @param weights  Die Gewichte der {@link Operation Arten} in der Reihenfolge ihrer Deklaration.
+     * @param keys     Der {@link ZipfianGenerator}, mit dem der Rang des Schlüssels gewählt wird.
+     * @param seed     Der Startwert des Zufallsgenerators.
+     *
+     * @return Ein {@link Iterator} über die erzeugten Anfragen in der Reihenfolge ihrer Zeitpunkte.
+     */
+    static Iterator<Request> synthesize(
+            final double rate,
+            final long duration,
+            final double[] weights,
+            final ZipfianGenerator keys,
+            final long seed
+    ) {
+        // check the parameters for validity
+        if (rate <= 0 || duration <= 0) {
+            throw new IllegalArgumentException("The supplied rate and duration must be positive!");
+        }
+        if (weights.length != Operation.values().length) {
+            throw new IllegalArgumentException("The supplied weights must match the operations!");
+        }
+
+        double total = 0;
+        final double[] cumulative = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("The supplied weights must not be negative!");
+            }
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The supplied weights must not all be zero!");
+        }
+        final double weightSum = total;
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        return new Iterator<>() {
+            /** Der Zeitpunkt der nächsten Anfrage ab dem Beginn in Nanosekunden. */
+            private long offset = nextGap();
+
+            @Override
+            public boolean hasNext() {
+                return offset < duration;
+            }
+
+            @Override
+            public Request next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final double pick = random.nextDouble() * weightSum;
+                int index = 0;
+                while (index < cumulative.length - 1 && pick >= cumulative[index]) {
+                    index++;
+                }
+                final Operation operation = Operation.values()[index];
+                final String key = operation.keyOf(keys.next(random));
+
+                final Request request = new Request(offset, operation, key);
+                offset += nextGap();
+                return request;
+            }
+
+            /**
+             * Zieht den Abstand bis zur nächsten Anfrage aus einer Exponentialverteilung.
+             *
+             * @return Der Abstand bis zur nächsten Anfrage in Nanosekunden.
+             */
+            private long nextGap() {
+                return (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            }
+        };
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="files">
+
+    /**
+     * Öffnet eine aufgezeichnete Datei zum Abspielen. Die Anfragen werden erst beim Abspielen gelesen, damit auch lange
+     * Aufzeichnungen nicht vollständig in den Speicher geladen werden müssen.
+     *
+     * @param file Die Datei, aus der gelesen wird.
+     *
+     * @return Ein {@link Reader} über die Anfragen der Datei, der nach dem Abspielen geschlossen werden muss.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn die Datei nicht geöffnet werden konnte.
+     */
+    static Reader read(final Path file) throws IOException {
+        return new Reader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Öffnet eine Datei, in die abgespielte Anfragen aufgezeichnet werden, damit dieselbe Last später erneut abgespielt
+     * werden kann.
+     *
+     * @param file Die Datei, in die geschrieben wird.
+     *
+     * @return Der {@link BufferedWriter}, an den {@link #write(BufferedWriter, Request)} die Anfragen anhängt.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn die Datei nicht geöffnet werden konnte.
+     */
+    static BufferedWriter record(final Path file) throws IOException {
+        final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(COMMENT + " offsetMicros" + SEPARATOR + "operation" + SEPARATOR + "key");
+        writer.newLine();
+        return writer;
+    }
+
+    /**
+     * Hängt eine Anfrage an eine Aufzeichnung an.
+     *
+     * @param writer  Der {@link BufferedWriter} der Aufzeichnung.
+     * @param request Die Anfrage, die aufgezeichnet wird.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht geschrieben werden konnte.
+     */
+    static void write(
+            final BufferedWriter writer,
+            final Request request
+    ) throws IOException {
+        writer.write(Long.toString(TimeUnit.NANOSECONDS.toMicros(request.offsetNanos)));
+        writer.write(SEPARATOR);
+        writer.write(request.operation.name());
+        writer.write(SEPARATOR);
+        writer.write(request.key);
+        writer.newLine();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Die Arten von Anfragen, aus denen sich die Last zusammensetzt.
+     */
+    enum Operation {
+
+        /** Liest einen Eintrag des Wörterbuchs über seinen Schlüssel. */
+        LOOKUP("word-"),
+
+        /** Fragt die zuletzt geschriebenen Teilnehmer ab. */
+        NEWEST(null),
+
+        /** Schreibt einen Teilnehmer der DAV-Tabelle. */
+        UPSERT("athlete-");
+
+        /** Das Präfix der Schlüssel dieser Art oder {@code null}, wenn sie keinen Schlüssel nutzt. */
+        private final String keyPrefix;
+
+        /**
+         * Erzeugt eine neue Art von Anfrage.
+         *
+         * @param keyPrefix Das Präfix der Schlüssel dieser Art oder {@code null}, wenn sie keinen Schlüssel nutzt.
+         */
+        Operation(final String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        /**
+         * Gibt den Schlüssel zu dem übergebenen Rang zurück.
+         *
+         * @param rank Der Rang des Schlüssels.
+         *
+         * @return Der Schlüssel zu dem Rang oder ein leerer Text, wenn diese Art keinen Schlüssel nutzt.
+         */
+        String keyOf(final int rank) {
+            return keyPrefix == null ? "" : keyPrefix + rank;
+        }
+    }
+
+    /**
+     * Eine einzelne geplante Anfrage.
+     */
+    static final class Request {
+
+        /** Der geplante Zeitpunkt ab dem Beginn in Nanosekunden. */
+        final long offsetNanos;
+        /** Die Art der Anfrage. */
+        final Operation operation;
+        /** Der Schlüssel der Anfrage oder ein leerer Text. */
+        final String key;
+
+        /**
+         * Erzeugt eine neue geplante Anfrage.
+         *
+         * @param offsetNanos Der geplante Zeitpunkt ab dem Beginn in Nanosekunden.
+         * @param operation   Die Art der Anfrage.
+         * @param key         Der Schlüssel der Anfrage oder ein leerer Text.
+         */
+        Request(
+                final long offsetNanos,
+                final Operation operation,
+                final String key
+        ) {
+            this.offsetNanos = offsetNanos;
+            this.operation = operation;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Ein {@link Reader} liest die Anfragen einer aufgezeichneten Datei Zeile für Zeile.
+     */
+    static final class Reader implements Iterator<Request>, Closeable {
+
+        /** Der {@link BufferedReader} der Datei. */
+        private final BufferedReader reader;
+        /** Die nächste gelesene Anfrage oder {@code null}, wenn die Datei zu Ende ist. */
+        private Request next;
+        /** Die Nummer der zuletzt gelesenen Zeile. */
+        private int line;
+
+        /**
+         * Erzeugt einen neuen {@link Reader} und liest die erste Anfrage.
+         *
+         * @param reader Der {@link BufferedReader} der Datei.
+         *
+         * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht gelesen werden konnte.
+         */
+        private Reader(final BufferedReader reader) throws IOException {
+            this.reader = reader;
+            this.next = readNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Request next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            final Request current = next;
+            try {
+                next = readNext();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return current;
+        }
+
+        /**
+         * Liest die nächste Anfrage und überspringt dabei leere Zeilen und Kommentare.
+         *
+         * @return Die nächste Anfrage oder {@code null}, wenn die Datei zu Ende ist.
+         *
+         * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht gelesen werden konnte.
+         */
+        private Request readNext() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank() || text.startsWith(COMMENT)) {
+                    continue;
+                }
+
+                final int first = text.indexOf(SEPARATOR);
+                final int second = first < 0 ? -1 : text.indexOf(SEPARATOR, first + 1);
+                if (second < 0) {
+                    throw new IOException("The line " + line + " of the trace is malformed!");
+                }
+                try {
+                    return new Request(
+                            TimeUnit.MICROSECONDS.toNanos(Long.parseLong(text.substring(0, first).trim())),
+                            Operation.valueOf(text.substring(first + 1, second).trim()),
+                            text.substring(second + 1).trim()
+                    );
+                } catch (final IllegalArgumentException e) {
+                    throw new IOException("The line " + line + " of the trace is malformed!", e);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,78 @@
+package de.edward.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Ein {@link ZipfianGenerator} wählt Ränge zwischen {@code 0} und {@code n - 1}, wobei der Rang {@code k} mit einer
+ * Wahrscheinlichkeit proportional zu {@code 1 / (k + 1)^s} gezogen wird. Mit einem Exponenten um {@code 1} fallen so
+ * wie bei echten Wörterbuch-Abfragen die meisten Zugriffe auf wenige, häufige Schlüssel; mit dem Exponenten {@code 0}
+ * sind alle Ränge gleich wahrscheinlich.
+ *
+ * <p>Die Verteilungsfunktion wird einmal vorberechnet, sodass jede Ziehung nur eine binäre Suche kostet.</p>
+ */
+final class ZipfianGenerator {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die kumulierten Wahrscheinlichkeiten der Ränge, deren letzter Wert {@code 1} ist. */
+    private final double[] cumulative;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link ZipfianGenerator}.
+     *
+     * @param count    Die Anzahl an Rängen.
+     * @param exponent Der Exponent der Verteilung; {@code 0} für eine Gleichverteilung.
+     */
+    ZipfianGenerator(
+            final int count,
+            final double exponent
+    ) {
+        // check the parameters for validity
+        if (count <= 0) {
+            throw new IllegalArgumentException("The supplied count must be positive!");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("The supplied exponent must not be negative!");
+        }
+
+        this.cumulative = new double[count];
+        double sum = 0;
+        for (int rank = 0; rank < count; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < count; rank++) {
+            cumulative[rank] /= sum;
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="sample">
+
+    /**
+     * Zieht einen Rang mit dem übergebenen Zufallsgenerator.
+     *
+     * @param random Der Zufallsgenerator, mit dem gezogen wird.
+     *
+     * @return Der gezogene Rang zwischen {@code 0} und {@code n - 1}.
+     */
+    int next(final SplittableRandom random) {
+        final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index < 0 ? -index - 1 : index);
+    }
+
+    /**
+     * Gibt die Anzahl an Rängen zurück.
+     *
+     * @return Die Anzahl an Rängen.
+     */
+    int size() {
+        return cumulative.length;
+    }
+    //</editor-fold>
+}
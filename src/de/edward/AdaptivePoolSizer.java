@@ -0,0 +1,125 @@
+package de.edward;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Der {@link AdaptivePoolSizer} passt die maximale Größe eines Connection-Pools zur Laufzeit an die beobachtete
+ * Wartezeit beim Ausleihen einer Verbindung an. Warten die Aufrufer im Schnitt zu lange, wächst der Pool schrittweise bis
+ * zu einer Obergrenze; bleibt ein großer Teil des Pools ungenutzt, schrumpft er wieder bis zu einer Untergrenze. Er wird
+ * in einem festen Abstand von dem {@link DatabaseHandler} aufgerufen.
+ */
+final class AdaptivePoolSizer implements Runnable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die durchschnittliche Wartezeit, ab der der Pool wächst. */
+    private static final long GROW_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    /** Die durchschnittliche Wartezeit, unter der der Pool schrumpfen darf. */
+    private static final long SHRINK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    /** Der Anteil, um den der Pool bei zu langer Wartezeit wächst. */
+    private static final double GROW_FACTOR = 0.25;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Konfiguration des Pools, über die die Größe zur Laufzeit verändert wird. */
+    private final HikariConfigMXBean config;
+    /** Der Pool, dessen Auslastung beobachtet wird. */
+    private final HikariPoolMXBean pool;
+    /** Die Größe, unter die der Pool nicht schrumpft. */
+    private final int minimumPoolSize;
+    /** Die Größe, über die der Pool nicht wächst. */
+    private final int maximumPoolSize;
+    /** Die Anzahl an Verbindungen im Leerlauf, die der Pool laut seinem Profil mindestens hält. */
+    private final int minimumIdle;
+    /** Die Summe der Wartezeiten in Nanosekunden seit der letzten Anpassung. */
+    private final LongAdder waitNanos = new LongAdder();
+    /** Die Anzahl an ausgeliehenen Verbindungen seit der letzten Anpassung. */
+    private final LongAdder acquisitions = new LongAdder();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link AdaptivePoolSizer} für einen bereits gestarteten Pool.
+     *
+     * @param config          Die Konfiguration des Pools, über die die Größe zur Laufzeit verändert wird.
+     * @param pool            Der Pool, dessen Auslastung beobachtet wird.
+     * @param minimumPoolSize Die Größe, unter die der Pool nicht schrumpft.
+     * @param maximumPoolSize Die Größe, über die der Pool nicht wächst.
+     */
+    AdaptivePoolSizer(
+            final HikariConfigMXBean config,
+            final HikariPoolMXBean pool,
+            final int minimumPoolSize,
+            final int maximumPoolSize
+    ) {
+        // check the bounds for validity
+        if (minimumPoolSize <= 0 || minimumPoolSize > maximumPoolSize) {
+            throw new IllegalArgumentException("The supplied pool size bounds are invalid!");
+        }
+
+        this.config = config;
+        this.pool = pool;
+        this.minimumPoolSize = minimumPoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.minimumIdle = config.getMinimumIdle();
+    }
+    //</editor-fold>
+
+
+    /**
+     * Vermerkt, wie lange auf eine Verbindung gewartet wurde.
+     *
+     * @param nanos Die Wartezeit in Nanosekunden.
+     */
+    void recordWait(final long nanos) {
+        waitNanos.add(nanos);
+        acquisitions.increment();
+    }
+
+    @Override
+    public void run() {
+        final long count = acquisitions.sumThenReset();
+        final long total = waitNanos.sumThenReset();
+        final int current = config.getMaximumPoolSize();
+
+        final long averageWait = count == 0 ? 0 : total / count;
+
+        if (averageWait > GROW_THRESHOLD_NANOS || pool.getThreadsAwaitingConnection() > 0) {
+            // callers are queueing: grow by a fraction of the current size
+            final int grown = Math.min(maximumPoolSize, current + Math.max(1, (int) (current * GROW_FACTOR)));
+            if (grown != current) {
+                resize(grown);
+            }
+        } else if (averageWait < SHRINK_THRESHOLD_NANOS && pool.getIdleConnections() > current / 2) {
+            // more than half of the pool is idle: give back one connection at a time
+            final int shrunk = Math.max(minimumPoolSize, current - 1);
+            if (shrunk != current) {
+                resize(shrunk);
+            }
+        }
+    }
+
+    /**
+     * Setzt die maximale Größe des Pools und begrenzt die Anzahl an Verbindungen im Leerlauf auf sie. Beim Wachsen wird
+     * so auch die Anzahl aus dem Profil wiederhergestellt, die beim Schrumpfen unterschritten wurde.
+     *
+     * @param size Die neue maximale Größe des Pools.
+     */
+    private void resize(final int size) {
+        final int idle = Math.min(minimumIdle, size);
+        if (size < config.getMaximumPoolSize()) {
+            // lower the idle floor first, as hikari rejects a floor above the maximum
+            config.setMinimumIdle(idle);
+            config.setMaximumPoolSize(size);
+        } else {
+            config.setMaximumPoolSize(size);
+            config.setMinimumIdle(idle);
+        }
+    }
+}
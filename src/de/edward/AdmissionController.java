@@ -0,0 +1,398 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Der {@link AdmissionController} steht vor dem Connection-Pool eines {@link DatabaseHandler} und begrenzt, wie viele
+ * Threads gleichzeitig auf eine Verbindung warten dürfen. Die Grenze folgt der beobachteten Wartezeit (AIMD): Bleibt
+ * die Wartezeit unter dem Ziel, wächst sie langsam; überschreitet sie das Ziel, schrumpft sie sofort um einen festen
+ * Anteil. Wird die Datenbank langsamer, warten dadurch nicht mehr alle Aufrufer bis zum Ablauf der Wartezeit des
+ * Pools, sondern überzählige Aufrufer werden früh abgewiesen.
+ *
+ * <p>Anfragen werden nach ihrer {@link ConnectionPriority} zugelassen: kritische Anfragen immer, gewöhnliche bis zur
+ * Grenze und Massen-Anfragen nur bis zu einem Teil der Grenze und nur, solange keine gewöhnliche Anfrage wartet. Eine
+ * Anfrage, deren geschätzte Wartezeit ihre Frist überschreitet, wird sofort abgewiesen statt zu warten.</p>
+ *
+ * <p>Schlagen mehrere Anfragen in Folge fehl, öffnet sich ein Schutzschalter, der alle Anfragen sofort abweist. Nach
+ * einer Pause wird eine einzelne Probe-Anfrage zugelassen, deren Erfolg den Schutzschalter wieder schließt.</p>
+ */
+final class AdmissionController {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Grenze, unter die nie geschrumpft wird. */
+    private static final double MINIMUM_LIMIT = 1;
+    /** Der Faktor, mit dem die Grenze bei zu langer Wartezeit oder einem Fehler schrumpft. */
+    private static final double BACKOFF = 0.9;
+    /** Die Zeit, die zwischen zwei Verkleinerungen der Grenze mindestens vergeht. */
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Der Anteil der Grenze, den Massen-Anfragen höchstens nutzen dürfen. */
+    private static final double BULK_SHARE = 0.5;
+    /** Das Gewicht einer neuen Wartezeit im gleitenden Mittelwert. */
+    private static final double WAIT_SMOOTHING = 0.2;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Grenze, über die nie gewachsen wird. */
+    private final double maximumLimit;
+    /** Die Wartezeit in Nanosekunden, bis zu der die Grenze wachsen darf. */
+    private final long targetWaitNanos;
+    /** Die Frist in Nanosekunden, innerhalb der eine Anfrage zugelassen werden muss. */
+    private final long deadlineNanos;
+    /** Die Anzahl an Fehlschlägen in Folge, ab der der Schutzschalter öffnet. */
+    private final int failureThreshold;
+    /** Die Zeit in Nanosekunden, die der Schutzschalter geöffnet bleibt, bevor eine Probe zugelassen wird. */
+    private final long openNanos;
+    /** Die {@link DatabaseMetrics}, in denen Abweisungen und das Öffnen des Schutzschalters erfasst werden. */
+    private final DatabaseMetrics metrics;
+    /** Die Sperre, die den gesamten Zustand schützt. */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Die Bedingung, über die wartende Anfragen von frei gewordenen Plätzen erfahren. */
+    private final Condition released = lock.newCondition();
+    /** Die aktuelle Grenze gleichzeitiger Anfragen an den Pool. */
+    private double limit;
+    /** Die Anzahl an Anfragen, die gerade an den Pool gestellt werden. */
+    private int inFlight;
+    /** Die Anzahl an gewöhnlichen Anfragen, die auf einen Platz warten. */
+    private int waitingInteractive;
+    /** Die Anzahl an Anfragen, die auf einen Platz warten. */
+    private int waiting;
+    /** Der gleitende Mittelwert der Wartezeit auf eine Verbindung in Nanosekunden. */
+    private double averageWaitNanos;
+    /** Der Zeitpunkt der letzten Verkleinerung der Grenze in Nanosekunden. */
+    private long lastDecreaseNanos;
+    /** Der Zustand des Schutzschalters. */
+    private CircuitState state = CircuitState.CLOSED;
+    /** Die Anzahl an Fehlschlägen in Folge. */
+    private int consecutiveFailures;
+    /** Der Zeitpunkt, zu dem der Schutzschalter zuletzt geöffnet wurde, in Nanosekunden. */
+    private long openedNanos;
+    /** Ob gerade eine Probe-Anfrage läuft. */
+    private boolean probing;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link AdmissionController}.
+     *
+     * @param initialLimit     Die Grenze gleichzeitiger Anfragen an den Pool zu Beginn.
+     * @param maximumLimit     Die Grenze, über die nie gewachsen wird.
+     * @param targetWaitNanos  Die Wartezeit in Nanosekunden, bis zu der die Grenze wachsen darf.
+     * @param deadlineNanos    Die Frist in Nanosekunden, innerhalb der eine Anfrage zugelassen werden muss.
+     * @param failureThreshold Die Anzahl an Fehlschlägen in Folge, ab der der Schutzschalter öffnet.
+     * @param openNanos        Die Zeit in Nanosekunden, die der Schutzschalter geöffnet bleibt.
+     * @param metrics          Die {@link DatabaseMetrics}, in denen Abweisungen erfasst werden.
+     */
+    AdmissionController(
+            final int initialLimit,
+            final int maximumLimit,
+            final long targetWaitNanos,
+            final long deadlineNanos,
+            final int failureThreshold,
+            final long openNanos,
+            final DatabaseMetrics metrics
+    ) {
+        // check the limits for validity
+        if (initialLimit <= 0 || initialLimit > maximumLimit) {
+            throw new IllegalArgumentException("The supplied admission limits are invalid!");
+        }
+        if (targetWaitNanos <= 0 || deadlineNanos <= 0 || openNanos <= 0) {
+            throw new IllegalArgumentException("The supplied admission times must be positive!");
+        }
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("The supplied failure threshold must be positive!");
+        }
+
+        this.limit = initialLimit;
+        this.maximumLimit = maximumLimit;
+        this.targetWaitNanos = targetWaitNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.metrics = metrics;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="admission">
+
+    /**
+     * Lässt eine Anfrage nach ihrer {@link ConnectionPriority} zu, leiht die Verbindung und passt anschließend die
+     * Grenze und den Schutzschalter an das Ergebnis an. Die Frist gilt für beides zusammen: Der Pool wartet nur noch
+     * die Zeit, die nach dem Zulassen bis zur Frist übrig ist.
+     *
+     * @param priority Die {@link ConnectionPriority} der Anfrage.
+     * @param checkout Der {@link Checkout}, der die Verbindung aus dem Pool leiht.
+     *
+     * @return Die geliehene Verbindung.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftritt, wenn die Anfrage abgewiesen wurde
+     *                      ({@link SQLTransientConnectionException}) oder keine Verbindung geliehen werden konnte.
+     */
+    Connection acquire(
+            final ConnectionPriority priority,
+            final Checkout checkout
+    ) throws SQLException {
+        final long deadline = System.nanoTime() + deadlineNanos;
+        final boolean probe = admit(priority, deadline);
+
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final Connection conn = checkout.get(Math.max(0, deadline - start));
+            success = true;
+            return conn;
+        } finally {
+            complete(probe, success, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Wartet auf einen Platz für die Anfrage, solange die geschätzte Wartezeit in die Frist passt.
+     *
+     * @param priority Die {@link ConnectionPriority} der Anfrage.
+     * @param deadline Der Zeitpunkt in Nanosekunden, bis zu dem die Anfrage zugelassen werden muss.
+     *
+     * @return Ob die Anfrage die Probe eines halb geöffneten Schutzschalters ist.
+     *
+     * @throws SQLTransientConnectionException Die Fehlermeldung, die auftritt, wenn die Anfrage abgewiesen wird.
+     */
+    private boolean admit(
+            final ConnectionPriority priority,
+            final long deadline
+    ) throws SQLTransientConnectionException {
+        lock.lock();
+        try {
+            final boolean probe = passCircuit();
+            if (priority == ConnectionPriority.CRITICAL || probe) {
+                inFlight++;
+                return probe;
+            }
+
+            // reject right away if the queue ahead is not expected to drain in time
+            if (!hasRoom(priority)) {
+                final double estimate = averageWaitNanos * (1 + (double) waiting / limit);
+                if (estimate > deadline - System.nanoTime()) {
+                    throw reject("the estimated wait exceeds the deadline");
+                }
+            }
+
+            waiting++;
+            if (priority == ConnectionPriority.INTERACTIVE) {
+                waitingInteractive++;
+            }
+            try {
+                while (!hasRoom(priority)) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw reject("the deadline expired while waiting");
+                    }
+                    released.awaitNanos(remaining);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw reject("the waiting thread was interrupted");
+            } finally {
+                waiting--;
+                if (priority == ConnectionPriority.INTERACTIVE) {
+                    waitingInteractive--;
+                }
+            }
+
+            inFlight++;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Prüft, ob eine Anfrage der übergebenen {@link ConnectionPriority} gerade einen Platz bekommt. Muss unter der
+     * Sperre aufgerufen werden.
+     *
+     * @param priority Die {@link ConnectionPriority} der Anfrage.
+     *
+     * @return Ob die Anfrage einen Platz bekommt.
+     */
+    private boolean hasRoom(final ConnectionPriority priority) {
+        if (priority == ConnectionPriority.BULK) {
+            return waitingInteractive == 0 && inFlight < Math.max(MINIMUM_LIMIT, limit * BULK_SHARE);
+        }
+        return inFlight < limit;
+    }
+
+    /**
+     * Prüft den Schutzschalter. Ist er geöffnet und die Pause vorbei, wird er halb geöffnet und die Anfrage als Probe
+     * zugelassen. Muss unter der Sperre aufgerufen werden.
+     *
+     * @return Ob die Anfrage als Probe zugelassen wird.
+     *
+     * @throws SQLTransientConnectionException Die Fehlermeldung, die auftritt, wenn der Schutzschalter die Anfrage
+     *                                         abweist.
+     */
+    private boolean passCircuit() throws SQLTransientConnectionException {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedNanos >= openNanos) {
+            state = CircuitState.HALF_OPEN;
+        }
+        if (state == CircuitState.OPEN || (state == CircuitState.HALF_OPEN && probing)) {
+            throw reject("the circuit breaker is open");
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            probing = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gibt den Platz einer Anfrage frei und passt die Grenze und den Schutzschalter an ihr Ergebnis an.
+     *
+     * @param probe       Ob die Anfrage die Probe eines halb geöffneten Schutzschalters war.
+     * @param success     Ob eine Verbindung geliehen werden konnte.
+     * @param waitedNanos Die Zeit in Nanosekunden, die auf die Verbindung gewartet wurde.
+     */
+    private void complete(
+            final boolean probe,
+            final boolean success,
+            final long waitedNanos
+    ) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (probe) {
+                probing = false;
+            }
+
+            final long now = System.nanoTime();
+            if (success) {
+                consecutiveFailures = 0;
+                if (state == CircuitState.HALF_OPEN) {
+                    state = CircuitState.CLOSED;
+                }
+
+                averageWaitNanos += WAIT_SMOOTHING * (waitedNanos - averageWaitNanos);
+                if (waitedNanos > targetWaitNanos) {
+                    decrease(now);
+                } else {
+                    // grow by roughly one per limit of successful requests
+                    limit = Math.min(maximumLimit, limit + 1 / limit);
+                }
+            } else {
+                consecutiveFailures++;
+                decrease(now);
+                if (state != CircuitState.OPEN && (probe || consecutiveFailures >= failureThreshold)) {
+                    state = CircuitState.OPEN;
+                    openedNanos = now;
+                    metrics.recordCircuitOpening();
+                }
+            }
+
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Verkleinert die Grenze, sofern seit der letzten Verkleinerung genug Zeit vergangen ist, damit eine Welle von
+     * langsamen Anfragen die Grenze nicht auf einen Schlag auf das Minimum drückt. Muss unter der Sperre aufgerufen
+     * werden.
+     *
+     * @param now Der aktuelle Zeitpunkt in Nanosekunden.
+     */
+    private void decrease(final long now) {
+        if (now - lastDecreaseNanos >= DECREASE_INTERVAL_NANOS) {
+            limit = Math.max(MINIMUM_LIMIT, limit * BACKOFF);
+            lastDecreaseNanos = now;
+        }
+    }
+
+    /**
+     * Erfasst eine Abweisung und erzeugt die zugehörige Fehlermeldung.
+     *
+     * @param reason Der Grund der Abweisung.
+     *
+     * @return Die Fehlermeldung der Abweisung.
+     */
+    private SQLTransientConnectionException reject(final String reason) {
+        metrics.recordAdmissionRejection();
+        return new SQLTransientConnectionException("The connection was rejected, as " + reason + "!");
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt die aktuelle Grenze gleichzeitiger Anfragen an den Pool zurück.
+     *
+     * @return Die aktuelle, abgerundete Grenze.
+     */
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gibt den aktuellen Zustand des Schutzschalters zurück.
+     *
+     * @return Der aktuelle Zustand des Schutzschalters.
+     */
+    CircuitState getCircuitState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein {@link Checkout} leiht eine Verbindung aus dem Pool.
+     */
+    @FunctionalInterface
+    interface Checkout {
+
+        /**
+         * Leiht eine Verbindung aus dem Pool.
+         *
+         * @param timeoutNanos Die Zeit in Nanosekunden, die höchstens auf eine Verbindung gewartet wird.
+         *
+         * @return Die geliehene Verbindung.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn keine Verbindung geliehen werden konnte.
+         */
+        Connection get(long timeoutNanos) throws SQLException;
+    }
+
+    /**
+     * Die Zustände des Schutzschalters.
+     */
+    enum CircuitState {
+
+        /** Alle Anfragen werden nach der Grenze zugelassen. */
+        CLOSED,
+
+        /** Alle Anfragen werden sofort abgewiesen. */
+        OPEN,
+
+        /** Eine einzelne Probe-Anfrage wird zugelassen, deren Ergebnis über den weiteren Zustand entscheidet. */
+        HALF_OPEN
+    }
+    //</editor-fold>
+}
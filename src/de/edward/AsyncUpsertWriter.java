@@ -0,0 +1,363 @@
+package de.edward;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Ein {@link AsyncUpsertWriter} nimmt Datensätze entgegen, ohne auf die Datenbank zu warten, und schreibt sie im
+ * Hintergrund gesammelt über einen {@link DatabaseHandler}. Mehrfach eingereihte Datensätze mit demselben Schlüssel
+ * werden zusammengefasst, sodass nur der zuletzt eingereihte Stand geschrieben wird. Ein Block wird bestätigt, sobald
+ * entweder genug Datensätze gesammelt wurden oder der älteste Datensatz lange genug gewartet hat.
+ *
+ * <p>Die Datensätze werden anhand ihres Schlüssels fest auf die Schreib-Threads verteilt, damit zwei Stände desselben
+ * Schlüssels niemals gleichzeitig geschrieben werden und ihre Reihenfolge erhalten bleibt. Ein optionaler
+ * {@link WriteListener} erfährt nach jedem bestätigten Block, welche Stände tatsächlich geschrieben wurden; ersetzte
+ * Stände werden ihm nicht gemeldet.</p>
+ *
+ * <p>Die Schreib-Threads sind Daemon-Threads. Nur {@link #close()} garantiert, dass alle eingereihten Datensätze vor
+ * dem Ende der Anwendung geschrieben werden.</p>
+ *
+ * @param <K> Der Typ des Schlüssels, über den Datensätze zusammengefasst werden.
+ * @param <T> Der Typ der Datensätze, die geschrieben werden.
+ */
+public final class AsyncUpsertWriter<K, T> implements AutoCloseable {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der {@link DatabaseHandler}, über den die Datensätze geschrieben werden. */
+    private final DatabaseHandler databaseHandler;
+    /** Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird. */
+    private final String sql;
+    /** Die Funktion, die zu dem Zeitstempel eines Blocks den {@link StatementBinder} liefert, der ihn bindet. */
+    private final Function<Timestamp, StatementBinder<T>> binders;
+    /** Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird. */
+    private final Function<? super T, ? extends K> keyExtractor;
+    /** Der {@link WriteListener}, der nach jedem bestätigten Block benachrichtigt wird, oder {@code null}. */
+    private final WriteListener<? super K, ? super T> listener;
+    /** Die Anzahl an wartenden Schlüsseln, ab der ein Block sofort geschrieben wird. */
+    private final int flushSize;
+    /** Die Zeit in Nanosekunden, die ein Datensatz höchstens wartet, bevor sein Block geschrieben wird. */
+    private final long flushIntervalNanos;
+    /** Die Partitionen, auf die die Schlüssel verteilt werden, mit jeweils einem eigenen Schreib-Thread. */
+    private final List<Partition> partitions;
+    /** Ob dieser Writer geschlossen wurde und keine neuen Datensätze mehr annimmt. */
+    private volatile boolean closed;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link AsyncUpsertWriter}, welcher sofort seine Schreib-Threads startet.
+     *
+     * @param databaseHandler Der {@link DatabaseHandler}, über den die Datensätze geschrieben werden.
+     * @param sql             Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param binders         Die Funktion, die zu dem Zeitstempel eines Blocks den {@link StatementBinder} liefert,
+     *                        mit dem die Werte eines Datensatzes samt diesem Zeitstempel übertragen werden.
+     * @param keyExtractor    Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird.
+     * @param capacity        Die Anzahl an Schlüsseln, die insgesamt höchstens auf das Schreiben warten dürfen.
+     * @param flushSize       Die Anzahl an wartenden Schlüsseln, ab der ein Block sofort geschrieben wird.
+     * @param flushInterval   Die Zeit, die ein Datensatz höchstens wartet, bevor sein Block geschrieben wird.
+     * @param writerThreads   Die Anzahl an Threads, die parallel Blöcke schreiben.
+     * @param listener        Der {@link WriteListener}, der nach jedem bestätigten Block mit den geschriebenen
+     *                        Datensätzen und ihrem Zeitstempel benachrichtigt wird, oder {@code null}.
+     */
+    public AsyncUpsertWriter(
+            final DatabaseHandler databaseHandler,
+            final String sql,
+            final Function<Timestamp, StatementBinder<T>> binders,
+            final Function<? super T, ? extends K> keyExtractor,
+            final int capacity,
+            final int flushSize,
+            final Duration flushInterval,
+            final int writerThreads,
+            final WriteListener<? super K, ? super T> listener
+    ) {
+        // check the limits for validity
+        if (writerThreads <= 0) {
+            throw new IllegalArgumentException("The supplied number of writer threads must be positive!");
+        }
+        if (flushSize <= 0) {
+            throw new IllegalArgumentException("The supplied flush size must be positive!");
+        }
+        if (capacity < writerThreads) {
+            throw new IllegalArgumentException("The supplied capacity must be at least the number of writer threads!");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("The supplied flush interval must be positive!");
+        }
+
+        this.databaseHandler = databaseHandler;
+        this.sql = sql;
+        this.binders = binders;
+        this.keyExtractor = keyExtractor;
+        this.listener = listener;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+
+        // split the capacity across the partitions and start one writer per partition
+        final int partitionCapacity = (capacity + writerThreads - 1) / writerThreads;
+        final List<Partition> created = new ArrayList<>(writerThreads);
+        for (int i = 0; i < writerThreads; i++) {
+            final Partition partition = new Partition(partitionCapacity);
+            final Thread thread = new Thread(partition, "upsert-writer-" + i);
+            // a writer that is never closed must not keep the jvm alive
+            thread.setDaemon(true);
+            partition.thread = thread;
+            created.add(partition);
+            thread.start();
+        }
+        this.partitions = List.copyOf(created);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="enqueue">
+
+    /**
+     * Reiht einen Datensatz zum Schreiben ein. Wartet für denselben Schlüssel bereits ein Datensatz, wird dieser durch
+     * den neuen ersetzt. Ist die Warteschlange voll, blockiert dieser Aufruf, bis wieder Platz frei ist.
+     *
+     * @param row Der Datensatz, der geschrieben werden soll.
+     *
+     * @return Ein {@link CompletableFuture}, welcher abgeschlossen wird, sobald der Datensatz (oder ein ihn ersetzender
+     *     neuerer Stand) bestätigt wurde.
+     *
+     * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn der Thread beim Warten unterbrochen wird.
+     */
+    public CompletableFuture<Void> enqueue(final T row) throws InterruptedException {
+        final K key = keyExtractor.apply(row);
+        return partitions.get(Math.floorMod(key.hashCode(), partitions.size())).enqueue(key, row);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="close">
+
+    /**
+     * Schließt diesen Writer. Neue Datensätze werden abgelehnt, alle bereits eingereihten Datensätze werden jedoch noch
+     * geschrieben, bevor dieser Aufruf zurückkehrt.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (final Partition partition : partitions) {
+            partition.wakeUp();
+        }
+
+        boolean interrupted = false;
+        for (final Partition partition : partitions) {
+            while (true) {
+                try {
+                    partition.thread.join();
+                    break;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="partition">
+
+    /**
+     * Ein wartender Datensatz zusammen mit allen {@link CompletableFuture}, die auf sein Schreiben warten.
+     *
+     * @param <T> Der Typ des Datensatzes.
+     */
+    private static final class Pending<T> {
+
+        /** Der zuletzt eingereihte Stand des Datensatzes. */
+        private T row;
+        /** Die {@link CompletableFuture} aller Aufrufer, deren Stand in diesem Datensatz aufgegangen ist. */
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+    }
+
+    /**
+     * Eine Partition sammelt die wartenden Datensätze eines Teils der Schlüssel und schreibt sie mit einem eigenen
+     * Thread.
+     */
+    private final class Partition implements Runnable {
+
+        /** Die Sperre, die den Zugriff auf die wartenden Datensätze schützt. */
+        private final ReentrantLock lock = new ReentrantLock();
+        /** Die Bedingung, auf die der Schreib-Thread wartet, bis es etwas zu schreiben gibt. */
+        private final Condition notEmpty = lock.newCondition();
+        /** Die Bedingung, auf die einreihende Threads warten, wenn die Partition voll ist. */
+        private final Condition notFull = lock.newCondition();
+        /** Die Anzahl an Schlüsseln, die in dieser Partition höchstens warten dürfen. */
+        private final int capacity;
+        /** Die wartenden Datensätze nach Schlüssel in der Reihenfolge ihres ersten Einreihens. */
+        private Map<K, Pending<T>> pending = new LinkedHashMap<>();
+        /** Der Zeitpunkt in Nanosekunden, zu dem der älteste wartende Datensatz eingereiht wurde. */
+        private long oldestNanos;
+        /** Der Thread, der die Datensätze dieser Partition schreibt. */
+        private Thread thread;
+
+        /**
+         * Erzeugt eine neue, leere {@link Partition}.
+         *
+         * @param capacity Die Anzahl an Schlüsseln, die in dieser Partition höchstens warten dürfen.
+         */
+        private Partition(final int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Reiht einen Datensatz in diese Partition ein und wartet gegebenenfalls auf freien Platz.
+         *
+         * @param key Der Schlüssel des Datensatzes.
+         * @param row Der Datensatz.
+         *
+         * @return Der {@link CompletableFuture}, der nach dem Schreiben abgeschlossen wird.
+         *
+         * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn der Thread beim Warten unterbrochen wird.
+         */
+        private CompletableFuture<Void> enqueue(final K key, final T row) throws InterruptedException {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+
+            lock.lockInterruptibly();
+            try {
+                // apply backpressure as long as a new key would not fit
+                while (!closed && pending.size() >= capacity && !pending.containsKey(key)) {
+                    notFull.await();
+                }
+                if (closed) {
+                    throw new IllegalStateException("The writer has already been closed!");
+                }
+
+                if (pending.isEmpty()) {
+                    oldestNanos = System.nanoTime();
+                }
+
+                // coalesce with an already waiting row of the same key
+                final Pending<T> entry = pending.computeIfAbsent(key, k -> new Pending<>());
+                entry.row = row;
+                entry.futures.add(future);
+
+                if (pending.size() == 1 || pending.size() >= flushSize) {
+                    notEmpty.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            return future;
+        }
+
+        /**
+         * Weckt alle Threads dieser Partition auf, damit sie den geschlossenen Zustand bemerken.
+         */
+        private void wakeUp() {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Map<K, Pending<T>> batch;
+
+                lock.lock();
+                try {
+                    // wait until the batch is full, the oldest row is due or the writer closes
+                    while (!closed && pending.size() < flushSize) {
+                        if (pending.isEmpty()) {
+                            notEmpty.awaitUninterruptibly();
+                            continue;
+                        }
+
+                        final long remaining = oldestNanos + flushIntervalNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        try {
+                            notEmpty.awaitNanos(remaining);
+                        } catch (final InterruptedException e) {
+                            // only close() may stop the writer, so the interrupt is ignored
+                        }
+                    }
+
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+
+                    batch = pending;
+                    pending = new LinkedHashMap<>();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                flush(batch);
+            }
+        }
+
+        /**
+         * Schreibt einen Block an Datensätzen in einer einzigen Transaktion und schließt danach deren
+         * {@link CompletableFuture} ab.
+         *
+         * @param batch Die Datensätze, die geschrieben werden.
+         */
+        private void flush(final Map<K, Pending<T>> batch) {
+            final List<T> rows = new ArrayList<>(batch.size());
+            for (final Pending<T> entry : batch.values()) {
+                rows.add(entry.row);
+            }
+
+            // the whole batch shares one timestamp, so the listener sees exactly what the table holds
+            final Timestamp stamp = WriteClock.now();
+            Throwable failure = null;
+            try {
+                databaseHandler.upsertBatch(
+                        sql,
+                        rows.iterator(),
+                        binders.apply(stamp),
+                        rows.size(),
+                        ConnectionPriority.BULK
+                );
+            } catch (final Throwable e) {
+                // even an error must fail the futures, otherwise their callers would wait forever
+                failure = e;
+            }
+
+            // the rows are committed at this point, so a failing listener must not fail their futures
+            if (failure == null && listener != null) {
+                try {
+                    listener.written(rows, stamp.getTime());
+                } catch (final Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+
+            for (final Pending<T> entry : batch.values()) {
+                for (final CompletableFuture<Void> future : entry.futures) {
+                    if (failure == null) {
+                        future.complete(null);
+                    } else {
+                        future.completeExceptionally(failure);
+                    }
+                }
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,859 @@
+package de.edward;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Der {@link BulkImporter} liest große CSV- oder TSV-Dateien und schreibt ihre Zeilen so schnell wie möglich über die
+ * normale JDBC-Verbindung in eine Tabelle, da {@code LOAD DATA LOCAL INFILE} in dem {@link DatabaseHandler} bewusst
+ * abgeschaltet ist. Die Datei wird dazu in Abschnitte an Zeilengrenzen zerlegt, die per Memory-Mapping gelesen, auf
+ * einem {@link ForkJoinPool} parallel zerlegt und geprüft und anschließend von mehreren Schreib-Threads über je eine
+ * eigene Verbindung als Stapel geschrieben werden. Geschrieben wird über das {@link Repository} der Tabelle, sodass
+ * dessen Cache, {@link WriteListener} und {@link ChangeFeed} jeden bestätigten Block erfahren.
+ *
+ * <p>Felder in doppelten Anführungszeichen dürfen Trennzeichen und Zeilenumbrüche enthalten. Zeilen und Abschnitte enden
+ * daher nur an Zeilenumbrüchen außerhalb solcher Felder; die Grenzen der Abschnitte werden dazu vorab der Reihe nach
+ * gesucht, während bereits gefundene Abschnitte parallel zerlegt werden.</p>
+ *
+ * <p>Nach jedem Abschnitt wird die Position, bis zu der alle Abschnitte bestätigt sind, in einer Checkpoint-Datei neben
+ * der Eingabe festgehalten. Ein abgebrochener Import setzt beim nächsten Start an dieser Position fort. Da die Zeilen als
+ * Upsert geschrieben werden, ist es unschädlich, wenn ein Abschnitt dabei ein zweites Mal geschrieben wird.</p>
+ *
+ * @param <T> Der Typ der Datensätze, in die die Zeilen umgewandelt werden.
+ */
+public final class BulkImporter<T> {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die ungefähre Größe eines Abschnitts in Bytes, die gemeinsam zerlegt und geschrieben wird. */
+    static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+    /** Die Anzahl an Bytes, die bei der Suche nach einer Zeilengrenze auf einmal gelesen werden. */
+    private static final int SCAN_WINDOW_SIZE = 1024 * 1024;
+    /** Die Endung der Checkpoint-Datei, die neben der Eingabe abgelegt wird. */
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    /** Die maximale Anzahl an Meldungen über abgelehnte Zeilen, die im Ergebnis gesammelt werden. */
+    private static final int MAX_REJECTION_MESSAGES = 100;
+    /** Die maximale Zeichen-Länge einer {@code VARCHAR(255)}-Spalte. */
+    private static final int MAX_VARCHAR_LENGTH = 255;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Das {@link Repository}, über das geschrieben wird. */
+    private final Repository<?, T> repository;
+    /** Der {@link LineParser}, mit dem die Felder einer Zeile in einen Datensatz umgewandelt werden. */
+    private final LineParser<T> parser;
+    /** Das Zeichen, mit dem die Felder einer Zeile getrennt sind. */
+    private final char delimiter;
+    /** Ob die erste Zeile der Datei eine Kopfzeile ist, die übersprungen wird. */
+    private final boolean header;
+    /** Die Anzahl an Threads, die parallel schreiben. */
+    private final int writerThreads;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link BulkImporter}.
+     *
+     * @param repository    Das {@link Repository}, über das geschrieben wird.
+     * @param parser        Der {@link LineParser}, mit dem die Felder einer Zeile umgewandelt werden.
+     * @param delimiter     Das ASCII-Zeichen, mit dem die Felder einer Zeile getrennt sind.
+     * @param header        Ob die erste Zeile der Datei eine Kopfzeile ist, die übersprungen wird.
+     * @param writerThreads Die Anzahl an Threads, die parallel schreiben.
+     */
+    public BulkImporter(
+            final Repository<?, T> repository,
+            final LineParser<T> parser,
+            final char delimiter,
+            final boolean header,
+            final int writerThreads
+    ) {
+        // check the number of writers for validity
+        if (writerThreads <= 0) {
+            throw new IllegalArgumentException("The supplied number of writer threads must be positive!");
+        }
+        // the segment boundaries are searched in the raw bytes, where only ascii characters stand for themselves
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("The supplied delimiter must be an ASCII character other than a quote "
+                    + "or a line break!");
+        }
+
+        this.repository = repository;
+        this.parser = parser;
+        this.delimiter = delimiter;
+        this.header = header;
+        this.writerThreads = writerThreads;
+    }
+
+    /**
+     * Erzeugt einen {@link BulkImporter} für Wörterbuch-Dateien mit den Spalten {@code strangWord, engWord, type,
+     * definition}.
+     *
+     * @param repository    Das {@link Repository} der Wörterbuch-Tabelle, über das geschrieben wird.
+     * @param delimiter     Das Zeichen, mit dem die Felder einer Zeile getrennt sind.
+     * @param header        Ob die erste Zeile der Datei eine Kopfzeile ist, die übersprungen wird.
+     * @param writerThreads Die Anzahl an Threads, die parallel schreiben.
+     *
+     * @return Ein neuer {@link BulkImporter} für Wörterbuch-Dateien.
+     */
+    public static BulkImporter<DictionaryEntry> dictionary(
+            final Repository<?, DictionaryEntry> repository,
+            final char delimiter,
+            final boolean header,
+            final int writerThreads
+    ) {
+        return new BulkImporter<>(
+                repository,
+                fields -> {
+                    requireFieldCount(fields, 4);
+                    return new DictionaryEntry(
+                            requireText(fields[0], "strangWord", false),
+                            requireText(fields[1], "engWord", true),
+                            requireText(fields[2], "type", true),
+                            requireText(fields[3], "definition", true)
+                    );
+                },
+                delimiter,
+                header,
+                writerThreads
+        );
+    }
+
+    /**
+     * Erzeugt einen {@link BulkImporter} für Teilnehmer-Dateien mit den Spalten {@code name, vorname, geschlecht,
+     * geburtsdatum, disziplin}, wobei das Geburtsdatum im ISO-Format ({@code 2001-01-31}) angegeben ist.
+     *
+     * @param repository    Das {@link Repository} der Teilnehmer-Tabelle, über das geschrieben wird.
+     * @param delimiter     Das Zeichen, mit dem die Felder einer Zeile getrennt sind.
+     * @param header        Ob die erste Zeile der Datei eine Kopfzeile ist, die übersprungen wird.
+     * @param writerThreads Die Anzahl an Threads, die parallel schreiben.
+     *
+     * @return Ein neuer {@link BulkImporter} für Teilnehmer-Dateien.
+     */
+    public static BulkImporter<DAVEntry> dav(
+            final Repository<?, DAVEntry> repository,
+            final char delimiter,
+            final boolean header,
+            final int writerThreads
+    ) {
+        return new BulkImporter<>(
+                repository,
+                fields -> {
+                    requireFieldCount(fields, 5);
+                    final LocalDate geburtsdatum;
+                    try {
+                        geburtsdatum = fields[3].isEmpty() ? null : LocalDate.parse(fields[3]);
+                    } catch (final DateTimeParseException e) {
+                        throw new IllegalArgumentException("The field geburtsdatum is not an ISO date: " + fields[3]);
+                    }
+                    return new DAVEntry(
+                            requireText(fields[0], "name", false),
+                            requireText(fields[1], "vorname", true),
+                            requireCode(fields[2], "geschlecht"),
+                            geburtsdatum,
+                            requireCode(fields[4], "disziplin")
+                    );
+                },
+                delimiter,
+                header,
+                writerThreads
+        );
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="import">
+
+    /**
+     * Importiert die übergebene Datei. Existiert eine Checkpoint-Datei eines abgebrochenen Imports, wird an deren
+     * Position fortgesetzt; nach einem vollständigen Import wird sie gelöscht.
+     *
+     * <p>Schlägt ein Abschnitt fehl, werden keine weiteren Abschnitte verteilt, wartende Abschnitte verworfen und die
+     * laufenden abgewartet, bevor die Fehlermeldung weitergereicht wird. Nach der Rückkehr schreibt der Import daher
+     * nicht mehr weiter.</p>
+     *
+     * @param file     Die Datei, die importiert wird.
+     * @param listener Der {@link ProgressListener}, der nach jedem geschriebenen Abschnitt benachrichtigt wird.
+     *
+     * @return Das {@link Result} des Imports.
+     *
+     * @throws IOException  Die Fehlermeldung, die auftreten kann, wenn die Datei nicht gelesen werden konnte.
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Abschnitt nicht geschrieben werden konnte.
+     */
+    public Result importFile(
+            final Path file,
+            final ProgressListener listener
+    ) throws IOException, SQLException {
+        final long started = System.nanoTime();
+        final Path checkpoint = file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+        final long resumeOffset = readCheckpoint(checkpoint);
+
+        final ForkJoinPool parsers = new ForkJoinPool();
+        final ExecutorService writers = Executors.newFixedThreadPool(writerThreads);
+        final Semaphore inFlight = new Semaphore(writerThreads * 2);
+        final Progress progress = new Progress(resumeOffset, checkpoint, listener);
+        final CompletableFuture<Void> failure = new CompletableFuture<>();
+        boolean completed = false;
+
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            progress.total = size;
+
+            final List<CompletableFuture<Void>> segments = new ArrayList<>();
+            long start = resumeOffset;
+            if (header && start == 0) {
+                start = nextLineStart(channel, 0, 0, size);
+            }
+            progress.committedOffset = start;
+
+            while (start < size && !failure.isDone()) {
+                final long end = nextLineStart(channel, start, Math.min(size, start + SEGMENT_SIZE), size);
+                final long segmentStart = start;
+                final int index = segments.size();
+
+                // bound the number of parsed segments waiting for a writer
+                inFlight.acquireUninterruptibly();
+                final CompletableFuture<Void> segment = CompletableFuture
+                        .supplyAsync(() -> failure.isDone()
+                                ? Collections.<T>emptyList()
+                                : parseSegment(channel, segmentStart, end, progress), parsers)
+                        .thenAcceptAsync(rows -> {
+                            // segments that were already dispatched must not write after another one failed
+                            if (!failure.isDone()) {
+                                writeSegment(rows, index, end, progress);
+                            }
+                        }, writers)
+                        .whenComplete((ignored, e) -> {
+                            if (e != null) {
+                                failure.completeExceptionally(e);
+                            }
+                            inFlight.release();
+                        });
+                segments.add(segment);
+
+                start = end;
+            }
+
+            // return on the first failure instead of waiting for the segments in order
+            CompletableFuture.anyOf(
+                    failure,
+                    CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0]))
+            ).join();
+            completed = true;
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof UncheckedSQLException) {
+                throw ((UncheckedSQLException) e.getCause()).getCause();
+            }
+            if (e.getCause() instanceof IOExceptionWrapper) {
+                throw ((IOExceptionWrapper) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            if (completed) {
+                parsers.shutdown();
+                writers.shutdown();
+            } else {
+                stop(parsers, writers);
+            }
+        }
+
+        Files.deleteIfExists(checkpoint);
+
+        return new Result(
+                progress.rowsWritten.get(),
+                progress.rowsRejected.get(),
+                progress.rejectionMessages(),
+                Duration.ofNanos(System.nanoTime() - started)
+        );
+    }
+
+    /**
+     * Liest einen Abschnitt per Memory-Mapping, zerlegt ihn in Zeilen und wandelt diese in Datensätze um.
+     *
+     * @param channel  Der {@link FileChannel} der Datei.
+     * @param start    Die Position des ersten Bytes des Abschnitts.
+     * @param end      Die Position hinter dem letzten Byte des Abschnitts.
+     * @param progress Der Fortschritt, in dem abgelehnte Zeilen vermerkt werden.
+     *
+     * @return Die gültigen Datensätze des Abschnitts.
+     */
+    private List<T> parseSegment(
+            final FileChannel channel,
+            final long start,
+            final long end,
+            final Progress progress
+    ) {
+        final CharBuffer chars;
+        try {
+            final MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            chars = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes);
+        } catch (final CharacterCodingException e) {
+            throw new IOExceptionWrapper(new IOException("The segment at byte " + start + " is not valid UTF-8", e));
+        } catch (final IOException e) {
+            throw new IOExceptionWrapper(e);
+        }
+
+        final List<T> rows = new ArrayList<>();
+        final List<String> fields = new ArrayList<>();
+        final LineScanner scanner = new LineScanner(delimiter);
+        int lineStart = 0;
+        final int length = chars.length();
+
+        while (lineStart < length) {
+            // a line break inside a quoted field belongs to the field
+            int lineEnd = lineStart;
+            while (lineEnd < length && !scanner.endsLine(chars.charAt(lineEnd))) {
+                lineEnd++;
+            }
+
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && chars.charAt(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            if (contentEnd > lineStart) {
+                splitFields(chars, lineStart, contentEnd, fields);
+                try {
+                    rows.add(parser.parse(fields.toArray(new String[0])));
+                } catch (final IllegalArgumentException e) {
+                    progress.reject("byte " + (start + lineStart) + ": " + e.getMessage());
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Schreibt die Datensätze eines Abschnitts und vermerkt den Abschnitt danach als bestätigt.
+     *
+     * @param rows     Die Datensätze des Abschnitts.
+     * @param index    Die laufende Nummer des Abschnitts.
+     * @param end      Die Position hinter dem letzten Byte des Abschnitts.
+     * @param progress Der Fortschritt, in dem der Abschnitt vermerkt wird.
+     */
+    private void writeSegment(
+            final List<T> rows,
+            final int index,
+            final long end,
+            final Progress progress
+    ) {
+        try {
+            repository.upsertAll(rows, ConnectionPriority.BULK);
+        } catch (final SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+
+        progress.complete(index, end, rows.size());
+    }
+
+    /**
+     * Zerlegt eine Zeile an dem Trennzeichen in ihre Felder. Felder in doppelten Anführungszeichen dürfen das
+     * Trennzeichen und Zeilenumbrüche enthalten; verdoppelte Anführungszeichen stehen dort für ein einzelnes.
+     *
+     * @param chars  Die Zeichen des Abschnitts.
+     * @param start  Die Position des ersten Zeichens der Zeile.
+     * @param end    Die Position hinter dem letzten Zeichen der Zeile.
+     * @param fields Die Liste, die mit den Feldern der Zeile gefüllt wird.
+     */
+    private void splitFields(
+            final CharBuffer chars,
+            final int start,
+            final int end,
+            final List<String> fields
+    ) {
+        fields.clear();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = start; i < end; i++) {
+            final char c = chars.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < end && chars.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Bestimmt die Position des ersten Bytes der Zeile, die nach einem Zeilenumbruch an oder nach der übergebenen
+     * Position beginnt. Damit Zeilenumbrüche in Feldern in Anführungszeichen erkannt werden, wird ab dem Beginn einer
+     * bekannten Zeile gesucht. Da Anführungszeichen, Trennzeichen und Zeilenumbrüche ASCII-Zeichen sind, genügen dazu
+     * die Bytes der Datei.
+     *
+     * @param channel  Der {@link FileChannel} der Datei.
+     * @param from     Die Position des ersten Bytes einer Zeile, ab der gelesen wird.
+     * @param position Die Position, ab der ein Zeilenumbruch eine Zeile beenden darf.
+     * @param size     Die Größe der Datei.
+     *
+     * @return Die Position des ersten Bytes der nächsten Zeile oder die Größe der Datei.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn die Datei nicht gelesen werden konnte.
+     */
+    private long nextLineStart(
+            final FileChannel channel,
+            final long from,
+            final long position,
+            final long size
+    ) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+
+        final LineScanner scanner = new LineScanner(delimiter);
+        long current = from;
+        while (current < size) {
+            final int window = (int) Math.min(SCAN_WINDOW_SIZE, size - current);
+            final MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, current, window);
+            for (int i = 0; i < window; i++) {
+                if (scanner.endsLine(bytes.get(i) & 0xff) && current + i >= position) {
+                    return current + i + 1;
+                }
+            }
+            current += window;
+        }
+        return size;
+    }
+
+    /**
+     * Verwirft alle wartenden Aufgaben der übergebenen {@link ExecutorService ExecutorServices}, unterbricht die
+     * laufenden und wartet, bis sie beendet sind. Wird der aufrufende Thread dabei unterbrochen, wird nicht weiter
+     * gewartet und die Unterbrechung erhalten.
+     *
+     * @param executors Die {@link ExecutorService ExecutorServices}, die beendet werden.
+     */
+    private static void stop(final ExecutorService... executors) {
+        for (final ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+        try {
+            for (final ExecutorService executor : executors) {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Liest die Position aus einer Checkpoint-Datei.
+     *
+     * @param checkpoint Die Checkpoint-Datei.
+     *
+     * @return Die festgehaltene Position oder {@code 0}, wenn es keine Checkpoint-Datei gibt.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn die Checkpoint-Datei nicht gelesen werden konnte.
+     */
+    private static long readCheckpoint(final Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpoint, StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * Prüft, ob eine Zeile die erwartete Anzahl an Feldern hat.
+     *
+     * @param fields   Die Felder der Zeile.
+     * @param expected Die erwartete Anzahl an Feldern.
+     */
+    private static void requireFieldCount(
+            final String[] fields,
+            final int expected
+    ) {
+        if (fields.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " fields but found " + fields.length);
+        }
+    }
+
+    /**
+     * Prüft, ob ein Feld in eine {@code VARCHAR(255)}-Spalte passt.
+     *
+     * @param value    Der Wert des Feldes.
+     * @param column   Der Name der Spalte.
+     * @param nullable Ob ein leeres Feld als {@code NULL} geschrieben werden darf.
+     *
+     * @return Der Wert des Feldes oder {@code null}, wenn es leer ist und leer sein darf.
+     */
+    private static String requireText(
+            final String value,
+            final String column,
+            final boolean nullable
+    ) {
+        if (value.isEmpty()) {
+            if (nullable) {
+                return null;
+            }
+            throw new IllegalArgumentException("The field " + column + " must not be empty");
+        }
+        if (value.length() > MAX_VARCHAR_LENGTH) {
+            throw new IllegalArgumentException("The field " + column + " exceeds " + MAX_VARCHAR_LENGTH + " chars");
+        }
+        return value;
+    }
+
+    /**
+     * Prüft, ob ein Feld in eine {@code VARCHAR(1)}-Spalte passt.
+     *
+     * @param value  Der Wert des Feldes.
+     * @param column Der Name der Spalte.
+     *
+     * @return Der Wert des Feldes oder {@code null}, wenn es leer ist.
+     */
+    private static String requireCode(
+            final String value,
+            final String column
+    ) {
+        if (value.length() > 1) {
+            throw new IllegalArgumentException("The field " + column + " must be a single character");
+        }
+        return value.isEmpty() ? null : value;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein {@link LineParser} wandelt die Felder einer Zeile in einen Datensatz um.
+     *
+     * @param <T> Der Typ der Datensätze.
+     */
+    @FunctionalInterface
+    public interface LineParser<T> {
+
+        /**
+         * Wandelt die Felder einer Zeile in einen Datensatz um.
+         *
+         * @param fields Die Felder der Zeile.
+         *
+         * @return Der Datensatz.
+         *
+         * @throws IllegalArgumentException Die Fehlermeldung, die auftritt, wenn die Zeile ungültig ist. Die Zeile
+         *                                  wird dann übersprungen und im {@link Result} vermerkt.
+         */
+        T parse(String[] fields);
+    }
+
+    /**
+     * Ein {@link ProgressListener} wird nach jedem geschriebenen Abschnitt über den Fortschritt des Imports informiert.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Meldet den Fortschritt des Imports.
+         *
+         * @param bytesCommitted Die Anzahl an Bytes der Datei, bis zu der alle Zeilen bestätigt sind.
+         * @param bytesTotal     Die Größe der Datei in Bytes.
+         * @param rowsWritten    Die Anzahl an Zeilen, die in diesem Lauf geschrieben wurden.
+         * @param rowsRejected   Die Anzahl an Zeilen, die in diesem Lauf abgelehnt wurden.
+         */
+        void progress(long bytesCommitted, long bytesTotal, long rowsWritten, long rowsRejected);
+    }
+
+    /**
+     * Das Ergebnis eines Imports.
+     */
+    public static final class Result {
+
+        /** Die Anzahl an Zeilen, die geschrieben wurden. */
+        private final long rowsWritten;
+        /** Die Anzahl an Zeilen, die abgelehnt wurden. */
+        private final long rowsRejected;
+        /** Die ersten Meldungen über abgelehnte Zeilen. */
+        private final List<String> rejectionMessages;
+        /** Die Dauer des Imports. */
+        private final Duration elapsed;
+
+        /**
+         * Erzeugt ein neues {@link Result}.
+         *
+         * @param rowsWritten       Die Anzahl an Zeilen, die geschrieben wurden.
+         * @param rowsRejected      Die Anzahl an Zeilen, die abgelehnt wurden.
+         * @param rejectionMessages Die ersten Meldungen über abgelehnte Zeilen.
+         * @param elapsed           Die Dauer des Imports.
+         */
+        private Result(
+                final long rowsWritten,
+                final long rowsRejected,
+                final List<String> rejectionMessages,
+                final Duration elapsed
+        ) {
+            this.rowsWritten = rowsWritten;
+            this.rowsRejected = rowsRejected;
+            this.rejectionMessages = rejectionMessages;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * Gibt die Anzahl an Zeilen zurück, die geschrieben wurden.
+         *
+         * @return Die Anzahl an Zeilen, die geschrieben wurden.
+         */
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        /**
+         * Gibt die Anzahl an Zeilen zurück, die abgelehnt wurden.
+         *
+         * @return Die Anzahl an Zeilen, die abgelehnt wurden.
+         */
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        /**
+         * Gibt die ersten Meldungen über abgelehnte Zeilen zurück.
+         *
+         * @return Die ersten Meldungen über abgelehnte Zeilen.
+         */
+        public List<String> getRejectionMessages() {
+            return rejectionMessages;
+        }
+
+        /**
+         * Gibt die Dauer des Imports zurück.
+         *
+         * @return Die Dauer des Imports.
+         */
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{rowsWritten=" + rowsWritten + ", rowsRejected=" + rowsRejected + ", elapsed=" + elapsed + "}";
+        }
+    }
+
+    /**
+     * Der Fortschritt eines laufenden Imports. Abschnitte können in beliebiger Reihenfolge fertig werden; als bestätigt
+     * gilt immer nur die Position hinter dem letzten Abschnitt, vor dem alle Abschnitte fertig sind.
+     */
+    private static final class Progress {
+
+        /** Die Checkpoint-Datei, in der die bestätigte Position festgehalten wird. */
+        private final Path checkpoint;
+        /** Der {@link ProgressListener}, der über den Fortschritt informiert wird. */
+        private final ProgressListener listener;
+        /** Die Anzahl an geschriebenen Zeilen. */
+        private final AtomicLong rowsWritten = new AtomicLong();
+        /** Die Anzahl an abgelehnten Zeilen. */
+        private final AtomicLong rowsRejected = new AtomicLong();
+        /** Die ersten Meldungen über abgelehnte Zeilen. */
+        private final List<String> rejections = Collections.synchronizedList(new ArrayList<>());
+        /** Die fertigen Abschnitte, die noch auf einen Vorgänger warten, mit ihrer End-Position. */
+        private final TreeMap<Integer, Long> finished = new TreeMap<>();
+        /** Die laufende Nummer des nächsten Abschnitts, der noch nicht fertig ist. */
+        private int nextIndex;
+        /** Die Position, bis zu der alle Zeilen bestätigt sind. */
+        private long committedOffset;
+        /** Die Größe der Datei in Bytes. */
+        private long total;
+
+        /**
+         * Erzeugt einen neuen {@link Progress}.
+         *
+         * @param committedOffset Die Position, bis zu der alle Zeilen bereits bestätigt sind.
+         * @param checkpoint      Die Checkpoint-Datei, in der die bestätigte Position festgehalten wird.
+         * @param listener        Der {@link ProgressListener}, der über den Fortschritt informiert wird.
+         */
+        private Progress(
+                final long committedOffset,
+                final Path checkpoint,
+                final ProgressListener listener
+        ) {
+            this.committedOffset = committedOffset;
+            this.checkpoint = checkpoint;
+            this.listener = listener;
+        }
+
+        /**
+         * Vermerkt eine abgelehnte Zeile.
+         *
+         * @param message Die Meldung über die abgelehnte Zeile.
+         */
+        private void reject(final String message) {
+            if (rowsRejected.incrementAndGet() <= MAX_REJECTION_MESSAGES) {
+                rejections.add(message);
+            }
+        }
+
+        /**
+         * Vermerkt einen fertig geschriebenen Abschnitt und schreibt gegebenenfalls die Checkpoint-Datei fort.
+         *
+         * @param index Die laufende Nummer des Abschnitts.
+         * @param end   Die Position hinter dem letzten Byte des Abschnitts.
+         * @param rows  Die Anzahl an geschriebenen Zeilen des Abschnitts.
+         */
+        private synchronized void complete(
+                final int index,
+                final long end,
+                final int rows
+        ) {
+            rowsWritten.addAndGet(rows);
+            finished.put(index, end);
+
+            // advance over all segments that are finished without a gap
+            final long before = committedOffset;
+            while (finished.containsKey(nextIndex)) {
+                committedOffset = finished.remove(nextIndex);
+                nextIndex++;
+            }
+
+            if (committedOffset != before) {
+                try {
+                    final Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+                    Files.writeString(temporary, Long.toString(committedOffset), StandardCharsets.US_ASCII);
+                    Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                } catch (final IOException e) {
+                    throw new IOExceptionWrapper(e);
+                }
+            }
+
+            if (listener != null) {
+                listener.progress(committedOffset, total, rowsWritten.get(), rowsRejected.get());
+            }
+        }
+
+        /**
+         * Gibt eine Kopie der gesammelten Meldungen über abgelehnte Zeilen zurück.
+         *
+         * @return Eine Kopie der gesammelten Meldungen über abgelehnte Zeilen.
+         */
+        private List<String> rejectionMessages() {
+            synchronized (rejections) {
+                return List.copyOf(rejections);
+            }
+        }
+    }
+
+    /**
+     * Ein {@link LineScanner} verfolgt Zeichen für Zeichen, ob ein Feld in Anführungszeichen offen ist, und erkennt so
+     * die Zeilenumbrüche, die eine Zeile beenden. Er folgt dabei denselben Regeln wie {@link BulkImporter#splitFields}.
+     */
+    private static final class LineScanner {
+
+        /** Das Zeichen, mit dem die Felder einer Zeile getrennt sind. */
+        private final char delimiter;
+        /** Ob das aktuelle Zeichen in einem Feld in Anführungszeichen steht. */
+        private boolean quoted;
+        /** Ob das aktuelle Zeichen das erste eines Feldes ist. */
+        private boolean fieldStart = true;
+        /** Ob das vorherige Zeichen ein Feld in Anführungszeichen geschlossen hat. */
+        private boolean closedQuote;
+
+        /**
+         * Erzeugt einen neuen {@link LineScanner}, der am Beginn einer Zeile steht.
+         *
+         * @param delimiter Das Zeichen, mit dem die Felder einer Zeile getrennt sind.
+         */
+        private LineScanner(final char delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Verarbeitet das nächste Zeichen der Zeile.
+         *
+         * @param c Das nächste Zeichen.
+         *
+         * @return Ob das Zeichen ein Zeilenumbruch außerhalb von Anführungszeichen ist, der die Zeile beendet.
+         */
+        private boolean endsLine(final int c) {
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                    closedQuote = true;
+                }
+                return false;
+            }
+
+            // a quote opens a field only at its start, or directly after a closing quote as an escaped quote
+            if (c == '"' && (fieldStart || closedQuote)) {
+                quoted = true;
+                fieldStart = false;
+                closedQuote = false;
+                return false;
+            }
+            closedQuote = false;
+            fieldStart = c == delimiter || c == '\n';
+            return c == '\n';
+        }
+    }
+
+    /**
+     * Umhüllt eine {@link IOException}, damit sie aus den parallelen Stufen des Imports weitergereicht werden kann.
+     */
+    private static final class IOExceptionWrapper extends RuntimeException {
+
+        /** Die Versionsnummer der serialisierten Form. */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Erzeugt einen neuen {@link IOExceptionWrapper}.
+         *
+         * @param cause Die {@link IOException}, die umhüllt wird.
+         */
+        private IOExceptionWrapper(final IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+    //</editor-fold>
+}
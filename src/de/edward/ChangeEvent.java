@@ -0,0 +1,137 @@
+package de.edward;
+
+/**
+ * Ein {@link ChangeEvent} beschreibt einen bestätigten Schreibzugriff auf einen einzelnen Datensatz und wird über einen
+ * {@link ChangeFeed} an seine Abonnenten verteilt. Wurde der Datensatz gelöscht oder archiviert, fehlt sein neuer
+ * Stand.
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class ChangeEvent<K, T> {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der Name der Tabelle, in die geschrieben wurde. */
+    private final String table;
+    /** Der Schlüssel des Datensatzes. */
+    private final K key;
+    /** Der bisherige Stand des Datensatzes oder {@code null}, wenn er nicht bekannt ist. */
+    private final T oldValue;
+    /** Der neue Stand des Datensatzes oder {@code null}, wenn er gelöscht wurde. */
+    private final T newValue;
+    /** Der Zeitpunkt in Millisekunden seit der Epoche, zu dem der Datensatz geschrieben wurde. */
+    private final long epochMillis;
+    /** Ob das Ereignis beim Aufholen aus der Datenbank statt aus dem Ringpuffer gelesen wurde. */
+    private final boolean replayed;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt ein neues {@link ChangeEvent}.
+     *
+     * @param table       Der Name der Tabelle, in die geschrieben wurde.
+     * @param key         Der Schlüssel des Datensatzes.
+     * @param oldValue    Der bisherige Stand des Datensatzes oder {@code null}, wenn er nicht bekannt ist.
+     * @param newValue    Der neue Stand des Datensatzes oder {@code null}, wenn er gelöscht wurde.
+     * @param epochMillis Der Zeitpunkt in Millisekunden seit der Epoche, zu dem der Datensatz geschrieben wurde.
+     * @param replayed    Ob das Ereignis beim Aufholen aus der Datenbank gelesen wurde.
+     */
+    ChangeEvent(
+            final String table,
+            final K key,
+            final T oldValue,
+            final T newValue,
+            final long epochMillis,
+            final boolean replayed
+    ) {
+        this.table = table;
+        this.key = key;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.epochMillis = epochMillis;
+        this.replayed = replayed;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt den Namen der Tabelle zurück, in die geschrieben wurde.
+     *
+     * @return Der Name der Tabelle.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Gibt den Schlüssel des Datensatzes zurück.
+     *
+     * @return Der Schlüssel des Datensatzes.
+     */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * Gibt den bisherigen Stand des Datensatzes zurück. Er ist nur bekannt, wenn der Datensatz vor dem Schreiben im
+     * Cache des {@link Repository} lag, und fehlt daher bei einem {@link Repository} ohne Cache und bei aufgeholten
+     * Ereignissen immer. Ein fehlender bisheriger Stand bedeutet also nicht, dass der Datensatz neu ist.
+     *
+     * @return Der bisherige Stand des Datensatzes oder {@code null}, wenn er nicht bekannt ist.
+     */
+    public T getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * Gibt den neuen Stand des Datensatzes zurück.
+     *
+     * @return Der neue Stand des Datensatzes oder {@code null}, wenn er gelöscht wurde.
+     */
+    public T getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * Gibt zurück, ob der Datensatz gelöscht oder archiviert wurde. Der Zeitpunkt ist dann der neueste Zeitstempel, den
+     * der gelöschte Stand tragen konnte.
+     *
+     * @return Ob der Datensatz gelöscht wurde.
+     */
+    public boolean isDeleted() {
+        return newValue == null;
+    }
+
+    /**
+     * Gibt den Zeitpunkt zurück, zu dem der Datensatz geschrieben wurde. Bei aufgeholten Ereignissen ist dies der Wert
+     * der Spalte {@value EntityDescriptor#TIMESTAMP_COLUMN}.
+     *
+     * @return Der Zeitpunkt in Millisekunden seit der Epoche.
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Gibt zurück, ob das Ereignis beim Aufholen aus der Datenbank statt aus dem Ringpuffer gelesen wurde. Aufgeholte
+     * Ereignisse geben nur den letzten Stand eines Datensatzes wieder und können sich mit Ereignissen aus dem
+     * Ringpuffer überschneiden.
+     *
+     * @return Ob das Ereignis aufgeholt wurde.
+     */
+    public boolean isReplayed() {
+        return replayed;
+    }
+    //</editor-fold>
+
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{table=" + table + ", key=" + key + ", epochMillis=" + epochMillis
+                + ", deleted=" + isDeleted() + ", replayed=" + replayed + "}";
+    }
+}
@@ -0,0 +1,402 @@
+package de.edward;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Ein {@link ChangeFeed} verteilt die {@link ChangeEvent ChangeEvents} aller bestätigten Schreibzugriffe eines
+ * {@link Repository} an beliebig viele Abonnenten im selben Prozess, ohne dass diese die Datenbank abfragen müssen.
+ *
+ * <p>Die Ereignisse liegen in einem Ringpuffer fester Größe. Schreibende Threads reservieren ihren Platz über einen
+ * atomaren Zähler, markieren ihn während des Schreibens und veröffentlichen ihn anschließend mit der Nummer des
+ * Ereignisses. Lesende Threads prüfen die Nummer vor und nach dem Lesen des Ereignisses, sodass weder Schreiben noch
+ * Lesen eine Sperre benötigen. Jede {@link Subscription} liest mit ihrem eigenen Zeiger; langsame Abonnenten bremsen
+ * daher die Schreibzugriffe nicht.</p>
+ *
+ * <p>Wird eine {@link Subscription} vom Ringpuffer überholt oder nach einem Neustart ab einem Zeitpunkt eröffnet, holt
+ * sie über die Spalte {@value EntityDescriptor#TIMESTAMP_COLUMN} aus der Datenbank auf und wechselt danach wieder in
+ * den Ringpuffer. Beim Aufholen wird nur der letzte Stand jedes Datensatzes geliefert, gelöschte Datensätze fehlen
+ * dabei, und einzelne Ereignisse können doppelt ankommen; Abonnenten sollten Ereignisse daher anhand von Schlüssel und
+ * Zeitpunkt idempotent verarbeiten.</p>
+ *
+ * <p>Der bisherige Stand eines Datensatzes ({@link ChangeEvent#getOldValue()}) wird nicht eigens aus der Datenbank
+ * gelesen, sondern nur aus dem Cache des {@link Repository} übernommen. Er ist daher nur gefüllt, wenn das
+ * {@link Repository} einen Cache hat und der Datensatz vor dem Schreiben darin lag. Ohne Cache ist er immer
+ * {@code null}; Abonnenten können ein Einfügen dann nicht anhand des bisherigen Standes von einer Änderung
+ * unterscheiden.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class ChangeFeed<K, T> {
+
+    //<editor-fold desc="CONSTANTS">
+    /**
+     * Die Zeit, um die beim Aufholen vor den letzten gesehenen Zeitpunkt zurückgegangen wird, da der Zeitstempel einer
+     * Zeile schon beim Binden und nicht erst bei der Bestätigung gesetzt wird.
+     */
+    public static final Duration REPLAY_OVERLAP = Duration.ofSeconds(30);
+    /** Die Nummer, mit der ein Platz markiert wird, während sein Ereignis geschrieben wird. */
+    private static final long IN_PROGRESS = -2;
+    /** Die Zeit in Nanosekunden, die ein wartender Abonnent höchstens am Stück schläft. */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der {@link DatabaseHandler}, über den beim Aufholen gelesen wird. */
+    private final DatabaseHandler databaseHandler;
+    /** Der {@link EntityDescriptor}, der die Tabelle beschreibt. */
+    private final EntityDescriptor<K, T> descriptor;
+    /** Die Maske, mit der eine Nummer auf ihren Platz im Ringpuffer abgebildet wird. */
+    private final int mask;
+    /** Die Ereignisse des Ringpuffers. */
+    private final AtomicReferenceArray<ChangeEvent<K, T>> events;
+    /**
+     * Die Nummer des Ereignisses, das zuletzt auf dem jeweiligen Platz veröffentlicht wurde, {@code -1} für einen noch
+     * leeren Platz oder {@link #IN_PROGRESS}, solange ein Ereignis geschrieben wird.
+     */
+    private final AtomicLongArray published;
+    /** Die Nummer, die das nächste veröffentlichte Ereignis erhält. */
+    private final AtomicLong next = new AtomicLong();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link ChangeFeed}.
+     *
+     * @param databaseHandler Der {@link DatabaseHandler}, über den beim Aufholen gelesen wird.
+     * @param descriptor      Der {@link EntityDescriptor}, der die Tabelle beschreibt.
+     * @param capacity        Die Anzahl an Ereignissen, die der Ringpuffer hält; sie wird auf die nächste Zweierpotenz
+     *                        aufgerundet.
+     */
+    ChangeFeed(
+            final DatabaseHandler databaseHandler,
+            final EntityDescriptor<K, T> descriptor,
+            final int capacity
+    ) {
+        // check the capacity for validity
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("The supplied capacity must be between 1 and 2^30!");
+        }
+
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.databaseHandler = databaseHandler;
+        this.descriptor = descriptor;
+        this.mask = size - 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="publish">
+
+    /**
+     * Veröffentlicht ein Ereignis im Ringpuffer. Ist der Ringpuffer voll, wird das älteste Ereignis überschrieben.
+     *
+     * @param event Das Ereignis, das veröffentlicht wird.
+     */
+    void publish(final ChangeEvent<K, T> event) {
+        final long sequence = next.getAndIncrement();
+        final int index = (int) (sequence & mask);
+
+        // mark the slot as being written, unless a later lap has already claimed it
+        while (true) {
+            final long current = published.get(index);
+            if (current > sequence) {
+                return;
+            }
+            if (current != IN_PROGRESS && published.compareAndSet(index, current, IN_PROGRESS)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+
+        // the volatile write of the sequence makes the event visible to the subscribers
+        events.set(index, event);
+        published.set(index, sequence);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="subscribe">
+
+    /**
+     * Eröffnet eine {@link Subscription}, die alle ab jetzt veröffentlichten Ereignisse erhält.
+     *
+     * @return Die neue {@link Subscription}.
+     */
+    public Subscription subscribe() {
+        return new Subscription(next.get(), null);
+    }
+
+    /**
+     * Eröffnet eine {@link Subscription}, die zuerst alle seit dem übergebenen Zeitpunkt geschriebenen Datensätze aus
+     * der Datenbank aufholt und danach alle ab jetzt veröffentlichten Ereignisse erhält. So kann ein Abonnent nach
+     * einem Neustart an dem Zeitpunkt seines zuletzt verarbeiteten Ereignisses fortsetzen.
+     *
+     * @param since Der Zeitpunkt, ab dem aufgeholt wird.
+     *
+     * @return Die neue {@link Subscription}.
+     */
+    public Subscription subscribe(final Instant since) {
+        return new Subscription(next.get(), since);
+    }
+
+    /**
+     * Gibt die Anzahl an Ereignissen zurück, die der Ringpuffer hält.
+     *
+     * @return Die Kapazität des Ringpuffers.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Gibt die Anzahl an Ereignissen zurück, die seit dem Erzeugen veröffentlicht wurden.
+     *
+     * @return Die Anzahl an veröffentlichten Ereignissen.
+     */
+    public long getPublishedCount() {
+        return next.get();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Eine {@link Subscription} liest die Ereignisse eines {@link ChangeFeed} mit einem eigenen Zeiger. Sie darf immer
+     * nur von einem Thread gleichzeitig gelesen werden und muss geschlossen werden, falls sie während des Aufholens
+     * verworfen wird.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        /** Die Nummer des nächsten Ereignisses, das aus dem Ringpuffer gelesen wird. */
+        private long cursor;
+        /** Der Zeitpunkt des zuletzt gelieferten Ereignisses in Millisekunden seit der Epoche. */
+        private long lastEpochMillis;
+        /** Die Zeilen, die gerade aus der Datenbank aufgeholt werden, oder {@code null}. */
+        private Stream<ChangeEvent<K, T>> replay;
+        /** Der Iterator über {@link #replay} oder {@code null}. */
+        private Iterator<ChangeEvent<K, T>> replayIterator;
+        /** Der Zeitpunkt, ab dem beim nächsten Lesen aufgeholt wird, oder {@code null}. */
+        private Instant pendingReplay;
+        /** Die Anzahl an Malen, die diese {@link Subscription} vom Ringpuffer überholt wurde. */
+        private long overruns;
+
+        /**
+         * Erzeugt eine neue {@link Subscription}.
+         *
+         * @param cursor Die Nummer des ersten Ereignisses, das aus dem Ringpuffer gelesen wird.
+         * @param since  Der Zeitpunkt, ab dem zuerst aufgeholt wird, oder {@code null}.
+         */
+        private Subscription(
+                final long cursor,
+                final Instant since
+        ) {
+            this.cursor = cursor;
+            this.pendingReplay = since;
+            this.lastEpochMillis = since == null ? System.currentTimeMillis() : since.toEpochMilli();
+        }
+
+        /**
+         * Gibt das nächste Ereignis zurück, ohne zu warten.
+         *
+         * @return Das nächste Ereignis oder {@code null}, wenn gerade keines vorliegt.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn beim Aufholen nicht gelesen werden konnte.
+         */
+        public ChangeEvent<K, T> poll() throws SQLException {
+            // drain the database first, if the subscription is catching up
+            final ChangeEvent<K, T> replayed = pollReplay();
+            if (replayed != null) {
+                return deliver(replayed);
+            }
+
+            final int index = (int) (cursor & mask);
+            final long sequence = published.get(index);
+            if (sequence < cursor) {
+                return null;
+            }
+
+            // the slot must still carry the same sequence after the read, or a later lap overwrote the event meanwhile
+            final ChangeEvent<K, T> event = events.get(index);
+            if (sequence == cursor && published.get(index) == cursor) {
+                cursor++;
+                return deliver(event);
+            }
+
+            // the ring has overtaken this subscription, continue from the database
+            overruns++;
+            cursor = next.get();
+            pendingReplay = Instant.ofEpochMilli(lastEpochMillis).minus(REPLAY_OVERLAP);
+            return poll();
+        }
+
+        /**
+         * Gibt das nächste Ereignis zurück und wartet dafür höchstens die übergebene Zeit.
+         *
+         * @param timeout Die Zeit, die höchstens gewartet wird.
+         * @param unit    Die Einheit der Zeit.
+         *
+         * @return Das nächste Ereignis oder {@code null}, wenn innerhalb der Zeit keines vorlag.
+         *
+         * @throws SQLException         Die Fehlermeldung, die auftreten kann, wenn beim Aufholen nicht gelesen werden
+         *                              konnte.
+         * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn beim Warten unterbrochen wird.
+         */
+        public ChangeEvent<K, T> poll(
+                final long timeout,
+                final TimeUnit unit
+        ) throws SQLException, InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            long parkNanos = 1_000;
+            while (true) {
+                final ChangeEvent<K, T> event = poll();
+                if (event != null) {
+                    return event;
+                }
+
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                // back off exponentially, as publishers never wake up subscribers
+                LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+            }
+        }
+
+        /**
+         * Gibt die Anzahl an Malen zurück, die diese {@link Subscription} vom Ringpuffer überholt wurde und deshalb
+         * aus der Datenbank aufholen musste.
+         *
+         * @return Die Anzahl an Überholungen.
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+
+        /**
+         * Gibt zurück, ob diese {@link Subscription} gerade aus der Datenbank aufholt.
+         *
+         * @return Ob gerade aufgeholt wird.
+         */
+        public boolean isReplaying() {
+            return replay != null || pendingReplay != null;
+        }
+
+        /**
+         * Beendet ein laufendes Aufholen und gibt dessen Verbindung frei.
+         */
+        @Override
+        public void close() {
+            if (replay != null) {
+                replay.close();
+                replay = null;
+                replayIterator = null;
+            }
+            pendingReplay = null;
+        }
+
+        /**
+         * Gibt das nächste aufgeholte Ereignis zurück und startet das Aufholen, falls es aussteht.
+         *
+         * @return Das nächste aufgeholte Ereignis oder {@code null}, wenn nicht (mehr) aufgeholt wird.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn nicht gelesen werden konnte.
+         */
+        private ChangeEvent<K, T> pollReplay() throws SQLException {
+            if (pendingReplay != null) {
+                close();
+                final Instant since = pendingReplay;
+                pendingReplay = null;
+                replay = openReplay(since);
+                replayIterator = replay.iterator();
+            }
+            if (replayIterator == null) {
+                return null;
+            }
+
+            try {
+                if (replayIterator.hasNext()) {
+                    return replayIterator.next();
+                }
+            } catch (final UncheckedSQLException e) {
+                close();
+                throw e.getCause();
+            }
+
+            // the database has been drained, continue with the ring
+            close();
+            return null;
+        }
+
+        /**
+         * Vermerkt den Zeitpunkt eines Ereignisses, bevor es geliefert wird.
+         *
+         * @param event Das Ereignis, das geliefert wird.
+         *
+         * @return Das übergebene Ereignis.
+         */
+        private ChangeEvent<K, T> deliver(final ChangeEvent<K, T> event) {
+            lastEpochMillis = Math.max(lastEpochMillis, event.getEpochMillis());
+            return event;
+        }
+    }
+    //</editor-fold>
+
+
+    /**
+     * Öffnet die Zeilen, die seit dem übergebenen Zeitpunkt geschrieben wurden, als aufgeholte Ereignisse. Sie werden
+     * vom Primärserver gelesen, da ein verzögertes Replikat Zeilen auslassen würde, die nach dem Aufholen älter als der
+     * Zeiger der {@link Subscription} sind und daher nie mehr geliefert würden.
+     *
+     * @param since Der Zeitpunkt, ab dem gelesen wird.
+     *
+     * @return Ein {@link Stream} über die aufgeholten Ereignisse, nach ihrem Zeitpunkt sortiert.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    private Stream<ChangeEvent<K, T>> openReplay(final Instant since) throws SQLException {
+        final RowMapper<T> mapper = descriptor.getMapper();
+        final int timestampIndex = descriptor.getColumnNames().size() + 1;
+        final String table = descriptor.getTable();
+        return databaseHandler.stream(
+                ConnectionPriority.BULK,
+                descriptor.getSelectSinceSql(),
+                rs -> {
+                    final T row = mapper.map(rs);
+                    return new ChangeEvent<>(
+                            table,
+                            descriptor.keyOf(row),
+                            null,
+                            row,
+                            rs.getTimestamp(timestampIndex).getTime(),
+                            true
+                    );
+                },
+                Timestamp.from(since)
+        );
+    }
+}
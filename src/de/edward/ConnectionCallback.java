@@ -0,0 +1,26 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Ein {@link ConnectionCallback} beschreibt eine Arbeit, die mit einer geliehenen Verbindung aus dem Pool ausgeführt
+ * wird. Die Verbindung wird von dem {@link DatabaseHandler} geliehen und nach dem Aufruf wieder zurückgegeben; sie darf
+ * daher nicht über den Aufruf hinaus gehalten werden.
+ *
+ * @param <R> Der Typ des Ergebnisses der Arbeit.
+ */
+@FunctionalInterface
+public interface ConnectionCallback<R> {
+
+    /**
+     * Führt die Arbeit mit der übergebenen Verbindung aus.
+     *
+     * @param conn Die Verbindung, die für die Dauer des Aufrufs geliehen ist.
+     *
+     * @return Das Ergebnis der Arbeit.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Arbeit fehlschlägt.
+     */
+    R execute(Connection conn) throws SQLException;
+}
@@ -0,0 +1,18 @@
+package de.edward;
+
+/**
+ * Eine {@link ConnectionPriority} legt fest, in welcher Reihenfolge die Anfragen nach einer Verbindung zugelassen
+ * werden, wenn die Zulassungskontrolle eines {@link DatabaseHandler} eingeschaltet ist und die Datenbank überlastet
+ * ist.
+ */
+public enum ConnectionPriority {
+
+    /** Für Schreibzugriffe, die nie zurückgestellt werden dürfen: sie werden unabhängig von der Grenze zugelassen. */
+    CRITICAL,
+
+    /** Für Lesezugriffe und gewöhnliche Schreibzugriffe: sie nutzen die gesamte Grenze. */
+    INTERACTIVE,
+
+    /** Für Massen-Importe und nachgelagertes Schreiben: sie nutzen einen Teil der Grenze und warten auf andere. */
+    BULK
+}
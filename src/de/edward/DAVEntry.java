@@ -0,0 +1,188 @@
+package de.edward;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Ein {@link DAVEntry} ist ein einzelner Teilnehmer der DAV-Tabelle, welcher aus Name, Vorname, Geschlecht,
+ * Geburtsdatum und Disziplin besteht. Der Zeitstempel wird beim Schreiben durch die Datenbank-Anbindung gesetzt.
+ */
+public final class DAVEntry {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Der {@link EntityDescriptor}, der die DAV-Tabelle beschreibt. */
+    public static final EntityDescriptor<String, DAVEntry> DESCRIPTOR = EntityDescriptor
+            .<String, DAVEntry>builder("DAVTable", String.class, DAVEntry::getName)
+            .key("name", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getName()))
+            .column("vorname", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getVorname()))
+            .column("geschlecht", "VARCHAR(1)", (stmt, i, entry) -> stmt.setString(i, entry.getGeschlecht()))
+            .column("geburtsdatum", "DATE", (stmt, i, entry) -> {
+                if (entry.getGeburtsdatum() == null) {
+                    stmt.setNull(i, Types.DATE);
+                } else {
+                    stmt.setDate(i, Date.valueOf(entry.getGeburtsdatum()));
+                }
+            })
+            .column("disziplin", "VARCHAR(1)", (stmt, i, entry) -> stmt.setString(i, entry.getDisziplin()))
+            .build(rs -> new DAVEntry(
+                    rs.getString(1),
+                    rs.getString(2),
+                    rs.getString(3),
+                    rs.getObject(4, LocalDate.class),
+                    rs.getString(5)
+            ));
+    /** Der {@link SnapshotCodec}, mit dem Teilnehmer in einen {@link TableSnapshot} geschrieben werden. */
+    public static final SnapshotCodec<DAVEntry> CODEC = new SnapshotCodec<>() {
+        @Override
+        public void write(
+                final DataOutput out,
+                final DAVEntry entry
+        ) throws IOException {
+            out.writeUTF(entry.getName());
+            SnapshotCodec.writeNullable(out, entry.getVorname());
+            SnapshotCodec.writeNullable(out, entry.getGeschlecht());
+            out.writeBoolean(entry.getGeburtsdatum() != null);
+            if (entry.getGeburtsdatum() != null) {
+                out.writeLong(entry.getGeburtsdatum().toEpochDay());
+            }
+            SnapshotCodec.writeNullable(out, entry.getDisziplin());
+        }
+
+        @Override
+        public DAVEntry read(final DataInput in) throws IOException {
+            return new DAVEntry(
+                    in.readUTF(),
+                    SnapshotCodec.readNullable(in),
+                    SnapshotCodec.readNullable(in),
+                    in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null,
+                    SnapshotCodec.readNullable(in)
+            );
+        }
+    };
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der Name, welcher den Teilnehmer eindeutig identifiziert. */
+    private final String name;
+    /** Der Vorname des Teilnehmers. */
+    private final String vorname;
+    /** Das Geschlecht des Teilnehmers als einzelnes Zeichen. */
+    private final String geschlecht;
+    /** Das Geburtsdatum des Teilnehmers. */
+    private final LocalDate geburtsdatum;
+    /** Die Disziplin des Teilnehmers als einzelnes Zeichen. */
+    private final String disziplin;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link DAVEntry} aus den Stammdaten eines Teilnehmers.
+     *
+     * @param name         Der Name, welcher den Teilnehmer eindeutig identifiziert.
+     * @param vorname      Der Vorname des Teilnehmers.
+     * @param geschlecht   Das Geschlecht des Teilnehmers als einzelnes Zeichen.
+     * @param geburtsdatum Das Geburtsdatum des Teilnehmers.
+     * @param disziplin    Die Disziplin des Teilnehmers als einzelnes Zeichen.
+     */
+    public DAVEntry(
+            final String name,
+            final String vorname,
+            final String geschlecht,
+            final LocalDate geburtsdatum,
+            final String disziplin
+    ) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.vorname = vorname;
+        this.geschlecht = geschlecht;
+        this.geburtsdatum = geburtsdatum;
+        this.disziplin = disziplin;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt den Namen zurück, welcher den Teilnehmer eindeutig identifiziert.
+     *
+     * @return Der Name, welcher den Teilnehmer eindeutig identifiziert.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gibt den Vornamen des Teilnehmers zurück.
+     *
+     * @return Der Vorname des Teilnehmers.
+     */
+    public String getVorname() {
+        return vorname;
+    }
+
+    /**
+     * Gibt das Geschlecht des Teilnehmers als einzelnes Zeichen zurück.
+     *
+     * @return Das Geschlecht des Teilnehmers als einzelnes Zeichen.
+     */
+    public String getGeschlecht() {
+        return geschlecht;
+    }
+
+    /**
+     * Gibt das Geburtsdatum des Teilnehmers zurück.
+     *
+     * @return Das Geburtsdatum des Teilnehmers.
+     */
+    public LocalDate getGeburtsdatum() {
+        return geburtsdatum;
+    }
+
+    /**
+     * Gibt die Disziplin des Teilnehmers als einzelnes Zeichen zurück.
+     *
+     * @return Die Disziplin des Teilnehmers als einzelnes Zeichen.
+     */
+    public String getDisziplin() {
+        return disziplin;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="object">
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DAVEntry)) {
+            return false;
+        }
+        final DAVEntry entry = (DAVEntry) other;
+        return name.equals(entry.name)
+                && Objects.equals(vorname, entry.vorname)
+                && Objects.equals(geschlecht, entry.geschlecht)
+                && Objects.equals(geburtsdatum, entry.geburtsdatum)
+                && Objects.equals(disziplin, entry.disziplin);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, vorname, geschlecht, geburtsdatum, disziplin);
+    }
+
+    @Override
+    public String toString() {
+        return "DAVEntry{name=" + name + ", vorname=" + vorname + ", geschlecht=" + geschlecht
+                + ", geburtsdatum=" + geburtsdatum + ", disziplin=" + disziplin + "}";
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,1095 @@
+package de.edward;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Ein {@link DAVSnapshot} hält die DAV-Tabelle spaltenweise außerhalb des Heaps, damit Auswertungen über Disziplin,
+ * Geschlecht und Alter ohne schwere Abfragen auf dem Server und ohne einen Heap voller {@link DAVEntry DAVEntries} in
+ * wenigen Millisekunden beantwortet werden.
+ *
+ * <p>Disziplin und Geschlecht werden über ein Wörterbuch als einzelnes Byte je Zeile abgelegt, das Geburtsdatum als
+ * Anzahl an Tagen seit der Epoche. Name und Vorname liegen hintereinander in einem gemeinsamen Byte-Speicher. Alle
+ * Spalten sowie die Hash-Tabelle, über die eine Zeile anhand ihres Namens gefunden wird, sind direkte
+ * {@link ByteBuffer}, sodass auch Millionen an Zeilen den Garbage Collector nicht belasten.</p>
+ *
+ * <p>Der Snapshot wird über {@link #load()} mit einer streamenden Abfrage aufgebaut und über {@link #refresh()} anhand
+ * der Spalte {@value EntityDescriptor#TIMESTAMP_COLUMN} inkrementell aktualisiert. Auswertungen über
+ * {@link #query()} laufen parallel über Blöcke von Zeilen und können gleichzeitig mit einer Aktualisierung gestellt
+ * werden; sie sehen dann den Stand vor oder nach der Aktualisierung.</p>
+ *
+ * <p>Da {@link #refresh()} gelöschte Zeilen nicht sehen kann, muss der Snapshot als {@link WriteListener} des
+ * {@link Repository} registriert werden. Gelöschte und von einem {@link TableArchiver} verschobene Teilnehmer bleiben
+ * dann als Grabstein mit dem Zeitpunkt des Löschens in den Spalten, werden aber in keiner Auswertung mehr gezählt und
+ * nicht durch einen verspätet gelesenen älteren Stand wiederbelebt. Der Platz ihrer Zeilen wird erst beim nächsten
+ * vollständigen Laden freigegeben.</p>
+ */
+public final class DAVSnapshot implements WriteListener<String, DAVEntry> {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Anzahl an Zeilen, für die beim ersten Laden Platz reserviert wird. */
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Die Größe des Byte-Speichers für Namen in Bytes, die beim ersten Laden reserviert wird. */
+    private static final int INITIAL_ARENA_SIZE = 64 * 1024;
+    /** Der Code, mit dem ein fehlender Wert einer wörterbuchcodierten Spalte abgelegt wird. */
+    private static final int NULL_CODE = 0;
+    /** Die maximale Anzahl an unterschiedlichen Werten einer wörterbuchcodierten Spalte. */
+    private static final int MAX_CODES = 255;
+    /** Der Wert, mit dem ein fehlendes Geburtsdatum abgelegt wird. */
+    private static final int NULL_DAY = Integer.MIN_VALUE;
+    /** Die Anzahl an Zeilen, die eine Auswertung als einen Block auf einem Thread verarbeitet. */
+    private static final int CHUNK_ROWS = 64 * 1024;
+    /** Die Anzahl an Werten je Zeile in der Spalte der Namen: Beginn und Länge von Name und Vorname. */
+    private static final int STRING_SLOTS = 4;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der {@link DatabaseHandler}, über den die Tabelle gelesen wird. */
+    private final DatabaseHandler databaseHandler;
+    /** Die Sperre, die Auswertungen von Aktualisierungen trennt. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Die Spalten des aktuellen Standes. */
+    private Columns columns = new Columns(INITIAL_CAPACITY, INITIAL_ARENA_SIZE);
+    /** Der neueste Zeitstempel, der bisher gelesen wurde, in Millisekunden seit der Epoche. */
+    private long watermarkMillis = Long.MIN_VALUE;
+    /** Die Anzahl an vollständigen Ladevorgängen, die gerade laufen. */
+    private int runningLoads;
+    /**
+     * Die Schlüssel, die während eines laufenden Ladevorgangs gelöscht wurden, mit dem Zeitpunkt des Löschens, damit
+     * sie auch in den neu geladenen Spalten entfernt werden, oder {@code null}, wenn gerade nicht geladen wird.
+     */
+    private Map<String, Long> deletedWhileLoading;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link DAVSnapshot}.
+     *
+     * @param databaseHandler Der {@link DatabaseHandler}, über den die Tabelle gelesen wird.
+     */
+    public DAVSnapshot(final DatabaseHandler databaseHandler) {
+        this.databaseHandler = databaseHandler;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="loading">
+
+    /**
+     * Liest die gesamte Tabelle mit einer streamenden Abfrage in neue Spalten und ersetzt anschließend den bisherigen
+     * Stand. Auswertungen werden währenddessen noch aus dem bisherigen Stand beantwortet.
+     *
+     * @return Die Anzahl an geladenen Zeilen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht gelesen werden konnte.
+     */
+    public int load() throws SQLException {
+        final Columns loaded = new Columns(INITIAL_CAPACITY, INITIAL_ARENA_SIZE);
+        long watermark = Long.MIN_VALUE;
+
+        beginLoad();
+        boolean replaced = false;
+        final int timestampIndex = DAVEntry.DESCRIPTOR.getColumnNames().size() + 1;
+        try (final Stream<Timestamped> rows = databaseHandler.stream(
+                DAVEntry.DESCRIPTOR.getSelectAllTimestampedSql(),
+                rs -> new Timestamped(DAVEntry.DESCRIPTOR.getMapper().map(rs), rs.getTimestamp(timestampIndex))
+        )) {
+            final Iterator<Timestamped> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                final Timestamped row = iterator.next();
+                loaded.put(row.entry, row.epochMillis);
+                watermark = Math.max(watermark, row.epochMillis);
+            }
+
+            replace(loaded, watermark);
+            replaced = true;
+        } catch (final UncheckedSQLException e) {
+            throw e.getCause();
+        } finally {
+            if (!replaced) {
+                abortLoad();
+            }
+        }
+        return loaded.liveRows();
+    }
+
+    /**
+     * Baut die Spalten aus einem bereits geladenen {@link TableSnapshot} auf, ohne die Datenbank anzufragen, und
+     * ersetzt anschließend den bisherigen Stand. Spätere Aufrufe von {@link #refresh()} lesen ab dessen neuestem
+     * Zeitstempel weiter.
+     *
+     * @param snapshot Der {@link TableSnapshot} der DAV-Tabelle.
+     *
+     * @return Die Anzahl an geladenen Zeilen.
+     */
+    public int load(final TableSnapshot<String, DAVEntry> snapshot) {
+        final Columns loaded = new Columns(INITIAL_CAPACITY, INITIAL_ARENA_SIZE);
+
+        beginLoad();
+        boolean replaced = false;
+        try {
+            for (final DAVEntry entry : snapshot.values()) {
+                loaded.put(entry, Long.MIN_VALUE);
+            }
+
+            replace(loaded, snapshot.getWatermark().map(Instant::toEpochMilli).orElse(Long.MIN_VALUE));
+            replaced = true;
+        } finally {
+            if (!replaced) {
+                abortLoad();
+            }
+        }
+        return loaded.liveRows();
+    }
+
+    /**
+     * Beginnt einen vollständigen Ladevorgang, sodass alle ab jetzt gelöschten Schlüssel für die neu geladenen Spalten
+     * vermerkt werden.
+     */
+    private void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            if (runningLoads++ == 0) {
+                deletedWhileLoading = new HashMap<>();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Beendet einen fehlgeschlagenen Ladevorgang, ohne den bisherigen Stand zu ersetzen.
+     */
+    private void abortLoad() {
+        lock.writeLock().lock();
+        try {
+            if (--runningLoads == 0) {
+                deletedWhileLoading = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ersetzt den bisherigen Stand durch neu geladene Spalten und entfernt daraus alle Schlüssel, die während des
+     * Ladens gelöscht wurden.
+     *
+     * @param loaded    Die neu geladenen Spalten.
+     * @param watermark Der neueste Zeitstempel der geladenen Zeilen in Millisekunden seit der Epoche.
+     */
+    private void replace(
+            final Columns loaded,
+            final long watermark
+    ) {
+        lock.writeLock().lock();
+        try {
+            deletedWhileLoading.forEach(loaded::remove);
+            if (--runningLoads == 0) {
+                deletedWhileLoading = null;
+            }
+
+            this.columns = loaded;
+            this.watermarkMillis = watermark;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Liest alle Zeilen, die seit dem neuesten bekannten Zeitstempel geschrieben wurden, und übernimmt sie in die
+     * Spalten. Da der Zeitstempel schon beim Binden gesetzt wird, wird um {@link ChangeFeed#REPLAY_OVERLAP} weiter
+     * zurückgelesen; bereits bekannte Zeilen werden dabei lediglich erneut geschrieben. Stände, die älter als der
+     * bekannte Stand oder das Löschen ihres Schlüssels sind, werden übergangen.
+     *
+     * @return Die Anzahl an übernommenen Zeilen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Zeilen nicht gelesen werden konnten.
+     */
+    public int refresh() throws SQLException {
+        final long watermark;
+        lock.readLock().lock();
+        try {
+            watermark = watermarkMillis;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (watermark == Long.MIN_VALUE) {
+            return load();
+        }
+
+        // read the changes first, so that the queries are blocked only while they are applied
+        final Instant since = Instant.ofEpochMilli(watermark).minus(ChangeFeed.REPLAY_OVERLAP);
+        final int timestampIndex = DAVEntry.DESCRIPTOR.getColumnNames().size() + 1;
+        final List<Timestamped> changed = new ArrayList<>();
+        try (final Stream<Timestamped> rows = databaseHandler.stream(
+                DAVEntry.DESCRIPTOR.getSelectSinceSql(),
+                rs -> new Timestamped(DAVEntry.DESCRIPTOR.getMapper().map(rs), rs.getTimestamp(timestampIndex)),
+                Timestamp.from(since)
+        )) {
+            rows.forEach(changed::add);
+        } catch (final UncheckedSQLException e) {
+            throw e.getCause();
+        }
+
+        lock.writeLock().lock();
+        try {
+            long newest = watermarkMillis;
+            for (final Timestamped row : changed) {
+                columns.put(row.entry, row.epochMillis);
+                newest = Math.max(newest, row.epochMillis);
+            }
+            watermarkMillis = newest;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changed.size();
+    }
+
+    /**
+     * Übernimmt die bestätigten Datensätze eines Schreibzugriffs über das {@link Repository}.
+     *
+     * @param rows        Die Datensätze, die geschrieben wurden.
+     * @param epochMillis Der Zeitstempel in Millisekunden seit der Epoche, mit dem die Datensätze geschrieben wurden.
+     */
+    @Override
+    public void written(
+            final Collection<? extends DAVEntry> rows,
+            final long epochMillis
+    ) {
+        lock.writeLock().lock();
+        try {
+            for (final DAVEntry row : rows) {
+                columns.put(row, epochMillis);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Markiert die Zeilen der gelöschten oder archivierten Teilnehmer als Grabstein, sofern sie nicht neuer als das
+     * Löschen sind.
+     *
+     * @param keys        Die Namen der gelöschten Teilnehmer.
+     * @param epochMillis Der neueste Zeitstempel in Millisekunden seit der Epoche, den ein gelöschter Stand tragen
+     *                    konnte.
+     */
+    @Override
+    public void deleted(
+            final Collection<? extends String> keys,
+            final long epochMillis
+    ) {
+        lock.writeLock().lock();
+        try {
+            for (final String key : keys) {
+                columns.remove(key, epochMillis);
+                if (deletedWhileLoading != null) {
+                    deletedWhileLoading.merge(key, epochMillis, Math::max);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gibt die Anzahl an Zeilen im Snapshot zurück, ohne die Grabsteine gelöschter Teilnehmer.
+     *
+     * @return Die Anzahl an Zeilen.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return columns.liveRows();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gibt den Speicher zurück, den die Spalten außerhalb des Heaps belegen.
+     *
+     * @return Die Größe aller direkten Puffer in Bytes.
+     */
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return columns.offHeapBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="query">
+
+    /**
+     * Beginnt eine neue Auswertung über alle Zeilen, die über die Filter des {@link Query} eingeschränkt werden kann.
+     *
+     * @return Die neue {@link Query}.
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    /**
+     * Zählt die Zeilen, die einen Filter erfüllen, je Gruppe. Die Zeilen werden in Blöcken parallel verarbeitet, und
+     * jeder Block zählt in ein eigenes Feld, das erst am Ende zusammengeführt wird.
+     *
+     * @param query    Die {@link Query}, deren Filter erfüllt sein müssen.
+     * @param groups   Die Anzahl an Gruppen.
+     * @param grouper  Die Funktion, die einer Zeile ihre Gruppe oder {@code -1} zuordnet.
+     * @param finisher Die Funktion, die die Zählungen mit den Wörterbüchern desselben Standes in ein Ergebnis
+     *                 umwandelt.
+     * @param <R>      Der Typ des Ergebnisses.
+     *
+     * @return Das Ergebnis des {@code finisher}.
+     */
+    private <R> R aggregate(
+            final Query query,
+            final int groups,
+            final Grouper grouper,
+            final BiFunction<Columns, long[], R> finisher
+    ) {
+        lock.readLock().lock();
+        try {
+            final Columns current = columns;
+            query.resolve(current);
+            final int chunks = (current.rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+            final long[] counts = IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+                final long[] partial = new long[groups];
+                final int end = Math.min(current.rows, (chunk + 1) * CHUNK_ROWS);
+                for (int row = chunk * CHUNK_ROWS; row < end; row++) {
+                    if (current.deleted.get(row) == 0 && query.matches(current, row)) {
+                        final int group = grouper.group(current, row);
+                        if (group >= 0) {
+                            partial[group]++;
+                        }
+                    }
+                }
+                return partial;
+            }).reduce(new long[groups], (left, right) -> {
+                final long[] merged = new long[groups];
+                for (int i = 0; i < groups; i++) {
+                    merged[i] = left[i] + right[i];
+                }
+                return merged;
+            });
+            return finisher.apply(current, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Berechnet das Alter in vollen Jahren zu einem Stichtag, ohne ein {@link LocalDate} zu erzeugen.
+     *
+     * @param birthDay     Das Geburtsdatum als Anzahl an Tagen seit der Epoche.
+     * @param referenceDay Der Stichtag als Anzahl an Tagen seit der Epoche.
+     *
+     * @return Das Alter in vollen Jahren.
+     */
+    static int ageInYears(
+            final int birthDay,
+            final int referenceDay
+    ) {
+        final int birth = civil(birthDay);
+        final int reference = civil(referenceDay);
+        final int age = reference / 10_000 - birth / 10_000;
+        return reference % 10_000 < birth % 10_000 ? age - 1 : age;
+    }
+
+    /**
+     * Wandelt eine Anzahl an Tagen seit der Epoche in ein Datum des gregorianischen Kalenders um (nach Howard
+     * Hinnant).
+     *
+     * @param epochDay Die Anzahl an Tagen seit der Epoche.
+     *
+     * @return Das Datum in der Form {@code JJJJMMTT}.
+     */
+    private static int civil(final int epochDay) {
+        final long z = epochDay + 719_468L;
+        final long era = (z >= 0 ? z : z - 146_096) / 146_097;
+        final long dayOfEra = z - era * 146_097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        final long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 10_000 + month * 100 + day);
+    }
+
+    /**
+     * Reserviert einen direkten Puffer für Ganzzahlen in der nativen Byte-Reihenfolge.
+     *
+     * @param capacity Die Anzahl an Ganzzahlen.
+     *
+     * @return Der neue Puffer.
+     */
+    private static IntBuffer allocateInts(final int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Reserviert einen direkten Puffer für lange Ganzzahlen in der nativen Byte-Reihenfolge.
+     *
+     * @param capacity Die Anzahl an langen Ganzzahlen.
+     *
+     * @return Der neue Puffer.
+     */
+    private static LongBuffer allocateLongs(final int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Kopiert die ersten Werte eines Puffers in einen größeren Puffer.
+     *
+     * @param source   Der bisherige Puffer.
+     * @param capacity Die Anzahl an Ganzzahlen des neuen Puffers.
+     * @param used     Die Anzahl an belegten Ganzzahlen, die kopiert werden.
+     *
+     * @return Der neue Puffer.
+     */
+    private static IntBuffer grow(
+            final IntBuffer source,
+            final int capacity,
+            final int used
+    ) {
+        final IntBuffer grown = allocateInts(capacity);
+        final IntBuffer copy = source.duplicate();
+        copy.position(0).limit(used);
+        grown.put(copy).clear();
+        return grown;
+    }
+
+    /**
+     * Kopiert die ersten Werte eines Puffers langer Ganzzahlen in einen größeren Puffer.
+     *
+     * @param source   Der bisherige Puffer.
+     * @param capacity Die Anzahl an langen Ganzzahlen des neuen Puffers.
+     * @param used     Die Anzahl an belegten langen Ganzzahlen, die kopiert werden.
+     *
+     * @return Der neue Puffer.
+     */
+    private static LongBuffer grow(
+            final LongBuffer source,
+            final int capacity,
+            final int used
+    ) {
+        final LongBuffer grown = allocateLongs(capacity);
+        final LongBuffer copy = source.duplicate();
+        copy.position(0).limit(used);
+        grown.put(copy).clear();
+        return grown;
+    }
+
+    /**
+     * Kopiert die ersten Bytes eines Puffers in einen größeren direkten Puffer.
+     *
+     * @param source   Der bisherige Puffer.
+     * @param capacity Die Anzahl an Bytes des neuen Puffers.
+     * @param used     Die Anzahl an belegten Bytes, die kopiert werden.
+     *
+     * @return Der neue Puffer.
+     */
+    private static ByteBuffer grow(
+            final ByteBuffer source,
+            final int capacity,
+            final int used
+    ) {
+        final ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        final ByteBuffer copy = source.duplicate();
+        copy.position(0).limit(used);
+        grown.put(copy).clear();
+        return grown;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Eine {@link Query} schränkt eine Auswertung über Filter auf Disziplin, Geschlecht und Geburtsdatum ein. Alle
+     * gesetzten Filter müssen gleichzeitig erfüllt sein.
+     */
+    public final class Query {
+
+        /** Die gesuchte Disziplin oder {@code null}, wenn nicht nach ihr gefiltert wird. */
+        private String disziplin;
+        /** Das gesuchte Geschlecht oder {@code null}, wenn nicht nach ihm gefiltert wird. */
+        private String geschlecht;
+        /** Der früheste Geburtstag als Anzahl an Tagen seit der Epoche. */
+        private int bornFrom = Integer.MIN_VALUE;
+        /** Der späteste Geburtstag als Anzahl an Tagen seit der Epoche. */
+        private int bornTo = Integer.MAX_VALUE;
+        /** Der Code der gesuchten Disziplin während einer Auswertung oder {@code -1}, wenn nicht gefiltert wird. */
+        private int disziplinCode = -1;
+        /** Der Code des gesuchten Geschlechts während einer Auswertung oder {@code -1}, wenn nicht gefiltert wird. */
+        private int geschlechtCode = -1;
+
+        /**
+         * Erzeugt eine neue {@link Query} ohne Filter.
+         */
+        private Query() {
+        }
+
+        /**
+         * Schränkt die Auswertung auf eine Disziplin ein.
+         *
+         * @param disziplin Die Disziplin.
+         *
+         * @return Diese {@link Query}.
+         */
+        public Query disziplin(final String disziplin) {
+            this.disziplin = disziplin;
+            return this;
+        }
+
+        /**
+         * Schränkt die Auswertung auf ein Geschlecht ein.
+         *
+         * @param geschlecht Das Geschlecht.
+         *
+         * @return Diese {@link Query}.
+         */
+        public Query geschlecht(final String geschlecht) {
+            this.geschlecht = geschlecht;
+            return this;
+        }
+
+        /**
+         * Schränkt die Auswertung auf Teilnehmer ein, die in dem geschlossenen Zeitraum geboren wurden. Teilnehmer ohne
+         * Geburtsdatum werden dabei ausgeschlossen.
+         *
+         * @param from Der früheste Geburtstag.
+         * @param to   Der späteste Geburtstag.
+         *
+         * @return Diese {@link Query}.
+         */
+        public Query bornBetween(
+                final LocalDate from,
+                final LocalDate to
+        ) {
+            this.bornFrom = Math.toIntExact(from.toEpochDay());
+            this.bornTo = Math.toIntExact(to.toEpochDay());
+            return this;
+        }
+
+        /**
+         * Zählt alle Zeilen, die die Filter erfüllen.
+         *
+         * @return Die Anzahl an Zeilen.
+         */
+        public long count() {
+            return aggregate(this, 1, (columns, row) -> 0, (columns, counts) -> counts[0]);
+        }
+
+        /**
+         * Zählt die Zeilen, die die Filter erfüllen, je Disziplin.
+         *
+         * @return Die Anzahl an Zeilen je Disziplin, wobei fehlende Disziplinen unter {@code null} gezählt werden.
+         */
+        public Map<String, Long> countByDisziplin() {
+            return aggregate(
+                    this,
+                    MAX_CODES + 1,
+                    (columns, row) -> columns.disziplin.get(row) & 0xff,
+                    (columns, counts) -> decode(counts, columns.disziplinValues)
+            );
+        }
+
+        /**
+         * Zählt die Zeilen, die die Filter erfüllen, je Geschlecht.
+         *
+         * @return Die Anzahl an Zeilen je Geschlecht, wobei fehlende Geschlechter unter {@code null} gezählt werden.
+         */
+        public Map<String, Long> countByGeschlecht() {
+            return aggregate(
+                    this,
+                    MAX_CODES + 1,
+                    (columns, row) -> columns.geschlecht.get(row) & 0xff,
+                    (columns, counts) -> decode(counts, columns.geschlechtValues)
+            );
+        }
+
+        /**
+         * Zählt die Zeilen, die die Filter erfüllen, je Altersgruppe zu einem Stichtag. Zeilen ohne Geburtsdatum oder
+         * mit einem Geburtsdatum nach dem Stichtag werden nicht gezählt.
+         *
+         * @param reference  Der Stichtag, zu dem das Alter berechnet wird.
+         * @param bucketSize Die Anzahl an Jahren je Altersgruppe.
+         * @param maxAge     Das Alter, ab dem alle Teilnehmer in die letzte Altersgruppe fallen.
+         *
+         * @return Die Anzahl an Zeilen je Altersgruppe, nach dem jüngsten Alter der Gruppe sortiert.
+         */
+        public Map<Integer, Long> countByAge(
+                final LocalDate reference,
+                final int bucketSize,
+                final int maxAge
+        ) {
+            // check the buckets for validity
+            if (bucketSize <= 0 || maxAge < 0) {
+                throw new IllegalArgumentException("The supplied buckets must be positive!");
+            }
+
+            final int referenceDay = Math.toIntExact(reference.toEpochDay());
+            final int buckets = maxAge / bucketSize + 1;
+            final long[] counts = aggregate(this, buckets, (columns, row) -> {
+                final int birthDay = columns.birthDays.get(row);
+                if (birthDay == NULL_DAY || birthDay > referenceDay) {
+                    return -1;
+                }
+                return Math.min(ageInYears(birthDay, referenceDay), maxAge) / bucketSize;
+            }, (columns, grouped) -> grouped);
+
+            final Map<Integer, Long> result = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                if (counts[bucket] > 0) {
+                    result.put(bucket * bucketSize, counts[bucket]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Prüft, ob eine Zeile alle Filter erfüllt. Die Codes der Filter werden vorher über {@link #resolve(Columns)}
+         * bestimmt.
+         *
+         * @param columns Die Spalten, aus denen gelesen wird.
+         * @param row     Die Zeile.
+         *
+         * @return Ob die Zeile alle Filter erfüllt.
+         */
+        private boolean matches(
+                final Columns columns,
+                final int row
+        ) {
+            if (disziplinCode >= 0 && (columns.disziplin.get(row) & 0xff) != disziplinCode) {
+                return false;
+            }
+            if (geschlechtCode >= 0 && (columns.geschlecht.get(row) & 0xff) != geschlechtCode) {
+                return false;
+            }
+            if (bornFrom != Integer.MIN_VALUE || bornTo != Integer.MAX_VALUE) {
+                final int birthDay = columns.birthDays.get(row);
+                return birthDay != NULL_DAY && birthDay >= bornFrom && birthDay <= bornTo;
+            }
+            return true;
+        }
+
+        /**
+         * Bestimmt die Codes der gesuchten Werte in den Wörterbüchern der übergebenen Spalten. Ein unbekannter Wert
+         * erhält einen Code, den keine Zeile trägt.
+         *
+         * @param columns Die Spalten, in deren Wörterbüchern gesucht wird.
+         */
+        private void resolve(final Columns columns) {
+            disziplinCode = disziplin == null ? -1 : columns.disziplinCodes.getOrDefault(disziplin, MAX_CODES + 1);
+            geschlechtCode = geschlecht == null ? -1 : columns.geschlechtCodes.getOrDefault(geschlecht, MAX_CODES + 1);
+        }
+
+        /**
+         * Ordnet die Zählungen je Code wieder ihren Werten zu.
+         *
+         * @param counts Die Zählungen je Code.
+         * @param values Die Werte des Wörterbuchs in der Reihenfolge ihrer Codes.
+         *
+         * @return Die Zählungen je Wert.
+         */
+        private Map<String, Long> decode(
+                final long[] counts,
+                final List<String> values
+        ) {
+            final Map<String, Long> result = new LinkedHashMap<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    result.put(code == NULL_CODE ? null : values.get(code - 1), counts[code]);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Ein {@link Grouper} ordnet einer Zeile ihre Gruppe in einer Auswertung zu.
+     */
+    @FunctionalInterface
+    private interface Grouper {
+
+        /**
+         * Gibt die Gruppe einer Zeile zurück.
+         *
+         * @param columns Die Spalten, aus denen gelesen wird.
+         * @param row     Die Zeile.
+         *
+         * @return Die Gruppe der Zeile oder {@code -1}, wenn sie nicht gezählt wird.
+         */
+        int group(Columns columns, int row);
+    }
+
+    /**
+     * Die Spalten eines Standes der Tabelle samt der Wörterbücher und der Hash-Tabelle über die Namen.
+     */
+    private static final class Columns {
+
+        /** Die Anzahl an belegten Zeilen einschließlich der Grabsteine. */
+        private int rows;
+        /** Die Anzahl an Zeilen, die als Grabstein markiert sind. */
+        private int deletedRows;
+        /** Die Anzahl an Zeilen, für die Platz reserviert ist. */
+        private int capacity;
+        /** Der Code der Disziplin je Zeile. */
+        private ByteBuffer disziplin;
+        /** Der Code des Geschlechts je Zeile. */
+        private ByteBuffer geschlecht;
+        /** Das Geburtsdatum je Zeile als Anzahl an Tagen seit der Epoche. */
+        private IntBuffer birthDays;
+        /** Ob die Zeile als Grabstein markiert ist ({@code 1}) oder nicht ({@code 0}). */
+        private ByteBuffer deleted;
+        /**
+         * Der Zeitpunkt je Zeile in Millisekunden seit der Epoche, zu dem ihr Stand geschrieben oder sie gelöscht wurde,
+         * oder {@link Long#MIN_VALUE}, wenn er nicht bekannt ist.
+         */
+        private LongBuffer stamps;
+        /** Beginn und Länge von Name und Vorname je Zeile im {@link #arena Byte-Speicher}. */
+        private IntBuffer strings;
+        /** Der gemeinsame Byte-Speicher für Namen und Vornamen in UTF-8. */
+        private ByteBuffer arena;
+        /** Die Anzahl an belegten Bytes im {@link #arena Byte-Speicher}. */
+        private int arenaSize;
+        /** Die Hash-Tabelle über die Namen; jeder Platz enthält die Zeile plus eins oder {@code 0}, wenn frei. */
+        private IntBuffer slots;
+        /** Die Werte der Disziplinen in der Reihenfolge ihrer Codes, beginnend mit Code {@code 1}. */
+        private final List<String> disziplinValues = new ArrayList<>();
+        /** Die Codes der Disziplinen. */
+        private final Map<String, Integer> disziplinCodes = new LinkedHashMap<>();
+        /** Die Werte der Geschlechter in der Reihenfolge ihrer Codes, beginnend mit Code {@code 1}. */
+        private final List<String> geschlechtValues = new ArrayList<>();
+        /** Die Codes der Geschlechter. */
+        private final Map<String, Integer> geschlechtCodes = new LinkedHashMap<>();
+
+        /**
+         * Erzeugt neue, leere {@link Columns}.
+         *
+         * @param capacity  Die Anzahl an Zeilen, für die Platz reserviert wird.
+         * @param arenaSize Die Größe des Byte-Speichers für Namen in Bytes.
+         */
+        private Columns(
+                final int capacity,
+                final int arenaSize
+        ) {
+            this.capacity = capacity;
+            this.disziplin = ByteBuffer.allocateDirect(capacity);
+            this.geschlecht = ByteBuffer.allocateDirect(capacity);
+            this.birthDays = allocateInts(capacity);
+            this.deleted = ByteBuffer.allocateDirect(capacity);
+            this.stamps = allocateLongs(capacity);
+            this.strings = allocateInts(capacity * STRING_SLOTS);
+            this.arena = ByteBuffer.allocateDirect(arenaSize);
+            this.slots = allocateInts(capacity * 2);
+        }
+
+        /**
+         * Übernimmt einen Datensatz. Existiert bereits eine Zeile mit demselben Namen, wird sie überschrieben, sofern
+         * der Datensatz nicht älter als ihr Stand ist; ein Grabstein wird nur von einem neueren Stand wiederbelebt.
+         *
+         * @param entry       Der Datensatz.
+         * @param epochMillis Der Zeitpunkt, zu dem der Datensatz geschrieben wurde, oder {@link Long#MIN_VALUE}, wenn
+         *                    er nicht bekannt ist.
+         */
+        private void put(
+                final DAVEntry entry,
+                final long epochMillis
+        ) {
+            final byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+            final int hash = hash(name);
+            int slot = findSlot(name, hash);
+
+            final int row;
+            if (slots.get(slot) == 0) {
+                if (rows == capacity) {
+                    growRows();
+                    slot = findSlot(name, hash);
+                }
+                row = rows++;
+                strings.put(row * STRING_SLOTS, append(name));
+                strings.put(row * STRING_SLOTS + 1, name.length);
+                slots.put(slot, row + 1);
+            } else {
+                row = slots.get(slot) - 1;
+
+                // keep a newer state and do not let an older read revive a deleted participant
+                final long stamp = stamps.get(row);
+                final boolean tombstone = deleted.get(row) != 0;
+                if (epochMillis < stamp || tombstone && epochMillis <= stamp) {
+                    return;
+                }
+                if (tombstone) {
+                    deleted.put(row, (byte) 0);
+                    deletedRows--;
+                }
+            }
+            stamps.put(row, epochMillis);
+
+            disziplin.put(row, (byte) encode(entry.getDisziplin(), disziplinValues, disziplinCodes));
+            geschlecht.put(row, (byte) encode(entry.getGeschlecht(), geschlechtValues, geschlechtCodes));
+            birthDays.put(row, entry.getGeburtsdatum() == null
+                    ? NULL_DAY
+                    : Math.toIntExact(entry.getGeburtsdatum().toEpochDay()));
+
+            // the old first name stays in the arena until the next full load
+            final byte[] vorname = entry.getVorname() == null
+                    ? new byte[0]
+                    : entry.getVorname().getBytes(StandardCharsets.UTF_8);
+            strings.put(row * STRING_SLOTS + 2, append(vorname));
+            strings.put(row * STRING_SLOTS + 3, vorname.length);
+        }
+
+        /**
+         * Markiert die Zeile eines Namens als Grabstein, sofern ihr Stand höchstens mit dem übergebenen Zeitpunkt
+         * geschrieben wurde.
+         *
+         * @param key         Der Name.
+         * @param epochMillis Der neueste Zeitpunkt, den ein gelöschter Stand tragen konnte.
+         */
+        private void remove(
+                final String key,
+                final long epochMillis
+        ) {
+            final byte[] name = key.getBytes(StandardCharsets.UTF_8);
+            final int slot = findSlot(name, hash(name));
+            if (slots.get(slot) == 0) {
+                return;
+            }
+
+            final int row = slots.get(slot) - 1;
+            if (stamps.get(row) > epochMillis) {
+                return;
+            }
+            if (deleted.get(row) == 0) {
+                deleted.put(row, (byte) 1);
+                deletedRows++;
+            }
+            stamps.put(row, epochMillis);
+        }
+
+        /**
+         * Gibt die Anzahl an Zeilen ohne die Grabsteine zurück.
+         *
+         * @return Die Anzahl an Zeilen, die in Auswertungen gezählt werden.
+         */
+        private int liveRows() {
+            return rows - deletedRows;
+        }
+
+        /**
+         * Sucht den Platz eines Namens in der Hash-Tabelle über lineares Sondieren.
+         *
+         * @param name Der Name in UTF-8.
+         * @param hash Der Hashwert des Namens.
+         *
+         * @return Der Platz der Zeile mit diesem Namen oder der erste freie Platz.
+         */
+        private int findSlot(
+                final byte[] name,
+                final int hash
+        ) {
+            final int mask = slots.capacity() - 1;
+            int slot = hash & mask;
+            while (true) {
+                final int stored = slots.get(slot);
+                if (stored == 0 || nameEquals(stored - 1, name)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Vergleicht den Namen einer Zeile mit einem Namen, ohne ihn aus dem Byte-Speicher zu kopieren.
+         *
+         * @param row  Die Zeile.
+         * @param name Der Name in UTF-8.
+         *
+         * @return Ob die Namen gleich sind.
+         */
+        private boolean nameEquals(
+                final int row,
+                final byte[] name
+        ) {
+            final int offset = strings.get(row * STRING_SLOTS);
+            if (strings.get(row * STRING_SLOTS + 1) != name.length) {
+                return false;
+            }
+            for (int i = 0; i < name.length; i++) {
+                if (arena.get(offset + i) != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Hängt Bytes an den Byte-Speicher an und vergrößert ihn bei Bedarf.
+         *
+         * @param bytes Die Bytes.
+         *
+         * @return Der Beginn der Bytes im Byte-Speicher.
+         */
+        private int append(final byte[] bytes) {
+            if (arenaSize + bytes.length > arena.capacity()) {
+                final long required = Math.max((long) arena.capacity() * 2, (long) arenaSize + bytes.length);
+                arena = grow(arena, Math.toIntExact(required), arenaSize);
+            }
+
+            final int offset = arenaSize;
+            for (int i = 0; i < bytes.length; i++) {
+                arena.put(offset + i, bytes[i]);
+            }
+            arenaSize += bytes.length;
+            return offset;
+        }
+
+        /**
+         * Verdoppelt den Platz aller Spalten und baut die Hash-Tabelle mit doppelter Größe neu auf.
+         */
+        private void growRows() {
+            final int grown = Math.multiplyExact(capacity, 2);
+            disziplin = grow(disziplin, grown, rows);
+            geschlecht = grow(geschlecht, grown, rows);
+            birthDays = grow(birthDays, grown, rows);
+            deleted = grow(deleted, grown, rows);
+            stamps = grow(stamps, grown, rows);
+            strings = grow(strings, grown * STRING_SLOTS, rows * STRING_SLOTS);
+            capacity = grown;
+
+            slots = allocateInts(grown * 2);
+            final int mask = slots.capacity() - 1;
+            for (int row = 0; row < rows; row++) {
+                final int offset = strings.get(row * STRING_SLOTS);
+                final byte[] name = new byte[strings.get(row * STRING_SLOTS + 1)];
+                for (int i = 0; i < name.length; i++) {
+                    name[i] = arena.get(offset + i);
+                }
+
+                int slot = hash(name) & mask;
+                while (slots.get(slot) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots.put(slot, row + 1);
+            }
+        }
+
+        /**
+         * Gibt den Code eines Wertes in einem Wörterbuch zurück und nimmt neue Werte auf.
+         *
+         * @param value  Der Wert oder {@code null}.
+         * @param values Die Werte in der Reihenfolge ihrer Codes.
+         * @param codes  Die Codes der Werte.
+         *
+         * @return Der Code des Wertes.
+         */
+        private static int encode(
+                final String value,
+                final List<String> values,
+                final Map<String, Integer> codes
+        ) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+
+            final Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (values.size() == MAX_CODES) {
+                throw new IllegalStateException("The dictionary cannot hold more than " + MAX_CODES + " values!");
+            }
+            values.add(value);
+            codes.put(value, values.size());
+            return values.size();
+        }
+
+        /**
+         * Berechnet den Hashwert eines Namens (FNV-1a).
+         *
+         * @param name Der Name in UTF-8.
+         *
+         * @return Der Hashwert des Namens.
+         */
+        private static int hash(final byte[] name) {
+            int hash = 0x811c9dc5;
+            for (final byte b : name) {
+                hash ^= b & 0xff;
+                hash *= 0x01000193;
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Gibt den Speicher zurück, den die Spalten außerhalb des Heaps belegen.
+         *
+         * @return Die Größe aller direkten Puffer in Bytes.
+         */
+        private long offHeapBytes() {
+            return disziplin.capacity() + geschlecht.capacity() + deleted.capacity() + arena.capacity()
+                    + (long) Integer.BYTES * (birthDays.capacity() + strings.capacity() + slots.capacity())
+                    + (long) Long.BYTES * stamps.capacity();
+        }
+    }
+
+    /**
+     * Ein gelesener Datensatz mit dem Zeitpunkt, zu dem er geschrieben wurde.
+     */
+    private static final class Timestamped {
+
+        /** Der Datensatz. */
+        private final DAVEntry entry;
+        /** Der Zeitpunkt in Millisekunden seit der Epoche oder {@link Long#MIN_VALUE}, wenn er fehlt. */
+        private final long epochMillis;
+
+        /**
+         * Erzeugt einen neuen {@link Timestamped}.
+         *
+         * @param entry     Der Datensatz.
+         * @param timestamp Der Zeitstempel oder {@code null}.
+         */
+        private Timestamped(
+                final DAVEntry entry,
+                final Timestamp timestamp
+        ) {
+            this.entry = entry;
+            this.epochMillis = timestamp == null ? Long.MIN_VALUE : timestamp.getTime();
+        }
+    }
+    //</editor-fold>
+}
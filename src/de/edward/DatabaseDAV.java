@@ -1,14 +1,14 @@
 package de.edward;
 
-        import java.time.Instant;
-        import java.util.Date;
-        import java.util.Properties;
-
-        import java.sql.Connection;
-        import java.sql.PreparedStatement;
-        import java.sql.ResultSet;
-        import java.sql.SQLException;
-        import java.sql.Timestamp;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Die Haupt- und Main-Klasse dieses {@link DatabaseDAV Test-Projekts}, mit dessen Hilfe eine stabile Verbindung zu
@@ -25,12 +25,38 @@ public final class DatabaseDAV {
     private static final String USER = "edward";
     /** Das Passwort, welches zu dem {@code USER} gehört. */
     private static final String PASSWORD = "admin"; //highest of security standards!!!
+    /** Die Anzahl an Schlüsseln, die höchstens auf das asynchrone Schreiben warten dürfen. */
+    private static final int WRITER_CAPACITY = 10_000;
+    /** Die Anzahl an wartenden Schlüsseln, ab der das asynchrone Schreiben sofort bestätigt wird. */
+    private static final int WRITER_FLUSH_SIZE = DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE;
+    /** Die Zeit, die ein Datensatz höchstens auf das asynchrone Schreiben wartet. */
+    private static final Duration WRITER_FLUSH_INTERVAL = Duration.ofMillis(50);
+    /** Die Anzahl an Threads, die asynchron eingereihte Datensätze schreiben. */
+    private static final int WRITER_THREADS = 2;
+    /** Die Datei, in die der Inhalt der DAV-Tabelle für einen schnellen Neustart geschrieben wird. */
+    private static final Path SNAPSHOT_FILE = Path.of("DAVTable.snapshot");
+    /** Die Zeit zwischen zwei Schreibvorgängen der {@code SNAPSHOT_FILE}. */
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofMinutes(1);
+    /** Die Datei, in der die zuletzt gesendeten DDL-Anweisungen der Tabellen vermerkt werden. */
+    private static final Path SCHEMA_FILE = Path.of("DAVTable.schema");
+    /** Die Zeit nach dem letzten Schreiben, nach der ein Teilnehmer in das Archiv verschoben wird. */
+    private static final Duration ARCHIVE_HOT_WINDOW = Duration.ofDays(365);
+    /** Die Zeit zwischen zwei Durchläufen des Archivierens. */
+    private static final Duration ARCHIVE_INTERVAL = Duration.ofHours(1);
     //</editor-fold>
 
 
     //<editor-fold desc="STATIC FIELDS">
     /** Der {@link DatabaseHandler}, mit der die Verbindung zu der Datenbank hergestellt wird. */
     private static DatabaseHandler databaseHandler;
+    /** Das {@link Repository}, über das Teilnehmer gelesen und geschrieben werden. */
+    private static Repository<String, DAVEntry> davRepository;
+    /** Der {@link DAVSnapshot}, über den Auswertungen über alle Teilnehmer gestellt werden. */
+    private static DAVSnapshot davSnapshot;
+    /** Der {@link TableSnapshot}, über den die Teilnehmer nach einem Neustart schnell geladen werden. */
+    private static TableSnapshot<String, DAVEntry> davTableSnapshot;
+    /** Der {@link TableArchiver}, der Teilnehmer ohne Schreibzugriffe im letzten Jahr in das Archiv verschiebt. */
+    private static TableArchiver<String, DAVEntry> davArchiver;
     //</editor-fold>
 
 
@@ -47,6 +73,7 @@ public final class DatabaseDAV {
         databaseProperties.put("jdbcUrl", JDBC_URL);
         databaseProperties.put("dataSource.user", USER);
         databaseProperties.put("dataSource.password", PASSWORD);
+        databaseProperties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
 
         // create database-handler
         databaseHandler = new DatabaseHandler(
@@ -54,21 +81,81 @@ public final class DatabaseDAV {
                 databaseProperties
         );
 
-        // create table
-        createDAVTable();
+        // create repository
+        davRepository = new Repository<>(databaseHandler, DAVEntry.DESCRIPTOR);
+
+        // create snapshot, which follows every write of the repository
+        davTableSnapshot = new TableSnapshot<>(davRepository, SNAPSHOT_FILE, DAVEntry.CODEC);
+        davRepository.addWriteListener(davTableSnapshot);
+
+        // create columns for the analytical queries, which drop deleted and archived participants
+        davSnapshot = new DAVSnapshot(databaseHandler);
+        davRepository.addWriteListener(davSnapshot);
+
+        // create archiver, which moves cold participants into the partitioned archive
+        davArchiver = new TableArchiver<>(davRepository, ARCHIVE_HOT_WINDOW);
+
+        // create tables unless the schema cache already knows them and load the newest keys and the snapshot
+        final SchemaCache schemaCache = new SchemaCache(SCHEMA_FILE);
+        try {
+            davRepository.createTable(schemaCache);
+            davArchiver.createArchiveTable(schemaCache);
+            davRepository.loadLatestEntries();
+            davTableSnapshot.restore();
+            davSnapshot.load(davTableSnapshot);
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+        davTableSnapshot.saveEvery(SNAPSHOT_INTERVAL);
+        davArchiver.runEvery(ARCHIVE_INTERVAL);
+
+        // prepare the statements on the remaining connections while the first values are already written
+        databaseHandler.warmUp(DAVEntry.DESCRIPTOR.getWarmUpSql()).whenComplete((ignored, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+            }
+        });
+
+        // start asynchronous writer
+        davRepository.enableWriteBehind(WRITER_CAPACITY, WRITER_FLUSH_SIZE, WRITER_FLUSH_INTERVAL, WRITER_THREADS);
 
         // insert values
         try {
-            int i = 0;
-            insertValues("Atkins", "Käthe", "w", 2001-1-01, "c");
+            insertValues("Atkins", "Käthe", "w", LocalDate.of(2001, 1, 1), "c");
             Thread.sleep(100);
-            insertValues("fatchi", "now/shall", "adverb", "marker for imperative mood");
+            insertValues("Berger", "Max", "m", LocalDate.of(1999, 6, 15), "b");
+
+            // write several participants in one batch and queue another one without waiting for the database
+            insertValues(List.of(
+                    new DAVEntry("Claßen", "Anna", "w", LocalDate.of(1987, 3, 12), "a"),
+                    new DAVEntry("Dietz", "Jonas", "m", LocalDate.of(2004, 9, 30), "c")
+            ));
+            insertValuesAsync(new DAVEntry("Engel", "Marie", "w", LocalDate.of(1995, 11, 2), "b"))
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            e.printStackTrace();
+                        }
+                    });
         } catch (final InterruptedException e) {
             throw new RuntimeException(e);
+        } finally {
+            // write everything that is still queued and save the snapshot for the next start
+            davArchiver.close();
+            davRepository.close();
+            davTableSnapshot.close();
         }
 
-        // get the newest name
+        // get the newest name and count all participants without holding them in memory
         System.out.println(getNewestEntry());
+        try (final Stream<DAVEntry> entries = streamEntries()) {
+            System.out.println(entries.count());
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+
+        // print the participants per discipline from the columns
+        System.out.println(davSnapshot.query().countByDisziplin());
+        System.out.println(davSnapshot.query().geschlecht("w").countByAge(LocalDate.now(), 10, 80));
     }
     //</editor-fold>
 
@@ -84,28 +171,6 @@ public final class DatabaseDAV {
 
     //<editor-fold desc="utility">
 
-    /**
-     * Erzeugt eine Test-Tabelle
-     */
-    private static void createDAVTable() {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "CREATE TABLE IF NOT EXISTS DAVTable("
-                            + "name VARCHAR(255) PRIMARY KEY, "
-                            + "vorname VARCHAR(255), "
-                            + "geschlecht VARCHAR(1), "
-                            + "geburtsdatum DATE, "
-                            + "disziplin VARCHAR(1), "
-                            + "date DATETIME(1)"
-                            + ")" //I'm not entirely sure, I know what i'm doing...
-            );
-
-            stmt.executeUpdate();
-        } catch (final SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
     /**
      * Fügt einen neuen Datensatz hinzu, welcher aus einem Namen, einem Alter und einem Zeitpunkt besteht, wobei der
      * Zeitpunkt nicht mit übergeben wird, da immer der aktuelle Zeitpunkt gewählt wird. Sollte der Name bereits
@@ -118,50 +183,71 @@ public final class DatabaseDAV {
             final String name,
             final String vorname,
             final String geschlecht,
-            final Date geburtsdatum,
+            final LocalDate geburtsdatum,
             final String disziplin
     ) {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT INTO DAVTable (name, vorname, geschlecht, geburtsdatum, date) VALUES (@name:=?, @vorname:=?, @geschlecht:=?, @geburtsdatum:=?, @disziplin:=?, @date:=?) "
-                            + "ON DUPLICATE KEY UPDATE date=@date, disziplin=@disziplin, geburtsdatum=@geburtsdatum, geschlecht=@geschlecht, vorname=@vorname"
-            );
-
-            stmt.setString(1, name);
-            stmt.setString(2, vorname);
-            stmt.setString(3, geschlecht);
-            stmt.setTimestamp(4, geburtsdatum);
-            stmt.setString(5, disziplin);
-            stmt.setTimestamp(6, Timestamp.from(Instant.now()));
-
-            stmt.executeUpdate();
+        try {
+            davRepository.upsert(new DAVEntry(name, vorname, geschlecht, geburtsdatum, disziplin));
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Fügt alle übergebenen Teilnehmer in einer Stapel-Verarbeitung hinzu. Die Teilnehmer werden blockweise gesendet
+     * und je Block in einer einzigen Transaktion bestätigt, statt für jeden Teilnehmer eine eigene Anfrage zu stellen.
+     *
+     * @param entries Die Teilnehmer, die hinzugefügt oder aktualisiert werden sollen.
+     */
+    private static void insertValues(final Collection<DAVEntry> entries) {
+        try {
+            davRepository.upsertAll(entries);
         } catch (final SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reiht einen Teilnehmer zum asynchronen Schreiben ein, ohne auf die Datenbank zu warten. Wird derselbe Schlüssel
+     * mehrfach eingereiht, bevor geschrieben wurde, wird nur der zuletzt eingereihte Stand geschrieben.
+     *
+     * @param entry Der Teilnehmer, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @return Ein {@link CompletableFuture}, welcher abgeschlossen wird, sobald der Teilnehmer bestätigt wurde.
+     *
+     * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn beim Warten auf freien Platz unterbrochen
+     *     wird.
+     */
+    private static CompletableFuture<Void> insertValuesAsync(final DAVEntry entry) throws InterruptedException {
+        return davRepository.enqueue(entry);
+    }
+
     /**
      * Gibt den Namen zurück, der zuletzt eingefügt wurde in der Datenbank.
      *
      * @return Der Name, der zuletzt eingefügt wurde in der Datenbank.
      */
     private static String getNewestEntry() {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT name as name FROM DAVTable WHERE date IS NOT NULL ORDER BY date DESC"
-            );
-
-            final ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getString("name");
-            }
+        try {
+            return davRepository.newestKey().orElse("");
         } catch (final SQLException e) {
             e.printStackTrace();
         }
 
         return "";
     }
+
+    /**
+     * Gibt alle Teilnehmer als {@link Stream} zurück, ohne sie gleichzeitig im Speicher zu halten, etwa um die gesamte
+     * Tabelle zu exportieren. Der {@link Stream} muss geschlossen werden, um seine Verbindung freizugeben.
+     *
+     * @return Ein {@link Stream} über alle Teilnehmer.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    private static Stream<DAVEntry> streamEntries() throws SQLException {
+        return davRepository.streamAll();
+    }
     //</editor-fold>
 
 }
@@ -1,16 +1,12 @@
 package de.edward;
 
-import java.sql.*;
-import java.time.Instant;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
-
-import java.sql.Connection;
-        import java.sql.PreparedStatement;
-        import java.sql.ResultSet;
-        import java.sql.SQLException;
-        import java.sql.Timestamp;
-        import java.time.Instant;
-        import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Die Haupt- und Main-Klasse dieses {@link DatabaseDictionary Test-Projekts}, mit dessen Hilfe eine stabile Verbindung zu
@@ -27,12 +23,40 @@ public final class DatabaseDictionary {
     private static final String USER = "edward";
     /** Das Passwort, welches zu dem {@code USER} gehört. */
     private static final String PASSWORD = "admin"; //highest of security standards!!!
+    /** Die maximale Anzahl an Einträgen, die im Cache des {@link Repository} gehalten werden. */
+    private static final int CACHE_SIZE = 10_000;
+    /** Die Lebensdauer eines Eintrags im Cache des {@link Repository}. */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    /** Die Anzahl an Schlüsseln, die höchstens auf das asynchrone Schreiben warten dürfen. */
+    private static final int WRITER_CAPACITY = 10_000;
+    /** Die Anzahl an wartenden Schlüsseln, ab der das asynchrone Schreiben sofort bestätigt wird. */
+    private static final int WRITER_FLUSH_SIZE = DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE;
+    /** Die Zeit, die ein Datensatz höchstens auf das asynchrone Schreiben wartet. */
+    private static final Duration WRITER_FLUSH_INTERVAL = Duration.ofMillis(50);
+    /** Die Anzahl an Threads, die asynchron eingereihte Datensätze schreiben. */
+    private static final int WRITER_THREADS = 2;
+    /** Die maximale Anzahl an Vorschlägen, die eine Suche zurückgibt. */
+    private static final int SUGGESTION_LIMIT = 10;
+    /** Die maximale Anzahl an Tippfehlern, die eine unscharfe Suche toleriert. */
+    private static final int SUGGESTION_DISTANCE = 1;
+    /** Die Datei, in die der Inhalt des Wörterbuchs für einen schnellen Neustart geschrieben wird. */
+    private static final Path SNAPSHOT_FILE = Path.of("dictionaryTable.snapshot");
+    /** Die Zeit zwischen zwei Schreibvorgängen der {@code SNAPSHOT_FILE}. */
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofMinutes(1);
+    /** Die Datei, in der die zuletzt gesendeten DDL-Anweisungen der Tabelle vermerkt werden. */
+    private static final Path SCHEMA_FILE = Path.of("dictionaryTable.schema");
     //</editor-fold>
 
 
     //<editor-fold desc="STATIC FIELDS">
     /** Der {@link DatabaseHandler}, mit der die Verbindung zu der Datenbank hergestellt wird. */
     private static DatabaseHandler databaseHandler;
+    /** Das {@link Repository}, über das Einträge gelesen und geschrieben werden. */
+    private static Repository<String, DictionaryEntry> dictionaryRepository;
+    /** Der {@link SearchIndex}, über den die fremden und englischen Wörter im Speicher durchsucht werden. */
+    private static SearchIndex<String, DictionaryEntry> searchIndex;
+    /** Der {@link TableSnapshot}, über den das Wörterbuch nach einem Neustart ohne vollständiges Lesen geladen wird. */
+    private static TableSnapshot<String, DictionaryEntry> dictionarySnapshot;
     //</editor-fold>
 
 
@@ -49,6 +73,7 @@ public final class DatabaseDictionary {
         databaseProperties.put("jdbcUrl", JDBC_URL);
         databaseProperties.put("dataSource.user", USER);
         databaseProperties.put("dataSource.password", PASSWORD);
+        databaseProperties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
 
         // create database-handler
         databaseHandler = new DatabaseHandler(
@@ -56,21 +81,73 @@ public final class DatabaseDictionary {
                 databaseProperties
         );
 
-        // create table
-        createdictionaryTable();
+        // create repository
+        dictionaryRepository = new Repository<>(databaseHandler, DictionaryEntry.DESCRIPTOR, CACHE_SIZE, CACHE_TTL);
+
+        // create search index, which follows every write of the repository
+        searchIndex = new SearchIndex<>(
+                DictionaryEntry::getStrangWord,
+                List.of(DictionaryEntry::getStrangWord, DictionaryEntry::getEngWord)
+        );
+        dictionaryRepository.addWriteListener(searchIndex);
+
+        // create snapshot, which also follows every write of the repository
+        dictionarySnapshot = new TableSnapshot<>(dictionaryRepository, SNAPSHOT_FILE, DictionaryEntry.CODEC);
+        dictionaryRepository.addWriteListener(dictionarySnapshot);
+
+        // create table unless the schema cache already knows it and load the newest keys, the snapshot and the index
+        try {
+            dictionaryRepository.createTable(new SchemaCache(SCHEMA_FILE));
+            dictionaryRepository.loadLatestEntries();
+            dictionarySnapshot.restore();
+            dictionarySnapshot.values().forEach(searchIndex::index);
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+        dictionarySnapshot.saveEvery(SNAPSHOT_INTERVAL);
+
+        // prepare the statements on the remaining connections while the first values are already written
+        databaseHandler.warmUp(DictionaryEntry.DESCRIPTOR.getWarmUpSql()).whenComplete((ignored, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+            }
+        });
+
+        // start asynchronous writer
+        dictionaryRepository.enableWriteBehind(WRITER_CAPACITY, WRITER_FLUSH_SIZE, WRITER_FLUSH_INTERVAL, WRITER_THREADS);
 
         // insert values
         try {
-            int i = 0;
             insertValues("tchó", "person", "noun", "general definition for individual humans");
             Thread.sleep(100);
             insertValues("fatchi", "now/shall", "adverb", "marker for imperative mood");
+
+            // write several values in one batch and queue another one without waiting for the database
+            insertValues(List.of(
+                    new DictionaryEntry("miral", "water", "noun", "any liquid that can be drunk"),
+                    new DictionaryEntry("sunek", "to walk", "verb", "to move on foot")
+            ));
+            insertValuesAsync(new DictionaryEntry("tachi", "already", "adverb", "marker for completed actions"))
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            e.printStackTrace();
+                        }
+                    });
         } catch (final InterruptedException e) {
             throw new RuntimeException(e);
+        } finally {
+            // write everything that is still queued and save the snapshot for the next start
+            dictionaryRepository.close();
+            dictionarySnapshot.close();
         }
 
-        // get the newest name
+        // get the newest name and look up a word, which is answered from the cache once it was loaded
         System.out.println(getNewestWord());
+        System.out.println(getWord("tchó"));
+
+        // search the words without asking the database
+        System.out.println(getSuggestions("tc"));
+        System.out.println(getSimilarWords("fatshi"));
     }
     //</editor-fold>
 
@@ -86,27 +163,6 @@ public final class DatabaseDictionary {
 
     //<editor-fold desc="utility">
 
-    /**
-     * Erzeugt eine Test-Tabelle
-     */
-    private static void createdictionaryTable() {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "CREATE TABLE IF NOT EXISTS dictionaryTable("
-                            + "strangWord VARCHAR(255) PRIMARY KEY, "
-                            + "engWord VARCHAR(255), "
-                            + "type VARCHAR(255), "
-                            + "definition VARCHAR(255), "
-                            + "date DATETIME(1)"
-                            + ")" //I'm not entirely sure, I know what i'm doing...
-            );
-
-            stmt.executeUpdate();
-        } catch (final SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
     /**
      * Fügt einen neuen Datensatz hinzu, welcher aus einem Namen, einem Alter und einem Zeitpunkt besteht, wobei der
      * Zeitpunkt nicht mit übergeben wird, da immer der aktuelle Zeitpunkt gewählt wird. Sollte der Name bereits
@@ -121,40 +177,92 @@ public final class DatabaseDictionary {
             final String type,
             final String definition
     ) {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT INTO dictionaryTable (strangWord, engWord, type, definition, date) VALUES (@strangWord:=?, @engWord:=?, @type:=?, @definition:=?, @date:=?) "
-                            + "ON DUPLICATE KEY UPDATE date=@date, definition=@definition, type=@type, engWord=@engWord"
-            );
-
-            stmt.setString(1, strangWord);
-            stmt.setString(2, engWord);
-            stmt.setString(3, type);
-            stmt.setString(4, definition);
-            stmt.setTimestamp(5, Timestamp.from(Instant.now()));
-
-            stmt.executeUpdate();
+        try {
+            dictionaryRepository.upsert(new DictionaryEntry(strangWord, engWord, type, definition));
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Fügt alle übergebenen Einträge in einer Stapel-Verarbeitung hinzu. Die Einträge werden blockweise gesendet und je
+     * Block in einer einzigen Transaktion bestätigt, statt für jeden Eintrag eine eigene Anfrage zu stellen.
+     *
+     * @param entries Die Einträge, die hinzugefügt oder aktualisiert werden sollen.
+     */
+    private static void insertValues(final Collection<DictionaryEntry> entries) {
+        try {
+            dictionaryRepository.upsertAll(entries);
         } catch (final SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reiht einen Eintrag zum asynchronen Schreiben ein, ohne auf die Datenbank zu warten. Wird derselbe Schlüssel
+     * mehrfach eingereiht, bevor geschrieben wurde, wird nur der zuletzt eingereihte Stand geschrieben.
+     *
+     * @param entry Der Eintrag, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @return Ein {@link CompletableFuture}, welcher abgeschlossen wird, sobald der Eintrag bestätigt wurde.
+     *
+     * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn beim Warten auf freien Platz unterbrochen
+     *     wird.
+     */
+    private static CompletableFuture<Void> insertValuesAsync(final DictionaryEntry entry) throws InterruptedException {
+        return dictionaryRepository.enqueue(entry);
+    }
+
+    /**
+     * Gibt den Eintrag zu dem übergebenen fremden Wort zurück. Häufig nachgeschlagene Wörter werden dabei aus dem Cache
+     * des {@link Repository} beantwortet.
+     *
+     * @param strangWord Das fremde Wort, dessen Eintrag gesucht wird.
+     *
+     * @return Der Eintrag zu dem fremden Wort oder {@code null}, wenn es keinen gibt.
+     */
+    private static DictionaryEntry getWord(final String strangWord) {
+        try {
+            return dictionaryRepository.find(strangWord).orElse(null);
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Gibt die fremden Wörter zurück, bei denen das fremde oder das englische Wort mit dem übergebenen Präfix beginnt.
+     * Die Suche wird vollständig aus dem {@link SearchIndex} beantwortet.
+     *
+     * @param prefix Das Präfix, das bisher eingegeben wurde.
+     *
+     * @return Die fremden Wörter, die zu dem Präfix passen.
+     */
+    private static List<String> getSuggestions(final String prefix) {
+        return searchIndex.prefix(prefix, SUGGESTION_LIMIT);
+    }
+
+    /**
+     * Gibt die fremden Wörter zurück, bei denen das fremde oder das englische Wort der Anfrage bis auf einen Tippfehler
+     * gleicht, etwa um "Meinten Sie ...?" anzubieten.
+     *
+     * @param query Die Anfrage, die nicht exakt gefunden wurde.
+     *
+     * @return Die fremden Wörter, die der Anfrage ähneln, das ähnlichste zuerst.
+     */
+    private static List<String> getSimilarWords(final String query) {
+        return searchIndex.fuzzy(query, SUGGESTION_DISTANCE, SUGGESTION_LIMIT);
+    }
+
     /**
      * Gibt den Namen zurück, der zuletzt eingefügt wurde in der Datenbank.
      *
      * @return Der Name, der zuletzt eingefügt wurde in der Datenbank.
      */
     private static String getNewestWord() {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT strangWord as strangWord FROM dictionaryTable WHERE date IS NOT NULL ORDER BY date DESC"
-            );
-
-            final ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getString("strangWord");
-            }
+        try {
+            return dictionaryRepository.newestKey().orElse("");
         } catch (final SQLException e) {
             e.printStackTrace();
         }
@@ -2,18 +2,43 @@ package de.edward;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
 
-import java.sql.CallableStatement;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Mithilfe dieses {@link DatabaseHandler} wird eine Verbindung zu einer MariaDB Datenbank hergestellt. Durch diesen
  * Handler ist die Verbindung sehr stabil und kann nur sehr schwer durch einen Fehler getrennt werden.
  */
-public final class DatabaseHandler {
+public final class DatabaseHandler implements AutoCloseable {
 
     //<editor-fold desc="CONSTANTS">
 
@@ -22,29 +47,81 @@ public final class DatabaseHandler {
     private static final int MAX_POOL_NAME_LENGTH = 32;
     //</editor-fold>
 
-    //<editor-fold desc="bounds">
-    /** Die minimale Größe des Connection-Pools. */
-    private static final int POOL_MIN = 5;
-    /** Die maximale Größe des Connection-Pools. */
-    private static final int POOL_MAX = 5;
-    //</editor-fold>
-
     //<editor-fold desc="maintenance">
-    /** Die Zeit, die eine Verbindung in dem Pool maximal bestehen darf, ohne genutzt zu werden. */
-    private static final int MAX_LIFETIME = 15 * 60 * 1000;
     /** Die Zeit, die der Handler versucht eine Verbindung zu der Datenbank herzustellen, wenn er keine bekommt. */
     private static final int CONNECT_TIMEOUT = 15 * 1000;
+    /** Der Abstand in Sekunden, in dem die Größe des Pools im adaptiven Modus angepasst wird. */
+    private static final int ADAPTIVE_SIZING_INTERVAL = 5;
+    /** Der Abstand in Sekunden, in dem die Erreichbarkeit der Replikate geprüft wird. */
+    private static final int REPLICA_HEALTH_INTERVAL = 5;
+    /** Die Zeit, die auf eine Verbindung zu einem Replikat gewartet wird, bevor vom Primärserver gelesen wird. */
+    private static final int REPLICA_CONNECT_TIMEOUT = 2 * 1000;
+    /** Die Zeit, die auf die Verbindung für {@code EXPLAIN} gewartet wird, bevor der Ausführungsplan entfällt. */
+    private static final int EXPLAIN_CONNECT_TIMEOUT = 250;
+    //</editor-fold>
+
+    //<editor-fold desc="handler properties">
+    /** Das Präfix aller {@link Properties}, die von dem Handler selbst und nicht von Hikari ausgewertet werden. */
+    private static final String HANDLER_PROPERTY_PREFIX = "handler.";
+    /** Die Eigenschaft, mit der das {@link PoolProfile} per Name gewählt wird. */
+    public static final String PROFILE_PROPERTY = HANDLER_PROPERTY_PREFIX + "profile";
+    /** Die Eigenschaft, mit der die adaptive Größe des Pools eingeschaltet wird. */
+    public static final String ADAPTIVE_SIZING_PROPERTY = HANDLER_PROPERTY_PREFIX + "adaptivePoolSizing";
+    /** Die Eigenschaft, mit der die Obergrenze des Pools im adaptiven Modus festgelegt wird. */
+    public static final String ADAPTIVE_MAXIMUM_PROPERTY = HANDLER_PROPERTY_PREFIX + "adaptiveMaximumPoolSize";
+    /** Die Eigenschaft, mit der die asynchronen Aufrufe auf virtuellen statt auf Plattform-Threads laufen. */
+    public static final String VIRTUAL_THREADS_PROPERTY = HANDLER_PROPERTY_PREFIX + "virtualThreads";
+    /** Die Eigenschaft, mit der die JDBC-URLs der Replikate durch Kommas getrennt angegeben werden. */
+    public static final String REPLICA_URLS_PROPERTY = HANDLER_PROPERTY_PREFIX + "replicaUrls";
+    /** Die Eigenschaft, mit der ein Thread für diese Millisekunden nach einem Schreibzugriff vom Primärserver liest. */
+    public static final String READ_YOUR_WRITES_PROPERTY = HANDLER_PROPERTY_PREFIX + "readYourWritesMillis";
+    /** Die Eigenschaft, mit der der {@link QueryResultCache} mit einer Größe in Bytes eingeschaltet wird. */
+    public static final String RESULT_CACHE_BYTES_PROPERTY = HANDLER_PROPERTY_PREFIX + "resultCacheBytes";
+    /** Die Eigenschaft, mit der die Lebensdauer eines Ergebnisses im {@link QueryResultCache} festgelegt wird. */
+    public static final String RESULT_CACHE_TTL_PROPERTY = HANDLER_PROPERTY_PREFIX + "resultCacheTtlMillis";
+    /** Die Eigenschaft, mit der die Zulassungskontrolle samt Schutzschalter vor dem Pool eingeschaltet wird. */
+    public static final String ADMISSION_CONTROL_PROPERTY = HANDLER_PROPERTY_PREFIX + "admissionControl";
+    /** Die Eigenschaft, mit der die angestrebte Wartezeit auf eine Verbindung in Millisekunden festgelegt wird. */
+    public static final String ADMISSION_TARGET_WAIT_PROPERTY = HANDLER_PROPERTY_PREFIX + "admissionTargetWaitMillis";
+    /** Die Eigenschaft, mit der die Frist für die Zulassung einer Anfrage in Millisekunden festgelegt wird. */
+    public static final String ADMISSION_DEADLINE_PROPERTY = HANDLER_PROPERTY_PREFIX + "admissionDeadlineMillis";
+    /** Die Eigenschaft, mit der die Pause des geöffneten Schutzschalters in Millisekunden festgelegt wird. */
+    public static final String CIRCUIT_OPEN_PROPERTY = HANDLER_PROPERTY_PREFIX + "circuitOpenMillis";
+    /** Die Eigenschaft, mit der die Laufzeit in Millisekunden festgelegt wird, ab der Anweisungen erfasst werden. */
+    public static final String SLOW_QUERY_PROPERTY = HANDLER_PROPERTY_PREFIX + "slowQueryMillis";
+    /** Die Eigenschaft, mit der der Anteil der Anweisungen festgelegt wird, die per Stichprobe erfasst werden. */
+    public static final String SLOW_QUERY_SAMPLE_RATE_PROPERTY = HANDLER_PROPERTY_PREFIX + "slowQuerySampleRate";
+    /** Die Eigenschaft, mit der die Datei festgelegt wird, in die die erfassten Anweisungen geschrieben werden. */
+    public static final String SLOW_QUERY_FILE_PROPERTY = HANDLER_PROPERTY_PREFIX + "slowQueryFile";
+    /** Die Eigenschaft, mit der der Handler startet, ohne auf die erste Verbindung zu der Datenbank zu warten. */
+    public static final String LAZY_START_PROPERTY = HANDLER_PROPERTY_PREFIX + "lazyStart";
     //</editor-fold>
 
     //<editor-fold desc="optimization">
-    /** Die Anzahl an {@link PreparedStatement}, die der Handler pro Verbindung cached. */
-    private static final int PREPARED_STATEMENT_CACHE_SIZE = 300;
     /** Die maximale Länge eines {@link PreparedStatement}, die der Handler cached. */
     private static final int PREPARED_STATEMENT_SQL_LIMIT = 2048;
-    /** Die Anzahl an {@link CallableStatement}, die der Handler pro Verbindung cached. */
-    private static final int CALLABLE_STATEMENT_CACHE_SIZE = 300;
     /** Die Anzahl an Anfragen, die "gestapelt" gesendet werden dürfen, die dann nach und nach verarbeitet werden. */
     private static final int USE_BATCH_MULTI_SEND_NUMBER = 500;
+    /** Die Anzahl an Datensätzen, die bei einer Stapel-Verarbeitung standardmäßig in einer Transaktion landen. */
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = USE_BATCH_MULTI_SEND_NUMBER;
+    /** Die Anzahl an Zeilen, die beim Streamen einer Abfrage standardmäßig auf einmal vom Server gelesen werden. */
+    public static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+    /** Die Lebensdauer eines Ergebnisses im {@link QueryResultCache}, die standardmäßig genutzt wird. */
+    public static final long DEFAULT_RESULT_CACHE_TTL_MILLIS = 5 * 1000;
+    /** Die angestrebte Wartezeit auf eine Verbindung in Millisekunden, die standardmäßig genutzt wird. */
+    public static final long DEFAULT_ADMISSION_TARGET_WAIT_MILLIS = 10;
+    /** Die Pause des geöffneten Schutzschalters in Millisekunden, die standardmäßig genutzt wird. */
+    public static final long DEFAULT_CIRCUIT_OPEN_MILLIS = 5 * 1000;
+    /** Die Anzahl an fehlgeschlagenen Anfragen in Folge, ab der der Schutzschalter öffnet. */
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    /** Die Anzahl an erfassten Anweisungen, die das {@link SlowQueryLog} im Speicher hält. */
+    private static final int SLOW_QUERY_CAPACITY = 256;
+    /** Die ungefähre Größe in Bytes, ab der die Datei des {@link SlowQueryLog} gerollt wird. */
+    private static final long SLOW_QUERY_FILE_BYTES = 16 * 1024 * 1024;
+    /** Der Fehlercode, mit dem MariaDB eine Transaktion wegen eines Deadlocks abbricht. */
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    /** Der Fehlercode, mit dem MariaDB eine Anweisung nach zu langem Warten auf eine Sperre abbricht. */
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
     //</editor-fold>
 
     //</editor-fold>
@@ -53,6 +130,32 @@ public final class DatabaseHandler {
     //<editor-fold desc="LOCAL FIELDS">
     /** Die Daten-Quelle der Datenbank, die die Verbindungen aus dem Pool verwaltet. */
     private final HikariDataSource dataSource;
+    /** Der {@link AdaptivePoolSizer}, der die Größe des Pools anpasst, oder {@code null}, wenn sie fest ist. */
+    private final AdaptivePoolSizer poolSizer;
+    /** Der Dienst, der die regelmäßigen Wartungsaufgaben dieses Handlers ausführt. */
+    private final ScheduledExecutorService maintenance;
+    /** Die {@link DatabaseMetrics}, in denen die Kennzahlen dieses Handlers gesammelt werden. */
+    private final DatabaseMetrics metrics = new DatabaseMetrics();
+    /** Der Name, unter dem die {@link DatabaseMetrics} per JMX veröffentlicht wurden, oder {@code null}. */
+    private final ObjectName metricsName;
+    /** Die Threads, auf denen die asynchronen Aufrufe ausgeführt werden. */
+    private final ExecutorService executor;
+    /** Ob die asynchronen Aufrufe auf virtuellen Threads ausgeführt werden. */
+    private final boolean virtualThreads;
+    /** Die fairen Erlaubnisse, die die Anzahl gleichzeitiger asynchroner Aufrufe auf die Größe des Pools begrenzen. */
+    private final Semaphore connectionPermits;
+    /** Der {@link ReplicaRouter}, der lesende Zugriffe auf die Replikate verteilt, oder {@code null} ohne Replikate. */
+    private final ReplicaRouter replicaRouter;
+    /** Der {@link QueryResultCache} für wiederholte Abfragen oder {@code null}, wenn er nicht genutzt wird. */
+    private final QueryResultCache resultCache;
+    /** Der {@link AdmissionController} vor dem Pool des Primärservers oder {@code null}, wenn er ungenutzt ist. */
+    private final AdmissionController admission;
+    /** Das {@link SlowQueryLog}, das die Anweisungen der Verbindungen misst, oder {@code null} ohne Messung. */
+    private final SlowQueryLog slowQueryLog;
+    /** Der Pool mit der einen Verbindung, über die das {@link SlowQueryLog} erklärt, oder {@code null} ohne Messung. */
+    private final HikariDataSource explainSource;
+    /** Die Anzahl an Verbindungen, die {@link #warmUp(Collection)} gleichzeitig leiht und vorbereitet. */
+    private final int warmUpConnections;
     //</editor-fold>
 
 
@@ -69,6 +172,27 @@ public final class DatabaseHandler {
     public DatabaseHandler(
             final String poolName,
             final Properties properties
+    ) {
+        this(
+                poolName,
+                properties,
+                PoolProfile.valueOf(properties.getProperty(PROFILE_PROPERTY, PoolProfile.DEFAULT.name()))
+        );
+    }
+
+    /**
+     * Erzeugt mithilfe eines Pool-Namens, von {@link Properties} und einem {@link PoolProfile} einen neuen und
+     * vollständig unabhängigen {@link DatabaseHandler}. Das {@link PoolProfile} legt die Größe und die Wartung des
+     * Connection-Pools fest, solange die {@link Properties} den jeweiligen Wert nicht selbst festlegen.
+     *
+     * @param poolName   Der Pool-Name.
+     * @param properties Die {@link Properties}.
+     * @param profile    Das {@link PoolProfile}, dessen Werte als Voreinstellung genutzt werden.
+     */
+    public DatabaseHandler(
+            final String poolName,
+            final Properties properties,
+            final PoolProfile profile
     ) {
         // check the pool name for validity
         if (poolName.isEmpty()) {
@@ -78,24 +202,237 @@ public final class DatabaseHandler {
             throw new IllegalArgumentException("The supplied pool name exceeded the maximum length of " + MAX_POOL_NAME_LENGTH + " chars!");
         }
 
+        // separate the handler options, as hikari rejects unknown properties
+        final Properties hikariProperties = new Properties();
+        properties.forEach((key, value) -> {
+            if (!key.toString().startsWith(HANDLER_PROPERTY_PREFIX)) {
+                hikariProperties.put(key, value);
+            }
+        });
+
         // initialize properties based configuration as defaults
-        final HikariConfig config = new HikariConfig(properties);
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final HikariConfig config = createConfig(hikariProperties, properties, profile, cores);
 
         // set visual metadata
         config.setPoolName("mariadb-" + poolName);
 
-        // set optimized mariadb datasource implementation
-        config.setDriverClassName("org.mariadb.jdbc.Driver");
+        // set pool-initialization timeout, or let the pool connect in the background when starting lazily
+        final boolean lazyStart = Boolean.parseBoolean(properties.getProperty(LAZY_START_PROPERTY, "false"));
+        config.setInitializationFailTimeout(lazyStart ? -1 : CONNECT_TIMEOUT);
+
+        // collect pool metrics
+        config.setMetricsTrackerFactory(metrics);
+
+        // assign newly created datasource
+        this.dataSource = new HikariDataSource(config);
+
+        // warm every idle connection, but leave one for the requests that are served meanwhile
+        final int idle = config.getMinimumIdle() < 0 ? config.getMaximumPoolSize() : config.getMinimumIdle();
+        this.warmUpConnections = Math.max(1, Math.min(idle, config.getMaximumPoolSize() - 1));
+
+        // publish the metrics via jmx
+        this.metricsName = registerMetrics(config.getPoolName());
+
+        // start the maintenance tasks
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, config.getPoolName() + "-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // optionally let the pool size follow the observed wait time
+        int concurrencyLimit = config.getMaximumPoolSize();
+        if (Boolean.parseBoolean(properties.getProperty(ADAPTIVE_SIZING_PROPERTY, "false"))) {
+            final int floor = Math.max(1, config.getMinimumIdle());
+            final int ceiling = Math.max(config.getMaximumPoolSize(), Integer.parseInt(properties.getProperty(
+                    ADAPTIVE_MAXIMUM_PROPERTY,
+                    String.valueOf(cores * 4)
+            )));
+            concurrencyLimit = ceiling;
+            this.poolSizer = new AdaptivePoolSizer(
+                    dataSource.getHikariConfigMXBean(),
+                    dataSource.getHikariPoolMXBean(),
+                    floor,
+                    ceiling
+            );
+            maintenance.scheduleWithFixedDelay(
+                    poolSizer,
+                    ADAPTIVE_SIZING_INTERVAL,
+                    ADAPTIVE_SIZING_INTERVAL,
+                    TimeUnit.SECONDS
+            );
+        } else {
+            this.poolSizer = null;
+        }
+
+        // start the executor for asynchronous calls, preferring virtual threads where the runtime offers them
+        final ExecutorService virtualExecutor = Boolean.parseBoolean(properties.getProperty(VIRTUAL_THREADS_PROPERTY, "true"))
+                ? createVirtualThreadExecutor()
+                : null;
+        this.virtualThreads = virtualExecutor != null;
+        this.executor = virtualThreads ? virtualExecutor : Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, config.getPoolName() + "-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.connectionPermits = new Semaphore(concurrencyLimit, true);
+
+        // optionally route reads to the replicas, checking their health in the background
+        final String replicaUrls = properties.getProperty(REPLICA_URLS_PROPERTY, "").trim();
+        if (!replicaUrls.isEmpty()) {
+            final List<HikariDataSource> replicas = new ArrayList<>();
+            for (final String url : replicaUrls.split(",")) {
+                final HikariConfig replicaConfig = createConfig(hikariProperties, properties, profile, cores);
+                replicaConfig.setJdbcUrl(url.trim());
+                replicaConfig.setPoolName(config.getPoolName() + "-replica-" + replicas.size());
+                replicaConfig.setReadOnly(true);
+
+                // an unreachable replica must neither block the start nor the reads for long
+                replicaConfig.setInitializationFailTimeout(-1);
+                if (!properties.containsKey("connectionTimeout")) {
+                    replicaConfig.setConnectionTimeout(REPLICA_CONNECT_TIMEOUT);
+                }
+                replicas.add(new HikariDataSource(replicaConfig));
+            }
+            this.replicaRouter = new ReplicaRouter(
+                    replicas,
+                    TimeUnit.MILLISECONDS.toNanos(Long.parseLong(properties.getProperty(READ_YOUR_WRITES_PROPERTY, "0")))
+            );
+            maintenance.scheduleWithFixedDelay(
+                    replicaRouter,
+                    REPLICA_HEALTH_INTERVAL,
+                    REPLICA_HEALTH_INTERVAL,
+                    TimeUnit.SECONDS
+            );
+        } else {
+            this.replicaRouter = null;
+        }
+
+        // optionally keep the results of repeated queries, which are discarded by every write through this handler
+        final long resultCacheBytes = Long.parseLong(properties.getProperty(RESULT_CACHE_BYTES_PROPERTY, "0"));
+        this.resultCache = resultCacheBytes <= 0 ? null : new QueryResultCache(
+                resultCacheBytes,
+                TimeUnit.MILLISECONDS.toNanos(Long.parseLong(properties.getProperty(
+                        RESULT_CACHE_TTL_PROPERTY,
+                        String.valueOf(DEFAULT_RESULT_CACHE_TTL_MILLIS)
+                )))
+        );
+
+        // optionally shed load in front of the primary pool once the wait for a connection grows
+        if (Boolean.parseBoolean(properties.getProperty(ADMISSION_CONTROL_PROPERTY, "false"))) {
+            this.admission = new AdmissionController(
+                    concurrencyLimit,
+                    concurrencyLimit * 4,
+                    TimeUnit.MILLISECONDS.toNanos(Long.parseLong(properties.getProperty(
+                            ADMISSION_TARGET_WAIT_PROPERTY,
+                            String.valueOf(DEFAULT_ADMISSION_TARGET_WAIT_MILLIS)
+                    ))),
+                    TimeUnit.MILLISECONDS.toNanos(Long.parseLong(properties.getProperty(
+                            ADMISSION_DEADLINE_PROPERTY,
+                            String.valueOf(config.getConnectionTimeout())
+                    ))),
+                    CIRCUIT_FAILURE_THRESHOLD,
+                    TimeUnit.MILLISECONDS.toNanos(Long.parseLong(properties.getProperty(
+                            CIRCUIT_OPEN_PROPERTY,
+                            String.valueOf(DEFAULT_CIRCUIT_OPEN_MILLIS)
+                    ))),
+                    metrics
+            );
+        } else {
+            this.admission = null;
+        }
+
+        // optionally record slow and sampled statements together with their execution plan
+        final long slowQueryMillis = Long.parseLong(properties.getProperty(SLOW_QUERY_PROPERTY, "0"));
+        final double sampleRate = Double.parseDouble(properties.getProperty(SLOW_QUERY_SAMPLE_RATE_PROPERTY, "0"));
+        if (slowQueryMillis > 0 || sampleRate > 0) {
+            final String slowQueryFile = properties.getProperty(SLOW_QUERY_FILE_PROPERTY, "").trim();
+
+            // explain over a single connection of its own, so that the plans never take one from the requests
+            final HikariConfig explainConfig = createConfig(hikariProperties, properties, profile, cores);
+            explainConfig.setPoolName(config.getPoolName() + "-explain");
+            explainConfig.setMinimumIdle(0);
+            explainConfig.setMaximumPoolSize(1);
+            explainConfig.setConnectionTimeout(EXPLAIN_CONNECT_TIMEOUT);
+            explainConfig.setInitializationFailTimeout(-1);
+            this.explainSource = new HikariDataSource(explainConfig);
+            this.slowQueryLog = new SlowQueryLog(
+                    explainSource,
+                    slowQueryMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowQueryMillis) : Long.MAX_VALUE,
+                    sampleRate,
+                    SLOW_QUERY_CAPACITY,
+                    slowQueryFile.isEmpty() ? null : Paths.get(slowQueryFile),
+                    SLOW_QUERY_FILE_BYTES,
+                    config.getPoolName() + "-slow-query",
+                    metrics
+            );
+        } else {
+            this.slowQueryLog = null;
+            this.explainSource = null;
+        }
+    }
+
+    /**
+     * Erzeugt einen {@link ExecutorService}, der jede Aufgabe auf einem eigenen virtuellen Thread ausführt. Da das
+     * Projekt noch für Java 11 übersetzt wird, wird die Methode per Reflection gesucht.
+     *
+     * @return Ein {@link ExecutorService} mit virtuellen Threads oder {@code null}, wenn die Laufzeitumgebung keine
+     *     virtuellen Threads anbietet.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Erzeugt die Konfiguration eines Connection-Pools aus den {@link Properties} und den Voreinstellungen des
+     * {@link PoolProfile}. Die Konfiguration wird für den Primärserver und für jedes Replikat gleich erzeugt.
+     *
+     * @param hikariProperties Die {@link Properties} ohne die Optionen des Handlers.
+     * @param properties       Die {@link Properties}, mit denen der Handler erzeugt wurde.
+     * @param profile          Das {@link PoolProfile}, dessen Werte als Voreinstellung genutzt werden.
+     * @param cores            Die Anzahl an verfügbaren Prozessorkernen.
+     *
+     * @return Die Konfiguration des Connection-Pools.
+     */
+    private static HikariConfig createConfig(
+            final Properties hikariProperties,
+            final Properties properties,
+            final PoolProfile profile,
+            final int cores
+    ) {
+        final HikariConfig config = new HikariConfig(hikariProperties);
 
-        // set pool size limits
-        config.setMinimumIdle(POOL_MIN);
-        config.setMaximumPoolSize(POOL_MAX);
+        // set optimized mariadb datasource implementation, unless another driver was supplied explicitly
+        if (!properties.containsKey("driverClassName")) {
+            config.setDriverClassName("org.mariadb.jdbc.Driver");
+        }
 
-        // set pool time limits
-        config.setMaxLifetime(MAX_LIFETIME);
+        // set pool size limits, unless they were supplied explicitly
+        if (!properties.containsKey("minimumIdle")) {
+            config.setMinimumIdle(profile.getMinimumIdle(cores));
+        }
+        if (!properties.containsKey("maximumPoolSize")) {
+            config.setMaximumPoolSize(profile.getMaximumPoolSize(cores));
+        }
 
-        // set pool-initialization timeout
-        config.setInitializationFailTimeout(CONNECT_TIMEOUT);
+        // set pool time limits, unless they were supplied explicitly
+        if (!properties.containsKey("maxLifetime")) {
+            config.setMaxLifetime(profile.getMaxLifetime());
+        }
+        if (!properties.containsKey("idleTimeout")) {
+            config.setIdleTimeout(profile.getIdleTimeout());
+        }
+        if (!properties.containsKey("keepaliveTime")) {
+            config.setKeepaliveTime(profile.getKeepaliveTime());
+        }
+        if (!properties.containsKey("leakDetectionThreshold")) {
+            config.setLeakDetectionThreshold(profile.getLeakDetectionThreshold());
+        }
 
         // configuration: define options that cannot be overridden
         config.addDataSourceProperty("passwordCharacterEncoding", "UTF-8");
@@ -103,13 +440,13 @@ public final class DatabaseHandler {
 
         // performance: enable prepared statement caching
         config.addDataSourceProperty("cachePrepStmts", true);
-        config.addDataSourceProperty("prepStmtCacheSize", PREPARED_STATEMENT_CACHE_SIZE);
+        addDataSourceDefault(config, properties, "prepStmtCacheSize", profile.getPreparedStatementCacheSize());
         config.addDataSourceProperty("prepStmtCacheSqlLimit", PREPARED_STATEMENT_SQL_LIMIT);
         config.addDataSourceProperty("useServerPrepStmts", true);
 
         // performance: enable callable statement caching
         config.addDataSourceProperty("cacheCallableStmts", true);
-        config.addDataSourceProperty("callableStmtCacheSize", CALLABLE_STATEMENT_CACHE_SIZE);
+        addDataSourceDefault(config, properties, "callableStmtCacheSize", profile.getCallableStatementCacheSize());
 
         // performance: add batch performance optimizations
         config.addDataSourceProperty("useBatchMultiSend", true);
@@ -121,9 +458,46 @@ public final class DatabaseHandler {
         // security: disable multi queries (injection mitigation)
         config.addDataSourceProperty("allowMultiQueries", false);
 
+        return config;
+    }
 
-        // assign newly created datasource
-        this.dataSource = new HikariDataSource(config);
+    /**
+     * Veröffentlicht die {@link DatabaseMetrics} dieses Handlers per JMX. Schlägt dies fehl, etwa weil bereits ein
+     * Handler mit demselben Pool-Namen existiert, bleiben die Kennzahlen über {@link #getMetrics()} verfügbar.
+     *
+     * @param poolName Der Name des Pools, unter dem die Kennzahlen veröffentlicht werden.
+     *
+     * @return Der Name, unter dem die Kennzahlen veröffentlicht wurden, oder {@code null}.
+     */
+    private ObjectName registerMetrics(final String poolName) {
+        try {
+            final ObjectName name = new ObjectName("de.edward:type=DatabaseMetrics,pool=" + ObjectName.quote(poolName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            return name;
+        } catch (final JMException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Setzt eine Eigenschaft der Daten-Quelle auf den übergebenen Wert, sofern sie nicht bereits über die
+     * {@link Properties} mit dem Präfix {@code dataSource.} festgelegt wurde.
+     *
+     * @param config     Die Konfiguration, deren Daten-Quelle angepasst wird.
+     * @param properties Die {@link Properties}, mit denen der Handler erzeugt wurde.
+     * @param name       Der Name der Eigenschaft der Daten-Quelle.
+     * @param value      Der Wert, der als Voreinstellung genutzt wird.
+     */
+    private static void addDataSourceDefault(
+            final HikariConfig config,
+            final Properties properties,
+            final String name,
+            final Object value
+    ) {
+        if (!properties.containsKey("dataSource." + name)) {
+            config.addDataSourceProperty(name, value);
+        }
     }
     //</editor-fold>
 
@@ -140,7 +514,1012 @@ public final class DatabaseHandler {
      * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte.
      */
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        return getConnection(ConnectionPriority.INTERACTIVE);
+    }
+
+    /**
+     * Gibt eine Verbindung zu dem Primärserver zurück, die bei eingeschalteter Zulassungskontrolle nach der
+     * übergebenen {@link ConnectionPriority} zugelassen wird. Ist der Pool überlastet oder der Schutzschalter
+     * geöffnet, wird die Anfrage mit einer {@link SQLTransientConnectionException} abgewiesen, statt bis zum Ablauf
+     * der Wartezeit des Pools zu blockieren.
+     *
+     * @param priority Die {@link ConnectionPriority}, mit der die Anfrage zugelassen wird.
+     *
+     * @return Eine Verbindung zu dem Primärserver.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte oder die
+     *                      Anfrage abgewiesen wurde.
+     */
+    public Connection getConnection(final ConnectionPriority priority) throws SQLException {
+        if (replicaRouter != null) {
+            replicaRouter.recordWrite();
+        }
+        return traced(checkoutPrimary(priority));
+    }
+
+    /**
+     * Gibt eine Verbindung für lesende Zugriffe zurück. Sind Replikate konfiguriert, wird die Verbindung von dem
+     * gesunden Replikat mit der geringsten Auslastung geliehen. Ohne erreichbares Replikat und kurz nach einem
+     * Schreibzugriff desselben Threads wird stattdessen eine Verbindung zum Primärserver zurückgegeben.
+     *
+     * <p>Replikate können den Stand des Primärservers mit Verzögerung erreichen. Lesezugriffe, die ihre eigenen
+     * Änderungen sicher sehen müssen, sollten daher {@link #getConnection()} verwenden.</p>
+     *
+     * @return Eine Verbindung, über die nur gelesen werden soll.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte.
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (replicaRouter != null) {
+            final Connection conn = replicaRouter.getReadConnection();
+            if (conn != null) {
+                metrics.recordReplicaRead();
+                return traced(conn);
+            }
+        }
+        return traced(checkoutPrimary(ConnectionPriority.INTERACTIVE));
+    }
+
+    /**
+     * Gibt eine Verbindung zu dem Primärserver für lesende Zugriffe zurück. Anders als {@link #getConnection()} wird
+     * damit kein Schreibzugriff des Threads vermerkt. Lesezugriffe, deren Ergebnis in einem von allen Threads geteilten
+     * Cache abgelegt wird, müssen diese Verbindung verwenden, da ein verzögertes Replikat den Stand vor der letzten
+     * Invalidierung liefern und dieser bis zum Ablauf der Lebensdauer im Cache bleiben würde.
+     *
+     * @return Eine Verbindung zu dem Primärserver, über die nur gelesen werden soll.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte.
+     */
+    public Connection getPrimaryReadConnection() throws SQLException {
+        return traced(checkoutPrimary(ConnectionPriority.INTERACTIVE));
+    }
+
+    /**
+     * Leiht eine Verbindung aus dem Connection-Pool des Primärservers, nachdem die Zulassungskontrolle die Anfrage
+     * zugelassen hat, sofern sie eingeschaltet ist.
+     *
+     * @param priority Die {@link ConnectionPriority}, mit der die Anfrage zugelassen wird.
+     *
+     * @return Eine Verbindung zu dem Primärserver.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte oder die
+     *                      Anfrage abgewiesen wurde.
+     */
+    private Connection checkoutPrimary(final ConnectionPriority priority) throws SQLException {
+        if (admission == null) {
+            return checkoutPool();
+        }
+        return admission.acquire(priority, this::checkoutPool);
+    }
+
+    /**
+     * Leiht eine Verbindung aus dem Connection-Pool des Primärservers und erfasst im adaptiven Modus die Wartezeit.
+     *
+     * @return Eine Verbindung zu dem Primärserver.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte.
+     */
+    private Connection checkoutPool() throws SQLException {
+        return checkoutPool(TimeUnit.MILLISECONDS.toNanos(dataSource.getConnectionTimeout()));
+    }
+
+    /**
+     * Leiht eine Verbindung aus dem Connection-Pool des Primärservers, wartet darauf aber höchstens die übergebene
+     * Zeit, und erfasst im adaptiven Modus die Wartezeit.
+     *
+     * @param timeoutNanos Die Zeit in Nanosekunden, die höchstens gewartet wird; sie wird auf die Wartezeit des Pools
+     *                     begrenzt.
+     *
+     * @return Eine Verbindung zu dem Primärserver.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Verbindung fehlerhaft sein sollte oder in
+     *                      der Zeit keine frei wurde.
+     */
+    private Connection checkoutPool(final long timeoutNanos) throws SQLException {
+        // unlike the data source, the pool itself does not check whether it was closed
+        if (dataSource.isClosed()) {
+            throw new SQLException("The connection pool " + dataSource.getPoolName() + " has been closed!");
+        }
+
+        // the pool is created with the data source, so it is there even while starting lazily
+        final HikariPool pool = (HikariPool) dataSource.getHikariPoolMXBean();
+        final long timeoutMillis = Math.min(
+                dataSource.getConnectionTimeout(),
+                Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos))
+        );
+        if (poolSizer == null) {
+            return pool.getConnection(timeoutMillis);
+        }
+
+        final long start = System.nanoTime();
+        final Connection conn = pool.getConnection(timeoutMillis);
+        poolSizer.recordWait(System.nanoTime() - start);
+        return conn;
+    }
+
+    /**
+     * Umhüllt eine geliehene Verbindung mit dem {@link SlowQueryLog}, sofern es eingeschaltet ist.
+     *
+     * @param conn Die geliehene Verbindung.
+     *
+     * @return Die umhüllte oder, ohne {@link SlowQueryLog}, die unveränderte Verbindung.
+     */
+    private Connection traced(final Connection conn) {
+        return slowQueryLog == null ? conn : slowQueryLog.wrap(conn);
+    }
+
+    /**
+     * Beendet alle Wartungsaufgaben dieses Handlers und schließt den Connection-Pool mitsamt aller Verbindungen.
+     */
+    @Override
+    public void close() {
+        maintenance.shutdownNow();
+        executor.shutdown();
+        if (slowQueryLog != null) {
+            slowQueryLog.close();
+            explainSource.close();
+        }
+        dataSource.close();
+        if (replicaRouter != null) {
+            replicaRouter.close();
+        }
+
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (final JMException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Gibt die {@link DatabaseMetrics} zurück, in denen die Kennzahlen des Pools und der Anweisungen dieses Handlers
+     * gesammelt werden.
+     *
+     * @return Die {@link DatabaseMetrics} dieses Handlers.
+     */
+    public DatabaseMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gibt den {@link QueryResultCache} zurück, in dem die Ergebnisse von {@link #queryCached(String, RowMapper,
+     * Object...)} gehalten werden.
+     *
+     * @return Der {@link QueryResultCache} dieses Handlers oder {@code null}, wenn er nicht eingeschaltet wurde.
+     */
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Gibt das {@link SlowQueryLog} zurück, in dem langsame und per Stichprobe gewählte Anweisungen samt ihrem
+     * Ausführungsplan festgehalten werden.
+     *
+     * @return Das {@link SlowQueryLog} dieses Handlers oder {@code null}, wenn es nicht eingeschaltet wurde.
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Verwirft alle Ergebnisse im {@link QueryResultCache}, die aus der übergebenen Tabelle lesen. Schreibzugriffe über
+     * {@link #upsertBatch(String, Iterable, StatementBinder)} verwerfen ihre Tabelle selbst; alle übrigen
+     * Schreibzugriffe müssen ihre Tabelle nach der Bestätigung hierüber melden.
+     *
+     * @param table Der Name der Tabelle, in die geschrieben wurde.
+     */
+    public void invalidateResults(final String table) {
+        if (resultCache != null) {
+            resultCache.invalidate(table);
+        }
+    }
+
+    /**
+     * Gibt zurück, ob die asynchronen Aufrufe dieses Handlers auf virtuellen Threads ausgeführt werden.
+     *
+     * @return Ob die asynchronen Aufrufe dieses Handlers auf virtuellen Threads ausgeführt werden.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="startup">
+
+    /**
+     * Bereitet die übergebenen Anweisungen im Hintergrund auf mehreren Verbindungen des Pools vor, damit die ersten
+     * Anfragen nach dem Start weder auf den Aufbau einer Verbindung noch auf das Vorbereiten ihrer Anweisung auf dem
+     * Server warten. Die Verbindungen werden gleichzeitig geliehen und erst zurückgegeben, wenn alle vorbereitet sind,
+     * sodass jede Anweisung auf verschiedenen Verbindungen im Anweisungs-Cache des Treibers landet. Eine Verbindung
+     * des Pools bleibt dabei für Anfragen frei, die schon während des Vorwärmens gestellt werden.
+     *
+     * <p>Zusammen mit {@link #LAZY_START_PROPERTY} kann eine Anwendung so sofort nach dem Erzeugen des Handlers
+     * beginnen, Anfragen zu beantworten, während das Vorwärmen noch läuft.</p>
+     *
+     * @param statements Die SQL-Anweisungen, die vorbereitet werden, etwa
+     *                   {@link EntityDescriptor#getWarmUpSql()}.
+     *
+     * @return Ein {@link CompletableFuture}, der abgeschlossen wird, sobald alle Verbindungen vorbereitet und
+     *     zurückgegeben wurden, oder mit der ersten Fehlermeldung.
+     */
+    public CompletableFuture<Void> warmUp(final Collection<String> statements) {
+        final List<String> sql = List.copyOf(statements);
+        final List<CompletableFuture<Connection>> borrowed = new ArrayList<>(warmUpConnections);
+        for (int i = 0; i < warmUpConnections; i++) {
+            final CompletableFuture<Connection> future = new CompletableFuture<>();
+            executor.execute(() -> {
+                try {
+                    final Connection conn = checkoutPool();
+                    try {
+                        for (final String statement : sql) {
+                            conn.prepareStatement(statement).close();
+                        }
+                    } catch (final SQLException | RuntimeException e) {
+                        conn.close();
+                        throw e;
+                    }
+                    future.complete(conn);
+                } catch (final SQLException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            borrowed.add(future);
+        }
+
+        // return the connections only once all of them are warm, so that no connection is warmed twice
+        return CompletableFuture.allOf(borrowed.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            for (final CompletableFuture<Connection> future : borrowed) {
+                if (future.isCompletedExceptionally()) {
+                    continue;
+                }
+                try {
+                    future.join().close();
+                } catch (final SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="async">
+
+    /**
+     * Führt eine Arbeit asynchron mit einer geliehenen Verbindung aus. Mit virtuellen Threads können so tausende
+     * gleichzeitige Aufrufe auf wenige Verbindungen verteilt werden: Jeder Aufruf wartet zuerst auf eine faire
+     * Erlaubnis, deren Anzahl der (größtmöglichen) Größe des Pools entspricht, und leiht erst danach eine Verbindung.
+     * Die wartenden Aufrufe parken dadurch in der Reihenfolge ihres Eintreffens an einem {@link Semaphore}, statt in
+     * der blockierenden Warteschlange des Pools um die Verbindungen zu konkurrieren.
+     *
+     * @param callback Die Arbeit, die mit der geliehenen Verbindung ausgeführt wird.
+     * @param <R>      Der Typ des Ergebnisses der Arbeit.
+     *
+     * @return Ein {@link CompletableFuture}, der mit dem Ergebnis der Arbeit oder ihrer Fehlermeldung abgeschlossen
+     *     wird.
+     */
+    public <R> CompletableFuture<R> submit(final ConnectionCallback<R> callback) {
+        return submitWithPermit(() -> {
+            try (final Connection conn = getConnection()) {
+                return callback.execute(conn);
+            }
+        });
+    }
+
+    /**
+     * Führt eine Abfrage asynchron aus und sammelt alle umgewandelten Zeilen in einer Liste.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Ein {@link CompletableFuture}, der mit den umgewandelten Zeilen der Abfrage abgeschlossen wird.
+     */
+    public <T> CompletableFuture<List<T>> submitQuery(
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object... parameters
+    ) {
+        return submitWithPermit(() -> {
+            final long start = System.nanoTime();
+            try (final Connection conn = getReadConnection();
+                 final PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bindParameters(stmt, parameters);
+
+                final List<T> rows = new ArrayList<>();
+                try (final ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(mapper.map(rs));
+                    }
+                }
+
+                metrics.recordStatement(sql, System.nanoTime() - start, rows.size());
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Führt eine Abfrage aus und gibt ihre Zeilen als unveränderliche Liste zurück. Ist der {@link QueryResultCache}
+     * eingeschaltet, wird ein gültiges Ergebnis derselben normalisierten Abfrage mit denselben Parametern aus dem
+     * Speicher beantwortet, und gleichzeitige Anfragen desselben fehlenden Ergebnisses stellen nur eine Abfrage.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden. Sie dürfen nicht verändert werden,
+     *                   da sie von allen Aufrufern geteilt werden.
+     *
+     * @return Die unveränderlichen umgewandelten Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage fehlschlägt.
+     */
+    public <T> List<T> queryCached(
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object... parameters
+    ) throws SQLException {
+        if (resultCache == null) {
+            return Collections.unmodifiableList(query(sql, mapper, parameters, false).getRows());
+        }
+        return resultCache.get(sql, parameters, () -> query(sql, mapper, parameters, true));
+    }
+
+    /**
+     * Führt eine Abfrage mit einer Verbindung für lesende Zugriffe aus und sammelt alle umgewandelten Zeilen. Wird das
+     * Ergebnis im {@link QueryResultCache} abgelegt, wird stets vom Primärserver gelesen, damit nach einer
+     * Invalidierung kein veralteter Stand eines Replikats in den Cache gelangt.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param cached     Ob das Ergebnis im {@link QueryResultCache} abgelegt und seine Größe dafür geschätzt wird.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Die umgewandelten Zeilen mit ihrer geschätzten Größe oder {@code 0}, wenn nicht geschätzt wurde.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage fehlschlägt.
+     */
+    private <T> QueryResultCache.Loaded<T> query(
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object[] parameters,
+            final boolean cached
+    ) throws SQLException {
+        final long start = System.nanoTime();
+        try (final Connection conn = cached ? getPrimaryReadConnection() : getReadConnection();
+             final PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bindParameters(stmt, parameters);
+
+            final List<T> rows = new ArrayList<>();
+            long bytes = 0;
+            try (final ResultSet rs = stmt.executeQuery()) {
+                final int columns = cached ? rs.getMetaData().getColumnCount() : 0;
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                    if (cached) {
+                        bytes += QueryResultCache.estimateRow(rs, columns);
+                    }
+                }
+            }
+
+            metrics.recordStatement(sql, System.nanoTime() - start, rows.size());
+            return new QueryResultCache.Loaded<>(rows, bytes);
+        }
+    }
+
+    /**
+     * Schreibt alle übergebenen Datensätze asynchron mithilfe von {@link #upsertBatch(String, Iterable, StatementBinder)}.
+     *
+     * @param sql    Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows   Die Datensätze, welche geschrieben werden.
+     * @param binder Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param <T>    Der Typ der Datensätze.
+     *
+     * @return Ein {@link CompletableFuture}, der mit der Anzahl an geschriebenen Datensätzen abgeschlossen wird.
+     */
+    public <T> CompletableFuture<Integer> submitUpsertBatch(
+            final String sql,
+            final Iterable<? extends T> rows,
+            final StatementBinder<T> binder
+    ) {
+        return submitUpsertBatch(sql, rows, binder, null);
+    }
+
+    /**
+     * Schreibt alle übergebenen Datensätze asynchron wie {@link #submitUpsertBatch(String, Iterable, StatementBinder)}
+     * und meldet jeden Block, sobald er bestätigt wurde.
+     *
+     * @param sql       Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows      Die Datensätze, welche geschrieben werden.
+     * @param binder    Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param committed Die Aufgabe, die nach jedem bestätigten Block mit dessen Datensätzen aufgerufen wird, oder
+     *                  {@code null}.
+     * @param <T>       Der Typ der Datensätze.
+     *
+     * @return Ein {@link CompletableFuture}, der mit der Anzahl an geschriebenen Datensätzen abgeschlossen wird.
+     */
+    public <T> CompletableFuture<Integer> submitUpsertBatch(
+            final String sql,
+            final Iterable<? extends T> rows,
+            final StatementBinder<T> binder,
+            final Consumer<? super List<T>> committed
+    ) {
+        return submitWithPermit(() -> upsertBatch(
+                sql,
+                rows.iterator(),
+                binder,
+                DEFAULT_BATCH_CHUNK_SIZE,
+                ConnectionPriority.INTERACTIVE,
+                committed
+        ));
+    }
+
+    /**
+     * Führt eine Arbeit auf dem {@link ExecutorService} dieses Handlers aus, sobald eine der fairen Erlaubnisse frei
+     * ist. Die Erlaubnis wird erst auf dem ausführenden Thread angefordert, damit der Aufrufer nie blockiert.
+     *
+     * @param work Die Arbeit, die ausgeführt wird.
+     * @param <R>  Der Typ des Ergebnisses der Arbeit.
+     *
+     * @return Ein {@link CompletableFuture}, der mit dem Ergebnis der Arbeit oder ihrer Fehlermeldung abgeschlossen
+     *     wird.
+     */
+    private <R> CompletableFuture<R> submitWithPermit(final SqlWork<R> work) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                connectionPermits.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+                return;
+            }
+
+            try {
+                result.complete(work.run());
+            } catch (final SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                connectionPermits.release();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Eine Arbeit, die auf dem {@link ExecutorService} dieses Handlers ausgeführt wird.
+     *
+     * @param <R> Der Typ des Ergebnisses der Arbeit.
+     */
+    @FunctionalInterface
+    private interface SqlWork<R> {
+
+        /**
+         * Führt die Arbeit aus.
+         *
+         * @return Das Ergebnis der Arbeit.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Arbeit fehlschlägt.
+         */
+        R run() throws SQLException;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="batch">
+
+    /**
+     * Schreibt alle übergebenen Datensätze mithilfe einer Stapel-Verarbeitung in die Datenbank. Dabei werden die
+     * Datensätze in Blöcken der {@link #DEFAULT_BATCH_CHUNK_SIZE Standard-Größe} gesammelt, gemeinsam gesendet und
+     * jeweils in einer einzigen Transaktion bestätigt.
+     *
+     * @param sql    Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows   Die Datensätze, die geschrieben werden sollen.
+     * @param binder Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param <T>    Der Typ der Datensätze.
+     *
+     * @return Die Anzahl an Datensätzen, die geschrieben wurden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public <T> int upsertBatch(
+            final String sql,
+            final Iterable<? extends T> rows,
+            final StatementBinder<T> binder
+    ) throws SQLException {
+        return upsertBatch(sql, rows.iterator(), binder, DEFAULT_BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Schreibt alle Datensätze des übergebenen {@link Iterator} mithilfe einer Stapel-Verarbeitung in die Datenbank.
+     * Dabei werden die Datensätze in Blöcken der übergebenen Größe gesammelt, gemeinsam gesendet und jeweils in einer
+     * einzigen Transaktion bestätigt. Schlägt ein Block fehl, wird nur dieser Block zurückgerollt; bereits bestätigte
+     * Blöcke bleiben erhalten.
+     *
+     * @param sql       Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows      Der {@link Iterator} über die Datensätze, die geschrieben werden sollen.
+     * @param binder    Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param chunkSize Die Anzahl an Datensätzen, die gemeinsam in einer Transaktion bestätigt werden.
+     * @param <T>       Der Typ der Datensätze.
+     *
+     * @return Die Anzahl an Datensätzen, die geschrieben wurden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public <T> int upsertBatch(
+            final String sql,
+            final Iterator<? extends T> rows,
+            final StatementBinder<T> binder,
+            final int chunkSize
+    ) throws SQLException {
+        return upsertBatch(sql, rows, binder, chunkSize, ConnectionPriority.INTERACTIVE);
+    }
+
+    /**
+     * Schreibt alle Datensätze des übergebenen {@link Iterator} wie
+     * {@link #upsertBatch(String, Iterator, StatementBinder, int)}, leiht die Verbindung aber mit der übergebenen
+     * {@link ConnectionPriority}. Massen-Importe nutzen {@link ConnectionPriority#BULK}, damit sie bei Überlast hinter
+     * gewöhnlichen Anfragen zurückstehen.
+     *
+     * @param sql       Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows      Der {@link Iterator} über die Datensätze, die geschrieben werden sollen.
+     * @param binder    Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param chunkSize Die Anzahl an Datensätzen, die gemeinsam in einer Transaktion bestätigt werden.
+     * @param priority  Die {@link ConnectionPriority}, mit der die Verbindung geliehen wird.
+     * @param <T>       Der Typ der Datensätze.
+     *
+     * @return Die Anzahl an Datensätzen, die geschrieben wurden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public <T> int upsertBatch(
+            final String sql,
+            final Iterator<? extends T> rows,
+            final StatementBinder<T> binder,
+            final int chunkSize,
+            final ConnectionPriority priority
+    ) throws SQLException {
+        return upsertBatch(sql, rows, binder, chunkSize, priority, null);
+    }
+
+    /**
+     * Schreibt alle Datensätze des übergebenen {@link Iterator} wie
+     * {@link #upsertBatch(String, Iterator, StatementBinder, int, ConnectionPriority)} und meldet jeden Block, sobald
+     * er bestätigt wurde. Schlägt ein späterer Block fehl, sind die bereits gemeldeten Blöcke trotzdem geschrieben.
+     *
+     * @param sql       Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows      Der {@link Iterator} über die Datensätze, die geschrieben werden sollen.
+     * @param binder    Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param chunkSize Die Anzahl an Datensätzen, die gemeinsam in einer Transaktion bestätigt werden.
+     * @param priority  Die {@link ConnectionPriority}, mit der die Verbindung geliehen wird.
+     * @param committed Die Aufgabe, die nach jedem bestätigten Block mit dessen Datensätzen aufgerufen wird, oder
+     *                  {@code null}.
+     * @param <T>       Der Typ der Datensätze.
+     *
+     * @return Die Anzahl an Datensätzen, die geschrieben wurden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public <T> int upsertBatch(
+            final String sql,
+            final Iterator<? extends T> rows,
+            final StatementBinder<T> binder,
+            final int chunkSize,
+            final ConnectionPriority priority,
+            final Consumer<? super List<T>> committed
+    ) throws SQLException {
+        // check the chunk size for validity
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The supplied chunk size must be positive!");
+        }
+
+        if (!rows.hasNext()) {
+            return 0;
+        }
+
+        try (final Connection conn = getConnection(priority)) {
+            final boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            try (final PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int written = 0;
+                int pending = 0;
+                // only remember the rows of the chunk if someone is interested in them
+                List<T> chunk = committed == null ? null : new ArrayList<>();
+
+                while (rows.hasNext()) {
+                    final T row = rows.next();
+                    binder.bind(stmt, row);
+                    stmt.addBatch();
+                    if (chunk != null) {
+                        chunk.add(row);
+                    }
+
+                    // send and commit the chunk once it is full
+                    if (++pending == chunkSize) {
+                        executeChunk(conn, stmt, sql, pending);
+                        written += pending;
+                        pending = 0;
+                        if (chunk != null) {
+                            committed.accept(chunk);
+                            chunk = new ArrayList<>();
+                        }
+                    }
+                }
+
+                // send and commit the remaining rows
+                if (pending > 0) {
+                    executeChunk(conn, stmt, sql, pending);
+                    written += pending;
+                    if (chunk != null) {
+                        committed.accept(chunk);
+                    }
+                }
+
+                return written;
+            } catch (final Throwable e) {
+                // roll back on every failure, as restoring the auto-commit would otherwise commit the partial chunk
+                try {
+                    conn.rollback();
+                } catch (final SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Sendet einen gesammelten Block, bestätigt ihn und erfasst seine Laufzeit in den {@link DatabaseMetrics}.
+     *
+     * @param conn Die Verbindung, über die der Block gesendet wird.
+     * @param stmt Das {@link PreparedStatement}, in dem der Block gesammelt wurde.
+     * @param sql  Die SQL-Anweisung des Blocks.
+     * @param rows Die Anzahl an Datensätzen in dem Block.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Block nicht geschrieben werden konnte.
+     */
+    private void executeChunk(
+            final Connection conn,
+            final PreparedStatement stmt,
+            final String sql,
+            final int rows
+    ) throws SQLException {
+        final long start = System.nanoTime();
+        stmt.executeBatch();
+        conn.commit();
+        metrics.recordStatement(sql, System.nanoTime() - start, rows);
+        if (resultCache != null) {
+            resultCache.invalidateWritten(sql);
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="transaction">
+
+    /**
+     * Führt eine Arbeit mit den {@link TransactionOptions#DEFAULT Standard-Optionen} in einer einzigen Transaktion aus.
+     *
+     * @param callback Die Arbeit, die innerhalb der Transaktion ausgeführt wird.
+     * @param <R>      Der Typ des Ergebnisses der Arbeit.
+     *
+     * @return Das Ergebnis der Arbeit.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Transaktion auch nach allen Wiederholungen
+     *                      fehlschlägt.
+     */
+    public <R> R inTransaction(final TransactionCallback<R> callback) throws SQLException {
+        return inTransaction(TransactionOptions.DEFAULT, callback);
+    }
+
+    /**
+     * Führt eine Arbeit in einer einzigen Transaktion aus. Dafür wird eine Verbindung aus dem Pool für die gesamte
+     * Arbeit festgehalten und erst am Ende einmal bestätigt. Bricht der Server die Transaktion wegen eines Deadlocks
+     * oder einer abgelaufenen Sperre ab, wird sie zurückgerollt und nach einer zufälligen, mit jedem Versuch wachsenden
+     * Wartezeit vollständig wiederholt. Jede andere Fehlermeldung rollt die Transaktion zurück und wird weitergereicht.
+     *
+     * @param options  Die {@link TransactionOptions}, mit denen die Transaktion läuft.
+     * @param callback Die Arbeit, die innerhalb der Transaktion ausgeführt wird.
+     * @param <R>      Der Typ des Ergebnisses der Arbeit.
+     *
+     * @return Das Ergebnis der Arbeit.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Transaktion auch nach allen Wiederholungen
+     *                      fehlschlägt.
+     */
+    public <R> R inTransaction(
+            final TransactionOptions options,
+            final TransactionCallback<R> callback
+    ) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return runTransaction(options, callback);
+            } catch (final SQLException e) {
+                if (attempt >= options.getMaxAttempts() || !isRetryable(e)) {
+                    throw e;
+                }
+                metrics.recordTransactionRetry();
+
+                // wait a random share of the growing backoff so that competing transactions do not collide again
+                final long ceiling = options.getBackoffCeilingNanos(attempt);
+                LockSupport.parkNanos(ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling));
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Führt einen einzelnen Versuch einer Transaktion aus und stellt den Zustand der Verbindung danach wieder her,
+     * bevor sie in den Pool zurückgegeben wird. Jede Fehlermeldung vor der Bestätigung rollt den Versuch zurück. Die
+     * Aufgaben aus {@link Transaction#onCommit(Runnable)} laufen erst nach der Rückgabe der Verbindung; schlägt eine
+     * davon fehl, bleibt die Transaktion bestätigt.
+     *
+     * @param options  Die {@link TransactionOptions}, mit denen die Transaktion läuft.
+     * @param callback Die Arbeit, die innerhalb der Transaktion ausgeführt wird.
+     * @param <R>      Der Typ des Ergebnisses der Arbeit.
+     *
+     * @return Das Ergebnis der Arbeit.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Versuch fehlschlägt.
+     */
+    private <R> R runTransaction(
+            final TransactionOptions options,
+            final TransactionCallback<R> callback
+    ) throws SQLException {
+        final Connection borrowed = options.isReadOnly()
+                ? getReadConnection()
+                : getConnection(options.getPriority());
+        final Transaction tx;
+        final R result;
+        try (final Connection conn = borrowed) {
+            final boolean autoCommit = conn.getAutoCommit();
+            final int isolation = conn.getTransactionIsolation();
+            final boolean readOnly = conn.isReadOnly();
+
+            tx = new Transaction(conn, metrics, resultCache);
+            try {
+                conn.setTransactionIsolation(options.getIsolation());
+                conn.setReadOnly(options.isReadOnly());
+                conn.setAutoCommit(false);
+
+                result = callback.execute(tx);
+                conn.commit();
+            } catch (final Throwable e) {
+                // roll back on every failure, as restoring the auto-commit would otherwise commit the partial work
+                try {
+                    conn.rollback();
+                } catch (final SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                try {
+                    tx.rolledBack();
+                } catch (final RuntimeException hookError) {
+                    e.addSuppressed(hookError);
+                }
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+                conn.setReadOnly(readOnly);
+                conn.setTransactionIsolation(isolation);
+                tx.closeStatements();
+            }
+        }
+
+        // the transaction is committed, so a failing hook must neither roll it back nor be retried
+        tx.committed();
+        return result;
+    }
+
+    /**
+     * Prüft, ob eine Fehlermeldung oder eine ihrer Ursachen einen Deadlock oder eine abgelaufene Sperre meldet, nach
+     * denen die Transaktion gefahrlos wiederholt werden kann.
+     *
+     * @param error Die Fehlermeldung, die geprüft wird.
+     *
+     * @return Ob die Transaktion wiederholt werden kann.
+     */
+    private static boolean isRetryable(final SQLException error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof SQLException) {
+                for (SQLException next = (SQLException) current; next != null; next = next.getNextException()) {
+                    final int code = next.getErrorCode();
+                    if (code == ER_LOCK_DEADLOCK || code == ER_LOCK_WAIT_TIMEOUT || "40001".equals(next.getSQLState())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="streaming">
+
+    /**
+     * Führt eine Abfrage aus und gibt ihre Zeilen als {@link Stream} zurück, ohne das gesamte Ergebnis im Speicher zu
+     * halten. Die Zeilen werden in Blöcken der {@link #DEFAULT_STREAM_FETCH_SIZE Standard-Größe} vom Server gelesen und
+     * erst bei Bedarf umgewandelt. Der {@link Stream} hält eine Verbindung aus dem Pool und muss daher geschlossen
+     * werden, am besten mit {@code try-with-resources}; vollständig gelesene {@link Stream} geben die Verbindung
+     * selbstständig frei.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Ein {@link Stream} über die umgewandelten Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    public <T> Stream<T> stream(
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object... parameters
+    ) throws SQLException {
+        final ResultSetIterator<T> rows = iterate(sql, mapper, DEFAULT_STREAM_FETCH_SIZE, parameters);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                false
+        ).onClose(rows::close);
+    }
+
+    /**
+     * Führt eine Abfrage wie {@link #stream(String, RowMapper, Object...)} aus, liest ihre Zeilen aber stets über eine
+     * Verbindung zum Primärserver, die nach der übergebenen {@link ConnectionPriority} zugelassen wird. Damit sieht die
+     * Abfrage jede bestätigte Änderung, auch wenn die Replikate sie noch nicht erreicht haben, etwa wenn die gelesenen
+     * Zeilen anschließend verschoben oder gelöscht werden.
+     *
+     * @param priority   Die {@link ConnectionPriority}, mit der die Verbindung geliehen wird.
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Ein {@link Stream} über die umgewandelten Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    public <T> Stream<T> stream(
+            final ConnectionPriority priority,
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object... parameters
+    ) throws SQLException {
+        final ResultSetIterator<T> rows = iterate(
+                traced(checkoutPrimary(priority)),
+                sql,
+                mapper,
+                DEFAULT_STREAM_FETCH_SIZE,
+                parameters
+        );
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                false
+        ).onClose(rows::close);
+    }
+
+    /**
+     * Führt eine Abfrage aus und gibt ihre Zeilen als {@link ResultSetIterator} zurück, ohne das gesamte Ergebnis im
+     * Speicher zu halten. Der Server liefert die Zeilen über einen nur vorwärts lesbaren Cursor in Blöcken der
+     * übergebenen Größe. Die Verbindung wird über {@link #getReadConnection()} geliehen.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param fetchSize  Die Anzahl an Zeilen, die auf einmal vom Server gelesen werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Ein {@link ResultSetIterator} über die umgewandelten Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    public <T> ResultSetIterator<T> iterate(
+            final String sql,
+            final RowMapper<T> mapper,
+            final int fetchSize,
+            final Object... parameters
+    ) throws SQLException {
+        // check the fetch size for validity
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("The supplied fetch size must be positive!");
+        }
+
+        return iterate(getReadConnection(), sql, mapper, fetchSize, parameters);
+    }
+
+    /**
+     * Führt eine Abfrage über die übergebene, bereits geliehene Verbindung aus und gibt ihre Zeilen als
+     * {@link ResultSetIterator} zurück, der die Verbindung beim Schließen freigibt. Schlägt der Start der Abfrage fehl,
+     * wird die Verbindung sofort freigegeben.
+     *
+     * @param conn       Die geliehene Verbindung, über die gelesen wird.
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param fetchSize  Die Anzahl an Zeilen, die auf einmal vom Server gelesen werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Ein {@link ResultSetIterator} über die umgewandelten Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    private <T> ResultSetIterator<T> iterate(
+            final Connection conn,
+            final String sql,
+            final RowMapper<T> mapper,
+            final int fetchSize,
+            final Object... parameters
+    ) throws SQLException {
+        try {
+            final PreparedStatement stmt = conn.prepareStatement(
+                    sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY
+            );
+            stmt.setFetchSize(fetchSize);
+            bindParameters(stmt, parameters);
+
+            return new ResultSetIterator<>(conn, stmt, stmt.executeQuery(), mapper);
+        } catch (final SQLException | RuntimeException e) {
+            // closing the connection also closes the statement
+            conn.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gibt die Zeilen einer Abfrage als {@link Flow.Publisher} heraus, der nur so viele Zeilen vom Server liest, wie
+     * seine Subscriber angefordert haben. Die Abfrage wird für jeden Subscriber bei dessen erster Anforderung neu
+     * gestartet und gibt ihre Verbindung frei, sobald alle Zeilen ausgeliefert wurden oder der Subscriber abbricht.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Ein {@link Flow.Publisher} über die umgewandelten Zeilen der Abfrage.
+     */
+    public <T> Flow.Publisher<T> publish(
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object... parameters
+    ) {
+        return new ResultSetPublisher<>(() -> {
+            try {
+                return iterate(sql, mapper, DEFAULT_STREAM_FETCH_SIZE, parameters);
+            } catch (final SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        });
+    }
+
+    /**
+     * Überträgt die Werte der Parameter in ihrer Reihenfolge auf das {@link PreparedStatement}.
+     *
+     * @param stmt       Das {@link PreparedStatement}, dessen Parameter gesetzt werden.
+     * @param parameters Die Werte der Parameter in ihrer Reihenfolge.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Parameter nicht gesetzt werden kann.
+     */
+    private static void bindParameters(
+            final PreparedStatement stmt,
+            final Object... parameters
+    ) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            stmt.setObject(i + 1, parameters[i]);
+        }
     }
     //</editor-fold>
 }
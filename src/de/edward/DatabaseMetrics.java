@@ -0,0 +1,534 @@
+package de.edward;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Die {@link DatabaseMetrics} sammeln die Kennzahlen eines {@link DatabaseHandler}. Der Zustand des Connection-Pools und
+ * die Wartezeiten beim Ausleihen werden von Hikari über die {@link MetricsTrackerFactory} gemeldet; die Laufzeiten der
+ * Anweisungen meldet der {@link DatabaseHandler} selbst, getrennt nach der Form der Anweisung. Als Form gilt die
+ * parametrisierte SQL-Anweisung, so wie sie vorbereitet wurde, damit das Erfassen ohne Normalisierung und damit ohne
+ * neue Objekte auskommt. Damit dynamisch zusammengesetzte Anweisungen die Kennzahlen nicht unbegrenzt wachsen lassen,
+ * werden höchstens {@link #MAX_STATEMENT_SHAPES} Formen einzeln erfasst; alle weiteren werden unter
+ * {@link #OTHER_STATEMENTS} zusammengefasst.
+ *
+ * <p>Die Kennzahlen können per JMX über die {@link DatabaseMetricsMBean} oder per {@link #snapshot()} abgefragt
+ * werden.</p>
+ */
+public final class DatabaseMetrics implements MetricsTrackerFactory, DatabaseMetricsMBean {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die maximale Anzahl an Formen einer Anweisung, deren Kennzahlen einzeln erfasst werden. */
+    public static final int MAX_STATEMENT_SHAPES = 256;
+    /** Die Form, unter der alle Anweisungen jenseits von {@link #MAX_STATEMENT_SHAPES} zusammengefasst werden. */
+    public static final String OTHER_STATEMENTS = "<other>";
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Zustandswerte des Pools, sobald Hikari den Pool gestartet hat. */
+    private volatile PoolStats poolStats;
+    /** Die Wartezeiten beim Ausleihen einer Verbindung in Nanosekunden. */
+    private final LatencyHistogram acquireNanos = new LatencyHistogram();
+    /** Die Zeiten, die eine Verbindung ausgeliehen war, in Nanosekunden. */
+    private final LatencyHistogram usageNanos = new LatencyHistogram();
+    /** Die Anzahl an Versuchen, bei denen keine Verbindung ausgeliehen werden konnte. */
+    private final LongAdder connectionTimeouts = new LongAdder();
+    /** Die Anzahl an Transaktionen, die nach einem Deadlock oder einer abgelaufenen Sperre wiederholt wurden. */
+    private final LongAdder transactionRetries = new LongAdder();
+    /** Die Anzahl an Verbindungen, die für lesende Zugriffe von einem Replikat geliehen wurden. */
+    private final LongAdder replicaReads = new LongAdder();
+    /** Die Anzahl an Anfragen nach einer Verbindung, die von der Zulassungskontrolle abgewiesen wurden. */
+    private final LongAdder admissionRejections = new LongAdder();
+    /** Die Anzahl an Malen, die der Schutzschalter vor dem Pool geöffnet wurde. */
+    private final LongAdder circuitOpenings = new LongAdder();
+    /** Die Anzahl an Anweisungen, die länger als die Schwelle des {@link SlowQueryLog} gedauert haben. */
+    private final LongAdder slowQueries = new LongAdder();
+    /** Die Kennzahlen je Form der Anweisung. */
+    private final Map<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+    /** Die Kennzahlen aller Anweisungen, deren Form nicht mehr einzeln erfasst wird. */
+    private final StatementMetrics otherStatements = new StatementMetrics(OTHER_STATEMENTS);
+    //</editor-fold>
+
+
+    //<editor-fold desc="hikari">
+    @Override
+    public IMetricsTracker create(
+            final String poolName,
+            final PoolStats poolStats
+    ) {
+        this.poolStats = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos) {
+                acquireNanos.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(final long elapsedBorrowedMillis) {
+                usageNanos.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                connectionTimeouts.increment();
+            }
+        };
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="statements">
+
+    /**
+     * Erfasst eine ausgeführte Anweisung. Nach der ersten Ausführung einer Form erzeugt dieser Aufruf keine Objekte.
+     *
+     * @param sql          Die parametrisierte SQL-Anweisung, die ausgeführt wurde.
+     * @param elapsedNanos Die Laufzeit der Anweisung in Nanosekunden.
+     * @param rows         Die Anzahl an betroffenen oder gelesenen Zeilen.
+     */
+    public void recordStatement(
+            final String sql,
+            final long elapsedNanos,
+            final long rows
+    ) {
+        StatementMetrics metrics = statements.get(sql);
+        if (metrics == null) {
+            // stop tracking new shapes once the limit is reached, so that dynamically built statements stay bounded
+            metrics = statements.size() < MAX_STATEMENT_SHAPES
+                    ? statements.computeIfAbsent(sql, StatementMetrics::new)
+                    : otherStatements;
+        }
+
+        metrics.latencyNanos.record(elapsedNanos);
+        metrics.rows.add(rows);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="transactions">
+
+    /**
+     * Erfasst eine Transaktion, die nach einem Deadlock oder einer abgelaufenen Sperre wiederholt wird.
+     */
+    void recordTransactionRetry() {
+        transactionRetries.increment();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="replicas">
+
+    /**
+     * Erfasst eine Verbindung, die für einen lesenden Zugriff von einem Replikat geliehen wurde.
+     */
+    void recordReplicaRead() {
+        replicaReads.increment();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="admission">
+
+    /**
+     * Erfasst eine Anfrage nach einer Verbindung, die von der Zulassungskontrolle abgewiesen wurde.
+     */
+    void recordAdmissionRejection() {
+        admissionRejections.increment();
+    }
+
+    /**
+     * Erfasst das Öffnen des Schutzschalters vor dem Pool.
+     */
+    void recordCircuitOpening() {
+        circuitOpenings.increment();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="slow queries">
+
+    /**
+     * Erfasst eine Anweisung, die länger als die Schwelle des {@link SlowQueryLog} gedauert hat.
+     */
+    void recordSlowQuery() {
+        slowQueries.increment();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="mbean">
+    @Override
+    public int getActiveConnections() {
+        final PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        final PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getIdleConnections();
+    }
+
+    @Override
+    public int getTotalConnections() {
+        final PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+
+    @Override
+    public int getPendingThreads() {
+        final PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    @Override
+    public long getConnectionTimeouts() {
+        return connectionTimeouts.sum();
+    }
+
+    @Override
+    public long getTransactionRetries() {
+        return transactionRetries.sum();
+    }
+
+    @Override
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    @Override
+    public long getAdmissionRejections() {
+        return admissionRejections.sum();
+    }
+
+    @Override
+    public long getCircuitOpenings() {
+        return circuitOpenings.sum();
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    @Override
+    public long getAcquireP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(acquireNanos.getValueAtQuantile(0.5));
+    }
+
+    @Override
+    public long getAcquireP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(acquireNanos.getValueAtQuantile(0.99));
+    }
+
+    @Override
+    public long getAcquireP999Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(acquireNanos.getValueAtQuantile(0.999));
+    }
+
+    @Override
+    public String[] getStatementReport() {
+        final List<StatementSnapshot> snapshots = snapshot().getStatements();
+        final String[] report = new String[snapshots.size()];
+        for (int i = 0; i < report.length; i++) {
+            report[i] = snapshots.get(i).toString();
+        }
+        return report;
+    }
+
+    @Override
+    public void reset() {
+        acquireNanos.reset();
+        usageNanos.reset();
+        statements.clear();
+        otherStatements.latencyNanos.reset();
+        otherStatements.rows.reset();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="snapshot">
+
+    /**
+     * Erstellt eine unveränderliche Momentaufnahme aller Kennzahlen.
+     *
+     * @return Eine unveränderliche Momentaufnahme aller Kennzahlen.
+     */
+    public Snapshot snapshot() {
+        final List<StatementSnapshot> statementSnapshots = new ArrayList<>(statements.size() + 1);
+        for (final StatementMetrics metrics : statements.values()) {
+            statementSnapshots.add(new StatementSnapshot(metrics));
+        }
+        if (otherStatements.latencyNanos.getCount() > 0) {
+            statementSnapshots.add(new StatementSnapshot(otherStatements));
+        }
+        statementSnapshots.sort((first, second) -> Long.compare(second.totalNanos, first.totalNanos));
+
+        return new Snapshot(this, statementSnapshots);
+    }
+
+    /**
+     * Die Kennzahlen einer einzelnen Form einer Anweisung.
+     */
+    private static final class StatementMetrics {
+
+        /** Die parametrisierte SQL-Anweisung. */
+        private final String sql;
+        /** Die Laufzeiten der Anweisung in Nanosekunden. */
+        private final LatencyHistogram latencyNanos = new LatencyHistogram();
+        /** Die Anzahl an betroffenen oder gelesenen Zeilen. */
+        private final LongAdder rows = new LongAdder();
+
+        /**
+         * Erzeugt neue, leere {@link StatementMetrics}.
+         *
+         * @param sql Die parametrisierte SQL-Anweisung.
+         */
+        private StatementMetrics(final String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Eine unveränderliche Momentaufnahme der Kennzahlen einer einzelnen Form einer Anweisung.
+     */
+    public static final class StatementSnapshot {
+
+        /** Die parametrisierte SQL-Anweisung mit vereinheitlichten Leerzeichen. */
+        private final String shape;
+        /** Die Anzahl an Ausführungen. */
+        private final long count;
+        /** Die Anzahl an betroffenen oder gelesenen Zeilen. */
+        private final long rows;
+        /** Die geschätzte Gesamtlaufzeit in Nanosekunden. */
+        private final long totalNanos;
+        /** Der Median der Laufzeit in Nanosekunden. */
+        private final long p50Nanos;
+        /** Das 99. Perzentil der Laufzeit in Nanosekunden. */
+        private final long p99Nanos;
+        /** Das 99,9. Perzentil der Laufzeit in Nanosekunden. */
+        private final long p999Nanos;
+        /** Die größte Laufzeit in Nanosekunden. */
+        private final long maxNanos;
+
+        /**
+         * Erzeugt eine neue {@link StatementSnapshot} aus den aktuellen Kennzahlen.
+         *
+         * @param metrics Die Kennzahlen, die festgehalten werden.
+         */
+        private StatementSnapshot(final StatementMetrics metrics) {
+            this.shape = metrics.sql.trim().replaceAll("\\s+", " ");
+            this.count = metrics.latencyNanos.getCount();
+            this.rows = metrics.rows.sum();
+            this.p50Nanos = metrics.latencyNanos.getValueAtQuantile(0.5);
+            this.p99Nanos = metrics.latencyNanos.getValueAtQuantile(0.99);
+            this.p999Nanos = metrics.latencyNanos.getValueAtQuantile(0.999);
+            this.maxNanos = metrics.latencyNanos.getMaximum();
+            this.totalNanos = count * p50Nanos;
+        }
+
+        /**
+         * Gibt die parametrisierte SQL-Anweisung mit vereinheitlichten Leerzeichen zurück.
+         *
+         * @return Die parametrisierte SQL-Anweisung mit vereinheitlichten Leerzeichen.
+         */
+        public String getShape() {
+            return shape;
+        }
+
+        /**
+         * Gibt die Anzahl an Ausführungen zurück.
+         *
+         * @return Die Anzahl an Ausführungen.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gibt die Anzahl an betroffenen oder gelesenen Zeilen zurück.
+         *
+         * @return Die Anzahl an betroffenen oder gelesenen Zeilen.
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Gibt den Median der Laufzeit in Nanosekunden zurück.
+         *
+         * @return Der Median der Laufzeit in Nanosekunden.
+         */
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        /**
+         * Gibt das 99. Perzentil der Laufzeit in Nanosekunden zurück.
+         *
+         * @return Das 99. Perzentil der Laufzeit in Nanosekunden.
+         */
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        /**
+         * Gibt das 99,9. Perzentil der Laufzeit in Nanosekunden zurück.
+         *
+         * @return Das 99,9. Perzentil der Laufzeit in Nanosekunden.
+         */
+        public long getP999Nanos() {
+            return p999Nanos;
+        }
+
+        /**
+         * Gibt die größte Laufzeit in Nanosekunden zurück.
+         *
+         * @return Die größte Laufzeit in Nanosekunden.
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "count=%d rows=%d p50=%dus p99=%dus p999=%dus max=%dus %s",
+                    count,
+                    rows,
+                    TimeUnit.NANOSECONDS.toMicros(p50Nanos),
+                    TimeUnit.NANOSECONDS.toMicros(p99Nanos),
+                    TimeUnit.NANOSECONDS.toMicros(p999Nanos),
+                    TimeUnit.NANOSECONDS.toMicros(maxNanos),
+                    shape
+            );
+        }
+    }
+
+    /**
+     * Eine unveränderliche Momentaufnahme aller Kennzahlen eines {@link DatabaseHandler}.
+     */
+    public static final class Snapshot {
+
+        /** Die Anzahl an Verbindungen, die ausgeliehen waren. */
+        private final int activeConnections;
+        /** Die Anzahl an Verbindungen, die unbenutzt im Pool lagen. */
+        private final int idleConnections;
+        /** Die Anzahl an Threads, die auf eine Verbindung gewartet haben. */
+        private final int pendingThreads;
+        /** Die Anzahl an Versuchen ohne Verbindung. */
+        private final long connectionTimeouts;
+        /** Der Median der Wartezeit beim Ausleihen in Nanosekunden. */
+        private final long acquireP50Nanos;
+        /** Das 99. Perzentil der Wartezeit beim Ausleihen in Nanosekunden. */
+        private final long acquireP99Nanos;
+        /** Das 99. Perzentil der Zeit, die eine Verbindung ausgeliehen war, in Nanosekunden. */
+        private final long usageP99Nanos;
+        /** Die Kennzahlen je Form der Anweisung, absteigend nach geschätzter Gesamtlaufzeit sortiert. */
+        private final List<StatementSnapshot> statements;
+
+        /**
+         * Erzeugt eine neue {@link Snapshot}.
+         *
+         * @param metrics    Die Kennzahlen, die festgehalten werden.
+         * @param statements Die Kennzahlen je Form der Anweisung.
+         */
+        private Snapshot(
+                final DatabaseMetrics metrics,
+                final List<StatementSnapshot> statements
+        ) {
+            this.activeConnections = metrics.getActiveConnections();
+            this.idleConnections = metrics.getIdleConnections();
+            this.pendingThreads = metrics.getPendingThreads();
+            this.connectionTimeouts = metrics.getConnectionTimeouts();
+            this.acquireP50Nanos = metrics.acquireNanos.getValueAtQuantile(0.5);
+            this.acquireP99Nanos = metrics.acquireNanos.getValueAtQuantile(0.99);
+            this.usageP99Nanos = metrics.usageNanos.getValueAtQuantile(0.99);
+            this.statements = Collections.unmodifiableList(statements);
+        }
+
+        /**
+         * Gibt die Anzahl an Verbindungen zurück, die ausgeliehen waren.
+         *
+         * @return Die Anzahl an Verbindungen, die ausgeliehen waren.
+         */
+        public int getActiveConnections() {
+            return activeConnections;
+        }
+
+        /**
+         * Gibt die Anzahl an Verbindungen zurück, die unbenutzt im Pool lagen.
+         *
+         * @return Die Anzahl an Verbindungen, die unbenutzt im Pool lagen.
+         */
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        /**
+         * Gibt die Anzahl an Threads zurück, die auf eine Verbindung gewartet haben.
+         *
+         * @return Die Anzahl an Threads, die auf eine Verbindung gewartet haben.
+         */
+        public int getPendingThreads() {
+            return pendingThreads;
+        }
+
+        /**
+         * Gibt die Anzahl an Versuchen ohne Verbindung zurück.
+         *
+         * @return Die Anzahl an Versuchen ohne Verbindung.
+         */
+        public long getConnectionTimeouts() {
+            return connectionTimeouts;
+        }
+
+        /**
+         * Gibt den Median der Wartezeit beim Ausleihen in Nanosekunden zurück.
+         *
+         * @return Der Median der Wartezeit beim Ausleihen in Nanosekunden.
+         */
+        public long getAcquireP50Nanos() {
+            return acquireP50Nanos;
+        }
+
+        /**
+         * Gibt das 99. Perzentil der Wartezeit beim Ausleihen in Nanosekunden zurück.
+         *
+         * @return Das 99. Perzentil der Wartezeit beim Ausleihen in Nanosekunden.
+         */
+        public long getAcquireP99Nanos() {
+            return acquireP99Nanos;
+        }
+
+        /**
+         * Gibt das 99. Perzentil der Zeit, die eine Verbindung ausgeliehen war, in Nanosekunden zurück.
+         *
+         * @return Das 99. Perzentil der Zeit, die eine Verbindung ausgeliehen war, in Nanosekunden.
+         */
+        public long getUsageP99Nanos() {
+            return usageP99Nanos;
+        }
+
+        /**
+         * Gibt die Kennzahlen je Form der Anweisung zurück, absteigend nach geschätzter Gesamtlaufzeit sortiert.
+         *
+         * @return Die Kennzahlen je Form der Anweisung.
+         */
+        public List<StatementSnapshot> getStatements() {
+            return statements;
+        }
+    }
+    //</editor-fold>
+}
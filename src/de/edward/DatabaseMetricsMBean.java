@@ -0,0 +1,111 @@
+package de.edward;
+
+/**
+ * Die JMX-Schnittstelle der {@link DatabaseMetrics}, über die der Zustand des Connection-Pools und die Laufzeiten der
+ * Anweisungen eines {@link DatabaseHandler} von außen abgefragt werden können.
+ */
+public interface DatabaseMetricsMBean {
+
+    /**
+     * Gibt die Anzahl an Verbindungen zurück, die gerade ausgeliehen sind.
+     *
+     * @return Die Anzahl an Verbindungen, die gerade ausgeliehen sind.
+     */
+    int getActiveConnections();
+
+    /**
+     * Gibt die Anzahl an Verbindungen zurück, die gerade unbenutzt im Pool liegen.
+     *
+     * @return Die Anzahl an Verbindungen, die gerade unbenutzt im Pool liegen.
+     */
+    int getIdleConnections();
+
+    /**
+     * Gibt die Anzahl an Verbindungen zurück, die der Pool gerade insgesamt hält.
+     *
+     * @return Die Anzahl an Verbindungen, die der Pool gerade insgesamt hält.
+     */
+    int getTotalConnections();
+
+    /**
+     * Gibt die Anzahl an Threads zurück, die gerade auf eine Verbindung warten.
+     *
+     * @return Die Anzahl an Threads, die gerade auf eine Verbindung warten.
+     */
+    int getPendingThreads();
+
+    /**
+     * Gibt die Anzahl an Versuchen zurück, bei denen innerhalb der Wartezeit keine Verbindung ausgeliehen werden konnte.
+     *
+     * @return Die Anzahl an Versuchen ohne Verbindung.
+     */
+    long getConnectionTimeouts();
+
+    /**
+     * Gibt die Anzahl an Transaktionen zurück, die nach einem Deadlock oder einer abgelaufenen Sperre wiederholt wurden.
+     *
+     * @return Die Anzahl an wiederholten Transaktionen.
+     */
+    long getTransactionRetries();
+
+    /**
+     * Gibt die Anzahl an Verbindungen zurück, die für lesende Zugriffe von einem Replikat geliehen wurden.
+     *
+     * @return Die Anzahl an Lesezugriffen auf Replikate.
+     */
+    long getReplicaReads();
+
+    /**
+     * Gibt die Anzahl an Anfragen nach einer Verbindung zurück, die von der Zulassungskontrolle abgewiesen wurden.
+     *
+     * @return Die Anzahl an abgewiesenen Anfragen.
+     */
+    long getAdmissionRejections();
+
+    /**
+     * Gibt die Anzahl an Malen zurück, die der Schutzschalter vor dem Pool geöffnet wurde.
+     *
+     * @return Die Anzahl an geöffneten Schutzschaltern.
+     */
+    long getCircuitOpenings();
+
+    /**
+     * Gibt die Anzahl an Anweisungen zurück, die länger als die Schwelle des {@link SlowQueryLog} gedauert haben.
+     *
+     * @return Die Anzahl an langsamen Anweisungen.
+     */
+    long getSlowQueries();
+
+    /**
+     * Gibt den Median der Wartezeit beim Ausleihen einer Verbindung in Mikrosekunden zurück.
+     *
+     * @return Der Median der Wartezeit beim Ausleihen einer Verbindung in Mikrosekunden.
+     */
+    long getAcquireP50Micros();
+
+    /**
+     * Gibt das 99. Perzentil der Wartezeit beim Ausleihen einer Verbindung in Mikrosekunden zurück.
+     *
+     * @return Das 99. Perzentil der Wartezeit beim Ausleihen einer Verbindung in Mikrosekunden.
+     */
+    long getAcquireP99Micros();
+
+    /**
+     * Gibt das 99,9. Perzentil der Wartezeit beim Ausleihen einer Verbindung in Mikrosekunden zurück.
+     *
+     * @return Das 99,9. Perzentil der Wartezeit beim Ausleihen einer Verbindung in Mikrosekunden.
+     */
+    long getAcquireP999Micros();
+
+    /**
+     * Gibt für jede gemessene Anweisung eine Zeile mit Anzahl, betroffenen Zeilen und Perzentilen der Laufzeit zurück.
+     *
+     * @return Für jede gemessene Anweisung eine Zeile mit ihren Kennzahlen.
+     */
+    String[] getStatementReport();
+
+    /**
+     * Setzt alle Laufzeit-Messungen zurück. Die Zustandswerte des Pools sind davon nicht betroffen.
+     */
+    void reset();
+}
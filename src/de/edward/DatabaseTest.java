@@ -1,12 +1,11 @@
 package de.edward;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.time.Instant;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Die Haupt- und Main-Klasse dieses {@link DatabaseTest Test-Projekts}, mit dessen Hilfe eine stabile Verbindung zu
@@ -23,12 +22,22 @@ public final class DatabaseTest {
     private static final String USER = "edward";
     /** Das Passwort, welches zu dem {@code USER} gehört. */
     private static final String PASSWORD = "admin"; //highest of security standards!!!
+    /** Die Anzahl an Schlüsseln, die höchstens auf das asynchrone Schreiben warten dürfen. */
+    private static final int WRITER_CAPACITY = 10_000;
+    /** Die Anzahl an wartenden Schlüsseln, ab der das asynchrone Schreiben sofort bestätigt wird. */
+    private static final int WRITER_FLUSH_SIZE = DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE;
+    /** Die Zeit, die ein Datensatz höchstens auf das asynchrone Schreiben wartet. */
+    private static final Duration WRITER_FLUSH_INTERVAL = Duration.ofMillis(50);
+    /** Die Anzahl an Threads, die asynchron eingereihte Datensätze schreiben. */
+    private static final int WRITER_THREADS = 2;
     //</editor-fold>
 
 
     //<editor-fold desc="STATIC FIELDS">
     /** Der {@link DatabaseHandler}, mit der die Verbindung zu der Datenbank hergestellt wird. */
     private static DatabaseHandler databaseHandler;
+    /** Das {@link Repository}, über das Datensätze gelesen und geschrieben werden. */
+    private static Repository<String, TestEntry> testRepository;
     //</editor-fold>
 
 
@@ -52,8 +61,19 @@ public final class DatabaseTest {
                 databaseProperties
         );
 
-        // create table
-        createTestTable();
+        // create repository
+        testRepository = new Repository<>(databaseHandler, TestEntry.DESCRIPTOR);
+
+        // create table and load the newest keys into memory
+        try {
+            testRepository.createTable();
+            testRepository.loadLatestEntries();
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+
+        // start asynchronous writer
+        testRepository.enableWriteBehind(WRITER_CAPACITY, WRITER_FLUSH_SIZE, WRITER_FLUSH_INTERVAL, WRITER_THREADS);
 
         // insert values
         try {
@@ -62,7 +82,7 @@ public final class DatabaseTest {
             Thread.sleep(100);
             insertValues("Name2", i += 2);
             Thread.sleep(100);
-              insertValues("Name3", i += 2);
+            insertValues("Name3", i += 2);
             Thread.sleep(100);
             insertValues("Name4", i += 2);
             Thread.sleep(100);
@@ -77,8 +97,19 @@ public final class DatabaseTest {
             insertValues("Name9", i += 2);
             Thread.sleep(100);
             insertValues("Name10", i += 2);
+
+            // write several values in one batch and queue another one without waiting for the database
+            insertValues(List.of(new TestEntry("Name11", i += 2), new TestEntry("Name12", i += 2)));
+            insertValuesAsync(new TestEntry("Name13", i += 2)).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    e.printStackTrace();
+                }
+            });
         } catch (final InterruptedException e) {
             throw new RuntimeException(e);
+        } finally {
+            // write everything that is still queued
+            testRepository.close();
         }
 
         // get the newest name
@@ -98,25 +129,6 @@ public final class DatabaseTest {
 
     //<editor-fold desc="utility">
 
-    /**
-     * Erzeugt eine Test-Tabelle
-     */
-    private static void createTestTable() {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "CREATE TABLE IF NOT EXISTS testTable("
-                            + "userName VARCHAR(255) PRIMARY KEY, "
-                            + "age INT, "
-                            + "date DATETIME(1)"
-                            + ")"
-            );
-
-            stmt.executeUpdate();
-        } catch (final SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
     /**
      * Fügt einen neuen Datensatz hinzu, welcher aus einem Namen, einem Alter und einem Zeitpunkt besteht, wobei der
      * Zeitpunkt nicht mit übergeben wird, da immer der aktuelle Zeitpunkt gewählt wird. Sollte der Name bereits
@@ -129,38 +141,50 @@ public final class DatabaseTest {
             final String name,
             final int age
     ) {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT INTO testTable (userName, age, date) VALUES (?, @age:=?, @date:=?) "
-                            + "ON DUPLICATE KEY UPDATE date=@date, age=@age"
-            );
-
-            stmt.setString(1, name);
-            stmt.setInt(2, age);
-            stmt.setTimestamp(3, Timestamp.from(Instant.now()));
+        try {
+            testRepository.upsert(new TestEntry(name, age));
+        } catch (final SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
-            stmt.executeUpdate();
+    /**
+     * Fügt alle übergebenen Datensätze in einer Stapel-Verarbeitung hinzu. Die Datensätze werden blockweise gesendet
+     * und je Block in einer einzigen Transaktion bestätigt, statt für jeden Datensatz eine eigene Anfrage zu stellen.
+     *
+     * @param entries Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     */
+    private static void insertValues(final Collection<TestEntry> entries) {
+        try {
+            testRepository.upsertAll(entries);
         } catch (final SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reiht einen Datensatz zum asynchronen Schreiben ein, ohne auf die Datenbank zu warten. Wird derselbe Schlüssel
+     * mehrfach eingereiht, bevor geschrieben wurde, wird nur der zuletzt eingereihte Stand geschrieben.
+     *
+     * @param entry Der Datensatz, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @return Ein {@link CompletableFuture}, welcher abgeschlossen wird, sobald der Datensatz bestätigt wurde.
+     *
+     * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn beim Warten auf freien Platz unterbrochen
+     *     wird.
+     */
+    private static CompletableFuture<Void> insertValuesAsync(final TestEntry entry) throws InterruptedException {
+        return testRepository.enqueue(entry);
+    }
+
     /**
      * Gibt den Namen zurück, der zuletzt eingefügt wurde in der Datenbank.
      *
      * @return Der Name, der zuletzt eingefügt wurde in der Datenbank.
      */
     private static String getNewestName() {
-        try (final Connection conn = getDatabaseHandler().getConnection()) {
-            final PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT userName as name FROM testTable WHERE date IS NOT NULL ORDER BY date DESC"
-            );
-
-            final ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getString("name");
-            }
+        try {
+            return testRepository.newestKey().orElse("");
         } catch (final SQLException e) {
             e.printStackTrace();
         }
@@ -0,0 +1,154 @@
+package de.edward;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Ein {@link DictionaryEntry} ist ein einzelner Eintrag des Wörterbuchs, welcher aus einem fremden Wort, seiner
+ * englischen Übersetzung, der Wortart und einer Definition besteht. Der Zeitstempel wird beim Schreiben durch die
+ * Datenbank-Anbindung gesetzt.
+ */
+public final class DictionaryEntry {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Der {@link EntityDescriptor}, der die Wörterbuch-Tabelle beschreibt. */
+    public static final EntityDescriptor<String, DictionaryEntry> DESCRIPTOR = EntityDescriptor
+            .<String, DictionaryEntry>builder("dictionaryTable", String.class, DictionaryEntry::getStrangWord)
+            .key("strangWord", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getStrangWord()))
+            .column("engWord", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getEngWord()))
+            .column("type", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getType()))
+            .column("definition", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getDefinition()))
+            .build(rs -> new DictionaryEntry(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+    /** Der {@link SnapshotCodec}, mit dem Einträge in einen {@link TableSnapshot} geschrieben werden. */
+    public static final SnapshotCodec<DictionaryEntry> CODEC = new SnapshotCodec<>() {
+        @Override
+        public void write(
+                final DataOutput out,
+                final DictionaryEntry entry
+        ) throws IOException {
+            out.writeUTF(entry.getStrangWord());
+            SnapshotCodec.writeNullable(out, entry.getEngWord());
+            SnapshotCodec.writeNullable(out, entry.getType());
+            SnapshotCodec.writeNullable(out, entry.getDefinition());
+        }
+
+        @Override
+        public DictionaryEntry read(final DataInput in) throws IOException {
+            return new DictionaryEntry(
+                    in.readUTF(),
+                    SnapshotCodec.readNullable(in),
+                    SnapshotCodec.readNullable(in),
+                    SnapshotCodec.readNullable(in)
+            );
+        }
+    };
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Das fremde Wort, welches den Eintrag eindeutig identifiziert. */
+    private final String strangWord;
+    /** Die englische Übersetzung des fremden Wortes. */
+    private final String engWord;
+    /** Die Wortart des fremden Wortes. */
+    private final String type;
+    /** Die Definition des fremden Wortes. */
+    private final String definition;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link DictionaryEntry} aus einem fremden Wort, seiner Übersetzung, seiner Wortart und seiner
+     * Definition.
+     *
+     * @param strangWord Das fremde Wort, welches den Eintrag eindeutig identifiziert.
+     * @param engWord    Die englische Übersetzung des fremden Wortes.
+     * @param type       Die Wortart des fremden Wortes.
+     * @param definition Die Definition des fremden Wortes.
+     */
+    public DictionaryEntry(
+            final String strangWord,
+            final String engWord,
+            final String type,
+            final String definition
+    ) {
+        this.strangWord = Objects.requireNonNull(strangWord, "strangWord");
+        this.engWord = engWord;
+        this.type = type;
+        this.definition = definition;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt das fremde Wort zurück, welches den Eintrag eindeutig identifiziert.
+     *
+     * @return Das fremde Wort, welches den Eintrag eindeutig identifiziert.
+     */
+    public String getStrangWord() {
+        return strangWord;
+    }
+
+    /**
+     * Gibt die englische Übersetzung des fremden Wortes zurück.
+     *
+     * @return Die englische Übersetzung des fremden Wortes.
+     */
+    public String getEngWord() {
+        return engWord;
+    }
+
+    /**
+     * Gibt die Wortart des fremden Wortes zurück.
+     *
+     * @return Die Wortart des fremden Wortes.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gibt die Definition des fremden Wortes zurück.
+     *
+     * @return Die Definition des fremden Wortes.
+     */
+    public String getDefinition() {
+        return definition;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="object">
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DictionaryEntry)) {
+            return false;
+        }
+        final DictionaryEntry entry = (DictionaryEntry) other;
+        return strangWord.equals(entry.strangWord)
+                && Objects.equals(engWord, entry.engWord)
+                && Objects.equals(type, entry.type)
+                && Objects.equals(definition, entry.definition);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(strangWord, engWord, type, definition);
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryEntry{strangWord=" + strangWord + ", engWord=" + engWord + ", type=" + type
+                + ", definition=" + definition + "}";
+    }
+    //</editor-fold>
+}
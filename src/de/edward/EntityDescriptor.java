@@ -0,0 +1,743 @@
+package de.edward;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Ein {@link EntityDescriptor} beschreibt eine Tabelle einmalig: ihren Namen, ihre Schlüssel-Spalte und alle weiteren
+ * Spalten in einer festen Reihenfolge. Aus dieser Beschreibung werden alle SQL-Anweisungen der Tabelle genau einmal
+ * erzeugt, sodass ein {@link Repository} bei keinem Aufruf Zeichenketten zusammensetzen muss. Da die Treiber-Option
+ * {@code cachePrepStmts} die vorbereiteten Anweisungen anhand ihres Textes je Verbindung wiederverwendet, profitiert jede
+ * Tabelle mit einem {@link EntityDescriptor} automatisch davon.
+ *
+ * <p>Alle Abfragen lesen die Spalten in der Reihenfolge ihrer Beschreibung, beginnend mit dem Schlüssel an Position
+ * {@code 1}. Der {@link RowMapper} eines {@link EntityDescriptor} liest die Werte daher über diese festen Positionen
+ * statt über die Namen der Spalten. Jede Tabelle erhält zusätzlich eine Spalte {@code date}, die bei jedem Schreiben auf
+ * den aktuellen Zeitpunkt gesetzt wird und mit einem Index versehen ist.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class EntityDescriptor<K, T> {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Der Name der Spalte, in der der Zeitpunkt des letzten Schreibens festgehalten wird. */
+    public static final String TIMESTAMP_COLUMN = "date";
+    /** Die Endung, mit der aus dem Namen einer Tabelle der Name ihrer Archiv-Tabelle gebildet wird. */
+    public static final String ARCHIVE_SUFFIX = "Archive";
+    /** Der Name der Partition einer Archiv-Tabelle, die alle Zeitpunkte nach der letzten Monats-Partition aufnimmt. */
+    public static final String ARCHIVE_TAIL_PARTITION = "pmax";
+    /** Der Zeichensatz aller Tabellen und Archiv-Tabellen. */
+    public static final String CHARSET = "utf8mb4";
+    /**
+     * Die Sortierung aller Tabellen, die Schlüssel ohne Unterscheidung von Groß- und Kleinschreibung, ohne Akzente und
+     * ohne folgende Leerzeichen vergleicht, so wie {@link ShardRing} sie vor dem Hashen normalisiert.
+     */
+    public static final String COLLATION = "utf8mb4_unicode_ci";
+    /** Das Muster, dem die Namen von Tabellen und Spalten entsprechen müssen, da sie in SQL eingesetzt werden. */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der Name der Tabelle. */
+    private final String table;
+    /** Der Typ des Schlüssels. */
+    private final Class<K> keyType;
+    /** Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird. */
+    private final Function<? super T, ? extends K> keyExtractor;
+    /** Die Spalten der Tabelle in ihrer Reihenfolge, beginnend mit dem Schlüssel. */
+    private final List<Column<T>> columns;
+    /** Der {@link RowMapper}, mit dem eine Zeile über die Positionen ihrer Spalten umgewandelt wird. */
+    private final RowMapper<T> mapper;
+    /** Der {@link StatementBinder}, mit dem ein Datensatz auf die {@code upsertSql} übertragen wird. */
+    private final StatementBinder<T> upsertBinder;
+    /** Die SQL-Anweisung, mit der die Tabelle angelegt wird. */
+    private final String createTableSql;
+    /** Die SQL-Anweisung, mit der der Index auf dem Zeitstempel angelegt wird. */
+    private final String createIndexSql;
+    /** Die SQL-Anweisung, mit der ein Datensatz eingefügt oder aktualisiert wird. */
+    private final String upsertSql;
+    /** Die SQL-Anweisung, mit der ein einzelner Datensatz über seinen Schlüssel gelesen wird. */
+    private final String selectByKeySql;
+    /** Die SQL-Anweisung, mit der alle Datensätze gelesen werden. */
+    private final String selectAllSql;
+    /** Die SQL-Anweisung, mit der alle Datensätze eines Zeitraums gelesen werden. */
+    private final String selectRangeSql;
+    /** Die SQL-Anweisung, mit der die Schlüssel der zuletzt geschriebenen Datensätze gelesen werden. */
+    private final String selectNewestSql;
+    /** Die SQL-Anweisung, mit der alle Datensätze samt ihres Zeitstempels gelesen werden. */
+    private final String selectAllTimestampedSql;
+    /** Die SQL-Anweisung, mit der alle seit einem Zeitpunkt geschriebenen Datensätze samt Zeitstempel gelesen werden. */
+    private final String selectSinceSql;
+    /** Die SQL-Anweisung, mit der ein Datensatz nur übernommen wird, wenn er neuer als der vorhandene ist. */
+    private final String mergeSql;
+    /** Die SQL-Anweisung, mit der ein einzelner Datensatz über seinen Schlüssel gelöscht wird. */
+    private final String deleteByKeySql;
+    /** Die SQL-Anweisung, mit der ein Datensatz nur gelöscht wird, wenn er nicht neuer als ein Zeitpunkt ist. */
+    private final String deleteByKeyIfNotNewerSql;
+    /** Der Name der Archiv-Tabelle. */
+    private final String archiveTable;
+    /** Die SQL-Anweisung, mit der die nach Monaten partitionierte Archiv-Tabelle angelegt wird. */
+    private final String createArchiveTableSql;
+    /** Die SQL-Anweisung, mit der der älteste Zeitstempel der Tabelle gelesen wird. */
+    private final String selectOldestSql;
+    /** Die SQL-Anweisung, mit der die Schlüssel der ältesten Datensätze vor einem Zeitpunkt gesperrt werden. */
+    private final String selectExpiredKeysSql;
+    /** Die SQL-Anweisung, mit der alle archivierten Datensätze eines Zeitraums gelesen werden. */
+    private final String selectArchivedRangeSql;
+    /** Die SQL-Anweisung, mit der die Schlüssel archivierter Fassungen seit einem Zeitpunkt gelesen werden. */
+    private final String selectArchivedKeysSinceSql;
+    /** Der Anfang der SQL-Anweisung, mit der Datensätze über ihre Schlüssel in das Archiv kopiert werden. */
+    private final String archiveByKeysPrefix;
+    /** Der Anfang der SQL-Anweisung, mit der Datensätze über ihre Schlüssel gelöscht werden. */
+    private final String deleteByKeysPrefix;
+    /** Der Anfang der SQL-Anweisung, mit der Datensätze über ihre Schlüssel samt Zeitstempel gelesen werden. */
+    private final String selectByKeysTimestampedPrefix;
+    /** Die Anweisungen, die im laufenden Betrieb ständig vorbereitet werden. */
+    private final List<String> warmUpSql;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link EntityDescriptor} und alle SQL-Anweisungen seiner Tabelle.
+     *
+     * @param builder Der {@link Builder}, der die Tabelle beschreibt.
+     * @param mapper  Der {@link RowMapper}, mit dem eine Zeile über die Positionen ihrer Spalten umgewandelt wird.
+     */
+    private EntityDescriptor(
+            final Builder<K, T> builder,
+            final RowMapper<T> mapper
+    ) {
+        this.table = builder.table;
+        this.keyType = builder.keyType;
+        this.keyExtractor = builder.keyExtractor;
+        this.columns = List.copyOf(builder.columns);
+        this.mapper = mapper;
+
+        final String keyColumn = columns.get(0).name;
+        final StringJoiner definitions = new StringJoiner(", ");
+        final StringJoiner archiveDefinitions = new StringJoiner(", ");
+        final StringJoiner names = new StringJoiner(", ");
+        final StringJoiner placeholders = new StringJoiner(", ");
+        final StringJoiner updates = new StringJoiner(", ");
+        updates.add(TIMESTAMP_COLUMN + "=VALUES(" + TIMESTAMP_COLUMN + ")");
+        final StringJoiner merges = new StringJoiner(", ");
+        final String newer = "(" + TIMESTAMP_COLUMN + " IS NULL OR VALUES(" + TIMESTAMP_COLUMN + ") > "
+                + TIMESTAMP_COLUMN + ")";
+
+        for (final Column<T> column : columns) {
+            definitions.add(column.name + " " + column.type + (column.name.equals(keyColumn) ? " PRIMARY KEY" : ""));
+            archiveDefinitions.add(column.name + " " + column.type + (column.name.equals(keyColumn) ? " NOT NULL" : ""));
+            names.add(column.name);
+            placeholders.add("?");
+            if (!column.name.equals(keyColumn)) {
+                updates.add(column.name + "=VALUES(" + column.name + ")");
+                merges.add(column.name + "=IF(" + newer + ", VALUES(" + column.name + "), " + column.name + ")");
+            }
+        }
+
+        // pin the collation, so that the database compares keys just like the shard ring hashes them
+        final String tableOptions = " DEFAULT CHARSET=" + CHARSET + " COLLATE=" + COLLATION;
+        this.createTableSql = "CREATE TABLE IF NOT EXISTS " + table + "("
+                + definitions + ", " + TIMESTAMP_COLUMN + " DATETIME(1))" + tableOptions;
+        this.createIndexSql = "CREATE INDEX IF NOT EXISTS idx_" + table + "_" + TIMESTAMP_COLUMN + " ON " + table
+                + " (" + TIMESTAMP_COLUMN + ")";
+        this.upsertSql = "INSERT INTO " + table + " (" + names + ", " + TIMESTAMP_COLUMN + ") "
+                + "VALUES (" + placeholders + ", ?) "
+                + "ON DUPLICATE KEY UPDATE " + updates;
+        this.selectByKeySql = "SELECT " + names + " FROM " + table + " WHERE " + keyColumn + " = ?";
+        this.selectAllSql = "SELECT " + names + " FROM " + table;
+        this.selectRangeSql = "SELECT " + names + " FROM " + table
+                + " WHERE " + TIMESTAMP_COLUMN + " >= ? AND " + TIMESTAMP_COLUMN + " < ? ORDER BY " + TIMESTAMP_COLUMN;
+        this.selectNewestSql = "SELECT " + keyColumn + ", " + TIMESTAMP_COLUMN + " FROM " + table
+                + " WHERE " + TIMESTAMP_COLUMN + " IS NOT NULL ORDER BY " + TIMESTAMP_COLUMN + " DESC LIMIT ?";
+        this.selectAllTimestampedSql = "SELECT " + names + ", " + TIMESTAMP_COLUMN + " FROM " + table;
+        this.selectSinceSql = selectAllTimestampedSql
+                + " WHERE " + TIMESTAMP_COLUMN + " >= ? ORDER BY " + TIMESTAMP_COLUMN;
+
+        // the timestamp is assigned last, as the other assignments still have to compare against the old one, and a
+        // missing timestamp on either side must not turn the greatest one into null
+        merges.add(TIMESTAMP_COLUMN + "=GREATEST("
+                + "COALESCE(" + TIMESTAMP_COLUMN + ", VALUES(" + TIMESTAMP_COLUMN + ")), "
+                + "COALESCE(VALUES(" + TIMESTAMP_COLUMN + "), " + TIMESTAMP_COLUMN + "))");
+        this.mergeSql = "INSERT INTO " + table + " (" + names + ", " + TIMESTAMP_COLUMN + ") "
+                + "VALUES (" + placeholders + ", ?) "
+                + "ON DUPLICATE KEY UPDATE " + merges;
+        this.deleteByKeySql = "DELETE FROM " + table + " WHERE " + keyColumn + " = ?";
+        this.deleteByKeyIfNotNewerSql = deleteByKeySql
+                + " AND (" + TIMESTAMP_COLUMN + " <= ? OR " + TIMESTAMP_COLUMN + " IS NULL)";
+
+        // every unique key of a partitioned table has to contain the partitioning column, so the archive keeps one
+        // row per key and timestamp and thereby also the older versions of a key that was archived more than once
+        this.archiveTable = table + ARCHIVE_SUFFIX;
+        this.createArchiveTableSql = "CREATE TABLE IF NOT EXISTS " + archiveTable + "("
+                + archiveDefinitions + ", " + TIMESTAMP_COLUMN + " DATETIME(1) NOT NULL, "
+                + "PRIMARY KEY (" + keyColumn + ", " + TIMESTAMP_COLUMN + "))" + tableOptions + " "
+                + "PARTITION BY RANGE COLUMNS(" + TIMESTAMP_COLUMN + ") "
+                + "(PARTITION " + ARCHIVE_TAIL_PARTITION + " VALUES LESS THAN (MAXVALUE))";
+        this.selectOldestSql = "SELECT MIN(" + TIMESTAMP_COLUMN + ") FROM " + table;
+        this.selectExpiredKeysSql = "SELECT " + keyColumn + " FROM " + table
+                + " WHERE " + TIMESTAMP_COLUMN + " < ? ORDER BY " + TIMESTAMP_COLUMN + " LIMIT ? FOR UPDATE";
+        this.selectArchivedRangeSql = "SELECT " + names + " FROM " + archiveTable
+                + " WHERE " + TIMESTAMP_COLUMN + " >= ? AND " + TIMESTAMP_COLUMN + " < ? ORDER BY " + TIMESTAMP_COLUMN;
+        this.selectArchivedKeysSinceSql = "SELECT " + keyColumn + ", " + TIMESTAMP_COLUMN + " FROM " + archiveTable
+                + " WHERE " + TIMESTAMP_COLUMN + " >= ?";
+        this.archiveByKeysPrefix = "INSERT INTO " + archiveTable + " (" + names + ", " + TIMESTAMP_COLUMN + ") "
+                + "SELECT " + names + ", " + TIMESTAMP_COLUMN + " FROM " + table + " WHERE " + keyColumn + " IN (";
+        this.deleteByKeysPrefix = "DELETE FROM " + table + " WHERE " + keyColumn + " IN (";
+        this.selectByKeysTimestampedPrefix = selectAllTimestampedSql + " WHERE " + keyColumn + " IN (";
+        this.warmUpSql = List.of(
+                upsertSql,
+                mergeSql,
+                selectByKeySql,
+                selectNewestSql,
+                selectRangeSql,
+                selectSinceSql,
+                deleteByKeySql
+        );
+
+        // bind the columns by position, followed by the shared timestamp of the current tenth of a second
+        final int timestampIndex = columns.size() + 1;
+        this.upsertBinder = (stmt, row) -> {
+            bindColumns(stmt, row);
+            stmt.setTimestamp(timestampIndex, WriteClock.now());
+        };
+    }
+
+    /**
+     * Beginnt die Beschreibung einer neuen Tabelle.
+     *
+     * @param table        Der Name der Tabelle.
+     * @param keyType      Der Typ des Schlüssels.
+     * @param keyExtractor Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird.
+     * @param <K>          Der Typ des Schlüssels der Tabelle.
+     * @param <T>          Der Typ der Datensätze der Tabelle.
+     *
+     * @return Ein neuer {@link Builder} für die Tabelle.
+     */
+    public static <K, T> Builder<K, T> builder(
+            final String table,
+            final Class<K> keyType,
+            final Function<? super T, ? extends K> keyExtractor
+    ) {
+        return new Builder<>(table, keyType, keyExtractor);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt den Namen der Tabelle zurück.
+     *
+     * @return Der Name der Tabelle.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Gibt den Typ des Schlüssels zurück.
+     *
+     * @return Der Typ des Schlüssels.
+     */
+    public Class<K> getKeyType() {
+        return keyType;
+    }
+
+    /**
+     * Gibt den Schlüssel des übergebenen Datensatzes zurück.
+     *
+     * @param row Der Datensatz, dessen Schlüssel bestimmt wird.
+     *
+     * @return Der Schlüssel des Datensatzes.
+     */
+    public K keyOf(final T row) {
+        return keyExtractor.apply(row);
+    }
+
+    /**
+     * Gibt die Funktion zurück, mit der der Schlüssel eines Datensatzes bestimmt wird.
+     *
+     * @return Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird.
+     */
+    public Function<? super T, ? extends K> getKeyExtractor() {
+        return keyExtractor;
+    }
+
+    /**
+     * Gibt die Namen aller Spalten in ihrer Reihenfolge zurück, beginnend mit dem Schlüssel und ohne den Zeitstempel.
+     *
+     * @return Die Namen aller Spalten in ihrer Reihenfolge.
+     */
+    public List<String> getColumnNames() {
+        final List<String> names = new ArrayList<>(columns.size());
+        for (final Column<T> column : columns) {
+            names.add(column.name);
+        }
+        return names;
+    }
+
+    /**
+     * Gibt den {@link RowMapper} zurück, mit dem eine Zeile der Abfragen dieser Tabelle umgewandelt wird.
+     *
+     * @return Der {@link RowMapper} dieser Tabelle.
+     */
+    public RowMapper<T> getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Gibt den {@link StatementBinder} zurück, mit dem ein Datensatz samt aktuellem Zeitstempel auf die
+     * {@link #getUpsertSql() Upsert-Anweisung} übertragen wird.
+     *
+     * @return Der {@link StatementBinder} der Upsert-Anweisung.
+     */
+    public StatementBinder<T> getUpsertBinder() {
+        return upsertBinder;
+    }
+
+    /**
+     * Gibt einen {@link StatementBinder} zurück, der einen Datensatz samt dem übergebenen Zeitstempel auf die
+     * {@link #getUpsertSql() Upsert-Anweisung} überträgt. Wer den Zeitstempel selbst festlegt, kann Schreibzugriffe
+     * mit genau dem Zeitpunkt melden, der in der Tabelle steht.
+     *
+     * @param timestamp Der Zeitstempel, der für jeden Datensatz gebunden wird.
+     *
+     * @return Der {@link StatementBinder} der Upsert-Anweisung mit festem Zeitstempel.
+     */
+    public StatementBinder<T> getUpsertBinder(final Timestamp timestamp) {
+        final int timestampIndex = columns.size() + 1;
+        return (stmt, row) -> {
+            bindColumns(stmt, row);
+            stmt.setTimestamp(timestampIndex, timestamp);
+        };
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der die Tabelle angelegt wird.
+     *
+     * @return Die SQL-Anweisung, mit der die Tabelle angelegt wird.
+     */
+    public String getCreateTableSql() {
+        return createTableSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der der Index auf dem Zeitstempel angelegt wird.
+     *
+     * @return Die SQL-Anweisung, mit der der Index auf dem Zeitstempel angelegt wird.
+     */
+    public String getCreateIndexSql() {
+        return createIndexSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der ein Datensatz eingefügt oder aktualisiert wird.
+     *
+     * @return Die SQL-Anweisung, mit der ein Datensatz eingefügt oder aktualisiert wird.
+     */
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der ein einzelner Datensatz über seinen Schlüssel gelesen wird.
+     *
+     * @return Die SQL-Anweisung, mit der ein einzelner Datensatz gelesen wird.
+     */
+    public String getSelectByKeySql() {
+        return selectByKeySql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der alle Datensätze gelesen werden.
+     *
+     * @return Die SQL-Anweisung, mit der alle Datensätze gelesen werden.
+     */
+    public String getSelectAllSql() {
+        return selectAllSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der alle Datensätze gelesen werden, deren Zeitstempel in einem halboffenen
+     * Zeitraum liegt. Die Datensätze werden nach ihrem Zeitstempel sortiert.
+     *
+     * @return Die SQL-Anweisung, mit der alle Datensätze eines Zeitraums gelesen werden.
+     */
+    public String getSelectRangeSql() {
+        return selectRangeSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der Schlüssel und Zeitstempel der zuletzt geschriebenen Datensätze gelesen
+     * werden. Die Anzahl wird als einziger Parameter übergeben.
+     *
+     * @return Die SQL-Anweisung, mit der die zuletzt geschriebenen Datensätze gelesen werden.
+     */
+    public String getSelectNewestSql() {
+        return selectNewestSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der alle Datensätze samt ihres Zeitstempels gelesen werden. Der Zeitstempel
+     * folgt als letzte Spalte, sodass der {@link #getMapper() RowMapper} unverändert genutzt werden kann.
+     *
+     * @return Die SQL-Anweisung, mit der alle Datensätze samt ihres Zeitstempels gelesen werden.
+     */
+    public String getSelectAllTimestampedSql() {
+        return selectAllTimestampedSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der alle Datensätze, die seit einem Zeitpunkt geschrieben wurden, samt ihres
+     * Zeitstempels und nach diesem sortiert gelesen werden. Der Zeitpunkt wird als einziger Parameter übergeben.
+     *
+     * @return Die SQL-Anweisung, mit der alle seit einem Zeitpunkt geschriebenen Datensätze gelesen werden.
+     */
+    public String getSelectSinceSql() {
+        return selectSinceSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der ein Datensatz eingefügt oder nur dann aktualisiert wird, wenn sein
+     * Zeitstempel neuer als der des vorhandenen Datensatzes ist oder dieser keinen Zeitstempel hat. Die Parameter
+     * entsprechen denen der {@link #getUpsertSql() Upsert-Anweisung}.
+     *
+     * @return Die SQL-Anweisung, mit der ein Datensatz nach seinem Zeitstempel übernommen wird.
+     */
+    public String getMergeSql() {
+        return mergeSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der ein einzelner Datensatz über seinen Schlüssel gelöscht wird.
+     *
+     * @return Die SQL-Anweisung, mit der ein einzelner Datensatz gelöscht wird.
+     */
+    public String getDeleteByKeySql() {
+        return deleteByKeySql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der ein einzelner Datensatz über seinen Schlüssel nur dann gelöscht wird, wenn
+     * sein Zeitstempel nicht neuer als der übergebene ist. Schlüssel und Zeitstempel werden als Parameter übergeben; ein
+     * zwischenzeitlich neu geschriebener Stand bleibt so erhalten.
+     *
+     * @return Die SQL-Anweisung, mit der ein nicht neuerer Datensatz gelöscht wird.
+     */
+    public String getDeleteByKeyIfNotNewerSql() {
+        return deleteByKeyIfNotNewerSql;
+    }
+
+    /**
+     * Gibt den Namen der Archiv-Tabelle zurück, in die ein {@link TableArchiver} alte Datensätze verschiebt.
+     *
+     * @return Der Name der Archiv-Tabelle.
+     */
+    public String getArchiveTable() {
+        return archiveTable;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der die Archiv-Tabelle angelegt wird. Sie hat dieselben Spalten wie die
+     * Tabelle, wird über {@code RANGE COLUMNS} nach dem Zeitstempel partitioniert und enthält zu Beginn nur die
+     * Partition {@link #ARCHIVE_TAIL_PARTITION} für alle Zeitpunkte.
+     *
+     * @return Die SQL-Anweisung, mit der die Archiv-Tabelle angelegt wird.
+     */
+    public String getCreateArchiveTableSql() {
+        return createArchiveTableSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der der älteste Zeitstempel der Tabelle gelesen wird.
+     *
+     * @return Die SQL-Anweisung, mit der der älteste Zeitstempel gelesen wird.
+     */
+    public String getSelectOldestSql() {
+        return selectOldestSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der die Schlüssel der ältesten Datensätze vor einem Zeitpunkt über den Index
+     * auf dem Zeitstempel gelesen und bis zum Ende der Transaktion gesperrt werden. Der Zeitpunkt und die maximale
+     * Anzahl werden als Parameter übergeben.
+     *
+     * @return Die SQL-Anweisung, mit der die Schlüssel abgelaufener Datensätze gesperrt werden.
+     */
+    public String getSelectExpiredKeysSql() {
+        return selectExpiredKeysSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der alle archivierten Datensätze eines halboffenen Zeitraums gelesen werden.
+     * Da der Zeitraum auf dem Zeitstempel liegt, liest der Server nur die Partitionen, die ihn berühren.
+     *
+     * @return Die SQL-Anweisung, mit der alle archivierten Datensätze eines Zeitraums gelesen werden.
+     */
+    public String getSelectArchivedRangeSql() {
+        return selectArchivedRangeSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der der Schlüssel und der Zeitstempel jeder archivierten Fassung ab einem
+     * Zeitpunkt gelesen werden. Der Zeitpunkt wird als Parameter übergeben; gelesen werden nur die Partitionen ab ihm.
+     *
+     * @return Die SQL-Anweisung, mit der die Schlüssel archivierter Fassungen gelesen werden.
+     */
+    public String getSelectArchivedKeysSinceSql() {
+        return selectArchivedKeysSinceSql;
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der die Datensätze zu der übergebenen Anzahl an Schlüsseln samt Zeitstempel in
+     * die Archiv-Tabelle kopiert werden. Die Schlüssel werden als Parameter übergeben.
+     *
+     * @param count Die Anzahl an Schlüsseln.
+     *
+     * @return Die SQL-Anweisung, mit der die Datensätze in das Archiv kopiert werden.
+     */
+    public String getArchiveByKeysSql(final int count) {
+        return archiveByKeysPrefix + placeholders(count) + ")";
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der die Datensätze zu der übergebenen Anzahl an Schlüsseln gelöscht werden.
+     * Die Schlüssel werden als Parameter übergeben.
+     *
+     * @param count Die Anzahl an Schlüsseln.
+     *
+     * @return Die SQL-Anweisung, mit der die Datensätze gelöscht werden.
+     */
+    public String getDeleteByKeysSql(final int count) {
+        return deleteByKeysPrefix + placeholders(count) + ")";
+    }
+
+    /**
+     * Gibt die SQL-Anweisung zurück, mit der die Datensätze zu der übergebenen Anzahl an Schlüsseln samt ihres
+     * Zeitstempels als letzter Spalte gelesen werden. Die Schlüssel werden als Parameter übergeben.
+     *
+     * @param count Die Anzahl an Schlüsseln.
+     *
+     * @return Die SQL-Anweisung, mit der die Datensätze samt Zeitstempel gelesen werden.
+     */
+    public String getSelectByKeysTimestampedSql(final int count) {
+        return selectByKeysTimestampedPrefix + placeholders(count) + ")";
+    }
+
+    /**
+     * Gibt die Anweisungen zurück, die ein {@link Repository} im laufenden Betrieb ständig vorbereitet und die daher
+     * mit {@link DatabaseHandler#warmUp(java.util.Collection)} beim Start vorbereitet werden können.
+     *
+     * @return Die Anweisungen, die beim Start vorbereitet werden können.
+     */
+    public List<String> getWarmUpSql() {
+        return warmUpSql;
+    }
+
+    /**
+     * Gibt die übergebene Anzahl an Platzhaltern durch Kommas getrennt zurück.
+     *
+     * @param count Die Anzahl an Platzhaltern.
+     *
+     * @return Die Platzhalter durch Kommas getrennt.
+     */
+    private static String placeholders(final int count) {
+        // check the count for validity
+        if (count <= 0) {
+            throw new IllegalArgumentException("The supplied count must be positive!");
+        }
+
+        final StringJoiner placeholders = new StringJoiner(", ");
+        for (int i = 0; i < count; i++) {
+            placeholders.add("?");
+        }
+        return placeholders.toString();
+    }
+
+    /**
+     * Überträgt die Werte aller Spalten eines Datensatzes nach ihrer Position, ohne den Zeitstempel.
+     *
+     * @param stmt Das {@link PreparedStatement}, auf das die Werte übertragen werden.
+     * @param row  Der Datensatz.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Wert nicht übertragen werden konnte.
+     */
+    private void bindColumns(
+            final PreparedStatement stmt,
+            final T row
+    ) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).binder.bind(stmt, i + 1, row);
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein {@link ColumnBinder} überträgt den Wert einer einzelnen Spalte eines Datensatzes auf einen Parameter.
+     *
+     * @param <T> Der Typ der Datensätze.
+     */
+    @FunctionalInterface
+    public interface ColumnBinder<T> {
+
+        /**
+         * Überträgt den Wert der Spalte des übergebenen Datensatzes auf den Parameter an der übergebenen Position.
+         *
+         * @param stmt  Das {@link PreparedStatement}, dessen Parameter gesetzt wird.
+         * @param index Die Position des Parameters.
+         * @param row   Der Datensatz, dessen Wert übertragen wird.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Parameter nicht gesetzt werden kann.
+         */
+        void bind(PreparedStatement stmt, int index, T row) throws SQLException;
+    }
+
+    /**
+     * Eine einzelne Spalte der Tabelle.
+     *
+     * @param <T> Der Typ der Datensätze.
+     */
+    private static final class Column<T> {
+
+        /** Der Name der Spalte. */
+        private final String name;
+        /** Der SQL-Typ der Spalte. */
+        private final String type;
+        /** Der {@link ColumnBinder}, mit dem der Wert der Spalte übertragen wird. */
+        private final ColumnBinder<T> binder;
+
+        /**
+         * Erzeugt eine neue {@link Column}.
+         *
+         * @param name   Der Name der Spalte.
+         * @param type   Der SQL-Typ der Spalte.
+         * @param binder Der {@link ColumnBinder}, mit dem der Wert der Spalte übertragen wird.
+         */
+        private Column(
+                final String name,
+                final String type,
+                final ColumnBinder<T> binder
+        ) {
+            this.name = name;
+            this.type = type;
+            this.binder = binder;
+        }
+    }
+
+    /**
+     * Ein {@link Builder} sammelt die Spalten einer Tabelle, bevor daraus ein {@link EntityDescriptor} erzeugt wird. Die
+     * erste Spalte muss mit {@link #key(String, String, ColumnBinder)} beschrieben werden.
+     *
+     * @param <K> Der Typ des Schlüssels der Tabelle.
+     * @param <T> Der Typ der Datensätze der Tabelle.
+     */
+    public static final class Builder<K, T> {
+
+        /** Der Name der Tabelle. */
+        private final String table;
+        /** Der Typ des Schlüssels. */
+        private final Class<K> keyType;
+        /** Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird. */
+        private final Function<? super T, ? extends K> keyExtractor;
+        /** Die bisher beschriebenen Spalten in ihrer Reihenfolge. */
+        private final List<Column<T>> columns = new ArrayList<>();
+
+        /**
+         * Erzeugt einen neuen {@link Builder}.
+         *
+         * @param table        Der Name der Tabelle.
+         * @param keyType      Der Typ des Schlüssels.
+         * @param keyExtractor Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird.
+         */
+        private Builder(
+                final String table,
+                final Class<K> keyType,
+                final Function<? super T, ? extends K> keyExtractor
+        ) {
+            // check the table name for validity
+            if (!IDENTIFIER.matcher(table).matches()) {
+                throw new IllegalArgumentException("The supplied table name is not a valid identifier!");
+            }
+
+            this.table = table;
+            this.keyType = keyType;
+            this.keyExtractor = keyExtractor;
+        }
+
+        /**
+         * Beschreibt die Schlüssel-Spalte der Tabelle.
+         *
+         * @param name   Der Name der Spalte.
+         * @param type   Der SQL-Typ der Spalte, etwa {@code VARCHAR(255)}.
+         * @param binder Der {@link ColumnBinder}, mit dem der Wert der Spalte übertragen wird.
+         *
+         * @return Dieser {@link Builder}.
+         */
+        public Builder<K, T> key(
+                final String name,
+                final String type,
+                final ColumnBinder<T> binder
+        ) {
+            if (!columns.isEmpty()) {
+                throw new IllegalStateException("The key column must be the first column!");
+            }
+            return column(name, type, binder);
+        }
+
+        /**
+         * Beschreibt die nächste Spalte der Tabelle.
+         *
+         * @param name   Der Name der Spalte.
+         * @param type   Der SQL-Typ der Spalte, etwa {@code VARCHAR(255)}.
+         * @param binder Der {@link ColumnBinder}, mit dem der Wert der Spalte übertragen wird.
+         *
+         * @return Dieser {@link Builder}.
+         */
+        public Builder<K, T> column(
+                final String name,
+                final String type,
+                final ColumnBinder<T> binder
+        ) {
+            // check the column name for validity
+            if (!IDENTIFIER.matcher(name).matches()) {
+                throw new IllegalArgumentException("The supplied column name is not a valid identifier!");
+            }
+            if (name.equals(TIMESTAMP_COLUMN)) {
+                throw new IllegalArgumentException("The supplied column name is reserved for the timestamp!");
+            }
+
+            columns.add(new Column<>(name, type, binder));
+            return this;
+        }
+
+        /**
+         * Erzeugt den {@link EntityDescriptor} mit allen bisher beschriebenen Spalten.
+         *
+         * @param mapper Der {@link RowMapper}, der die Spalten über ihre Positionen in der beschriebenen Reihenfolge
+         *               liest, beginnend mit dem Schlüssel an Position {@code 1}.
+         *
+         * @return Der neue {@link EntityDescriptor}.
+         */
+        public EntityDescriptor<K, T> build(final RowMapper<T> mapper) {
+            if (columns.isEmpty()) {
+                throw new IllegalStateException("The table needs at least a key column!");
+            }
+            return new EntityDescriptor<>(this, mapper);
+        }
+    }
+    //</editor-fold>
+}
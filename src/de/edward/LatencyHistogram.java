@@ -0,0 +1,176 @@
+package de.edward;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ein {@link LatencyHistogram} zählt gemessene Zeiten in logarithmisch-linearen Klassen, ähnlich einem HdrHistogram.
+ * Jede Zweierpotenz wird in 16 gleich breite Klassen unterteilt, sodass jede Klasse höchstens etwa sechs Prozent breit
+ * ist. Das Erfassen einer Messung erzeugt keine Objekte und benötigt keine Sperre, damit das Messen die gemessenen Zeiten
+ * nicht selbst verfälscht.
+ */
+public final class LatencyHistogram {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Anzahl an Bits, mit denen eine Zweierpotenz in lineare Klassen unterteilt wird. */
+    private static final int SUB_BUCKET_BITS = 4;
+    /** Die Anzahl an linearen Klassen je Zweierpotenz. */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /** Die Anzahl an Klassen insgesamt, die jeden positiven {@code long} abdeckt. */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Anzahl an Messungen je Klasse. */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    /** Die Anzahl an Messungen insgesamt. */
+    private final AtomicLong totalCount = new AtomicLong();
+    /** Die größte gemessene Zeit. */
+    private final AtomicLong maximum = new AtomicLong();
+    //</editor-fold>
+
+
+    //<editor-fold desc="record">
+
+    /**
+     * Erfasst eine gemessene Zeit. Negative Zeiten werden als {@code 0} erfasst.
+     *
+     * @param value Die gemessene Zeit, beispielsweise in Nanosekunden.
+     */
+    public void record(final long value) {
+        final long clamped = Math.max(0, value);
+        counts.incrementAndGet(indexOf(clamped));
+        totalCount.incrementAndGet();
+
+        long current = maximum.get();
+        while (clamped > current && !maximum.compareAndSet(current, clamped)) {
+            current = maximum.get();
+        }
+    }
+
+    /**
+     * Setzt alle Zähler dieses Histogramms auf {@code 0} zurück. Gleichzeitig erfasste Messungen können dabei verloren
+     * gehen.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        maximum.set(0);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="query">
+
+    /**
+     * Gibt die Anzahl an Messungen zurück.
+     *
+     * @return Die Anzahl an Messungen.
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Gibt die größte gemessene Zeit zurück.
+     *
+     * @return Die größte gemessene Zeit oder {@code 0}, wenn noch nichts gemessen wurde.
+     */
+    public long getMaximum() {
+        return maximum.get();
+    }
+
+    /**
+     * Gibt die Zeit zurück, unter der der übergebene Anteil aller Messungen liegt. Das Ergebnis ist die obere Grenze der
+     * Klasse, in die das Quantil fällt, und höchstens die größte gemessene Zeit.
+     *
+     * @param quantile Der Anteil zwischen {@code 0} und {@code 1}, beispielsweise {@code 0.99} für das 99. Perzentil.
+     *
+     * @return Die Zeit, unter der der übergebene Anteil aller Messungen liegt, oder {@code 0}, wenn nichts gemessen wurde.
+     */
+    public long getValueAtQuantile(final double quantile) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, quantile)) * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maximum.get());
+            }
+        }
+
+        return maximum.get();
+    }
+
+    /**
+     * Fügt alle Messungen des übergebenen Histogramms zu diesem hinzu.
+     *
+     * @param other Das Histogramm, dessen Messungen übernommen werden.
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+
+        final long otherMaximum = other.maximum.get();
+        long current = maximum.get();
+        while (otherMaximum > current && !maximum.compareAndSet(current, otherMaximum)) {
+            current = maximum.get();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="buckets">
+
+    /**
+     * Bestimmt die Klasse, in die eine Zeit fällt.
+     *
+     * @param value Die nicht negative Zeit.
+     *
+     * @return Der Index der Klasse.
+     */
+    private static int indexOf(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Bestimmt die größte Zeit, die noch in die übergebene Klasse fällt.
+     *
+     * @param index Der Index der Klasse.
+     *
+     * @return Die größte Zeit, die noch in die Klasse fällt.
+     */
+    private static long upperBoundOf(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKET_COUNT - 1;
+        final long top = SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+    //</editor-fold>
+}
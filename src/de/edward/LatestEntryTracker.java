@@ -0,0 +1,210 @@
+package de.edward;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ein {@link LatestEntryTracker} merkt sich die Schlüssel der zuletzt geschriebenen Datensätze einer Tabelle, damit die
+ * Frage nach den neuesten Einträgen ohne Anfrage an die Datenbank beantwortet werden kann. Er wird einmalig aus der
+ * Datenbank befüllt und danach von jedem Schreibzugriff dieses Prozesses fortgeschrieben. Schreibzugriffe anderer
+ * Prozesse auf dieselbe Tabelle sieht er nicht.
+ *
+ * @param <K> Der Typ der Schlüssel.
+ */
+public final class LatestEntryTracker<K> {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Anzahl an Einträgen, die höchstens gemerkt werden. */
+    private final int capacity;
+    /** Die gemerkten Einträge, absteigend nach ihrem Zeitstempel sortiert. */
+    private final List<Entry<K>> entries;
+    /** Der neueste Eintrag, damit dieser ohne Sperre gelesen werden kann. */
+    private volatile Entry<K> newest;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link LatestEntryTracker}.
+     *
+     * @param capacity Die Anzahl an Einträgen, die höchstens gemerkt werden.
+     */
+    public LatestEntryTracker(final int capacity) {
+        // check the capacity for validity
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The supplied capacity must be positive!");
+        }
+
+        this.capacity = capacity;
+        this.entries = new ArrayList<>(capacity + 1);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="record">
+
+    /**
+     * Vermerkt, dass der Datensatz mit dem übergebenen Schlüssel zu dem übergebenen Zeitpunkt geschrieben wurde. Ein
+     * bereits gemerkter Eintrag desselben Schlüssels wird dabei ersetzt.
+     *
+     * @param key          Der Schlüssel des geschriebenen Datensatzes.
+     * @param epochMillis  Der Zeitpunkt des Schreibens in Millisekunden seit der Epoche.
+     */
+    public void record(
+            final K key,
+            final long epochMillis
+    ) {
+        synchronized (entries) {
+            // drop an older entry of the same key
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).key.equals(key)) {
+                    if (entries.get(i).epochMillis > epochMillis) {
+                        return;
+                    }
+                    entries.remove(i);
+                    break;
+                }
+            }
+
+            // insert behind all entries that are at least as new
+            int index = 0;
+            while (index < entries.size() && entries.get(index).epochMillis >= epochMillis) {
+                index++;
+            }
+            if (index >= capacity) {
+                return;
+            }
+
+            entries.add(index, new Entry<>(key, epochMillis));
+            if (entries.size() > capacity) {
+                entries.remove(entries.size() - 1);
+            }
+
+            newest = entries.get(0);
+        }
+    }
+
+    /**
+     * Vermerkt, dass der Datensatz mit dem übergebenen Schlüssel gerade eben geschrieben wurde.
+     *
+     * @param key Der Schlüssel des geschriebenen Datensatzes.
+     */
+    public void record(final K key) {
+        record(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Vergisst die Einträge der übergebenen Schlüssel, weil ihre Datensätze gelöscht oder archiviert wurden. Ein
+     * Eintrag, der neuer als der übergebene Zeitpunkt ist, gehört zu einem später geschriebenen Stand und bleibt
+     * erhalten. Die übrigen Einträge bleiben die neuesten der Tabelle, da alle nicht gemerkten älter sind.
+     *
+     * @param keys        Die Schlüssel der gelöschten Datensätze.
+     * @param epochMillis Der neueste Zeitpunkt, den ein gelöschter Stand tragen konnte.
+     */
+    public void remove(
+            final Collection<? extends K> keys,
+            final long epochMillis
+    ) {
+        synchronized (entries) {
+            if (entries.removeIf(entry -> entry.epochMillis <= epochMillis && keys.contains(entry.key))) {
+                newest = entries.isEmpty() ? null : entries.get(0);
+            }
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="query">
+
+    /**
+     * Gibt den neuesten gemerkten Eintrag zurück.
+     *
+     * @return Der neueste gemerkte Eintrag oder {@code null}, wenn noch nichts gemerkt wurde.
+     */
+    public Entry<K> getNewest() {
+        return newest;
+    }
+
+    /**
+     * Gibt die neuesten gemerkten Einträge zurück, absteigend nach ihrem Zeitstempel sortiert.
+     *
+     * @param limit Die Anzahl an Einträgen, die höchstens zurückgegeben werden.
+     *
+     * @return Die neuesten gemerkten Einträge, absteigend nach ihrem Zeitstempel sortiert.
+     */
+    public List<Entry<K>> getNewest(final int limit) {
+        synchronized (entries) {
+            if (entries.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return List.copyOf(entries.subList(0, Math.min(limit, entries.size())));
+        }
+    }
+
+    /**
+     * Gibt die Anzahl an Einträgen zurück, die höchstens gemerkt werden.
+     *
+     * @return Die Anzahl an Einträgen, die höchstens gemerkt werden.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein einzelner gemerkter Eintrag, bestehend aus dem Schlüssel und dem Zeitpunkt seines Schreibens.
+     *
+     * @param <K> Der Typ des Schlüssels.
+     */
+    public static final class Entry<K> {
+
+        /** Der Schlüssel des geschriebenen Datensatzes. */
+        private final K key;
+        /** Der Zeitpunkt des Schreibens in Millisekunden seit der Epoche. */
+        private final long epochMillis;
+
+        /**
+         * Erzeugt einen neuen {@link Entry}.
+         *
+         * @param key         Der Schlüssel des geschriebenen Datensatzes.
+         * @param epochMillis Der Zeitpunkt des Schreibens in Millisekunden seit der Epoche.
+         */
+        public Entry(
+                final K key,
+                final long epochMillis
+        ) {
+            this.key = key;
+            this.epochMillis = epochMillis;
+        }
+
+        /**
+         * Gibt den Schlüssel des geschriebenen Datensatzes zurück.
+         *
+         * @return Der Schlüssel des geschriebenen Datensatzes.
+         */
+        public K getKey() {
+            return key;
+        }
+
+        /**
+         * Gibt den Zeitpunkt des Schreibens in Millisekunden seit der Epoche zurück.
+         *
+         * @return Der Zeitpunkt des Schreibens in Millisekunden seit der Epoche.
+         */
+        public long getEpochMillis() {
+            return epochMillis;
+        }
+
+        @Override
+        public String toString() {
+            return key + "@" + epochMillis;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,195 @@
+package de.edward;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Ein {@link PoolProfile} beschreibt eine Voreinstellung für die Größe und die Wartung des Connection-Pools eines
+ * {@link DatabaseHandler}. Die Pool-Größen werden anhand der Anzahl an verfügbaren Prozessorkernen bestimmt. Jeder Wert
+ * eines Profils kann über die {@link java.util.Properties} des {@link DatabaseHandler} einzeln überschrieben werden.
+ */
+public enum PoolProfile {
+
+    /** Das bisherige, feste Verhalten mit fünf dauerhaft geöffneten Verbindungen. */
+    DEFAULT(
+            cores -> 5,
+            cores -> 5,
+            10 * 60 * 1000,
+            0,
+            0,
+            15 * 60 * 1000,
+            300,
+            300
+    ),
+
+    /** Für kleine Instanzen mit kurzen Transaktionen: wenige Verbindungen im Leerlauf, die bei Bedarf wachsen. */
+    OLTP_SMALL(
+            cores -> 2,
+            cores -> Math.max(4, cores * 2),
+            2 * 60 * 1000,
+            60 * 1000,
+            0,
+            15 * 60 * 1000,
+            100,
+            25
+    ),
+
+    /** Für Massen-Importe: so viele dauerhaft geöffnete Verbindungen wie parallel schreibende Kerne. */
+    BULK_LOAD(
+            cores -> cores + 1,
+            cores -> cores + 1,
+            10 * 60 * 1000,
+            2 * 60 * 1000,
+            5 * 60 * 1000,
+            30 * 60 * 1000,
+            50,
+            10
+    ),
+
+    /** Für viele parallele, kurze Lese-Anfragen: ein großer Pool mit großem Statement-Cache. */
+    READ_HEAVY(
+            cores -> cores,
+            cores -> cores * 4,
+            5 * 60 * 1000,
+            60 * 1000,
+            0,
+            15 * 60 * 1000,
+            500,
+            50
+    );
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Funktion, die aus der Anzahl an Kernen die minimale Anzahl an Verbindungen im Leerlauf bestimmt. */
+    private final IntUnaryOperator minimumIdle;
+    /** Die Funktion, die aus der Anzahl an Kernen die maximale Größe des Pools bestimmt. */
+    private final IntUnaryOperator maximumPoolSize;
+    /** Die Zeit in Millisekunden, nach der eine unbenutzte Verbindung geschlossen werden darf. */
+    private final long idleTimeout;
+    /** Der Abstand in Millisekunden, in dem unbenutzte Verbindungen am Leben gehalten werden, oder {@code 0}. */
+    private final long keepaliveTime;
+    /** Die Zeit in Millisekunden, ab der eine ausgeliehene Verbindung als verloren gemeldet wird, oder {@code 0}. */
+    private final long leakDetectionThreshold;
+    /** Die Zeit in Millisekunden, die eine Verbindung in dem Pool maximal bestehen darf. */
+    private final long maxLifetime;
+    /** Die Anzahl an {@link java.sql.PreparedStatement}, die pro Verbindung gecached werden. */
+    private final int preparedStatementCacheSize;
+    /** Die Anzahl an {@link java.sql.CallableStatement}, die pro Verbindung gecached werden. */
+    private final int callableStatementCacheSize;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt ein neues {@link PoolProfile}.
+     *
+     * @param minimumIdle                Die minimale Anzahl an Verbindungen im Leerlauf abhängig von den Kernen.
+     * @param maximumPoolSize            Die maximale Größe des Pools abhängig von den Kernen.
+     * @param idleTimeout                Die Zeit, nach der eine unbenutzte Verbindung geschlossen werden darf.
+     * @param keepaliveTime              Der Abstand, in dem unbenutzte Verbindungen am Leben gehalten werden.
+     * @param leakDetectionThreshold     Die Zeit, ab der eine ausgeliehene Verbindung als verloren gemeldet wird.
+     * @param maxLifetime                Die Zeit, die eine Verbindung in dem Pool maximal bestehen darf.
+     * @param preparedStatementCacheSize Die Anzahl an gecachten {@link java.sql.PreparedStatement} pro Verbindung.
+     * @param callableStatementCacheSize Die Anzahl an gecachten {@link java.sql.CallableStatement} pro Verbindung.
+     */
+    PoolProfile(
+            final IntUnaryOperator minimumIdle,
+            final IntUnaryOperator maximumPoolSize,
+            final long idleTimeout,
+            final long keepaliveTime,
+            final long leakDetectionThreshold,
+            final long maxLifetime,
+            final int preparedStatementCacheSize,
+            final int callableStatementCacheSize
+    ) {
+        this.minimumIdle = minimumIdle;
+        this.maximumPoolSize = maximumPoolSize;
+        this.idleTimeout = idleTimeout;
+        this.keepaliveTime = keepaliveTime;
+        this.leakDetectionThreshold = leakDetectionThreshold;
+        this.maxLifetime = maxLifetime;
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+        this.callableStatementCacheSize = callableStatementCacheSize;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt die minimale Anzahl an Verbindungen im Leerlauf für die übergebene Anzahl an Kernen zurück.
+     *
+     * @param cores Die Anzahl an verfügbaren Prozessorkernen.
+     *
+     * @return Die minimale Anzahl an Verbindungen im Leerlauf.
+     */
+    public int getMinimumIdle(final int cores) {
+        return Math.min(minimumIdle.applyAsInt(cores), getMaximumPoolSize(cores));
+    }
+
+    /**
+     * Gibt die maximale Größe des Pools für die übergebene Anzahl an Kernen zurück.
+     *
+     * @param cores Die Anzahl an verfügbaren Prozessorkernen.
+     *
+     * @return Die maximale Größe des Pools.
+     */
+    public int getMaximumPoolSize(final int cores) {
+        return Math.max(1, maximumPoolSize.applyAsInt(cores));
+    }
+
+    /**
+     * Gibt die Zeit in Millisekunden zurück, nach der eine unbenutzte Verbindung geschlossen werden darf.
+     *
+     * @return Die Zeit in Millisekunden, nach der eine unbenutzte Verbindung geschlossen werden darf.
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Gibt den Abstand in Millisekunden zurück, in dem unbenutzte Verbindungen am Leben gehalten werden.
+     *
+     * @return Der Abstand in Millisekunden oder {@code 0}, wenn keine Verbindungen am Leben gehalten werden.
+     */
+    public long getKeepaliveTime() {
+        return keepaliveTime;
+    }
+
+    /**
+     * Gibt die Zeit in Millisekunden zurück, ab der eine ausgeliehene Verbindung als verloren gemeldet wird.
+     *
+     * @return Die Zeit in Millisekunden oder {@code 0}, wenn verlorene Verbindungen nicht gemeldet werden.
+     */
+    public long getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    /**
+     * Gibt die Zeit in Millisekunden zurück, die eine Verbindung in dem Pool maximal bestehen darf.
+     *
+     * @return Die Zeit in Millisekunden, die eine Verbindung in dem Pool maximal bestehen darf.
+     */
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    /**
+     * Gibt die Anzahl an {@link java.sql.PreparedStatement} zurück, die pro Verbindung gecached werden.
+     *
+     * @return Die Anzahl an {@link java.sql.PreparedStatement}, die pro Verbindung gecached werden.
+     */
+    public int getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    /**
+     * Gibt die Anzahl an {@link java.sql.CallableStatement} zurück, die pro Verbindung gecached werden.
+     *
+     * @return Die Anzahl an {@link java.sql.CallableStatement}, die pro Verbindung gecached werden.
+     */
+    public int getCallableStatementCacheSize() {
+        return callableStatementCacheSize;
+    }
+    //</editor-fold>
+}
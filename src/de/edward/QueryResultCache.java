@@ -0,0 +1,613 @@
+package de.edward;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ein {@link QueryResultCache} hält die Ergebnisse wiederholter Abfragen eines {@link DatabaseHandler}, geordnet nach
+ * der normalisierten SQL-Abfrage und ihren Parametern. Die Ergebnisse werden als unveränderliche Listen abgelegt und
+ * nach ihrer geschätzten Größe in Bytes begrenzt; reicht der Platz nicht, wird das am längsten nicht genutzte Ergebnis
+ * verdrängt.
+ *
+ * <p>Jedes Ergebnis merkt sich die Tabellen, aus denen seine Abfrage liest. Schreibt der {@link DatabaseHandler} in
+ * eine Tabelle, werden alle Ergebnisse dieser Tabelle verworfen. Eine Abfrage, die vor dem Schreiben begonnen hat und
+ * erst danach endet, wird zwar beantwortet, aber nicht abgelegt.</p>
+ *
+ * <p>Fragen mehrere Threads gleichzeitig dasselbe fehlende Ergebnis an, wird die Abfrage nur einmal gestellt, und alle
+ * übrigen Threads warten auf deren Ergebnis. Läuft ein häufig angefragtes Ergebnis ab, erreicht die Datenbank dadurch
+ * nur eine einzige Abfrage statt einer pro wartendem Thread.</p>
+ */
+public final class QueryResultCache {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die geschätzte Größe eines abgelegten Ergebnisses ohne seine Zeilen in Bytes. */
+    private static final long ENTRY_OVERHEAD = 128;
+    /** Die geschätzte Größe einer Zeile ohne ihre Werte in Bytes. */
+    private static final long ROW_OVERHEAD = 24;
+    /** Die geschätzte Größe eines Wertes, der weder eine Zeichenkette noch ein Byte-Feld ist, in Bytes. */
+    private static final long VALUE_SIZE = 24;
+    /** Das Muster, über das die Tabellen gefunden werden, aus denen eine Abfrage liest. */
+    private static final Pattern READ_TABLES = Pattern.compile(
+            "\\b(?:FROM|JOIN)\\s+`?([A-Za-z_][A-Za-z0-9_]*)",
+            Pattern.CASE_INSENSITIVE
+    );
+    /** Das Muster, über das die Tabelle gefunden wird, in die eine Anweisung schreibt. */
+    private static final Pattern WRITE_TABLE = Pattern.compile(
+            "^(?:INSERT(?:\\s+IGNORE)?\\s+INTO|REPLACE\\s+INTO|UPDATE|DELETE\\s+FROM)\\s+`?([A-Za-z_][A-Za-z0-9_]*)",
+            Pattern.CASE_INSENSITIVE
+    );
+    /** Das Muster, über das aufeinanderfolgende Leerzeichen beim Normalisieren zusammengefasst werden. */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die maximale geschätzte Größe aller Ergebnisse in Bytes. */
+    private final long maximumBytes;
+    /** Die Lebensdauer eines Ergebnisses in Nanosekunden oder {@code 0}, wenn Ergebnisse nicht ablaufen. */
+    private final long ttlNanos;
+    /** Die normalisierte Form jeder bisher angefragten SQL-Abfrage. */
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    /** Die Tabelle jeder bisher geschriebenen SQL-Anweisung oder ein leerer Text, wenn keine erkannt wurde. */
+    private final Map<String, String> writtenTables = new ConcurrentHashMap<>();
+    /** Die Ergebnisse in der Reihenfolge ihres letzten Zugriffs. */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Die Schlüssel der abgelegten Ergebnisse je Tabelle. */
+    private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+    /** Die Anzahl an Schreibzugriffen je Tabelle, über die veraltete Abfragen erkannt werden. */
+    private final Map<String, Long> tableVersions = new HashMap<>();
+    /**
+     * Die Anzahl an Aufrufen von {@link #invalidateAll()}, über die auch Abfragen von Tabellen ohne abgelegte
+     * Ergebnisse als veraltet erkannt werden.
+     */
+    private long epoch;
+    /** Die laufenden Abfragen, auf die gleichzeitige Anfragen desselben Ergebnisses warten. */
+    private final Map<Key, CompletableFuture<List<?>>> inFlight = new ConcurrentHashMap<>();
+    /** Die geschätzte Größe aller abgelegten Ergebnisse in Bytes. */
+    private long bytes;
+    /** Die Anzahl an Anfragen, die aus dem Cache beantwortet wurden. */
+    private final LongAdder hits = new LongAdder();
+    /** Die Anzahl an Anfragen, für die eine Abfrage gestellt wurde. */
+    private final LongAdder misses = new LongAdder();
+    /** Die Anzahl an Anfragen, die auf die Abfrage einer gleichzeitigen Anfrage gewartet haben. */
+    private final LongAdder coalesced = new LongAdder();
+    /** Die Anzahl an Ergebnissen, die wegen Platzmangel verdrängt wurden. */
+    private final LongAdder evictions = new LongAdder();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link QueryResultCache}.
+     *
+     * @param maximumBytes Die maximale geschätzte Größe aller Ergebnisse in Bytes.
+     * @param ttlNanos     Die Lebensdauer eines Ergebnisses in Nanosekunden oder {@code 0}, wenn Ergebnisse nur durch
+     *                     Verdrängung oder Schreibzugriffe ungültig werden.
+     */
+    QueryResultCache(
+            final long maximumBytes,
+            final long ttlNanos
+    ) {
+        // check the limits for validity
+        if (maximumBytes <= 0) {
+            throw new IllegalArgumentException("The supplied maximum size must be positive!");
+        }
+        if (ttlNanos < 0) {
+            throw new IllegalArgumentException("The supplied ttl must not be negative!");
+        }
+
+        this.maximumBytes = maximumBytes;
+        this.ttlNanos = ttlNanos;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="access">
+
+    /**
+     * Gibt das Ergebnis einer Abfrage aus dem Cache zurück oder stellt die Abfrage, wenn es fehlt oder abgelaufen ist.
+     * Läuft dieselbe Abfrage bereits für einen anderen Thread, wird auf deren Ergebnis gewartet.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param loader     Der {@link Loader}, der die Abfrage stellt.
+     * @param <T>        Der Typ der Zeilen.
+     *
+     * @return Die unveränderlichen Zeilen des Ergebnisses.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage fehlschlägt.
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> get(
+            final String sql,
+            final Object[] parameters,
+            final Loader<T> loader
+    ) throws SQLException {
+        final Shape shape = shapes.computeIfAbsent(sql, Shape::new);
+        final Key key = new Key(shape, parameters);
+
+        // answer from memory if the result is still valid
+        final long versions;
+        final long startEpoch;
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            if (entry != null && (ttlNanos == 0 || System.nanoTime() - entry.createdNanos < ttlNanos)) {
+                hits.increment();
+                return (List<T>) entry.rows;
+            }
+            if (entry != null) {
+                remove(key, entry);
+            }
+            versions = versionsOf(shape.tables);
+            startEpoch = epoch;
+        }
+
+        // join a query that is already running for the same key
+        final CompletableFuture<List<?>> flight = new CompletableFuture<>();
+        final CompletableFuture<List<?>> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            return (List<T>) await(running);
+        }
+
+        misses.increment();
+        try {
+            final Loaded<T> loaded = loader.load();
+            final List<T> rows = Collections.unmodifiableList(new ArrayList<>(loaded.rows));
+            synchronized (entries) {
+                // a write to one of the tables or a full invalidation since the start makes the result stale
+                if (epoch == startEpoch && versionsOf(shape.tables) == versions) {
+                    store(key, new Entry(rows, ENTRY_OVERHEAD + loaded.bytes));
+                }
+            }
+            flight.complete(rows);
+            return rows;
+        } catch (final SQLException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Verwirft alle Ergebnisse, die aus der Tabelle lesen, in die die übergebene Anweisung schreibt.
+     *
+     * @param sql Die schreibende SQL-Anweisung.
+     */
+    void invalidateWritten(final String sql) {
+        String table = writtenTables.get(sql);
+        if (table == null) {
+            table = writtenTables.computeIfAbsent(sql, QueryResultCache::writtenTable);
+        }
+        if (!table.isEmpty()) {
+            invalidate(table);
+        }
+    }
+
+    /**
+     * Bestimmt die Tabelle, in die die übergebene Anweisung schreibt.
+     *
+     * @param sql Die schreibende SQL-Anweisung.
+     *
+     * @return Der Name der Tabelle oder ein leerer Text, wenn keine Tabelle erkannt wurde.
+     */
+    private static String writtenTable(final String sql) {
+        final Matcher matcher = WRITE_TABLE.matcher(sql.trim());
+        return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Verwirft alle Ergebnisse, die aus der übergebenen Tabelle lesen. Laufende Abfragen dieser Tabelle werden danach
+     * nicht mehr abgelegt, und neue Anfragen warten nicht mehr auf sie.
+     *
+     * @param table Der Name der Tabelle.
+     */
+    public void invalidate(final String table) {
+        final String normalized = table.toLowerCase(Locale.ROOT);
+        synchronized (entries) {
+            tableVersions.merge(normalized, 1L, Long::sum);
+            final Set<Key> keys = keysByTable.remove(normalized);
+            if (keys != null) {
+                for (final Key key : keys) {
+                    final Entry entry = entries.get(key);
+                    if (entry != null) {
+                        remove(key, entry);
+                    }
+                }
+            }
+        }
+        inFlight.keySet().removeIf(key -> key.shape.tables.contains(normalized));
+    }
+
+    /**
+     * Verwirft alle Ergebnisse. Laufende Abfragen aller Tabellen werden danach nicht mehr abgelegt, auch wenn von ihren
+     * Tabellen noch kein Ergebnis abgelegt war.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            epoch++;
+            entries.clear();
+            keysByTable.clear();
+            bytes = 0;
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Legt ein Ergebnis ab und verdrängt die am längsten nicht genutzten Ergebnisse, bis die Grenze eingehalten wird.
+     * Muss unter der Sperre von {@link #entries} aufgerufen werden.
+     *
+     * @param key   Der Schlüssel des Ergebnisses.
+     * @param entry Das Ergebnis.
+     */
+    private void store(
+            final Key key,
+            final Entry entry
+    ) {
+        // a single result that exceeds the whole cache is not worth evicting everything else
+        if (entry.bytes > maximumBytes) {
+            return;
+        }
+
+        final Entry previous = entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+        entries.put(key, entry);
+        bytes += entry.bytes;
+        for (final String table : key.shape.tables) {
+            keysByTable.computeIfAbsent(table, ignored -> new HashSet<>()).add(key);
+        }
+
+        final Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maximumBytes && eldest.hasNext()) {
+            final Map.Entry<Key, Entry> evicted = eldest.next();
+            eldest.remove();
+            forget(evicted.getKey(), evicted.getValue());
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Entfernt ein Ergebnis. Muss unter der Sperre von {@link #entries} aufgerufen werden.
+     *
+     * @param key   Der Schlüssel des Ergebnisses.
+     * @param entry Das Ergebnis.
+     */
+    private void remove(
+            final Key key,
+            final Entry entry
+    ) {
+        entries.remove(key);
+        forget(key, entry);
+    }
+
+    /**
+     * Entfernt ein bereits aus {@link #entries} entferntes Ergebnis aus der Größe und dem Verzeichnis der Tabellen.
+     * Muss unter der Sperre von {@link #entries} aufgerufen werden.
+     *
+     * @param key   Der Schlüssel des Ergebnisses.
+     * @param entry Das Ergebnis.
+     */
+    private void forget(
+            final Key key,
+            final Entry entry
+    ) {
+        bytes -= entry.bytes;
+        for (final String table : key.shape.tables) {
+            final Set<Key> keys = keysByTable.get(table);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByTable.remove(table);
+            }
+        }
+    }
+
+    /**
+     * Gibt die Summe der Schreibzugriffe auf die übergebenen Tabellen zurück. Da jeder Zähler nur wächst, ändert sich
+     * die Summe genau dann, wenn in eine der Tabellen geschrieben wurde. Muss unter der Sperre von {@link #entries}
+     * aufgerufen werden.
+     *
+     * @param tables Die Tabellen.
+     *
+     * @return Die Summe der Schreibzugriffe.
+     */
+    private long versionsOf(final Set<String> tables) {
+        long versions = 0;
+        for (final String table : tables) {
+            versions += tableVersions.getOrDefault(table, 0L);
+        }
+        return versions;
+    }
+
+    /**
+     * Wartet auf die Abfrage einer gleichzeitigen Anfrage und gibt deren Fehlermeldung unverändert weiter.
+     *
+     * @param running Die laufende Abfrage.
+     *
+     * @return Die Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, mit der die Abfrage fehlgeschlagen ist.
+     */
+    private static List<?> await(final CompletableFuture<List<?>> running) throws SQLException {
+        try {
+            return running.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Schätzt die Größe der aktuellen Zeile eines {@link ResultSet} in Bytes anhand ihrer Werte.
+     *
+     * @param rs      Der {@link ResultSet}, dessen aktuelle Zeile geschätzt wird.
+     * @param columns Die Anzahl an Spalten.
+     *
+     * @return Die geschätzte Größe der Zeile in Bytes.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn eine Spalte nicht gelesen werden kann.
+     */
+    static long estimateRow(
+            final ResultSet rs,
+            final int columns
+    ) throws SQLException {
+        long size = ROW_OVERHEAD;
+        for (int i = 1; i <= columns; i++) {
+            final Object value = rs.getObject(i);
+            if (value instanceof String) {
+                size += 40 + 2L * ((String) value).length();
+            } else if (value instanceof byte[]) {
+                size += 16 + ((byte[]) value).length;
+            } else if (value != null) {
+                size += VALUE_SIZE;
+            }
+        }
+        return size;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="statistics">
+
+    /**
+     * Gibt die Anzahl an Anfragen zurück, die aus dem Cache beantwortet wurden.
+     *
+     * @return Die Anzahl an Anfragen, die aus dem Cache beantwortet wurden.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gibt die Anzahl an Anfragen zurück, für die eine Abfrage gestellt wurde.
+     *
+     * @return Die Anzahl an Anfragen, für die eine Abfrage gestellt wurde.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gibt die Anzahl an Anfragen zurück, die keine eigene Abfrage gestellt, sondern auf die einer gleichzeitigen
+     * Anfrage gewartet haben.
+     *
+     * @return Die Anzahl an zusammengefassten Anfragen.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Gibt die Anzahl an Ergebnissen zurück, die wegen Platzmangel verdrängt wurden.
+     *
+     * @return Die Anzahl an verdrängten Ergebnissen.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gibt die geschätzte Größe aller abgelegten Ergebnisse in Bytes zurück.
+     *
+     * @return Die geschätzte Größe aller Ergebnisse in Bytes.
+     */
+    public long getBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Gibt die aktuelle Anzahl an abgelegten Ergebnissen zurück.
+     *
+     * @return Die aktuelle Anzahl an Ergebnissen.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein {@link Loader} stellt eine Abfrage, deren Ergebnis im Cache fehlt.
+     *
+     * @param <T> Der Typ der Zeilen.
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+
+        /**
+         * Stellt die Abfrage.
+         *
+         * @return Die Zeilen der Abfrage mit ihrer geschätzten Größe.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage fehlschlägt.
+         */
+        Loaded<T> load() throws SQLException;
+    }
+
+    /**
+     * Die Zeilen einer Abfrage mit ihrer geschätzten Größe.
+     *
+     * @param <T> Der Typ der Zeilen.
+     */
+    static final class Loaded<T> {
+
+        /** Die Zeilen der Abfrage. */
+        private final List<T> rows;
+        /** Die geschätzte Größe der Zeilen in Bytes. */
+        private final long bytes;
+
+        /**
+         * Gibt die Zeilen der Abfrage zurück.
+         *
+         * @return Die Zeilen der Abfrage.
+         */
+        List<T> getRows() {
+            return rows;
+        }
+
+        /**
+         * Erzeugt ein neues {@link Loaded}.
+         *
+         * @param rows  Die Zeilen der Abfrage.
+         * @param bytes Die geschätzte Größe der Zeilen in Bytes.
+         */
+        Loaded(
+                final List<T> rows,
+                final long bytes
+        ) {
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Die normalisierte Form einer SQL-Abfrage mit den Tabellen, aus denen sie liest.
+     */
+    private static final class Shape {
+
+        /** Die SQL-Abfrage mit zusammengefassten Leerzeichen und ohne abschließendes Semikolon. */
+        private final String sql;
+        /** Die Namen der Tabellen in Kleinbuchstaben, aus denen die Abfrage liest. */
+        private final Set<String> tables;
+
+        /**
+         * Erzeugt die normalisierte Form einer SQL-Abfrage.
+         *
+         * @param sql Die SQL-Abfrage, so wie sie übergeben wurde.
+         */
+        private Shape(final String sql) {
+            String normalized = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+            if (normalized.endsWith(";")) {
+                normalized = normalized.substring(0, normalized.length() - 1).trim();
+            }
+            this.sql = normalized;
+
+            final Set<String> found = new HashSet<>();
+            final Matcher matcher = READ_TABLES.matcher(normalized);
+            while (matcher.find()) {
+                found.add(matcher.group(1).toLowerCase(Locale.ROOT));
+            }
+            this.tables = Set.copyOf(found);
+        }
+    }
+
+    /**
+     * Der Schlüssel eines Ergebnisses aus normalisierter Abfrage und Parametern.
+     */
+    private static final class Key {
+
+        /** Die normalisierte Form der Abfrage. */
+        private final Shape shape;
+        /** Die Werte der Parameter in ihrer Reihenfolge. */
+        private final List<Object> parameters;
+
+        /**
+         * Erzeugt einen neuen {@link Key}.
+         *
+         * @param shape      Die normalisierte Form der Abfrage.
+         * @param parameters Die Werte der Parameter in ihrer Reihenfolge.
+         */
+        private Key(
+                final Shape shape,
+                final Object[] parameters
+        ) {
+            this.shape = shape;
+            this.parameters = Arrays.asList(parameters.clone());
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return shape.sql.equals(key.shape.sql) && parameters.equals(key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * shape.sql.hashCode() + parameters.hashCode();
+        }
+    }
+
+    /**
+     * Ein abgelegtes Ergebnis.
+     */
+    private static final class Entry {
+
+        /** Die unveränderlichen Zeilen des Ergebnisses. */
+        private final List<?> rows;
+        /** Die geschätzte Größe des Ergebnisses in Bytes. */
+        private final long bytes;
+        /** Der Zeitpunkt, zu dem das Ergebnis abgelegt wurde, in Nanosekunden. */
+        private final long createdNanos = System.nanoTime();
+
+        /**
+         * Erzeugt ein neues {@link Entry}.
+         *
+         * @param rows  Die unveränderlichen Zeilen des Ergebnisses.
+         * @param bytes Die geschätzte Größe des Ergebnisses in Bytes.
+         */
+        private Entry(
+                final List<?> rows,
+                final long bytes
+        ) {
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+    //</editor-fold>
+}
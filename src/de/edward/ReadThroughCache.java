@@ -0,0 +1,416 @@
+package de.edward;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ein {@link ReadThroughCache} hält die zuletzt gelesenen Datensätze im Speicher und lädt fehlende Datensätze über
+ * einen {@link Loader} nach. Die Anzahl an Einträgen ist begrenzt; ist der Cache voll, wird der am längsten nicht
+ * genutzte Eintrag verdrängt (LRU). Optional verfallen Einträge nach einer festen Lebensdauer. Auch nicht vorhandene
+ * Datensätze werden gemerkt, damit wiederholte Fehlanfragen nicht jedes Mal die Datenbank erreichen.
+ *
+ * <p>Die Einträge sind nach dem Hash ihres Schlüssels auf mehrere Segmente mit eigener Sperre verteilt, sodass sich
+ * gleichzeitige Zugriffe auf verschiedene Schlüssel kaum behindern. Die Verdrängung erfolgt je Segment. Ein
+ * Ladevorgang legt sein Ergebnis nur ab, wenn derselbe Schlüssel währenddessen nicht geschrieben wurde; Schreibzugriffe
+ * auf andere Schlüssel verwerfen ihn nicht.</p>
+ *
+ * @param <K> Der Typ des Schlüssels.
+ * @param <V> Der Typ der Datensätze.
+ */
+public final class ReadThroughCache<K, V> {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Der Platzhalter, mit dem ein nicht vorhandener Datensatz im Cache gemerkt wird. */
+    private static final Object ABSENT = new Object();
+    /** Die größte Anzahl an Segmenten, auf die die Einträge verteilt werden. Muss eine Zweierpotenz sein. */
+    private static final int MAX_SEGMENTS = 16;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Segmente, auf die die Einträge nach dem Hash ihres Schlüssels verteilt werden. */
+    private final Segment<K>[] segments;
+    /** Die maximale Anzahl an Einträgen. */
+    private final int maximumSize;
+    /** Die Lebensdauer eines Eintrags in Nanosekunden oder {@code 0}, wenn Einträge nicht verfallen. */
+    private final long ttlNanos;
+    /** Der {@link Loader}, mit dem fehlende Datensätze nachgeladen werden. */
+    private final Loader<K, V> loader;
+    /** Die Anzahl an Anfragen, die aus dem Cache beantwortet wurden. */
+    private final LongAdder hits = new LongAdder();
+    /** Die Anzahl an Anfragen, für die nachgeladen werden musste. */
+    private final LongAdder misses = new LongAdder();
+    /** Die Anzahl an Einträgen, die wegen Platzmangel oder Ablauf verdrängt wurden. */
+    private final LongAdder evictions = new LongAdder();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link ReadThroughCache}.
+     *
+     * @param maximumSize Die maximale Anzahl an Einträgen.
+     * @param ttl         Die Lebensdauer eines Eintrags oder {@link Duration#ZERO}, wenn Einträge nicht verfallen.
+     * @param loader      Der {@link Loader}, mit dem fehlende Datensätze nachgeladen werden.
+     */
+    @SuppressWarnings("unchecked")
+    public ReadThroughCache(
+            final int maximumSize,
+            final Duration ttl,
+            final Loader<K, V> loader
+    ) {
+        // check the limits for validity
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The supplied maximum size must be positive!");
+        }
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("The supplied time to live must not be negative!");
+        }
+
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.loader = loader;
+
+        // every segment holds at least one entry, and together they hold exactly the maximum size
+        final int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maximumSize));
+        this.segments = (Segment<K>[]) new Segment<?>[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="access">
+
+    /**
+     * Gibt den Datensatz zu dem übergebenen Schlüssel zurück. Ist er nicht im Cache, wird er über den {@link Loader}
+     * nachgeladen und anschließend im Cache abgelegt, sofern der Schlüssel währenddessen nicht geschrieben wurde.
+     *
+     * @param key Der Schlüssel des Datensatzes.
+     *
+     * @return Der Datensatz zu dem Schlüssel oder ein leeres {@link Optional}, wenn es keinen gibt.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht geladen werden konnte.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<V> get(final K key) throws SQLException {
+        final Segment<K> segment = segmentOf(key);
+        final Load load;
+
+        synchronized (segment) {
+            final Entry entry = segment.entries.get(key);
+            if (entry != null) {
+                if (ttlNanos == 0 || System.nanoTime() - entry.createdNanos < ttlNanos) {
+                    hits.increment();
+                    return entry.value == ABSENT ? Optional.empty() : Optional.of((V) entry.value);
+                }
+
+                // the entry has expired
+                segment.entries.remove(key);
+                evictions.increment();
+            }
+
+            // join the loads of the same key that are still running, so that a write marks all of them stale, but
+            // start a new one after a write, as the result of a load that began afterwards may be remembered
+            load = segment.loads.compute(key, (ignored, running) -> running == null || running.stale
+                    ? new Load()
+                    : running);
+            load.loaders++;
+        }
+
+        misses.increment();
+        V loaded = null;
+        boolean success = false;
+        try {
+            loaded = loader.load(key);
+            success = true;
+        } finally {
+            synchronized (segment) {
+                // only remember the result if the key was not written while loading
+                if (success && !load.stale) {
+                    store(segment, key, loaded);
+                }
+                if (--load.loaders == 0) {
+                    segment.loads.remove(key, load);
+                }
+            }
+        }
+
+        return Optional.ofNullable(loaded);
+    }
+
+    /**
+     * Legt den übergebenen Datensatz im Cache ab. Laufende Ladevorgänge desselben Schlüssels legen ihr Ergebnis danach
+     * nicht mehr ab.
+     *
+     * @param key   Der Schlüssel des Datensatzes.
+     * @param value Der Datensatz.
+     *
+     * @return Der Datensatz, der bisher zu dem Schlüssel im Cache lag, oder {@code null}, wenn keiner bekannt war.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(
+            final K key,
+            final V value
+    ) {
+        final Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.written(key);
+            final Entry previous = segment.entries.get(key);
+            store(segment, key, value);
+            return previous == null || previous.value == ABSENT ? null : (V) previous.value;
+        }
+    }
+
+    /**
+     * Legt den übergebenen Datensatz im Cache ab, sofern zu dem Schlüssel weder ein Eintrag existiert noch gerade
+     * geladen wird. Damit lässt sich der Cache vorwärmen, ohne einen neueren Stand zu überschreiben.
+     *
+     * @param key   Der Schlüssel des Datensatzes.
+     * @param value Der Datensatz.
+     *
+     * @return Ob der Datensatz abgelegt wurde.
+     */
+    public boolean putIfAbsent(
+            final K key,
+            final V value
+    ) {
+        final Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            if (segment.entries.containsKey(key) || segment.loads.containsKey(key)) {
+                return false;
+            }
+            store(segment, key, value);
+            return true;
+        }
+    }
+
+    /**
+     * Entfernt den Datensatz zu dem übergebenen Schlüssel aus dem Cache, sodass er beim nächsten Zugriff erneut geladen
+     * wird. Laufende Ladevorgänge desselben Schlüssels legen ihr Ergebnis danach nicht mehr ab.
+     *
+     * @param key Der Schlüssel des Datensatzes.
+     *
+     * @return Der Datensatz, der bisher zu dem Schlüssel im Cache lag, oder {@code null}, wenn keiner bekannt war.
+     */
+    @SuppressWarnings("unchecked")
+    public V invalidate(final K key) {
+        final Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.written(key);
+            final Entry previous = segment.entries.remove(key);
+            return previous == null || previous.value == ABSENT ? null : (V) previous.value;
+        }
+    }
+
+    /**
+     * Entfernt alle Datensätze aus dem Cache. Alle laufenden Ladevorgänge legen ihr Ergebnis danach nicht mehr ab.
+     */
+    public void invalidateAll() {
+        for (final Segment<K> segment : segments) {
+            synchronized (segment) {
+                for (final Load load : segment.loads.values()) {
+                    load.stale = true;
+                }
+                segment.entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Gibt das Segment zurück, in dem der übergebene Schlüssel liegt.
+     *
+     * @param key Der Schlüssel.
+     *
+     * @return Das Segment des Schlüssels.
+     */
+    private Segment<K> segmentOf(final K key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * Legt einen Eintrag in einem Segment ab und verdrängt gegebenenfalls den am längsten nicht genutzten Eintrag des
+     * Segments. Muss unter der Sperre des Segments aufgerufen werden.
+     *
+     * @param segment Das Segment des Schlüssels.
+     * @param key     Der Schlüssel des Datensatzes.
+     * @param value   Der Datensatz oder {@code null}, wenn es keinen gibt.
+     */
+    private void store(
+            final Segment<K> segment,
+            final K key,
+            final V value
+    ) {
+        segment.entries.put(key, new Entry(value == null ? ABSENT : value, System.nanoTime()));
+
+        if (segment.entries.size() > segment.capacity) {
+            final Map.Entry<K, Entry> eldest = segment.entries.entrySet().iterator().next();
+            segment.entries.remove(eldest.getKey());
+            evictions.increment();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="statistics">
+
+    /**
+     * Gibt die Anzahl an Anfragen zurück, die aus dem Cache beantwortet wurden.
+     *
+     * @return Die Anzahl an Anfragen, die aus dem Cache beantwortet wurden.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gibt die Anzahl an Anfragen zurück, für die nachgeladen werden musste.
+     *
+     * @return Die Anzahl an Anfragen, für die nachgeladen werden musste.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gibt die Anzahl an Einträgen zurück, die wegen Platzmangel oder Ablauf verdrängt wurden.
+     *
+     * @return Die Anzahl an Einträgen, die wegen Platzmangel oder Ablauf verdrängt wurden.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gibt die aktuelle Anzahl an Einträgen im Cache zurück.
+     *
+     * @return Die aktuelle Anzahl an Einträgen im Cache.
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment<K> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gibt die maximale Anzahl an Einträgen zurück, die der Cache hält, bevor er verdrängt.
+     *
+     * @return Die maximale Anzahl an Einträgen.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein {@link Loader} lädt einen einzelnen Datensatz, wenn er nicht im Cache liegt.
+     *
+     * @param <K> Der Typ des Schlüssels.
+     * @param <V> Der Typ der Datensätze.
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+
+        /**
+         * Lädt den Datensatz zu dem übergebenen Schlüssel.
+         *
+         * @param key Der Schlüssel des Datensatzes.
+         *
+         * @return Der Datensatz oder {@code null}, wenn es keinen gibt.
+         *
+         * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht geladen werden konnte.
+         */
+        V load(K key) throws SQLException;
+    }
+
+    /**
+     * Ein Segment des Caches mit eigener Sperre, das die Einträge eines Teils der Schlüssel in der Reihenfolge ihres
+     * letzten Zugriffs hält.
+     *
+     * @param <K> Der Typ des Schlüssels.
+     */
+    private static final class Segment<K> {
+
+        /** Die Einträge in der Reihenfolge ihres letzten Zugriffs, vom ältesten zum jüngsten. */
+        private final LinkedHashMap<K, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        /** Die laufenden Ladevorgänge je Schlüssel. */
+        private final Map<K, Load> loads = new HashMap<>();
+        /** Die maximale Anzahl an Einträgen in diesem Segment. */
+        private final int capacity;
+
+        /**
+         * Erzeugt ein neues, leeres {@link Segment}.
+         *
+         * @param capacity Die maximale Anzahl an Einträgen in diesem Segment.
+         */
+        private Segment(final int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Vermerkt einen Schreibzugriff auf einen Schlüssel, sodass laufende Ladevorgänge ihr Ergebnis verwerfen. Muss
+         * unter der Sperre des Segments aufgerufen werden.
+         *
+         * @param key Der Schlüssel, der geschrieben wurde.
+         */
+        private void written(final K key) {
+            final Load load = loads.get(key);
+            if (load != null) {
+                load.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Die laufenden Ladevorgänge eines Schlüssels. Sie werden nur unter der Sperre ihres Segments gelesen und
+     * verändert.
+     */
+    private static final class Load {
+
+        /** Die Anzahl an Threads, die den Schlüssel gerade laden. */
+        private int loaders;
+        /** Ob der Schlüssel seit dem Beginn der Ladevorgänge geschrieben wurde. */
+        private boolean stale;
+    }
+
+    /**
+     * Ein einzelner Eintrag des Caches zusammen mit dem Zeitpunkt, zu dem er abgelegt wurde.
+     */
+    private static final class Entry {
+
+        /** Der Datensatz oder {@link #ABSENT}, wenn es keinen gibt. */
+        private final Object value;
+        /** Der Zeitpunkt in Nanosekunden, zu dem der Eintrag abgelegt wurde. */
+        private final long createdNanos;
+
+        /**
+         * Erzeugt einen neuen {@link Entry}.
+         *
+         * @param value        Der Datensatz oder {@link #ABSENT}, wenn es keinen gibt.
+         * @param createdNanos Der Zeitpunkt in Nanosekunden, zu dem der Eintrag abgelegt wurde.
+         */
+        private Entry(
+                final Object value,
+                final long createdNanos
+        ) {
+            this.value = value;
+            this.createdNanos = createdNanos;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,195 @@
+package de.edward;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Der {@link ReplicaRouter} verteilt lesende Zugriffe eines {@link DatabaseHandler} auf die Connection-Pools seiner
+ * Replikate. Gewählt wird jeweils das gesunde Replikat mit den wenigsten ausgeliehenen und angefragten Verbindungen.
+ * Ein Replikat, das keine Verbindung liefern konnte, wird bis zur nächsten erfolgreichen Prüfung übergangen; ist kein
+ * Replikat gesund, wird vom Primärserver gelesen.
+ *
+ * <p>Optional liest ein Thread für eine kurze Zeit nach seinem letzten Schreibzugriff vom Primärserver, damit er seine
+ * eigenen Änderungen sieht, auch wenn die Replikate noch nicht aufgeholt haben.</p>
+ */
+final class ReplicaRouter implements Runnable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Zeit in Sekunden, die eine Verbindung bei der Prüfung eines Replikats höchstens für ihre Antwort hat. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Replikate, auf die verteilt wird. */
+    private final List<Replica> replicas;
+    /** Die Zeit in Nanosekunden, die ein Thread nach einem Schreibzugriff vom Primärserver liest, oder {@code 0}. */
+    private final long readYourWritesNanos;
+    /** Der Zeitpunkt des letzten Schreibzugriffs des aktuellen Threads in Nanosekunden. */
+    private final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[]{Long.MIN_VALUE});
+    /** Der Zähler, mit dem bei gleicher Auslastung reihum ein anderes Replikat zuerst geprüft wird. */
+    private final AtomicInteger rotation = new AtomicInteger();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link ReplicaRouter}, der alle Replikate zunächst als gesund ansieht.
+     *
+     * @param dataSources         Die Connection-Pools der Replikate.
+     * @param readYourWritesNanos Die Zeit in Nanosekunden, die ein Thread nach einem Schreibzugriff vom Primärserver
+     *                            liest, oder {@code 0}, wenn immer von den Replikaten gelesen wird.
+     */
+    ReplicaRouter(
+            final List<HikariDataSource> dataSources,
+            final long readYourWritesNanos
+    ) {
+        final List<Replica> created = new ArrayList<>(dataSources.size());
+        for (final HikariDataSource dataSource : dataSources) {
+            created.add(new Replica(dataSource));
+        }
+        this.replicas = List.copyOf(created);
+        this.readYourWritesNanos = readYourWritesNanos;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="routing">
+
+    /**
+     * Vermerkt einen Schreibzugriff des aktuellen Threads, damit seine folgenden Lesezugriffe vom Primärserver
+     * beantwortet werden.
+     */
+    void recordWrite() {
+        if (readYourWritesNanos > 0) {
+            lastWrite.get()[0] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Leiht eine Verbindung von dem gesunden Replikat mit der geringsten Auslastung.
+     *
+     * @return Eine Verbindung zu einem Replikat oder {@code null}, wenn vom Primärserver gelesen werden soll.
+     */
+    Connection getReadConnection() {
+        // read your own writes from the primary
+        if (readYourWritesNanos > 0 && System.nanoTime() - lastWrite.get()[0] < readYourWritesNanos) {
+            return null;
+        }
+
+        // try the replicas from the least to the most loaded one
+        final int size = replicas.size();
+        final int offset = Math.floorMod(rotation.getAndIncrement(), size);
+        for (int attempt = 0; attempt < size; attempt++) {
+            Replica best = null;
+            int bestLoad = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                final Replica replica = replicas.get((offset + i) % size);
+                if (!replica.healthy) {
+                    continue;
+                }
+                final int load = replica.load();
+                if (load < bestLoad) {
+                    best = replica;
+                    bestLoad = load;
+                }
+            }
+
+            if (best == null) {
+                return null;
+            }
+            try {
+                return best.dataSource.getConnection();
+            } catch (final SQLException e) {
+                // skip this replica until the next successful health check
+                best.healthy = false;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gibt die Anzahl an Replikaten zurück, die gerade als gesund gelten.
+     *
+     * @return Die Anzahl an gesunden Replikaten.
+     */
+    int getHealthyReplicas() {
+        int healthy = 0;
+        for (final Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="health">
+
+    /**
+     * Prüft jedes Replikat mit einer Verbindung aus seinem Pool und nimmt Replikate, die wieder antworten, erneut in die
+     * Verteilung auf.
+     */
+    @Override
+    public void run() {
+        for (final Replica replica : replicas) {
+            try (final Connection conn = replica.dataSource.getConnection()) {
+                replica.healthy = conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (final SQLException e) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    /**
+     * Schließt die Connection-Pools aller Replikate.
+     */
+    void close() {
+        for (final Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein einzelnes Replikat mit seinem Connection-Pool und seinem Zustand.
+     */
+    private static final class Replica {
+
+        /** Der Connection-Pool des Replikats. */
+        private final HikariDataSource dataSource;
+        /** Ob das Replikat bei der letzten Prüfung oder Anfrage erreichbar war. */
+        private volatile boolean healthy = true;
+
+        /**
+         * Erzeugt ein neues {@link Replica}.
+         *
+         * @param dataSource Der Connection-Pool des Replikats.
+         */
+        private Replica(final HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Gibt die Anzahl an ausgeliehenen und angefragten Verbindungen dieses Replikats zurück.
+         *
+         * @return Die Anzahl an ausstehenden Anfragen an dieses Replikat.
+         */
+        private int load() {
+            final HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+        }
+    }
+    //</editor-fold>
+}
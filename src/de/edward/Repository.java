@@ -0,0 +1,779 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+/**
+ * Ein {@link Repository} bündelt den lesenden und schreibenden Zugriff auf eine Tabelle, die durch einen
+ * {@link EntityDescriptor} beschrieben wird. Jede Tabelle erhält dadurch dieselben schnellen Wege: einzelne, gesammelte,
+ * asynchrone und nachgelagerte Schreibzugriffe, einen optionalen {@link ReadThroughCache} für das Nachschlagen über den
+ * Schlüssel, das Lesen als {@link Stream} sowie einen {@link LatestEntryTracker} für die zuletzt geschriebenen
+ * Schlüssel.
+ *
+ * <p>Jeder Schreibzugriff über dieses Repository verwirft die geschriebenen Schlüssel im Cache, aktualisiert den
+ * {@link LatestEntryTracker} direkt und benachrichtigt anschließend alle registrierten {@link WriteListener} sowie
+ * einen optionalen {@link ChangeFeed}. Der Cache wird nicht mit dem geschriebenen Stand gefüllt, da gleichzeitige
+ * Schreibzugriffe auf denselben Schlüssel in anderer Reihenfolge bestätigt werden können, als sie hier eintreffen.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class Repository<K, T> implements AutoCloseable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Anzahl an zuletzt geschriebenen Schlüsseln, die im Speicher gemerkt werden. */
+    public static final int LATEST_ENTRIES_SIZE = 16;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der {@link DatabaseHandler}, über den auf die Datenbank zugegriffen wird. */
+    private final DatabaseHandler databaseHandler;
+    /** Der {@link EntityDescriptor}, der die Tabelle beschreibt. */
+    private final EntityDescriptor<K, T> descriptor;
+    /** Der {@link ReadThroughCache}, in dem die gelesenen Datensätze gehalten werden, oder {@code null}. */
+    private final ReadThroughCache<K, T> cache;
+    /** Der {@link LatestEntryTracker}, der die zuletzt geschriebenen Schlüssel im Speicher hält. */
+    private final LatestEntryTracker<K> latestEntries = new LatestEntryTracker<>(LATEST_ENTRIES_SIZE);
+    /** Die {@link WriteListener}, die nach jedem Schreibzugriff benachrichtigt werden. */
+    private final List<WriteListener<? super K, ? super T>> listeners = new CopyOnWriteArrayList<>();
+    /** Der {@link AsyncUpsertWriter} für das nachgelagerte Schreiben oder {@code null}, wenn es nicht genutzt wird. */
+    private volatile AsyncUpsertWriter<K, T> writer;
+    /** Der {@link ChangeFeed}, der jeden Schreibzugriff veröffentlicht, oder {@code null}, wenn er nicht genutzt wird. */
+    private volatile ChangeFeed<K, T> changeFeed;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt ein neues {@link Repository} ohne Cache.
+     *
+     * @param databaseHandler Der {@link DatabaseHandler}, über den auf die Datenbank zugegriffen wird.
+     * @param descriptor      Der {@link EntityDescriptor}, der die Tabelle beschreibt.
+     */
+    public Repository(
+            final DatabaseHandler databaseHandler,
+            final EntityDescriptor<K, T> descriptor
+    ) {
+        this(databaseHandler, descriptor, 0, Duration.ZERO);
+    }
+
+    /**
+     * Erzeugt ein neues {@link Repository} mit einem leeren Cache.
+     *
+     * @param databaseHandler Der {@link DatabaseHandler}, über den auf die Datenbank zugegriffen wird.
+     * @param descriptor      Der {@link EntityDescriptor}, der die Tabelle beschreibt.
+     * @param cacheSize       Die maximale Anzahl an Datensätzen, die im Cache gehalten werden, oder {@code 0}, wenn
+     *                        kein Cache genutzt wird.
+     * @param cacheTtl        Die Lebensdauer eines Datensatzes im Cache oder {@link Duration#ZERO}, wenn Datensätze nur
+     *                        durch Verdrängung oder Schreibzugriffe ungültig werden.
+     */
+    public Repository(
+            final DatabaseHandler databaseHandler,
+            final EntityDescriptor<K, T> descriptor,
+            final int cacheSize,
+            final Duration cacheTtl
+    ) {
+        // check the cache size for validity
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The supplied cache size must not be negative!");
+        }
+
+        this.databaseHandler = databaseHandler;
+        this.descriptor = descriptor;
+        this.cache = cacheSize == 0 ? null : new ReadThroughCache<>(cacheSize, cacheTtl, this::load);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="schema">
+
+    /**
+     * Legt die Tabelle samt Index auf dem Zeitstempel an, sofern sie noch nicht existiert.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht angelegt werden konnte.
+     */
+    public void createTable() throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection()) {
+            try (final PreparedStatement stmt = conn.prepareStatement(descriptor.getCreateTableSql())) {
+                stmt.executeUpdate();
+            }
+
+            // index the timestamp so that the newest entries can be read without sorting the whole table
+            try (final PreparedStatement stmt = conn.prepareStatement(descriptor.getCreateIndexSql())) {
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Legt die Tabelle wie {@link #createTable()} an, sendet die DDL-Anweisungen aber nur, wenn der
+     * {@link SchemaCache} sie seit dem letzten Start nicht schon gesendet hat.
+     *
+     * @param schemaCache Der {@link SchemaCache}, in dem die gesendeten DDL-Anweisungen vermerkt werden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht angelegt werden konnte.
+     */
+    public void createTable(final SchemaCache schemaCache) throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection()) {
+            schemaCache.ensure(
+                    conn,
+                    descriptor.getTable(),
+                    descriptor.getCreateTableSql(),
+                    descriptor.getCreateIndexSql()
+            );
+        }
+    }
+
+    /**
+     * Lädt die Schlüssel der zuletzt geschriebenen Datensätze aus der Datenbank in den {@link LatestEntryTracker}.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Schlüssel nicht gelesen werden konnten.
+     */
+    public void loadLatestEntries() throws SQLException {
+        for (final LatestEntryTracker.Entry<K> entry : queryNewest(LATEST_ENTRIES_SIZE)) {
+            latestEntries.record(entry.getKey(), entry.getEpochMillis());
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="read">
+
+    /**
+     * Gibt den Datensatz zu dem übergebenen Schlüssel zurück. Liegt er im Cache, wird die Datenbank nicht angefragt.
+     *
+     * @param key Der Schlüssel, dessen Datensatz gesucht wird.
+     *
+     * @return Der Datensatz zu dem Schlüssel oder ein leeres {@link Optional}, wenn es keinen gibt.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht gelesen werden konnte.
+     */
+    public Optional<T> find(final K key) throws SQLException {
+        if (cache != null) {
+            return cache.get(key);
+        }
+        return Optional.ofNullable(load(key));
+    }
+
+    /**
+     * Liest den Datensatz zu dem übergebenen Schlüssel asynchron direkt aus der Datenbank, ohne den Cache zu befragen.
+     *
+     * @param key Der Schlüssel, dessen Datensatz gelesen wird.
+     *
+     * @return Ein {@link CompletableFuture}, der mit dem Datensatz oder einem leeren {@link Optional} abgeschlossen wird.
+     */
+    public CompletableFuture<Optional<T>> findAsync(final K key) {
+        return databaseHandler.submit(conn -> Optional.ofNullable(load(conn, key)));
+    }
+
+    /**
+     * Gibt alle Datensätze der Tabelle als {@link Stream} zurück, ohne sie gleichzeitig im Speicher zu halten. Die
+     * Datensätze werden nicht in den Cache übernommen. Der {@link Stream} muss geschlossen werden, um seine Verbindung
+     * freizugeben.
+     *
+     * @return Ein {@link Stream} über alle Datensätze der Tabelle.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    public Stream<T> streamAll() throws SQLException {
+        return databaseHandler.stream(descriptor.getSelectAllSql(), descriptor.getMapper());
+    }
+
+    /**
+     * Gibt alle Datensätze, die in dem halboffenen Zeitraum zuletzt geschrieben wurden, nach ihrem Zeitstempel sortiert
+     * als {@link Stream} zurück. Die Abfrage nutzt den Index auf dem Zeitstempel.
+     *
+     * @param from Der Beginn des Zeitraums (einschließlich).
+     * @param to   Das Ende des Zeitraums (ausschließlich).
+     *
+     * @return Ein {@link Stream} über die Datensätze des Zeitraums.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    public Stream<T> streamRange(
+            final Instant from,
+            final Instant to
+    ) throws SQLException {
+        return databaseHandler.stream(
+                descriptor.getSelectRangeSql(),
+                descriptor.getMapper(),
+                Timestamp.from(from),
+                Timestamp.from(to)
+        );
+    }
+
+    /**
+     * Gibt alle Datensätze der Tabelle als {@link Flow.Publisher} heraus, der nur so viele Zeilen liest, wie seine
+     * Subscriber angefordert haben.
+     *
+     * @return Ein {@link Flow.Publisher} über alle Datensätze der Tabelle.
+     */
+    public Flow.Publisher<T> publishAll() {
+        return databaseHandler.publish(descriptor.getSelectAllSql(), descriptor.getMapper());
+    }
+
+    /**
+     * Gibt den Schlüssel des zuletzt geschriebenen Datensatzes zurück. Wurde bereits ein Schreibzugriff beobachtet,
+     * wird die Datenbank nicht angefragt.
+     *
+     * @return Der Schlüssel des zuletzt geschriebenen Datensatzes oder ein leeres {@link Optional}, wenn die Tabelle
+     *     leer ist.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Schlüssel nicht gelesen werden konnte.
+     */
+    public Optional<K> newestKey() throws SQLException {
+        // answer from memory if a write has been seen
+        final LatestEntryTracker.Entry<K> newest = latestEntries.getNewest();
+        if (newest != null) {
+            return Optional.of(newest.getKey());
+        }
+
+        final List<LatestEntryTracker.Entry<K>> queried = queryNewest(1);
+        return queried.isEmpty() ? Optional.empty() : Optional.of(queried.get(0).getKey());
+    }
+
+    /**
+     * Gibt die Schlüssel der zuletzt geschriebenen Datensätze mit ihren Zeitpunkten zurück, den neuesten zuerst. Passen
+     * so viele Schlüssel in den {@link LatestEntryTracker}, wird die Datenbank nicht angefragt.
+     *
+     * @param limit Die maximale Anzahl an Schlüsseln.
+     *
+     * @return Die Schlüssel der zuletzt geschriebenen Datensätze, den neuesten zuerst.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Schlüssel nicht gelesen werden konnten.
+     */
+    public List<LatestEntryTracker.Entry<K>> newest(final int limit) throws SQLException {
+        final List<LatestEntryTracker.Entry<K>> tracked = latestEntries.getNewest(limit);
+        if (tracked.size() >= limit) {
+            return tracked;
+        }
+        return queryNewest(limit);
+    }
+
+    /**
+     * Liest den Datensatz zu dem übergebenen Schlüssel mit einer Verbindung für lesende Zugriffe aus der Datenbank.
+     * Füllt der Aufruf den {@link ReadThroughCache}, wird vom Primärserver gelesen, da ein verzögertes Replikat kurz
+     * nach einer Invalidierung den alten Datensatz liefern und dieser bis zum Ablauf der Lebensdauer im Cache bleiben
+     * würde.
+     *
+     * @param key Der Schlüssel, dessen Datensatz gelesen wird.
+     *
+     * @return Der Datensatz zu dem Schlüssel oder {@code null}, wenn es keinen gibt.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht gelesen werden konnte.
+     */
+    private T load(final K key) throws SQLException {
+        try (final Connection conn = cache != null
+                ? databaseHandler.getPrimaryReadConnection()
+                : databaseHandler.getReadConnection()) {
+            return load(conn, key);
+        }
+    }
+
+    /**
+     * Liest den Datensatz zu dem übergebenen Schlüssel über die übergebene Verbindung aus der Datenbank.
+     *
+     * @param conn Die Verbindung, über die gelesen wird.
+     * @param key  Der Schlüssel, dessen Datensatz gelesen wird.
+     *
+     * @return Der Datensatz zu dem Schlüssel oder {@code null}, wenn es keinen gibt.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht gelesen werden konnte.
+     */
+    private T load(
+            final Connection conn,
+            final K key
+    ) throws SQLException {
+        final String sql = descriptor.getSelectByKeySql();
+        try (final PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, key);
+
+            final long start = System.nanoTime();
+            try (final ResultSet rs = stmt.executeQuery()) {
+                final T row = rs.next() ? descriptor.getMapper().map(rs) : null;
+                databaseHandler.getMetrics().recordStatement(sql, System.nanoTime() - start, row == null ? 0 : 1);
+                return row;
+            }
+        }
+    }
+
+    /**
+     * Liest die Schlüssel der zuletzt geschriebenen Datensätze über den Index auf dem Zeitstempel. Ist der
+     * {@link QueryResultCache} des {@link DatabaseHandler} eingeschaltet, teilen sich gleichzeitige Aufrufe eine
+     * Abfrage.
+     *
+     * @param limit Die maximale Anzahl an Schlüsseln.
+     *
+     * @return Die unveränderlichen Schlüssel der zuletzt geschriebenen Datensätze, den neuesten zuerst.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Schlüssel nicht gelesen werden konnten.
+     */
+    private List<LatestEntryTracker.Entry<K>> queryNewest(final int limit) throws SQLException {
+        return databaseHandler.queryCached(
+                descriptor.getSelectNewestSql(),
+                rs -> new LatestEntryTracker.Entry<>(
+                        rs.getObject(1, descriptor.getKeyType()),
+                        rs.getTimestamp(2).getTime()
+                ),
+                limit
+        );
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="write">
+
+    /**
+     * Fügt einen Datensatz hinzu oder aktualisiert ihn.
+     *
+     * @param row Der Datensatz, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht geschrieben werden konnte.
+     */
+    public void upsert(final T row) throws SQLException {
+        final Timestamp stamp = WriteClock.now();
+        try (final Connection conn = databaseHandler.getConnection()) {
+            upsert(conn, row, stamp);
+        } catch (final SQLException e) {
+            // the row may or may not have been written
+            invalidate(descriptor.keyOf(row));
+            throw e;
+        }
+
+        written(List.of(row), stamp.getTime());
+    }
+
+    /**
+     * Fügt alle übergebenen Datensätze in einer Stapel-Verarbeitung hinzu. Die Datensätze werden blockweise gesendet und
+     * je Block in einer einzigen Transaktion bestätigt.
+     *
+     * @param rows Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public void upsertAll(final Collection<? extends T> rows) throws SQLException {
+        upsertAll(rows, ConnectionPriority.INTERACTIVE);
+    }
+
+    /**
+     * Fügt alle übergebenen Datensätze wie {@link #upsertAll(Collection)} hinzu, leiht die Verbindung aber mit der
+     * übergebenen {@link ConnectionPriority}. Jeder Block wird veröffentlicht, sobald er bestätigt ist, sodass auch bei
+     * einem späteren Fehler alle bereits geschriebenen Datensätze gemeldet werden.
+     *
+     * @param rows     Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     * @param priority Die {@link ConnectionPriority}, mit der die Verbindung geliehen wird.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public void upsertAll(
+            final Collection<? extends T> rows,
+            final ConnectionPriority priority
+    ) throws SQLException {
+        final Timestamp stamp = WriteClock.now();
+        try {
+            databaseHandler.upsertBatch(
+                    descriptor.getUpsertSql(),
+                    rows.iterator(),
+                    descriptor.getUpsertBinder(stamp),
+                    DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE,
+                    priority,
+                    chunk -> written(chunk, stamp.getTime())
+            );
+        } catch (final SQLException e) {
+            // the failed chunk may or may not have been committed
+            invalidateAll(rows);
+            throw e;
+        }
+    }
+
+    /**
+     * Fügt einen Datensatz innerhalb einer {@link Transaction} hinzu oder aktualisiert ihn. Cache, zuletzt geschriebene
+     * Schlüssel und {@link WriteListener} werden erst nach der Bestätigung der Transaktion aktualisiert.
+     *
+     * @param tx  Die {@link Transaction}, in der geschrieben wird.
+     * @param row Der Datensatz, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht geschrieben werden konnte.
+     */
+    public void upsert(
+            final Transaction tx,
+            final T row
+    ) throws SQLException {
+        upsertAll(tx, List.of(row));
+    }
+
+    /**
+     * Fügt alle übergebenen Datensätze innerhalb einer {@link Transaction} in einer Stapel-Verarbeitung hinzu. Cache,
+     * zuletzt geschriebene Schlüssel und {@link WriteListener} werden erst nach der Bestätigung der Transaktion
+     * aktualisiert.
+     *
+     * @param tx   Die {@link Transaction}, in der geschrieben wird.
+     * @param rows Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht geschrieben werden konnte.
+     */
+    public void upsertAll(
+            final Transaction tx,
+            final Collection<? extends T> rows
+    ) throws SQLException {
+        final Timestamp stamp = WriteClock.now();
+        tx.onCommit(() -> written(rows, stamp.getTime()));
+        tx.onRollback(() -> invalidateAll(rows));
+        tx.batch(descriptor.getUpsertSql(), rows, descriptor.getUpsertBinder(stamp));
+    }
+
+    /**
+     * Fügt einen Datensatz asynchron hinzu oder aktualisiert ihn. Der Aufruf kehrt sofort zurück.
+     *
+     * @param row Der Datensatz, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @return Ein {@link CompletableFuture}, welcher abgeschlossen wird, sobald der Datensatz bestätigt wurde.
+     */
+    public CompletableFuture<Void> upsertAsync(final T row) {
+        final Timestamp stamp = WriteClock.now();
+        return databaseHandler.<Void>submit(conn -> {
+            upsert(conn, row, stamp);
+            return null;
+        }).whenComplete((ignored, e) -> afterAsyncWrite(List.of(row), stamp.getTime(), e));
+    }
+
+    /**
+     * Fügt alle übergebenen Datensätze asynchron in einer Stapel-Verarbeitung hinzu. Der Aufruf kehrt sofort zurück.
+     *
+     * @param rows Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     *
+     * @return Ein {@link CompletableFuture}, der mit der Anzahl an geschriebenen Datensätzen abgeschlossen wird.
+     */
+    public CompletableFuture<Integer> upsertAllAsync(final Collection<? extends T> rows) {
+        final Timestamp stamp = WriteClock.now();
+        return databaseHandler.submitUpsertBatch(
+                descriptor.getUpsertSql(),
+                rows,
+                descriptor.getUpsertBinder(stamp),
+                chunk -> written(chunk, stamp.getTime())
+        ).whenComplete((ignored, e) -> {
+            if (e != null) {
+                invalidateAll(rows);
+            }
+        });
+    }
+
+    /**
+     * Startet das nachgelagerte Schreiben über einen {@link AsyncUpsertWriter}. Anschließend können Datensätze über
+     * {@link #enqueue(Object)} eingereiht werden; sie werden beim Schließen dieses Repositories vollständig geschrieben.
+     *
+     * @param capacity      Die Anzahl an Schlüsseln, die insgesamt höchstens auf das Schreiben warten dürfen.
+     * @param flushSize     Die Anzahl an wartenden Schlüsseln, ab der ein Block sofort geschrieben wird.
+     * @param flushInterval Die Zeit, die ein Datensatz höchstens wartet, bevor sein Block geschrieben wird.
+     * @param writerThreads Die Anzahl an Threads, die parallel Blöcke schreiben.
+     */
+    public synchronized void enableWriteBehind(
+            final int capacity,
+            final int flushSize,
+            final Duration flushInterval,
+            final int writerThreads
+    ) {
+        if (writer != null) {
+            throw new IllegalStateException("The write-behind writer has already been started!");
+        }
+
+        writer = new AsyncUpsertWriter<K, T>(
+                databaseHandler,
+                descriptor.getUpsertSql(),
+                descriptor::getUpsertBinder,
+                descriptor.getKeyExtractor(),
+                capacity,
+                flushSize,
+                flushInterval,
+                writerThreads,
+                this::written
+        );
+    }
+
+    /**
+     * Startet einen {@link ChangeFeed}, der ab jetzt jeden bestätigten Schreibzugriff über dieses Repository als
+     * {@link ChangeEvent} veröffentlicht. Abonnenten können so abgeleitete Caches und Indizes aktuell halten, ohne die
+     * Datenbank abzufragen. Den bisherigen Stand eines Datensatzes enthalten die Ereignisse nur, wenn dieses Repository
+     * einen Cache hat und der Datensatz darin lag.
+     *
+     * @param capacity Die Anzahl an Ereignissen, die der Ringpuffer hält.
+     *
+     * @return Der neue {@link ChangeFeed}.
+     */
+    public synchronized ChangeFeed<K, T> enableChangeFeed(final int capacity) {
+        if (changeFeed != null) {
+            throw new IllegalStateException("The change feed has already been started!");
+        }
+
+        changeFeed = new ChangeFeed<>(databaseHandler, descriptor, capacity);
+        return changeFeed;
+    }
+
+    /**
+     * Reiht einen Datensatz zum nachgelagerten Schreiben ein, ohne auf die Datenbank zu warten. Wird derselbe Schlüssel
+     * mehrfach eingereiht, bevor geschrieben wurde, wird nur der zuletzt eingereihte Stand geschrieben und auch nur
+     * dieser veröffentlicht.
+     *
+     * @param row Der Datensatz, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @return Ein {@link CompletableFuture}, welcher abgeschlossen wird, sobald der Datensatz bestätigt wurde.
+     *
+     * @throws InterruptedException Die Fehlermeldung, die auftritt, wenn beim Warten auf freien Platz unterbrochen
+     *     wird.
+     */
+    public CompletableFuture<Void> enqueue(final T row) throws InterruptedException {
+        final AsyncUpsertWriter<K, T> current = writer;
+        if (current == null) {
+            throw new IllegalStateException("The write-behind writer has not been started!");
+        }
+
+        // the writer publishes the rows it actually flushed, so only a failure is left to handle here
+        final K key = descriptor.keyOf(row);
+        return current.enqueue(row).whenComplete((ignored, e) -> {
+            if (e != null) {
+                invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * Markiert den Datensatz zu dem übergebenen Schlüssel als veraltet, weil er an diesem Repository vorbei geschrieben
+     * wurde. Dabei werden auch alle Ergebnisse im {@link QueryResultCache} verworfen, die aus der Tabelle lesen.
+     *
+     * @param key Der Schlüssel, dessen Datensatz veraltet ist.
+     */
+    public void invalidate(final K key) {
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+        databaseHandler.invalidateResults(descriptor.getTable());
+    }
+
+    /**
+     * Registriert einen {@link WriteListener}, der nach jedem erfolgreichen Schreibzugriff benachrichtigt wird.
+     *
+     * @param listener Der {@link WriteListener}, der registriert wird.
+     */
+    public void addWriteListener(final WriteListener<? super K, ? super T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Schreibt einen Datensatz über die übergebene Verbindung.
+     *
+     * @param conn  Die Verbindung, über die geschrieben wird.
+     * @param row   Der Datensatz, der geschrieben wird.
+     * @param stamp Der Zeitstempel, mit dem der Datensatz geschrieben wird.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht geschrieben werden konnte.
+     */
+    private void upsert(
+            final Connection conn,
+            final T row,
+            final Timestamp stamp
+    ) throws SQLException {
+        final String sql = descriptor.getUpsertSql();
+        try (final PreparedStatement stmt = conn.prepareStatement(sql)) {
+            descriptor.getUpsertBinder(stamp).bind(stmt, row);
+
+            final long start = System.nanoTime();
+            final int rows = stmt.executeUpdate();
+            databaseHandler.getMetrics().recordStatement(sql, System.nanoTime() - start, rows);
+        }
+    }
+
+    /**
+     * Vermerkt das Ergebnis eines asynchronen Schreibzugriffs.
+     *
+     * @param rows        Die Datensätze, die geschrieben werden sollten.
+     * @param epochMillis Der Zeitstempel, mit dem die Datensätze geschrieben wurden.
+     * @param error       Die Fehlermeldung des Schreibzugriffs oder {@code null}, wenn er erfolgreich war.
+     */
+    private void afterAsyncWrite(
+            final Collection<? extends T> rows,
+            final long epochMillis,
+            final Throwable error
+    ) {
+        if (error == null) {
+            written(rows, epochMillis);
+        } else {
+            invalidateAll(rows);
+        }
+    }
+
+    /**
+     * Verwirft bestätigte Datensätze im Cache, vermerkt sie im {@link LatestEntryTracker} und benachrichtigt alle
+     * {@link WriteListener}. Jeder bestätigte Schreibzugriff über dieses Repository wird genau hierüber gemeldet.
+     *
+     * @param rows        Die Datensätze, die bestätigt wurden.
+     * @param epochMillis Der Zeitstempel, mit dem die Datensätze geschrieben wurden.
+     */
+    private void written(
+            final Collection<? extends T> rows,
+            final long epochMillis
+    ) {
+        databaseHandler.invalidateResults(descriptor.getTable());
+
+        // remember the replaced rows only if someone is interested in them
+        final List<T> previous = changeFeed == null ? null : new ArrayList<>(rows.size());
+        for (final T row : rows) {
+            // the next read loads the committed row, whichever of several concurrent writes committed last
+            final T replaced = cache != null ? cache.invalidate(descriptor.keyOf(row)) : null;
+            if (previous != null) {
+                previous.add(replaced);
+            }
+        }
+        notifyWritten(rows, previous, epochMillis);
+    }
+
+    /**
+     * Vermerkt bestätigte Datensätze im {@link LatestEntryTracker}, veröffentlicht sie im {@link ChangeFeed} und
+     * benachrichtigt alle {@link WriteListener}.
+     *
+     * @param rows        Die Datensätze, die bestätigt wurden.
+     * @param previous    Die bisherigen Stände der Datensätze in derselben Reihenfolge oder {@code null}, wenn sie
+     *                    nicht bekannt sind.
+     * @param epochMillis Der Zeitstempel, mit dem die Datensätze geschrieben wurden.
+     */
+    private void notifyWritten(
+            final Collection<? extends T> rows,
+            final List<T> previous,
+            final long epochMillis
+    ) {
+        final ChangeFeed<K, T> feed = changeFeed;
+        int index = 0;
+        for (final T row : rows) {
+            final K key = descriptor.keyOf(row);
+            latestEntries.record(key, epochMillis);
+            if (feed != null) {
+                final T replaced = previous == null || index >= previous.size() ? null : previous.get(index);
+                feed.publish(new ChangeEvent<>(descriptor.getTable(), key, replaced, row, epochMillis, false));
+            }
+            index++;
+        }
+        for (final WriteListener<? super K, ? super T> listener : listeners) {
+            listener.written(rows, epochMillis);
+        }
+    }
+
+    /**
+     * Verwirft gelöschte oder archivierte Datensätze im Cache und im {@link LatestEntryTracker}, veröffentlicht ihr
+     * Löschen im {@link ChangeFeed} und benachrichtigt alle {@link WriteListener}. Jedes bestätigte Löschen in der
+     * Tabelle dieses Repositories muss hierüber gemeldet werden, damit abgeleitete Stände den Datensatz nicht weiter
+     * liefern.
+     *
+     * @param keys        Die Schlüssel der gelöschten Datensätze.
+     * @param epochMillis Der neueste Zeitstempel, den ein gelöschter Stand tragen konnte.
+     */
+    void deleted(
+            final Collection<? extends K> keys,
+            final long epochMillis
+    ) {
+        databaseHandler.invalidateResults(descriptor.getTable());
+        latestEntries.remove(keys, epochMillis);
+
+        final ChangeFeed<K, T> feed = changeFeed;
+        for (final K key : keys) {
+            final T removed = cache != null ? cache.invalidate(key) : null;
+            if (feed != null) {
+                feed.publish(new ChangeEvent<>(descriptor.getTable(), key, removed, null, epochMillis, false));
+            }
+        }
+        for (final WriteListener<? super K, ? super T> listener : listeners) {
+            listener.deleted(keys, epochMillis);
+        }
+    }
+
+    /**
+     * Verwirft die Schlüssel aller übergebenen Datensätze im Cache.
+     *
+     * @param rows Die Datensätze, deren Schlüssel verworfen werden.
+     */
+    private void invalidateAll(final Collection<? extends T> rows) {
+        for (final T row : rows) {
+            invalidate(descriptor.keyOf(row));
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="close">
+
+    /**
+     * Schließt dieses Repository. Alle nachgelagert eingereihten Datensätze werden noch geschrieben, bevor dieser Aufruf
+     * zurückkehrt. Der {@link DatabaseHandler} bleibt geöffnet.
+     */
+    @Override
+    public void close() {
+        final AsyncUpsertWriter<K, T> current = writer;
+        if (current != null) {
+            current.close();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt den {@link DatabaseHandler} zurück, über den dieses Repository auf die Datenbank zugreift.
+     *
+     * @return Der {@link DatabaseHandler} dieses Repositories.
+     */
+    DatabaseHandler getDatabaseHandler() {
+        return databaseHandler;
+    }
+
+    /**
+     * Gibt den {@link LatestEntryTracker} zurück, in dem die zuletzt geschriebenen Schlüssel vermerkt werden.
+     *
+     * @return Der {@link LatestEntryTracker} dieses Repositories.
+     */
+    LatestEntryTracker<K> getLatestEntries() {
+        return latestEntries;
+    }
+
+    /**
+     * Gibt den {@link EntityDescriptor} zurück, der die Tabelle beschreibt.
+     *
+     * @return Der {@link EntityDescriptor}, der die Tabelle beschreibt.
+     */
+    public EntityDescriptor<K, T> getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Gibt den {@link ReadThroughCache} zurück, in dem die gelesenen Datensätze gehalten werden, um dessen Zähler
+     * auszuwerten.
+     *
+     * @return Der {@link ReadThroughCache} oder {@code null}, wenn kein Cache genutzt wird.
+     */
+    public ReadThroughCache<K, T> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gibt den {@link ChangeFeed} zurück, der jeden Schreibzugriff über dieses Repository veröffentlicht.
+     *
+     * @return Der {@link ChangeFeed} oder {@code null}, wenn er nicht gestartet wurde.
+     */
+    public ChangeFeed<K, T> getChangeFeed() {
+        return changeFeed;
+    }
+    //</editor-fold>
+}
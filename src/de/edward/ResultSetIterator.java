@@ -0,0 +1,137 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Ein {@link ResultSetIterator} liest die Zeilen eines gestreamten {@link ResultSet} erst dann, wenn sie abgefragt
+ * werden, und wandelt sie mit einem {@link RowMapper} um. Er hält dafür eine Verbindung aus dem Pool, bis er entweder
+ * vollständig gelesen oder geschlossen wurde; danach sind {@link ResultSet}, {@link PreparedStatement} und Verbindung
+ * wieder freigegeben.
+ *
+ * @param <T> Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+ */
+public final class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Verbindung, über die gelesen wird. */
+    private final Connection conn;
+    /** Das {@link PreparedStatement}, dessen Ergebnis gelesen wird. */
+    private final PreparedStatement stmt;
+    /** Der {@link ResultSet}, der gelesen wird. */
+    private final ResultSet rs;
+    /** Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden. */
+    private final RowMapper<T> mapper;
+    /** Ob der {@link ResultSet} bereits auf der nächsten, noch nicht zurückgegebenen Zeile steht. */
+    private boolean advanced;
+    /** Ob es nach der aktuellen Position noch eine Zeile gibt. */
+    private boolean hasRow;
+    /** Ob dieser Iterator bereits geschlossen wurde. */
+    private boolean closed;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link ResultSetIterator} über einen bereits geöffneten {@link ResultSet}. Der Iterator
+     * übernimmt die Verantwortung für das Schließen aller übergebenen Ressourcen.
+     *
+     * @param conn   Die Verbindung, über die gelesen wird.
+     * @param stmt   Das {@link PreparedStatement}, dessen Ergebnis gelesen wird.
+     * @param rs     Der {@link ResultSet}, der gelesen wird.
+     * @param mapper Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     */
+    ResultSetIterator(
+            final Connection conn,
+            final PreparedStatement stmt,
+            final ResultSet rs,
+            final RowMapper<T> mapper
+    ) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.mapper = mapper;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="iterator">
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!advanced) {
+            try {
+                hasRow = rs.next();
+            } catch (final SQLException e) {
+                close();
+                throw new UncheckedSQLException(e);
+            }
+            advanced = true;
+
+            // release the connection as soon as the last row has been read
+            if (!hasRow) {
+                close();
+            }
+        }
+        return hasRow;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+
+        try {
+            return mapper.map(rs);
+        } catch (final SQLException e) {
+            close();
+            throw new UncheckedSQLException(e);
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="close">
+
+    /**
+     * Schließt den {@link ResultSet}, das {@link PreparedStatement} und gibt die Verbindung an den Pool zurück. Noch
+     * nicht gelesene Zeilen werden verworfen.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasRow = false;
+
+        SQLException failure = null;
+        for (final AutoCloseable resource : new AutoCloseable[]{rs, stmt, conn}) {
+            try {
+                resource.close();
+            } catch (final SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        if (failure != null) {
+            throw new UncheckedSQLException(failure);
+        }
+    }
+    //</editor-fold>
+}
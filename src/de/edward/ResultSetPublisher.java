@@ -0,0 +1,145 @@
+package de.edward;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ein {@link ResultSetPublisher} gibt die Zeilen einer gestreamten Abfrage an einen {@link Flow.Subscriber} weiter,
+ * aber nur so viele, wie dieser angefordert hat. Die Abfrage wird erst bei der ersten Anforderung gestartet, und es
+ * werden nie mehr Zeilen vom Server gelesen, als der Subscriber verarbeiten kann. Die Zeilen werden in dem Thread
+ * ausgeliefert, der sie anfordert.
+ *
+ * @param <T> Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+ */
+public final class ResultSetPublisher<T> implements Flow.Publisher<T> {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Funktion, mit der für jeden Subscriber eine neue Abfrage gestartet wird. */
+    private final Supplier<ResultSetIterator<T>> query;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link ResultSetPublisher}.
+     *
+     * @param query Die Funktion, mit der für jeden Subscriber eine neue Abfrage gestartet wird.
+     */
+    ResultSetPublisher(final Supplier<ResultSetIterator<T>> query) {
+        this.query = query;
+    }
+    //</editor-fold>
+
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+        subscriber.onSubscribe(new Subscription(subscriber));
+    }
+
+
+    //<editor-fold desc="subscription">
+
+    /**
+     * Die {@link Flow.Subscription} eines einzelnen Subscribers, die dessen Anforderungen zählt und entsprechend viele
+     * Zeilen ausliefert.
+     */
+    private final class Subscription implements Flow.Subscription {
+
+        /** Der Subscriber, an den die Zeilen ausgeliefert werden. */
+        private final Flow.Subscriber<? super T> subscriber;
+        /** Die Anzahl an Zeilen, die angefordert, aber noch nicht ausgeliefert wurden. */
+        private final AtomicLong demand = new AtomicLong();
+        /** Die Anzahl an ausstehenden Aufrufen von {@link #drain()}, damit nur ein Thread gleichzeitig ausliefert. */
+        private final AtomicInteger work = new AtomicInteger();
+        /** Der {@link ResultSetIterator} der Abfrage, sobald sie gestartet wurde. */
+        private ResultSetIterator<T> rows;
+        /** Ob der Subscriber die Subscription beendet hat. */
+        private volatile boolean cancelled;
+        /** Ob alle Zeilen ausgeliefert oder ein Fehler gemeldet wurde. */
+        private boolean done;
+
+        /**
+         * Erzeugt eine neue {@link Subscription}.
+         *
+         * @param subscriber Der Subscriber, an den die Zeilen ausgeliefert werden.
+         */
+        private Subscription(final Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("The requested number of rows must be positive!"));
+                drain();
+                return;
+            }
+
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        /**
+         * Liefert so viele Zeilen aus, wie angefordert wurden. Ruft der Subscriber während der Auslieferung erneut
+         * {@link #request(long)} auf, wird die zusätzliche Anforderung von der laufenden Auslieferung übernommen.
+         */
+        private void drain() {
+            if (work.getAndIncrement() != 0) {
+                return;
+            }
+
+            do {
+                if (done) {
+                    continue;
+                }
+                if (cancelled) {
+                    finish();
+                    continue;
+                }
+
+                try {
+                    while (!cancelled && demand.get() > 0) {
+                        if (rows == null) {
+                            rows = query.get();
+                        }
+                        if (!rows.hasNext()) {
+                            finish();
+                            subscriber.onComplete();
+                            break;
+                        }
+                        subscriber.onNext(rows.next());
+                        demand.decrementAndGet();
+                    }
+                } catch (final RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                }
+            } while (work.decrementAndGet() != 0);
+        }
+
+        /**
+         * Beendet die Auslieferung und gibt die Verbindung der Abfrage frei.
+         */
+        private void finish() {
+            done = true;
+            if (rows != null) {
+                try {
+                    rows.close();
+                } catch (final UncheckedSQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,25 @@
+package de.edward;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Ein {@link RowMapper} wandelt die aktuelle Zeile eines {@link ResultSet} in ein Objekt um. Er darf den
+ * {@link ResultSet} dabei weder weiterbewegen noch schließen.
+ *
+ * @param <T> Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Wandelt die aktuelle Zeile des {@link ResultSet} in ein Objekt um.
+     *
+     * @param rs Der {@link ResultSet}, dessen aktuelle Zeile umgewandelt wird.
+     *
+     * @return Das Objekt, in das die Zeile umgewandelt wurde.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn eine Spalte nicht gelesen werden kann.
+     */
+    T map(ResultSet rs) throws SQLException;
+}
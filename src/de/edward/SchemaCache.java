@@ -0,0 +1,185 @@
+package de.edward;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Ein {@link SchemaCache} merkt sich in einer lokalen Datei, mit welchen DDL-Anweisungen jede Tabelle zuletzt angelegt
+ * wurde. Stimmt der Fingerabdruck der Anweisungen beim nächsten Start überein und existiert die Tabelle noch, werden
+ * die Anweisungen nicht erneut gesendet. So kostet das Prüfen aller Tabellen beim Start eine einzige Abfrage statt
+ * einer DDL-Anweisung je Tabelle und Index, die jeweils eine Metadaten-Sperre anfordert.
+ *
+ * <p>Ändert sich die Beschreibung einer Tabelle, ändert sich auch ihr Fingerabdruck, sodass die Anweisungen wieder
+ * gesendet werden. Fehlt die Datei oder ist sie unlesbar, werden alle Anweisungen wie bisher gesendet.</p>
+ */
+public final class SchemaCache {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Abfrage, mit der die Namen aller Tabellen der aktuellen Datenbank gelesen werden. */
+    private static final String SELECT_TABLES_SQL =
+            "SELECT TABLE_NAME FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE()";
+    /** Das Verfahren, mit dem der Fingerabdruck der DDL-Anweisungen gebildet wird. */
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Datei, in der die Fingerabdrücke abgelegt werden. */
+    private final Path file;
+    /** Die Fingerabdrücke je Tabelle, wie sie in der Datei stehen. */
+    private final Properties fingerprints = new Properties();
+    /** Die Namen aller Tabellen der Datenbank in Kleinbuchstaben oder {@code null}, bis sie gelesen wurden. */
+    private Set<String> existingTables;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link SchemaCache} und liest die Fingerabdrücke aus der Datei, sofern sie existiert.
+     *
+     * @param file Die Datei, in der die Fingerabdrücke abgelegt werden.
+     */
+    public SchemaCache(final Path file) {
+        this.file = file;
+
+        if (Files.isRegularFile(file)) {
+            try (final InputStream in = Files.newInputStream(file)) {
+                fingerprints.load(in);
+            } catch (final IOException | IllegalArgumentException e) {
+                // an unreadable file only costs the ddl of this start
+                fingerprints.clear();
+                e.printStackTrace();
+            }
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="ensure">
+
+    /**
+     * Sendet die DDL-Anweisungen einer Tabelle, sofern sie sich seit dem letzten Senden geändert haben oder die Tabelle
+     * nicht mehr existiert. Die Anweisungen müssen wiederholbar sein, etwa durch {@code IF NOT EXISTS}.
+     *
+     * @param conn  Die Verbindung, über die geprüft und gesendet wird.
+     * @param table Der Name der Tabelle, die die Anweisungen anlegen.
+     * @param ddl   Die DDL-Anweisungen in der Reihenfolge, in der sie gesendet werden.
+     *
+     * @return Ob die Anweisungen gesendet wurden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn nicht geprüft oder gesendet werden konnte.
+     */
+    public synchronized boolean ensure(
+            final Connection conn,
+            final String table,
+            final String... ddl
+    ) throws SQLException {
+        final String fingerprint = fingerprint(ddl);
+        final String normalized = table.toLowerCase(Locale.ROOT);
+        if (fingerprint.equals(fingerprints.getProperty(table)) && tables(conn).contains(normalized)) {
+            return false;
+        }
+
+        for (final String sql : ddl) {
+            try (final PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.executeUpdate();
+            }
+        }
+        if (existingTables != null) {
+            existingTables.add(normalized);
+        }
+
+        fingerprints.setProperty(table, fingerprint);
+        try {
+            save();
+        } catch (final IOException e) {
+            // the schema is in place, only the next start has to send the ddl again
+            e.printStackTrace();
+        }
+        return true;
+    }
+
+    /**
+     * Gibt die Namen aller Tabellen der aktuellen Datenbank zurück. Sie werden nur beim ersten Aufruf gelesen.
+     *
+     * @param conn Die Verbindung, über die gelesen wird.
+     *
+     * @return Die Namen aller Tabellen in Kleinbuchstaben.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Namen nicht gelesen werden konnten.
+     */
+    private Set<String> tables(final Connection conn) throws SQLException {
+        if (existingTables == null) {
+            final Set<String> names = new HashSet<>();
+            try (final PreparedStatement stmt = conn.prepareStatement(SELECT_TABLES_SQL);
+                 final ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+            existingTables = names;
+        }
+        return existingTables;
+    }
+
+    /**
+     * Schreibt die Fingerabdrücke in eine temporäre Datei und ersetzt damit die bisherige Datei.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn die Datei nicht geschrieben werden konnte.
+     */
+    private void save() throws IOException {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final OutputStream out = Files.newOutputStream(temp)) {
+            fingerprints.store(out, "schema fingerprints, delete to send all ddl again");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Bildet den Fingerabdruck der übergebenen DDL-Anweisungen.
+     *
+     * @param ddl Die DDL-Anweisungen in ihrer Reihenfolge.
+     *
+     * @return Der Fingerabdruck als Hexadezimal-Text.
+     */
+    private static String fingerprint(final String... ddl) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The fingerprint algorithm is not available!", e);
+        }
+
+        for (final String sql : ddl) {
+            digest.update(sql.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        final StringBuilder hex = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,518 @@
+package de.edward;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Ein {@link SearchIndex} hält die Begriffe ausgewählter Spalten einer Tabelle im Speicher, damit Autovervollständigung
+ * und unscharfe Suchen ohne {@code LIKE}-Abfragen auf dem Server beantwortet werden. Jeder Wert wird als Ganzes und
+ * zusätzlich Wort für Wort indiziert; Groß- und Kleinschreibung sowie Akzente werden dabei nicht unterschieden.
+ *
+ * <p>Die Begriffe liegen sortiert in einer {@link ConcurrentSkipListMap}, sodass eine Präfix-Anfrage nur den Bereich
+ * der passenden Begriffe durchläuft. Für unscharfe Anfragen werden zuerst über einen Trigramm-Index die Begriffe
+ * gesucht, die genug Trigramme mit der Anfrage teilen, und nur diese anschließend über ihre Levenshtein-Distanz
+ * geprüft.</p>
+ *
+ * <p>Lesende Anfragen kommen ohne Sperre aus. Schreibende Aktualisierungen werden nacheinander ausgeführt. Als
+ * {@link WriteListener} an einem {@link Repository} registriert, bleibt der Index nach jedem Schreibzugriff und jedem
+ * Löschen aktuell.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class SearchIndex<K, T> implements WriteListener<K, T> {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Das Muster, an dem ein Wert in einzelne Wörter zerlegt wird. */
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** Das Muster der diakritischen Zeichen, die nach der Zerlegung eines Zeichens entfernt werden. */
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    /** Die Länge der Teilstücke, über die unscharfe Anfragen vorgefiltert werden. */
+    private static final int GRAM_LENGTH = 3;
+    /** Das Zeichen, mit dem ein Begriff für die Trigramme an Anfang und Ende aufgefüllt wird. */
+    private static final char GRAM_PADDING = '\u0000';
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird. */
+    private final Function<? super T, ? extends K> keyExtractor;
+    /** Die Funktionen, mit denen die indizierten Werte eines Datensatzes bestimmt werden. */
+    private final List<Function<? super T, String>> fields;
+    /** Die Schlüssel je Begriff, nach den Begriffen sortiert. */
+    private final ConcurrentNavigableMap<String, Set<K>> terms = new ConcurrentSkipListMap<>();
+    /** Die Begriffe je Trigramm. */
+    private final Map<String, Set<String>> grams = new ConcurrentHashMap<>();
+    /** Die Begriffe, unter denen ein Schlüssel aktuell indiziert ist. */
+    private final Map<K, Set<String>> indexed = new ConcurrentHashMap<>();
+    /** Die Anzahl an Ladevorgängen, die gerade laufen. */
+    private int runningLoads;
+    /**
+     * Die Schlüssel, die während eines laufenden Ladevorgangs gelöscht wurden, damit ihr älterer Stand aus der Tabelle
+     * nicht wieder indiziert wird, oder {@code null}, wenn gerade nicht geladen wird.
+     */
+    private Set<K> deletedWhileLoading;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link SearchIndex}.
+     *
+     * @param keyExtractor Die Funktion, mit der der Schlüssel eines Datensatzes bestimmt wird.
+     * @param fields       Die Funktionen, mit denen die indizierten Werte eines Datensatzes bestimmt werden.
+     */
+    public SearchIndex(
+            final Function<? super T, ? extends K> keyExtractor,
+            final List<Function<? super T, String>> fields
+    ) {
+        // check the fields for validity
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("The supplied fields must not be empty!");
+        }
+
+        this.keyExtractor = keyExtractor;
+        this.fields = List.copyOf(fields);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="update">
+
+    /**
+     * Baut den Index aus allen Datensätzen eines {@link Repository} auf, ohne die Tabelle gleichzeitig im Speicher zu
+     * halten. Der Index sollte vorher als {@link WriteListener} registriert werden, damit keine Schreibzugriffe
+     * während des Aufbaus verloren gehen. Schlüssel, die währenddessen bereits über einen Schreibzugriff indiziert
+     * oder gelöscht wurden, werden nicht mit dem älteren Stand aus der Tabelle überschrieben.
+     *
+     * @param repository Das {@link Repository}, dessen Datensätze indiziert werden.
+     *
+     * @return Die Anzahl an indizierten Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht gelesen werden konnte.
+     */
+    public int load(final Repository<?, ? extends T> repository) throws SQLException {
+        synchronized (this) {
+            if (runningLoads++ == 0) {
+                deletedWhileLoading = new HashSet<>();
+            }
+        }
+
+        int loaded = 0;
+        try (final Stream<? extends T> rows = repository.streamAll()) {
+            final Iterator<? extends T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                final T row = iterator.next();
+                synchronized (this) {
+                    final K key = keyExtractor.apply(row);
+                    if (!indexed.containsKey(key) && !deletedWhileLoading.contains(key)) {
+                        index(row);
+                        loaded++;
+                    }
+                }
+            }
+        } catch (final UncheckedSQLException e) {
+            throw e.getCause();
+        } finally {
+            synchronized (this) {
+                if (--runningLoads == 0) {
+                    deletedWhileLoading = null;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Indiziert einen Datensatz. Ein bereits indizierter Stand desselben Schlüssels wird dabei ersetzt.
+     *
+     * @param row Der Datensatz, der indiziert wird.
+     */
+    public synchronized void index(final T row) {
+        final K key = keyExtractor.apply(row);
+        final Set<String> current = termsOf(row);
+        final Set<String> previous = indexed.put(key, current);
+
+        if (previous != null) {
+            for (final String term : previous) {
+                if (!current.contains(term)) {
+                    unlink(term, key);
+                }
+            }
+        }
+        for (final String term : current) {
+            if (previous == null || !previous.contains(term)) {
+                link(term, key);
+            }
+        }
+    }
+
+    /**
+     * Entfernt den Datensatz zu dem übergebenen Schlüssel aus dem Index.
+     *
+     * @param key Der Schlüssel, dessen Datensatz entfernt wird.
+     */
+    public synchronized void remove(final K key) {
+        if (deletedWhileLoading != null) {
+            deletedWhileLoading.add(key);
+        }
+
+        final Set<String> previous = indexed.remove(key);
+        if (previous == null) {
+            return;
+        }
+        for (final String term : previous) {
+            unlink(term, key);
+        }
+    }
+
+    @Override
+    public void written(
+            final Collection<? extends T> rows,
+            final long epochMillis
+    ) {
+        for (final T row : rows) {
+            index(row);
+        }
+    }
+
+    @Override
+    public void deleted(
+            final Collection<? extends K> keys,
+            final long epochMillis
+    ) {
+        for (final K key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Vermerkt einen Schlüssel unter einem Begriff und nimmt neue Begriffe in den Trigramm-Index auf.
+     *
+     * @param term Der Begriff.
+     * @param key  Der Schlüssel.
+     */
+    private void link(
+            final String term,
+            final K key
+    ) {
+        Set<K> keys = terms.get(term);
+        if (keys == null) {
+            keys = ConcurrentHashMap.newKeySet();
+            keys.add(key);
+            terms.put(term, keys);
+            for (final String gram : gramsOf(term)) {
+                grams.computeIfAbsent(gram, ignored -> ConcurrentHashMap.newKeySet()).add(term);
+            }
+            return;
+        }
+        keys.add(key);
+    }
+
+    /**
+     * Entfernt einen Schlüssel von einem Begriff und entfernt den Begriff, sobald ihm kein Schlüssel mehr gehört.
+     *
+     * @param term Der Begriff.
+     * @param key  Der Schlüssel.
+     */
+    private void unlink(
+            final String term,
+            final K key
+    ) {
+        final Set<K> keys = terms.get(term);
+        if (keys == null) {
+            return;
+        }
+        keys.remove(key);
+        if (!keys.isEmpty()) {
+            return;
+        }
+
+        terms.remove(term);
+        for (final String gram : gramsOf(term)) {
+            final Set<String> gramTerms = grams.get(gram);
+            if (gramTerms != null) {
+                gramTerms.remove(term);
+                if (gramTerms.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="query">
+
+    /**
+     * Gibt die Schlüssel aller Datensätze zurück, bei denen ein Wert oder eines seiner Wörter mit dem übergebenen
+     * Präfix beginnt. Die Schlüssel werden nach ihrem Begriff sortiert.
+     *
+     * @param prefix Das Präfix, mit dem ein Begriff beginnen muss.
+     * @param limit  Die maximale Anzahl an Schlüsseln.
+     *
+     * @return Die Schlüssel der passenden Datensätze.
+     */
+    public List<K> prefix(
+            final String prefix,
+            final int limit
+    ) {
+        // check the limit for validity
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The supplied limit must be positive!");
+        }
+
+        final String normalized = normalize(prefix);
+        final Set<K> found = new LinkedHashSet<>();
+        for (final Set<K> keys : terms.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+            for (final K key : keys) {
+                found.add(key);
+                if (found.size() == limit) {
+                    return new ArrayList<>(found);
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Gibt die Schlüssel aller Datensätze zurück, bei denen ein Wert oder eines seiner Wörter höchstens die übergebene
+     * Levenshtein-Distanz zu der Anfrage hat. Die Schlüssel werden nach der Distanz und danach nach ihrem Begriff
+     * sortiert.
+     *
+     * <p>Geprüft werden nur Begriffe, die genug unterschiedliche Trigramme mit der Anfrage teilen; Trigramme, die in
+     * der Anfrage mehrfach vorkommen, zählen dabei nur einmal. Ist die Anfrage so kurz, dass die erlaubten Änderungen
+     * alle Trigramme betreffen können, muss ein Begriff mindestens ein Trigramm mit ihr teilen.</p>
+     *
+     * @param query       Die Anfrage.
+     * @param maxDistance Die maximale Anzahl an eingefügten, gelöschten oder ersetzten Zeichen.
+     * @param limit       Die maximale Anzahl an Schlüsseln.
+     *
+     * @return Die Schlüssel der passenden Datensätze.
+     */
+    public List<K> fuzzy(
+            final String query,
+            final int maxDistance,
+            final int limit
+    ) {
+        // check the limits for validity
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("The supplied maximum distance must not be negative!");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The supplied limit must be positive!");
+        }
+
+        // count the shared grams of every candidate term
+        final String normalized = normalize(query);
+        final Set<String> queryGrams = new HashSet<>(gramsOf(normalized));
+        final Map<String, Integer> shared = new HashMap<>();
+        for (final String gram : queryGrams) {
+            final Set<String> gramTerms = grams.get(gram);
+            if (gramTerms != null) {
+                for (final String term : gramTerms) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+
+        // every edit destroys at most as many distinct grams as a gram is long
+        final int required = Math.max(1, queryGrams.size() - maxDistance * GRAM_LENGTH);
+        final List<Match> matches = new ArrayList<>();
+        for (final Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            final String term = candidate.getKey();
+            if (candidate.getValue() < required || Math.abs(term.length() - normalized.length()) > maxDistance) {
+                continue;
+            }
+
+            final int distance = distance(normalized, term, maxDistance);
+            if (distance <= maxDistance) {
+                matches.add(new Match(term, distance));
+            }
+        }
+        matches.sort(Comparator.comparingInt((Match match) -> match.distance).thenComparing(match -> match.term));
+
+        final Set<K> found = new LinkedHashSet<>();
+        for (final Match match : matches) {
+            final Set<K> keys = terms.get(match.term);
+            if (keys == null) {
+                continue;
+            }
+            for (final K key : keys) {
+                found.add(key);
+                if (found.size() == limit) {
+                    return new ArrayList<>(found);
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Gibt die Anzahl an indizierten Datensätzen zurück.
+     *
+     * @return Die Anzahl an indizierten Datensätzen.
+     */
+    public int size() {
+        return indexed.size();
+    }
+
+    /**
+     * Gibt die Anzahl an unterschiedlichen Begriffen im Index zurück.
+     *
+     * @return Die Anzahl an Begriffen.
+     */
+    public int getTermCount() {
+        return terms.size();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Bestimmt alle Begriffe eines Datensatzes: jeden Wert als Ganzes und jedes seiner Wörter.
+     *
+     * @param row Der Datensatz.
+     *
+     * @return Die normalisierten Begriffe des Datensatzes.
+     */
+    private Set<String> termsOf(final T row) {
+        final Set<String> result = new HashSet<>();
+        for (final Function<? super T, String> field : fields) {
+            final String value = field.apply(row);
+            if (value == null) {
+                continue;
+            }
+
+            final String normalized = normalize(value);
+            if (!normalized.isEmpty()) {
+                result.add(normalized);
+            }
+            for (final String word : WORD_SEPARATOR.split(normalized)) {
+                if (!word.isEmpty()) {
+                    result.add(word);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Normalisiert einen Wert für den Vergleich, indem Akzente entfernt und alle Buchstaben kleingeschrieben werden.
+     *
+     * @param value Der Wert, der normalisiert wird.
+     *
+     * @return Der normalisierte Wert.
+     */
+    static String normalize(final String value) {
+        final String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Zerlegt einen Begriff in seine Trigramme. Der Begriff wird dafür vorne und hinten aufgefüllt, damit auch kurze
+     * Begriffe und ihre Ränder eigene Trigramme erhalten.
+     *
+     * @param term Der Begriff.
+     *
+     * @return Die Trigramme des Begriffs in ihrer Reihenfolge.
+     */
+    private static List<String> gramsOf(final String term) {
+        final String padded = "" + GRAM_PADDING + GRAM_PADDING + term + GRAM_PADDING;
+        final List<String> result = new ArrayList<>(padded.length() - GRAM_LENGTH + 1);
+        for (int i = 0; i + GRAM_LENGTH <= padded.length(); i++) {
+            result.add(padded.substring(i, i + GRAM_LENGTH));
+        }
+        return result;
+    }
+
+    /**
+     * Berechnet die Levenshtein-Distanz zweier Begriffe und bricht ab, sobald sie die Grenze sicher überschreitet.
+     *
+     * @param left  Der erste Begriff.
+     * @param right Der zweite Begriff.
+     * @param limit Die Distanz, ab der abgebrochen wird.
+     *
+     * @return Die Distanz oder ein Wert größer als die Grenze.
+     */
+    private static int distance(
+            final String left,
+            final String right,
+            final int limit
+    ) {
+        int[] previous = new int[right.length() + 1];
+        int[] current = new int[right.length() + 1];
+        for (int j = 0; j <= right.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= left.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= right.length(); j++) {
+                final int cost = left.charAt(i - 1) == right.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+
+            // every later row can only grow from this minimum
+            if (rowMinimum > limit) {
+                return limit + 1;
+            }
+
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[right.length()];
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein Begriff, der eine unscharfe Anfrage erfüllt, mit seiner Distanz zu ihr.
+     */
+    private static final class Match {
+
+        /** Der Begriff. */
+        private final String term;
+        /** Die Levenshtein-Distanz des Begriffs zu der Anfrage. */
+        private final int distance;
+
+        /**
+         * Erzeugt einen neuen {@link Match}.
+         *
+         * @param term     Der Begriff.
+         * @param distance Die Levenshtein-Distanz des Begriffs zu der Anfrage.
+         */
+        private Match(
+                final String term,
+                final int distance
+        ) {
+            this.term = term;
+            this.distance = distance;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,174 @@
+package de.edward;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Ein {@link ShardRing} ordnet Schlüssel per konsistentem Hashing einem von mehreren Shards zu. Jeder Shard belegt eine
+ * feste Anzahl an virtuellen Knoten auf einem Ring aus 64-Bit-Hashwerten; ein Schlüssel gehört dem ersten Knoten, der
+ * auf seinen eigenen Hashwert folgt. Kommt ein Shard hinzu, wechseln dadurch nur etwa {@code 1 / n} aller Schlüssel
+ * ihren Shard, und zwar ausschließlich zu dem neuen Shard.
+ *
+ * <p>Da MariaDB Schlüssel mit der Sortierung {@value EntityDescriptor#COLLATION} ohne Unterscheidung von Groß- und
+ * Kleinschreibung, ohne Akzente und ohne folgende Leerzeichen vergleicht, wird ein Schlüssel vor dem Hashen ebenso
+ * normalisiert. Schlüssel, die für die Datenbank gleich sind, etwa {@code "tchó"} und {@code "Tcho "} oder
+ * {@code "Claßen"} und {@code "Classen"}, landen so stets auf demselben Shard.</p>
+ *
+ * <p>Ein {@link ShardRing} ist unveränderlich und kann ohne Synchronisation von beliebig vielen Threads genutzt
+ * werden.</p>
+ */
+final class ShardRing {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Anzahl an virtuellen Knoten je Shard, die die Schlüssel gleichmäßig über die Shards verteilen. */
+    static final int VIRTUAL_NODES = 160;
+    /** Der Startwert des FNV-1a-Hashes. */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    /** Der Multiplikator des FNV-1a-Hashes. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /** Die diakritischen Zeichen, die nach der kanonischen Zerlegung eines Schlüssels entfernt werden. */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Anzahl an Shards auf dem Ring. */
+    private final int shards;
+    /** Die aufsteigend sortierten Hashwerte aller virtuellen Knoten. */
+    private final long[] points;
+    /** Der Shard des virtuellen Knotens an derselben Position in {@link #points}. */
+    private final int[] owners;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link ShardRing} mit den Shards {@code 0} bis {@code shards - 1}.
+     *
+     * @param shards Die Anzahl an Shards.
+     */
+    ShardRing(final int shards) {
+        // check the shard count for validity
+        if (shards <= 0) {
+            throw new IllegalArgumentException("The supplied shard count must be positive!");
+        }
+
+        this.shards = shards;
+        final long[] nodes = new long[shards * VIRTUAL_NODES];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                nodes[shard * VIRTUAL_NODES + node] = mix(((long) shard << 32) | node);
+            }
+        }
+
+        // sort the node hashes while keeping their owners in the same order
+        final long[] sorted = nodes.clone();
+        Arrays.sort(sorted);
+        this.points = sorted;
+        this.owners = new int[sorted.length];
+        for (int i = 0; i < nodes.length; i++) {
+            owners[Arrays.binarySearch(sorted, nodes[i])] = i / VIRTUAL_NODES;
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="routing">
+
+    /**
+     * Gibt den Shard zurück, dem der übergebene Schlüssel gehört.
+     *
+     * @param key Der Schlüssel, dessen Shard bestimmt wird.
+     *
+     * @return Der Index des Shards.
+     */
+    int shardOf(final Object key) {
+        final long hash = hash(key);
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Erzeugt einen neuen {@link ShardRing}, der zusätzlich einen weiteren Shard mit dem nächsten Index enthält.
+     *
+     * @return Der neue {@link ShardRing} mit einem Shard mehr.
+     */
+    ShardRing withAdditionalShard() {
+        return new ShardRing(shards + 1);
+    }
+
+    /**
+     * Gibt die Anzahl an Shards auf dem Ring zurück.
+     *
+     * @return Die Anzahl an Shards.
+     */
+    int getShards() {
+        return shards;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="hashing">
+
+    /**
+     * Berechnet den Hashwert eines Schlüssels aus den UTF-8-Bytes seiner normalisierten Zeichenkette, damit jede Instanz
+     * der Anwendung denselben Schlüssel unabhängig von {@link Object#hashCode()} demselben Shard zuordnet.
+     *
+     * @param key Der Schlüssel, dessen Hashwert berechnet wird.
+     *
+     * @return Der Hashwert des Schlüssels.
+     */
+    private static long hash(final Object key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final byte b : normalize(key).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Normalisiert einen Schlüssel so, wie MariaDB ihn mit der Sortierung {@value EntityDescriptor#COLLATION}
+     * vergleicht: in Kleinbuchstaben, ohne Akzente, ohne folgende Leerzeichen und mit {@code "ss"} statt {@code "ß"}.
+     * Die Akzente werden entfernt, indem der Schlüssel kanonisch zerlegt ({@link Normalizer.Form#NFD}) und alle
+     * diakritischen Zeichen verworfen werden.
+     *
+     * @param key Der Schlüssel, der normalisiert wird.
+     *
+     * @return Die normalisierte Zeichenkette des Schlüssels.
+     */
+    static String normalize(final Object key) {
+        final String decomposed = Normalizer.normalize(key.toString(), Normalizer.Form.NFD);
+        final String text = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return text.substring(0, end).toLowerCase(Locale.ROOT).replace("ß", "ss");
+    }
+
+    /**
+     * Verteilt die Bits eines Wertes gleichmäßig über alle 64 Bits (Finalisierung von MurmurHash3).
+     *
+     * @param value Der Wert, dessen Bits verteilt werden.
+     *
+     * @return Der verteilte Wert.
+     */
+    private static long mix(final long value) {
+        long mixed = value;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb93fe53ec5a3L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,541 @@
+package de.edward;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * Ein {@link ShardedRepository} verteilt die Datensätze einer Tabelle per konsistentem Hashing über ihren Schlüssel auf
+ * mehrere {@link Repository Repositories}, von denen jedes einen eigenen {@link DatabaseHandler} und damit einen
+ * eigenen Server und Connection-Pool nutzt. Schreib- und Speicherkapazität wachsen dadurch mit der Anzahl an Shards.
+ *
+ * <p>Zugriffe über einen Schlüssel werden an genau einen Shard geleitet. Gesammelte Schreibzugriffe werden nach Shards
+ * aufgeteilt und parallel geschrieben. Abfragen über alle Datensätze und die zuletzt geschriebenen Schlüssel werden an
+ * alle Shards gestellt und zusammengeführt.</p>
+ *
+ * <p>Über {@link #addShard(Repository)} kann im laufenden Betrieb ein Shard hinzugefügt werden. Während der
+ * Umverteilung wird bereits auf den neuen Shard geschrieben, während Lesezugriffe auf noch nicht verschobene Schlüssel
+ * auf den bisherigen Shard zurückfallen.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class ShardedRepository<K, T> implements AutoCloseable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die {@link TransactionOptions}, mit denen ein Block auf dem bisherigen Shard gelöscht wird. */
+    private static final TransactionOptions MOVE_OPTIONS = TransactionOptions.DEFAULT
+            .withPriority(ConnectionPriority.BULK);
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der {@link EntityDescriptor}, der die Tabelle auf allen Shards beschreibt. */
+    private final EntityDescriptor<K, T> descriptor;
+    /** Die aktuelle Verteilung der Schlüssel auf die Shards. */
+    private volatile Topology<K, T> topology;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt ein neues {@link ShardedRepository} über die übergebenen Shards. Die Reihenfolge der Shards bestimmt ihre
+     * Position auf dem Ring und muss daher bei jedem Start gleich sein.
+     *
+     * @param shards Die {@link Repository Repositories} der Shards, die alle dieselbe Tabelle beschreiben.
+     */
+    public ShardedRepository(final List<Repository<K, T>> shards) {
+        // check the shards for validity
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("The supplied shards must not be empty!");
+        }
+        final EntityDescriptor<K, T> first = shards.get(0).getDescriptor();
+        for (final Repository<K, T> shard : shards) {
+            if (shard.getDescriptor() != first) {
+                throw new IllegalArgumentException("The supplied shards must share the same descriptor!");
+            }
+        }
+
+        this.descriptor = first;
+        this.topology = new Topology<>(List.copyOf(shards), new ShardRing(shards.size()), null);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="schema">
+
+    /**
+     * Legt die Tabelle samt Index auf allen Shards an, sofern sie noch nicht existiert.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht angelegt werden konnte.
+     */
+    public void createTable() throws SQLException {
+        for (final Repository<K, T> shard : topology.shards) {
+            shard.createTable();
+        }
+    }
+
+    /**
+     * Lädt die Schlüssel der zuletzt geschriebenen Datensätze auf allen Shards in ihre {@link LatestEntryTracker}.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Schlüssel nicht gelesen werden konnten.
+     */
+    public void loadLatestEntries() throws SQLException {
+        for (final Repository<K, T> shard : topology.shards) {
+            shard.loadLatestEntries();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="read">
+
+    /**
+     * Gibt den Datensatz zu dem übergebenen Schlüssel von seinem Shard zurück. Wird der Schlüssel gerade verschoben
+     * und ist auf dem neuen Shard noch nicht vorhanden, wird der bisherige Shard gefragt.
+     *
+     * @param key Der Schlüssel, dessen Datensatz gesucht wird.
+     *
+     * @return Der Datensatz zu dem Schlüssel oder ein leeres {@link Optional}, wenn es keinen gibt.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht gelesen werden konnte.
+     */
+    public Optional<T> find(final K key) throws SQLException {
+        final Topology<K, T> current = topology;
+        final int shard = current.ring.shardOf(key);
+        final Optional<T> found = current.shards.get(shard).find(key);
+        if (found.isPresent() || current.previous == null) {
+            return found;
+        }
+
+        // the key may not have been moved yet
+        final int previousShard = current.previous.shardOf(key);
+        return previousShard == shard ? found : current.shards.get(previousShard).find(key);
+    }
+
+    /**
+     * Gibt alle Datensätze aller Shards nacheinander als {@link Stream} zurück. Die Shards werden erst gelesen, wenn
+     * der {@link Stream} sie erreicht. Während einer Umverteilung kann ein Datensatz doppelt enthalten sein.
+     *
+     * @return Ein {@link Stream} über alle Datensätze aller Shards.
+     */
+    public Stream<T> streamAll() {
+        return topology.shards.stream().flatMap(shard -> {
+            try {
+                return shard.streamAll();
+            } catch (final SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        });
+    }
+
+    /**
+     * Gibt den Schlüssel des zuletzt geschriebenen Datensatzes über alle Shards zurück.
+     *
+     * @return Der Schlüssel des zuletzt geschriebenen Datensatzes oder ein leeres {@link Optional}, wenn alle Shards
+     *     leer sind.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Schlüssel nicht gelesen werden konnte.
+     */
+    public Optional<K> newestKey() throws SQLException {
+        final List<LatestEntryTracker.Entry<K>> newest = newest(1);
+        return newest.isEmpty() ? Optional.empty() : Optional.of(newest.get(0).getKey());
+    }
+
+    /**
+     * Fragt die zuletzt geschriebenen Schlüssel parallel auf allen Shards ab und führt sie zusammen, den neuesten
+     * zuerst.
+     *
+     * @param limit Die maximale Anzahl an Schlüsseln.
+     *
+     * @return Die Schlüssel der zuletzt geschriebenen Datensätze aller Shards, den neuesten zuerst.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Schlüssel nicht gelesen werden konnten.
+     */
+    public List<LatestEntryTracker.Entry<K>> newest(final int limit) throws SQLException {
+        final List<Repository<K, T>> shards = topology.shards;
+        final RowMapper<LatestEntryTracker.Entry<K>> mapper = rs -> new LatestEntryTracker.Entry<>(
+                rs.getObject(1, descriptor.getKeyType()),
+                rs.getTimestamp(2).getTime()
+        );
+        final List<CompletableFuture<List<LatestEntryTracker.Entry<K>>>> futures = new ArrayList<>(shards.size());
+        for (final Repository<K, T> shard : shards) {
+            futures.add(shard.getDatabaseHandler().submitQuery(descriptor.getSelectNewestSql(), mapper, limit));
+        }
+
+        final List<LatestEntryTracker.Entry<K>> merged = new ArrayList<>();
+        for (final CompletableFuture<List<LatestEntryTracker.Entry<K>>> future : futures) {
+            merged.addAll(join(future));
+        }
+        merged.sort(Comparator.comparingLong(LatestEntryTracker.Entry<K>::getEpochMillis).reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="write">
+
+    /**
+     * Fügt einen Datensatz auf seinem Shard hinzu oder aktualisiert ihn.
+     *
+     * @param row Der Datensatz, der hinzugefügt oder aktualisiert werden soll.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Datensatz nicht geschrieben werden konnte.
+     */
+    public void upsert(final T row) throws SQLException {
+        final Topology<K, T> current = topology;
+        current.shards.get(current.ring.shardOf(descriptor.keyOf(row))).upsert(row);
+    }
+
+    /**
+     * Teilt die übergebenen Datensätze nach ihren Shards auf und schreibt jeden Teil parallel in einer eigenen
+     * Stapel-Verarbeitung.
+     *
+     * @param rows Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     *
+     * @return Die Anzahl an geschriebenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Teil nicht geschrieben werden konnte.
+     */
+    public int upsertAll(final Collection<? extends T> rows) throws SQLException {
+        int written = 0;
+        for (final CompletableFuture<Integer> future : upsertAllAsync(rows)) {
+            written += join(future);
+        }
+        return written;
+    }
+
+    /**
+     * Teilt die übergebenen Datensätze nach ihren Shards auf und startet für jeden Teil eine asynchrone
+     * Stapel-Verarbeitung. Der Aufruf kehrt sofort zurück.
+     *
+     * @param rows Die Datensätze, die hinzugefügt oder aktualisiert werden sollen.
+     *
+     * @return Je nicht leerem Teil ein {@link CompletableFuture}, der mit der Anzahl an geschriebenen Datensätzen
+     *     abgeschlossen wird.
+     */
+    public List<CompletableFuture<Integer>> upsertAllAsync(final Collection<? extends T> rows) {
+        final Topology<K, T> current = topology;
+        final List<List<T>> partitions = new ArrayList<>(current.shards.size());
+        for (int i = 0; i < current.shards.size(); i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (final T row : rows) {
+            partitions.get(current.ring.shardOf(descriptor.keyOf(row))).add(row);
+        }
+
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            if (!partitions.get(i).isEmpty()) {
+                futures.add(current.shards.get(i).upsertAllAsync(partitions.get(i)));
+            }
+        }
+        return futures;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="rebalancing">
+
+    /**
+     * Fügt im laufenden Betrieb einen weiteren Shard hinzu und verschiebt alle Datensätze, die nach der neuen
+     * Verteilung ihm gehören, von den bisherigen Shards. Schreibzugriffe gehen sofort an den neuen Shard; Lesezugriffe
+     * fallen bis zum Abschluss der Umverteilung auf den bisherigen Shard zurück.
+     *
+     * <p>Jeder Datensatz wird mit seinem ursprünglichen Zeitstempel kopiert und nur übernommen, wenn auf dem neuen
+     * Shard nicht bereits ein neuerer Stand geschrieben wurde. Erst danach wird er auf dem bisherigen Shard gelöscht.
+     * Bricht die Umverteilung ab, kann sie mit demselben Shard erneut gestartet werden.</p>
+     *
+     * <p>Der Aufruf blockiert, bis alle Datensätze verschoben wurden, und sollte daher auf einem eigenen Thread laufen.
+     * Es kann immer nur eine Umverteilung gleichzeitig laufen.</p>
+     *
+     * @param shard Das {@link Repository} des neuen Shards, dessen Tabelle bereits angelegt ist.
+     *
+     * @return Die Anzahl an verschobenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn Datensätze nicht verschoben werden konnten.
+     */
+    public synchronized int addShard(final Repository<K, T> shard) throws SQLException {
+        // check the shard for validity
+        if (shard.getDescriptor() != descriptor) {
+            throw new IllegalArgumentException("The supplied shard must share the same descriptor!");
+        }
+
+        final Topology<K, T> before = topology;
+        if (before.shards.contains(shard)) {
+            throw new IllegalArgumentException("The supplied shard is already part of this repository!");
+        }
+        final List<Repository<K, T>> shards = new ArrayList<>(before.shards);
+        shards.add(shard);
+        final ShardRing ring = before.ring.withAdditionalShard();
+        final int target = shards.size() - 1;
+
+        // route writes to the new shard, while reads may still fall back to the old owners
+        final Topology<K, T> migrating = new Topology<>(List.copyOf(shards), ring, before.ring);
+        this.topology = migrating;
+
+        int moved = 0;
+        for (final Repository<K, T> source : before.shards) {
+            moved += move(source, shard, ring, target);
+        }
+
+        // all moved keys are now only present on the new shard
+        this.topology = new Topology<>(migrating.shards, ring, null);
+        return moved;
+    }
+
+    /**
+     * Verschiebt alle Datensätze eines Shards, die nach der neuen Verteilung dem Ziel gehören, blockweise auf das Ziel.
+     * Gelesen wird vom Primärserver des bisherigen Shards, da ein Replikat noch nicht alle Datensätze kennen muss.
+     *
+     * @param source Der Shard, von dem die Datensätze verschoben werden.
+     * @param target Der Shard, auf den die Datensätze verschoben werden.
+     * @param ring   Die neue Verteilung der Schlüssel.
+     * @param index  Der Index des Ziels auf dem neuen Ring.
+     *
+     * @return Die Anzahl an verschobenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht verschoben werden konnte.
+     */
+    private int move(
+            final Repository<K, T> source,
+            final Repository<K, T> target,
+            final ShardRing ring,
+            final int index
+    ) throws SQLException {
+        final RowMapper<T> mapper = descriptor.getMapper();
+        final int timestampIndex = descriptor.getColumnNames().size() + 1;
+        final List<Moved<T>> chunk = new ArrayList<>(DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE);
+        int moved = 0;
+
+        // read from the primary, as a lagging replica would miss rows that then stay behind on the source
+        try (final Stream<Moved<T>> rows = source.getDatabaseHandler().stream(
+                ConnectionPriority.BULK,
+                descriptor.getSelectAllTimestampedSql(),
+                rs -> new Moved<>(mapper.map(rs), rs.getTimestamp(timestampIndex))
+        )) {
+            final Iterable<Moved<T>> iterable = rows::iterator;
+            for (final Moved<T> row : iterable) {
+                if (ring.shardOf(descriptor.keyOf(row.row)) != index) {
+                    continue;
+                }
+
+                chunk.add(row);
+                if (chunk.size() == DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE) {
+                    moved += moveChunk(source, target, chunk);
+                    chunk.clear();
+                }
+            }
+        } catch (final UncheckedSQLException e) {
+            throw e.getCause();
+        }
+
+        if (!chunk.isEmpty()) {
+            moved += moveChunk(source, target, chunk);
+        }
+        return moved;
+    }
+
+    /**
+     * Kopiert einen Block an Datensätzen mit ihren ursprünglichen Zeitstempeln auf das Ziel und löscht sie danach auf
+     * dem bisherigen Shard, sofern sie dort seit dem Lesen nicht neu geschrieben wurden. Ein noch laufender
+     * Schreibzugriff auf den bisherigen Shard überschreibt so keinen kopierten Stand; der dabei zurückgebliebene neuere
+     * Stand wird erneut gelesen, kopiert und gelöscht, bis der Block vollständig verschoben ist. Das Löschen wird über
+     * das {@link Repository} des bisherigen Shards gemeldet.
+     *
+     * @param source Der Shard, von dem die Datensätze verschoben werden.
+     * @param target Der Shard, auf den die Datensätze verschoben werden.
+     * @param chunk  Die Datensätze, die verschoben werden.
+     *
+     * @return Die Anzahl an verschobenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Block nicht verschoben werden konnte.
+     */
+    private int moveChunk(
+            final Repository<K, T> source,
+            final Repository<K, T> target,
+            final List<Moved<T>> chunk
+    ) throws SQLException {
+        final StatementBinder<T> binder = descriptor.getUpsertBinder();
+        final RowMapper<T> mapper = descriptor.getMapper();
+        final int timestampIndex = descriptor.getColumnNames().size() + 1;
+
+        List<Moved<T>> pending = chunk;
+        while (!pending.isEmpty()) {
+            target.getDatabaseHandler().<Moved<T>>upsertBatch(
+                    descriptor.getMergeSql(),
+                    pending.iterator(),
+                    (stmt, row) -> {
+                        binder.bind(stmt, row.row);
+                        stmt.setTimestamp(timestampIndex, row.timestamp);
+                    },
+                    DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE,
+                    ConnectionPriority.BULK
+            );
+
+            // delete only the copied version and read what was written since then on the primary
+            final Object[] keys = new Object[pending.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = descriptor.keyOf(pending.get(i).row);
+            }
+            final List<Moved<T>> copied = pending;
+            final List<Moved<T>> remaining = source.getDatabaseHandler().inTransaction(MOVE_OPTIONS, tx -> {
+                tx.batch(descriptor.getDeleteByKeyIfNotNewerSql(), copied, (stmt, row) -> {
+                    stmt.setObject(1, descriptor.keyOf(row.row));
+                    stmt.setTimestamp(2, row.timestamp);
+                });
+                return tx.query(
+                        descriptor.getSelectByKeysTimestampedSql(keys.length),
+                        rs -> new Moved<>(mapper.map(rs), rs.getTimestamp(timestampIndex)),
+                        keys
+                );
+            });
+            final Set<K> remainingKeys = new HashSet<>();
+            for (final Moved<T> row : remaining) {
+                remainingKeys.add(descriptor.keyOf(row.row));
+            }
+
+            // report the deleted versions grouped by their timestamp
+            final Map<Long, List<K>> deleted = new LinkedHashMap<>();
+            for (final Moved<T> row : pending) {
+                final K key = descriptor.keyOf(row.row);
+                target.invalidate(key);
+                if (!remainingKeys.contains(key)) {
+                    final long epochMillis = row.timestamp == null ? Long.MIN_VALUE : row.timestamp.getTime();
+                    deleted.computeIfAbsent(epochMillis, ignored -> new ArrayList<>()).add(key);
+                }
+            }
+            for (final Map.Entry<Long, List<K>> entry : deleted.entrySet()) {
+                source.deleted(entry.getValue(), entry.getKey());
+            }
+            pending = remaining;
+        }
+        return chunk.size();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Wartet auf das Ergebnis eines Shards und wirft dessen Fehlermeldung als {@link SQLException} weiter.
+     *
+     * @param future Der {@link CompletableFuture}, auf dessen Ergebnis gewartet wird.
+     * @param <R>    Der Typ des Ergebnisses.
+     *
+     * @return Das Ergebnis des Shards.
+     *
+     * @throws SQLException Die Fehlermeldung, die auf dem Shard aufgetreten ist.
+     */
+    private static <R> R join(final CompletableFuture<R> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedSQLException) {
+                throw ((UncheckedSQLException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+    //</editor-fold>
+
+
+    /**
+     * Schließt die {@link Repository Repositories} aller Shards. Die {@link DatabaseHandler} der Shards werden nicht
+     * geschlossen.
+     */
+    @Override
+    public void close() {
+        for (final Repository<K, T> shard : topology.shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Gibt die {@link Repository Repositories} aller Shards in ihrer Reihenfolge auf dem Ring zurück.
+     *
+     * @return Die {@link Repository Repositories} aller Shards.
+     */
+    public List<Repository<K, T>> getShards() {
+        return topology.shards;
+    }
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Eine unveränderliche Verteilung der Schlüssel auf die Shards, die als Ganzes ausgetauscht wird.
+     *
+     * @param <K> Der Typ des Schlüssels der Tabelle.
+     * @param <T> Der Typ der Datensätze der Tabelle.
+     */
+    private static final class Topology<K, T> {
+
+        /** Die {@link Repository Repositories} der Shards in ihrer Reihenfolge auf dem Ring. */
+        private final List<Repository<K, T>> shards;
+        /** Der {@link ShardRing}, nach dem geschrieben und zuerst gelesen wird. */
+        private final ShardRing ring;
+        /** Der {@link ShardRing} vor einer laufenden Umverteilung oder {@code null}. */
+        private final ShardRing previous;
+
+        /**
+         * Erzeugt eine neue {@link Topology}.
+         *
+         * @param shards   Die {@link Repository Repositories} der Shards in ihrer Reihenfolge auf dem Ring.
+         * @param ring     Der {@link ShardRing}, nach dem geschrieben und zuerst gelesen wird.
+         * @param previous Der {@link ShardRing} vor einer laufenden Umverteilung oder {@code null}.
+         */
+        private Topology(
+                final List<Repository<K, T>> shards,
+                final ShardRing ring,
+                final ShardRing previous
+        ) {
+            this.shards = shards;
+            this.ring = ring;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * Ein Datensatz, der mit seinem ursprünglichen Zeitstempel verschoben wird.
+     *
+     * @param <T> Der Typ des Datensatzes.
+     */
+    private static final class Moved<T> {
+
+        /** Der Datensatz. */
+        private final T row;
+        /** Der Zeitstempel, zu dem der Datensatz zuletzt geschrieben wurde. */
+        private final Timestamp timestamp;
+
+        /**
+         * Erzeugt einen neuen {@link Moved}.
+         *
+         * @param row       Der Datensatz.
+         * @param timestamp Der Zeitstempel, zu dem der Datensatz zuletzt geschrieben wurde.
+         */
+        private Moved(
+                final T row,
+                final Timestamp timestamp
+        ) {
+            this.row = row;
+            this.timestamp = timestamp;
+        }
+    }
+    //</editor-fold>
+}
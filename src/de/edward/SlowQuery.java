@@ -0,0 +1,172 @@
+package de.edward;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Ein {@link SlowQuery} ist ein einzelner Eintrag des {@link SlowQueryLog}: eine Anweisung, die langsamer als die
+ * Schwelle war oder per Stichprobe ausgewählt wurde, zusammen mit dem Ausführungsplan, den MariaDB für sie wählt. Die
+ * Werte der Parameter werden nicht festgehalten, sondern nur ihre Typen und bei Texten ihre Länge.
+ */
+public final class SlowQuery {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der Zeitpunkt, zu dem die Anweisung beendet wurde. */
+    private final Instant time;
+    /** Die normalisierte SQL-Anweisung, in der Literale durch {@code ?} ersetzt sind. */
+    private final String sql;
+    /** Die geschwärzten Parameter der Anweisung in ihrer Reihenfolge. */
+    private final List<String> parameters;
+    /** Die Laufzeit der Anweisung in Nanosekunden. */
+    private final long elapsedNanos;
+    /** Die Anzahl an gelesenen oder geschriebenen Zeilen oder {@code -1}, wenn sie unbekannt ist. */
+    private final long rows;
+    /** Ob die Anweisung per Stichprobe statt wegen ihrer Laufzeit erfasst wurde. */
+    private final boolean sampled;
+    /** Die Zeilen des Ausführungsplans oder eine leere Liste, wenn keiner ermittelt wurde. */
+    private final List<String> plan;
+    /** Die geschätzte Anzahl an untersuchten Zeilen laut Ausführungsplan oder {@code -1}, wenn sie unbekannt ist. */
+    private final long rowsExamined;
+    /** Ob der Ausführungsplan die Tabelle vollständig durchsucht oder ohne Index sortiert. */
+    private final boolean missingIndex;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link SlowQuery}.
+     *
+     * @param time         Der Zeitpunkt, zu dem die Anweisung beendet wurde.
+     * @param sql          Die normalisierte SQL-Anweisung.
+     * @param parameters   Die geschwärzten Parameter der Anweisung in ihrer Reihenfolge.
+     * @param elapsedNanos Die Laufzeit der Anweisung in Nanosekunden.
+     * @param rows         Die Anzahl an gelesenen oder geschriebenen Zeilen oder {@code -1}.
+     * @param sampled      Ob die Anweisung per Stichprobe erfasst wurde.
+     * @param plan         Die Zeilen des Ausführungsplans.
+     * @param rowsExamined Die geschätzte Anzahl an untersuchten Zeilen oder {@code -1}.
+     * @param missingIndex Ob der Ausführungsplan auf einen fehlenden Index hindeutet.
+     */
+    SlowQuery(
+            final Instant time,
+            final String sql,
+            final List<String> parameters,
+            final long elapsedNanos,
+            final long rows,
+            final boolean sampled,
+            final List<String> plan,
+            final long rowsExamined,
+            final boolean missingIndex
+    ) {
+        this.time = time;
+        this.sql = sql;
+        this.parameters = List.copyOf(parameters);
+        this.elapsedNanos = elapsedNanos;
+        this.rows = rows;
+        this.sampled = sampled;
+        this.plan = List.copyOf(plan);
+        this.rowsExamined = rowsExamined;
+        this.missingIndex = missingIndex;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt den Zeitpunkt zurück, zu dem die Anweisung beendet wurde.
+     *
+     * @return Der Zeitpunkt, zu dem die Anweisung beendet wurde.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Gibt die normalisierte SQL-Anweisung zurück, in der Literale durch {@code ?} ersetzt sind.
+     *
+     * @return Die normalisierte SQL-Anweisung.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Gibt die geschwärzten Parameter der Anweisung zurück, etwa {@code String(12)} oder {@code Timestamp}.
+     *
+     * @return Die geschwärzten Parameter der Anweisung in ihrer Reihenfolge.
+     */
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Gibt die Laufzeit der Anweisung zurück.
+     *
+     * @return Die Laufzeit der Anweisung in Nanosekunden.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gibt die Anzahl an Zeilen zurück, die die Anweisung gelesen oder geschrieben hat.
+     *
+     * @return Die Anzahl an gelesenen oder geschriebenen Zeilen oder {@code -1}, wenn sie unbekannt ist.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gibt zurück, ob die Anweisung per Stichprobe statt wegen ihrer Laufzeit erfasst wurde.
+     *
+     * @return Ob die Anweisung per Stichprobe erfasst wurde.
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Gibt die Zeilen des Ausführungsplans zurück, den MariaDB für die Anweisung wählt.
+     *
+     * @return Die Zeilen des Ausführungsplans oder eine leere Liste, wenn keiner ermittelt wurde.
+     */
+    public List<String> getPlan() {
+        return plan;
+    }
+
+    /**
+     * Gibt die Anzahl an Zeilen zurück, die die Anweisung laut Ausführungsplan untersucht.
+     *
+     * @return Die geschätzte Anzahl an untersuchten Zeilen oder {@code -1}, wenn sie unbekannt ist.
+     */
+    public long getRowsExamined() {
+        return rowsExamined;
+    }
+
+    /**
+     * Gibt zurück, ob der Ausführungsplan eine Tabelle vollständig durchsucht oder ohne Index sortiert, was auf einen
+     * fehlenden Index hindeutet.
+     *
+     * @return Ob der Ausführungsplan auf einen fehlenden Index hindeutet.
+     */
+    public boolean isMissingIndex() {
+        return missingIndex;
+    }
+    //</editor-fold>
+
+
+    @Override
+    public String toString() {
+        return time
+                + "\t" + (elapsedNanos / 1000) / 1000.0 + "ms"
+                + "\trows=" + rows
+                + "\texamined=" + rowsExamined
+                + (sampled ? "\tsampled" : "\tslow")
+                + (missingIndex ? "\tMISSING_INDEX" : "")
+                + "\t" + sql
+                + "\tparams=" + parameters
+                + "\tplan=" + plan;
+    }
+}
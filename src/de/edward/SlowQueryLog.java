@@ -0,0 +1,853 @@
+package de.edward;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Das {@link SlowQueryLog} misst jede Anweisung, die über eine Verbindung eines {@link DatabaseHandler} ausgeführt
+ * wird. Anweisungen, die länger als die Schwelle dauern, sowie ein zufälliger Anteil aller übrigen werden als
+ * {@link SlowQuery} festgehalten: mit ihrer normalisierten SQL-Anweisung, ihren geschwärzten Parametern und der Anzahl
+ * an gelesenen oder geschriebenen Zeilen.
+ *
+ * <p>Für jede erfasste Anweisung ermittelt ein eigener Thread über eine separate Verbindung mit {@code EXPLAIN} den
+ * Ausführungsplan, aus dem die Anzahl an untersuchten Zeilen geschätzt und ein fehlender Index erkannt wird. Der Plan
+ * einer Anweisung wird höchstens einmal je Minute neu ermittelt. Die Einträge landen in einem begrenzten Ringpuffer und
+ * optional in einer lokalen Datei, die ab einer festen Größe gerollt wird.</p>
+ *
+ * <p>Anweisungen, die nicht erfasst werden, kosten nur die Zeitmessung und die Weiterleitung an die eigentliche
+ * Verbindung. Bei Abfragen wird die Zeit bis zur ersten Antwort gemessen; die Zeilen werden gezählt, während sie
+ * gelesen werden. Die Parameter werden nur für Ausführungen mitgeschrieben, die vorab als Stichprobe ausgewählt wurden
+ * oder deren SQL-Anweisung bereits einmal langsam war; die erste langsame Ausführung wird daher ohne Parameter und
+ * ohne neuen Ausführungsplan erfasst. Ist die Verbindung für {@code EXPLAIN} gerade belegt, wird der Eintrag ebenfalls
+ * ohne Plan abgelegt.</p>
+ */
+public final class SlowQueryLog implements AutoCloseable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Zeit in Nanosekunden, nach der der Ausführungsplan einer bereits erklärten Anweisung neu ermittelt wird. */
+    private static final long PLAN_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /** Die Anzahl an Einträgen, die höchstens auf ihren Ausführungsplan warten; weitere werden ohne Plan abgelegt. */
+    private static final int EXPLAIN_QUEUE_CAPACITY = 64;
+    /** Die Zeit in Sekunden, die ein {@code EXPLAIN} und das Beenden des Threads höchstens dauern dürfen. */
+    private static final int EXPLAIN_TIMEOUT_SECONDS = 5;
+    /** Die Endung, unter der die vorherige Datei beim Rollen abgelegt wird. */
+    private static final String ROLLED_SUFFIX = ".1";
+    /** Die maximale Anzahl an SQL-Anweisungen, deren Parameter nach langsamen Ausführungen mitgeschrieben werden. */
+    private static final int WATCHED_CAPACITY = 1024;
+    /** Die Parameter einer Anweisung, für die noch kein Parameter gesetzt wurde. */
+    private static final Object[] NO_PARAMETERS = new Object[0];
+    /** Das Muster der Anweisungen, für die MariaDB einen Ausführungsplan ermitteln kann. */
+    private static final Pattern EXPLAINABLE = Pattern.compile(
+            "^\\s*(?:SELECT|UPDATE|DELETE|INSERT|REPLACE)\\b",
+            Pattern.CASE_INSENSITIVE
+    );
+    /** Das Muster der Text-Literale, die beim Normalisieren ersetzt werden. */
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    /** Das Muster der Zahlen-Literale, die beim Normalisieren ersetzt werden. */
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    /** Das Muster, über das aufeinanderfolgende Leerzeichen beim Normalisieren zusammengefasst werden. */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Quelle der separaten Verbindungen, über die die Ausführungspläne ermittelt werden. */
+    private final DataSource explainSource;
+    /** Die Laufzeit in Nanosekunden, ab der jede Anweisung erfasst wird, oder {@link Long#MAX_VALUE}. */
+    private final long thresholdNanos;
+    /** Der Anteil der übrigen Anweisungen, die per Stichprobe erfasst werden. */
+    private final double sampleRate;
+    /** Die maximale Anzahl an Einträgen im Ringpuffer. */
+    private final int capacity;
+    /** Die zuletzt erfassten Einträge, der älteste zuerst. */
+    private final ArrayDeque<SlowQuery> recent;
+    /** Die Datei, in die die Einträge geschrieben werden, oder {@code null}. */
+    private final Path file;
+    /** Die ungefähre Größe in Bytes, ab der die Datei gerollt wird. */
+    private final long maximumFileBytes;
+    /** Die vorbereiteten SQL-Anweisungen, deren Parameter mitgeschrieben werden, weil sie bereits langsam waren. */
+    private final Set<String> watched = ConcurrentHashMap.newKeySet();
+    /** Der zuletzt ermittelte Ausführungsplan je normalisierter Anweisung. */
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+    /** Der Thread, der die Ausführungspläne ermittelt und die Datei schreibt. */
+    private final ThreadPoolExecutor explainer;
+    /** Die {@link DatabaseMetrics}, in denen die langsamen Anweisungen gezählt werden. */
+    private final DatabaseMetrics metrics;
+    /** Der {@link BufferedWriter} der Datei oder {@code null}, solange sie nicht geöffnet ist. */
+    private BufferedWriter writer;
+    /** Die ungefähre Größe der Datei in Bytes. */
+    private long fileBytes;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt ein neues {@link SlowQueryLog} und startet den Thread, der die Ausführungspläne ermittelt.
+     *
+     * @param explainSource    Die Quelle der separaten Verbindungen, über die die Ausführungspläne ermittelt werden.
+     * @param thresholdNanos   Die Laufzeit in Nanosekunden, ab der jede Anweisung erfasst wird, oder
+     *                         {@link Long#MAX_VALUE}, wenn nur Stichproben erfasst werden.
+     * @param sampleRate       Der Anteil zwischen {@code 0} und {@code 1} der übrigen Anweisungen, die per Stichprobe
+     *                         erfasst werden.
+     * @param capacity         Die maximale Anzahl an Einträgen im Ringpuffer.
+     * @param file             Die Datei, in die die Einträge geschrieben werden, oder {@code null}.
+     * @param maximumFileBytes Die ungefähre Größe in Bytes, ab der die Datei gerollt wird.
+     * @param threadName       Der Name des Threads, der die Ausführungspläne ermittelt.
+     * @param metrics          Die {@link DatabaseMetrics}, in denen die langsamen Anweisungen gezählt werden.
+     */
+    SlowQueryLog(
+            final DataSource explainSource,
+            final long thresholdNanos,
+            final double sampleRate,
+            final int capacity,
+            final Path file,
+            final long maximumFileBytes,
+            final String threadName,
+            final DatabaseMetrics metrics
+    ) {
+        // check the parameters for validity
+        if (thresholdNanos <= 0) {
+            throw new IllegalArgumentException("The supplied threshold must be positive!");
+        }
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("The supplied sample rate must be between 0 and 1!");
+        }
+        if (capacity <= 0 || maximumFileBytes <= 0) {
+            throw new IllegalArgumentException("The supplied capacity and file size must be positive!");
+        }
+
+        this.explainSource = explainSource;
+        this.thresholdNanos = thresholdNanos;
+        this.sampleRate = sampleRate;
+        this.capacity = capacity;
+        this.recent = new ArrayDeque<>(capacity);
+        this.file = file;
+        this.maximumFileBytes = maximumFileBytes;
+        this.metrics = metrics;
+        this.explainer = new ThreadPoolExecutor(
+                1,
+                1,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE_CAPACITY),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="record">
+
+    /**
+     * Umhüllt eine geliehene Verbindung, sodass alle Anweisungen, die über sie vorbereitet oder erzeugt werden,
+     * gemessen werden. Das Schließen der umhüllten Verbindung gibt die eigentliche Verbindung zurück.
+     *
+     * @param conn Die Verbindung, die umhüllt wird.
+     *
+     * @return Die umhüllte Verbindung.
+     */
+    Connection wrap(final Connection conn) {
+        return proxy(Connection.class, new ConnectionHandler(conn));
+    }
+
+    /**
+     * Wählt die nächste Ausführung einer Anweisung zufällig als Stichprobe aus, die unabhängig von ihrer Laufzeit
+     * erfasst wird.
+     *
+     * @return Ob die nächste Ausführung als Stichprobe erfasst wird.
+     */
+    private boolean samples() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Merkt sich eine vorbereitete SQL-Anweisung, die ohne mitgeschriebene Parameter langsam war, damit die Parameter
+     * ihrer folgenden Ausführungen mitgeschrieben werden.
+     *
+     * @param sql Die vorbereitete SQL-Anweisung.
+     */
+    private void watch(final String sql) {
+        if (watched.size() < WATCHED_CAPACITY) {
+            watched.add(sql);
+        }
+    }
+
+    /**
+     * Erfasst eine ausgewählte Anweisung und übergibt sie dem Thread, der ihren Ausführungsplan ermittelt. Warten
+     * bereits zu viele Einträge auf ihren Plan, wird der Eintrag ohne Plan im Ringpuffer abgelegt.
+     *
+     * @param sql          Die ausgeführte SQL-Anweisung.
+     * @param parameters   Die Werte der Parameter der Anweisung oder {@code null}, wenn sie nicht mitgeschrieben
+     *                     wurden.
+     * @param count        Die Anzahl an gesetzten Parametern.
+     * @param elapsedNanos Die Laufzeit der Anweisung in Nanosekunden.
+     * @param rows         Die Anzahl an gelesenen oder geschriebenen Zeilen oder {@code -1}.
+     */
+    private void record(
+            final String sql,
+            final Object[] parameters,
+            final int count,
+            final long elapsedNanos,
+            final long rows
+    ) {
+        if (elapsedNanos >= thresholdNanos) {
+            metrics.recordSlowQuery();
+        }
+
+        final Instant time = Instant.now();
+        final Object[] values = parameters == null ? null : Arrays.copyOf(parameters, count);
+        try {
+            explainer.execute(() -> complete(time, sql, values, elapsedNanos, rows, true));
+        } catch (final RejectedExecutionException e) {
+            complete(time, sql, values, elapsedNanos, rows, false);
+        }
+    }
+
+    /**
+     * Ergänzt einen erfassten Eintrag optional um seinen Ausführungsplan und legt ihn ab.
+     *
+     * @param time         Der Zeitpunkt, zu dem die Anweisung beendet wurde.
+     * @param sql          Die ausgeführte SQL-Anweisung.
+     * @param values       Die Werte der Parameter der Anweisung oder {@code null}, wenn sie nicht mitgeschrieben
+     *                     wurden.
+     * @param elapsedNanos Die Laufzeit der Anweisung in Nanosekunden.
+     * @param rows         Die Anzahl an gelesenen oder geschriebenen Zeilen oder {@code -1}.
+     * @param explain      Ob der Ausführungsplan ermittelt und der Eintrag in die Datei geschrieben wird, was nur auf
+     *                     dem eigenen Thread geschieht.
+     */
+    private void complete(
+            final Instant time,
+            final String sql,
+            final Object[] values,
+            final long elapsedNanos,
+            final long rows,
+            final boolean explain
+    ) {
+        final String shape = normalize(sql);
+        Plan plan = plans.get(shape);
+        // without the parameters the statement cannot be explained, so only a known plan is attached
+        if (explain && values != null && (plan == null || System.nanoTime() - plan.createdNanos > PLAN_REFRESH_NANOS)) {
+            final Plan explained = explain(sql, values);
+            if (explained != null) {
+                plan = explained;
+                plans.put(shape, plan);
+            }
+        }
+        if (plan == null) {
+            plan = Plan.NONE;
+        }
+
+        final List<String> redacted = new ArrayList<>(values == null ? 0 : values.length);
+        if (values != null) {
+            for (final Object value : values) {
+                redacted.add(redact(value));
+            }
+        }
+        final SlowQuery entry = new SlowQuery(
+                time,
+                shape,
+                redacted,
+                elapsedNanos,
+                rows,
+                elapsedNanos < thresholdNanos,
+                plan.lines,
+                plan.rowsExamined,
+                plan.missingIndex
+        );
+
+        synchronized (recent) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(entry);
+        }
+        if (explain && file != null) {
+            append(entry);
+        }
+    }
+
+    /**
+     * Ermittelt über eine separate Verbindung den Ausführungsplan einer Anweisung mit denselben Parametern. Ist keine
+     * Verbindung frei, wird das {@code EXPLAIN} übersprungen, statt auf eine zu warten.
+     *
+     * @param sql    Die SQL-Anweisung.
+     * @param values Die Werte der Parameter der Anweisung.
+     *
+     * @return Der ermittelte {@link Plan}, {@link Plan#NONE}, wenn die Anweisung nicht erklärt werden kann, oder
+     *     {@code null}, wenn keine Verbindung frei war.
+     */
+    private Plan explain(
+            final String sql,
+            final Object[] values
+    ) {
+        if (!EXPLAINABLE.matcher(sql).find()) {
+            return Plan.NONE;
+        }
+
+        try (final Connection conn = explainSource.getConnection();
+             final PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            stmt.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+            for (int i = 0; i < values.length; i++) {
+                stmt.setObject(i + 1, values[i]);
+            }
+
+            final List<String> lines = new ArrayList<>();
+            long examined = 0;
+            boolean missingIndex = false;
+            try (final ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    final String type = rs.getString("type");
+                    final String extra = rs.getString("Extra");
+                    final long rows = rs.getLong("rows");
+                    examined += rows;
+                    missingIndex |= "ALL".equals(type) || extra != null && extra.contains("Using filesort");
+                    lines.add("table=" + rs.getString("table") + " type=" + type + " key=" + rs.getString("key")
+                            + " rows=" + rows + " extra=" + extra);
+                }
+            }
+            return new Plan(lines, examined, missingIndex);
+        } catch (final SQLTransientConnectionException e) {
+            return null;
+        } catch (final SQLException e) {
+            return new Plan(List.of("EXPLAIN failed: " + e.getMessage()), -1, false);
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="file">
+
+    /**
+     * Hängt einen Eintrag an die Datei an und rollt sie vorher, wenn sie ihre Größe überschreiten würde.
+     *
+     * @param entry Der Eintrag, der angehängt wird.
+     */
+    private void append(final SlowQuery entry) {
+        final String line = entry + System.lineSeparator();
+        try {
+            if (writer == null) {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                writer = Files.newBufferedWriter(
+                        file,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND
+                );
+                fileBytes = Files.size(file);
+            }
+
+            // keep exactly one previous file, so that the log never grows beyond twice its size
+            if (fileBytes > 0 && fileBytes + line.length() > maximumFileBytes) {
+                writer.close();
+                Files.move(
+                        file,
+                        file.resolveSibling(file.getFileName() + ROLLED_SUFFIX),
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                fileBytes = 0;
+            }
+
+            writer.write(line);
+            writer.flush();
+            fileBytes += line.length();
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt die zuletzt erfassten Einträge zurück, der älteste zuerst.
+     *
+     * @return Eine unveränderliche Kopie der Einträge im Ringpuffer.
+     */
+    public List<SlowQuery> getRecent() {
+        synchronized (recent) {
+            return List.copyOf(recent);
+        }
+    }
+    //</editor-fold>
+
+
+    /**
+     * Beendet den Thread, nachdem er die wartenden Einträge abgelegt hat, und schließt die Datei.
+     */
+    @Override
+    public void close() {
+        explainer.shutdown();
+        try {
+            if (!explainer.awaitTermination(EXPLAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                explainer.shutdownNow();
+                return;
+            }
+        } catch (final InterruptedException e) {
+            explainer.shutdownNow();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+
+    //<editor-fold desc="utility">
+
+    /**
+     * Normalisiert eine SQL-Anweisung, indem Literale durch {@code ?} ersetzt und Leerzeichen zusammengefasst werden,
+     * sodass gleichartige Anweisungen denselben Eintrag und denselben Ausführungsplan teilen.
+     *
+     * @param sql Die SQL-Anweisung.
+     *
+     * @return Die normalisierte SQL-Anweisung.
+     */
+    private static String normalize(final String sql) {
+        final String withoutStrings = STRING_LITERAL.matcher(sql).replaceAll("?");
+        final String withoutNumbers = NUMBER_LITERAL.matcher(withoutStrings).replaceAll("?");
+        return WHITESPACE.matcher(withoutNumbers).replaceAll(" ").trim();
+    }
+
+    /**
+     * Schwärzt den Wert eines Parameters, sodass nur sein Typ und bei Texten und Byte-Feldern seine Länge bleibt.
+     *
+     * @param value Der Wert des Parameters.
+     *
+     * @return Die geschwärzte Beschreibung des Wertes.
+     */
+    private static String redact(final Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof CharSequence) {
+            return "String(" + ((CharSequence) value).length() + ")";
+        }
+        if (value instanceof byte[]) {
+            return "byte[" + ((byte[]) value).length + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    /**
+     * Erzeugt einen {@link Proxy}, der alle Aufrufe an den übergebenen {@link InvocationHandler} leitet.
+     *
+     * @param type    Die Schnittstelle, die der {@link Proxy} umsetzt.
+     * @param handler Der {@link InvocationHandler}, der die Aufrufe bearbeitet.
+     * @param <T>     Der Typ der Schnittstelle.
+     *
+     * @return Der neue {@link Proxy}.
+     */
+    private static <T> T proxy(
+            final Class<T> type,
+            final InvocationHandler handler
+    ) {
+        return type.cast(Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Leitet einen Aufruf an das umhüllte Objekt weiter und gibt dessen Fehlermeldung unverändert weiter. Gleichheit
+     * und Hash-Wert beziehen sich auf den {@link Proxy} selbst.
+     *
+     * @param proxy  Der {@link Proxy}, über den aufgerufen wurde.
+     * @param target Das umhüllte Objekt.
+     * @param method Die aufgerufene Methode.
+     * @param args   Die Argumente des Aufrufs oder {@code null}.
+     *
+     * @return Das Ergebnis des Aufrufs.
+     *
+     * @throws Throwable Die Fehlermeldung, die das umhüllte Objekt geworfen hat.
+     */
+    private static Object forward(
+            final Object proxy,
+            final Object target,
+            final Method method,
+            final Object[] args
+    ) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            }
+        }
+
+        try {
+            return method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Bestimmt die Anzahl an geschriebenen Zeilen aus dem Ergebnis einer schreibenden Anweisung. Einträge eines
+     * Stapels, deren Anzahl der Treiber nicht kennt, zählen als eine Zeile.
+     *
+     * @param result Das Ergebnis der Anweisung.
+     *
+     * @return Die Anzahl an geschriebenen Zeilen oder {@code -1}, wenn sie unbekannt ist.
+     */
+    private static long rowsOf(final Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (final int count : (int[]) result) {
+                rows += count >= 0 ? count : 1;
+            }
+            return rows;
+        }
+        if (result instanceof long[]) {
+            long rows = 0;
+            for (final long count : (long[]) result) {
+                rows += count >= 0 ? count : 1;
+            }
+            return rows;
+        }
+        return -1;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein ermittelter Ausführungsplan einer normalisierten Anweisung.
+     */
+    private static final class Plan {
+
+        /** Der Plan für Anweisungen, die nicht erklärt werden konnten. */
+        private static final Plan NONE = new Plan(List.of(), -1, false);
+
+        /** Die Zeilen des Ausführungsplans. */
+        private final List<String> lines;
+        /** Die geschätzte Anzahl an untersuchten Zeilen oder {@code -1}. */
+        private final long rowsExamined;
+        /** Ob der Ausführungsplan auf einen fehlenden Index hindeutet. */
+        private final boolean missingIndex;
+        /** Der Zeitpunkt, zu dem der Plan ermittelt wurde, in Nanosekunden. */
+        private final long createdNanos = System.nanoTime();
+
+        /**
+         * Erzeugt einen neuen {@link Plan}.
+         *
+         * @param lines        Die Zeilen des Ausführungsplans.
+         * @param rowsExamined Die geschätzte Anzahl an untersuchten Zeilen oder {@code -1}.
+         * @param missingIndex Ob der Ausführungsplan auf einen fehlenden Index hindeutet.
+         */
+        private Plan(
+                final List<String> lines,
+                final long rowsExamined,
+                final boolean missingIndex
+        ) {
+            this.lines = lines;
+            this.rowsExamined = rowsExamined;
+            this.missingIndex = missingIndex;
+        }
+    }
+
+    /**
+     * Der {@link InvocationHandler} einer umhüllten Verbindung, der die vorbereiteten und erzeugten Anweisungen
+     * ebenfalls umhüllt.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        /** Die umhüllte Verbindung. */
+        private final Connection conn;
+
+        /**
+         * Erzeugt einen neuen {@link ConnectionHandler}.
+         *
+         * @param conn Die umhüllte Verbindung.
+         */
+        private ConnectionHandler(final Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(
+                final Object proxy,
+                final Method method,
+                final Object[] args
+        ) throws Throwable {
+            final Object result = forward(proxy, conn, method, args);
+            if (result instanceof PreparedStatement && "prepareStatement".equals(method.getName())) {
+                return proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+            }
+            if (result instanceof Statement && "createStatement".equals(method.getName())) {
+                return proxy(Statement.class, new StatementHandler((Statement) result, null));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Der {@link InvocationHandler} einer umhüllten Anweisung, der ihre Ausführung misst und ihre Parameter nur für
+     * Ausführungen mitschreibt, die erfasst werden könnten.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        /** Die umhüllte Anweisung. */
+        private final Statement stmt;
+        /** Die SQL-Anweisung, mit der die Anweisung vorbereitet wurde, oder {@code null}. */
+        private final String sql;
+        /** Die zuletzt gesetzten Werte der Parameter. */
+        private Object[] parameters = NO_PARAMETERS;
+        /** Die höchste Position eines gesetzten Parameters. */
+        private int parameterCount;
+        /** Das zuletzt erfasste Ergebnis, dessen Zeilen noch gezählt werden, oder {@code null}. */
+        private ResultHandler pending;
+        /** Ob die nächste Ausführung als Stichprobe erfasst wird. */
+        private boolean sampled;
+        /** Ob die Parameter der nächsten Ausführung mitgeschrieben werden. */
+        private boolean capturing;
+
+        /**
+         * Erzeugt einen neuen {@link StatementHandler}.
+         *
+         * @param stmt Die umhüllte Anweisung.
+         * @param sql  Die SQL-Anweisung, mit der die Anweisung vorbereitet wurde, oder {@code null}.
+         */
+        private StatementHandler(
+                final Statement stmt,
+                final String sql
+        ) {
+            this.stmt = stmt;
+            this.sql = sql;
+            prepareNext();
+        }
+
+        @Override
+        public Object invoke(
+                final Object proxy,
+                final Method method,
+                final Object[] args
+        ) throws Throwable {
+            final String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+
+            final Object result = forward(proxy, stmt, method, args);
+            if (capturing && method.getDeclaringClass() == PreparedStatement.class && name.startsWith("set")
+                    && args != null) {
+                remember((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                Arrays.fill(parameters, 0, parameterCount, null);
+                parameterCount = 0;
+            } else if ("close".equals(name)) {
+                finishPending();
+            }
+            return result;
+        }
+
+        /**
+         * Führt die Anweisung aus, misst ihre Laufzeit und erfasst sie, wenn sie ausgewählt wird. Bei Abfragen wird
+         * das Ergebnis umhüllt, damit seine Zeilen gezählt werden, bevor der Eintrag erfasst wird.
+         *
+         * @param proxy  Der {@link Proxy}, über den aufgerufen wurde.
+         * @param method Die aufgerufene Methode.
+         * @param args   Die Argumente des Aufrufs oder {@code null}.
+         *
+         * @return Das Ergebnis der Ausführung.
+         *
+         * @throws Throwable Die Fehlermeldung, die die umhüllte Anweisung geworfen hat.
+         */
+        private Object execute(
+                final Object proxy,
+                final Method method,
+                final Object[] args
+        ) throws Throwable {
+            finishPending();
+            final String executed = args != null && args.length > 0 && args[0] instanceof String
+                    ? (String) args[0]
+                    : sql;
+
+            // the decision for this execution was made before its parameters were set
+            final boolean sample = sampled;
+            final boolean captured = capturing;
+            final long start = System.nanoTime();
+            final Object result;
+            try {
+                result = forward(proxy, stmt, method, args);
+            } finally {
+                prepareNext();
+            }
+            final long elapsed = System.nanoTime() - start;
+            if (executed == null || elapsed < thresholdNanos && !sample) {
+                return result;
+            }
+            if (!captured) {
+                watch(sql);
+            }
+
+            final Object[] values = captured ? parameters : null;
+            if (result instanceof ResultSet) {
+                pending = new ResultHandler((ResultSet) result, executed, values, parameterCount, elapsed);
+                return proxy(ResultSet.class, pending);
+            }
+            record(executed, values, parameterCount, elapsed, rowsOf(result));
+            return result;
+        }
+
+        /**
+         * Entscheidet vor der nächsten Ausführung, ob sie als Stichprobe erfasst wird und ob ihre Parameter
+         * mitgeschrieben werden. Beginnt das Mitschreiben erst jetzt, werden die veralteten Werte verworfen.
+         */
+        private void prepareNext() {
+            final boolean wasCapturing = capturing;
+            sampled = samples();
+            capturing = sql == null || sampled || watched.contains(sql);
+            if (capturing && !wasCapturing) {
+                Arrays.fill(parameters, 0, parameterCount, null);
+                parameterCount = 0;
+            }
+        }
+
+        /**
+         * Merkt sich den Wert eines gesetzten Parameters.
+         *
+         * @param index Die Position des Parameters, beginnend mit {@code 1}.
+         * @param value Der Wert des Parameters.
+         */
+        private void remember(
+                final int index,
+                final Object value
+        ) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        /**
+         * Erfasst das zuletzt umhüllte Ergebnis, falls es weder vollständig gelesen noch geschlossen wurde.
+         */
+        private void finishPending() {
+            if (pending != null) {
+                pending.finish();
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * Der {@link InvocationHandler} eines umhüllten Ergebnisses, der die gelesenen Zeilen zählt und den Eintrag
+     * erfasst, sobald das Ergebnis vollständig gelesen oder geschlossen wurde.
+     */
+    private final class ResultHandler implements InvocationHandler {
+
+        /** Das umhüllte Ergebnis. */
+        private final ResultSet rs;
+        /** Die ausgeführte SQL-Anweisung. */
+        private final String sql;
+        /** Die Werte der Parameter zum Zeitpunkt der Ausführung oder {@code null}, wenn sie fehlen. */
+        private final Object[] values;
+        /** Die Laufzeit der Abfrage bis zur ersten Antwort in Nanosekunden. */
+        private final long elapsedNanos;
+        /** Die Anzahl an bisher gelesenen Zeilen. */
+        private long rows;
+        /** Ob der Eintrag bereits erfasst wurde. */
+        private boolean finished;
+
+        /**
+         * Erzeugt einen neuen {@link ResultHandler}.
+         *
+         * @param rs           Das umhüllte Ergebnis.
+         * @param sql          Die ausgeführte SQL-Anweisung.
+         * @param parameters   Die Werte der Parameter der Anweisung oder {@code null}, wenn sie nicht mitgeschrieben
+         *                     wurden.
+         * @param count        Die Anzahl an gesetzten Parametern.
+         * @param elapsedNanos Die Laufzeit der Abfrage bis zur ersten Antwort in Nanosekunden.
+         */
+        private ResultHandler(
+                final ResultSet rs,
+                final String sql,
+                final Object[] parameters,
+                final int count,
+                final long elapsedNanos
+        ) {
+            this.rs = rs;
+            this.sql = sql;
+            this.values = parameters == null ? null : Arrays.copyOf(parameters, count);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public Object invoke(
+                final Object proxy,
+                final Method method,
+                final Object[] args
+        ) throws Throwable {
+            final Object result = forward(proxy, rs, method, args);
+            if ("next".equals(method.getName())) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    finish();
+                }
+            } else if ("close".equals(method.getName())) {
+                finish();
+            }
+            return result;
+        }
+
+        /**
+         * Erfasst den Eintrag mit der Anzahl an bisher gelesenen Zeilen, sofern das noch nicht geschehen ist.
+         */
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                record(sql, values, values == null ? 0 : values.length, elapsedNanos, rows);
+            }
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,67 @@
+package de.edward;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Ein {@link SnapshotCodec} schreibt einen einzelnen Datensatz in eine {@link TableSnapshot Snapshot-Datei} und liest
+ * ihn wieder daraus. Ändert sich das Format eines Datensatzes, muss sich auch die Beschreibung seiner Tabelle ändern,
+ * damit eine ältere Datei verworfen wird.
+ *
+ * @param <T> Der Typ der Datensätze, die geschrieben und gelesen werden.
+ */
+public interface SnapshotCodec<T> {
+
+    /**
+     * Schreibt den übergebenen Datensatz.
+     *
+     * @param out Der {@link DataOutput}, in den geschrieben wird.
+     * @param row Der Datensatz, der geschrieben wird.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht geschrieben werden konnte.
+     */
+    void write(DataOutput out, T row) throws IOException;
+
+    /**
+     * Liest einen Datensatz in derselben Form, in der er über {@link #write(DataOutput, Object)} geschrieben wurde.
+     *
+     * @param in Der {@link DataInput}, aus dem gelesen wird.
+     *
+     * @return Der gelesene Datensatz.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht gelesen werden konnte.
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * Schreibt eine Zeichenkette, die auch {@code null} sein darf.
+     *
+     * @param out   Der {@link DataOutput}, in den geschrieben wird.
+     * @param value Die Zeichenkette oder {@code null}.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht geschrieben werden konnte.
+     */
+    static void writeNullable(
+            final DataOutput out,
+            final String value
+    ) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Liest eine Zeichenkette, die über {@link #writeNullable(DataOutput, String)} geschrieben wurde.
+     *
+     * @param in Der {@link DataInput}, aus dem gelesen wird.
+     *
+     * @return Die Zeichenkette oder {@code null}.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn nicht gelesen werden konnte.
+     */
+    static String readNullable(final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
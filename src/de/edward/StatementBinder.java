@@ -0,0 +1,25 @@
+package de.edward;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Ein {@link StatementBinder} überträgt die Werte eines einzelnen Datensatzes auf die Parameter eines
+ * {@link PreparedStatement}. Er wird für jede Zeile einer Stapel-Verarbeitung erneut aufgerufen und darf daher keinen
+ * eigenen Zustand halten.
+ *
+ * @param <T> Der Typ der Datensätze, deren Werte übertragen werden.
+ */
+@FunctionalInterface
+public interface StatementBinder<T> {
+
+    /**
+     * Überträgt die Werte des übergebenen Datensatzes auf die Parameter des {@link PreparedStatement}.
+     *
+     * @param stmt Das {@link PreparedStatement}, dessen Parameter gesetzt werden.
+     * @param row  Der Datensatz, dessen Werte übertragen werden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Parameter nicht gesetzt werden kann.
+     */
+    void bind(PreparedStatement stmt, T row) throws SQLException;
+}
@@ -0,0 +1,96 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Eine {@link StatementRegistry} hält die {@link PreparedStatement} einer einzelnen geliehenen Verbindung, geordnet
+ * nach ihrer SQL-Anweisung. Wird dieselbe Anweisung mehrfach auf der Verbindung ausgeführt, wird das bereits
+ * vorbereitete {@link PreparedStatement} wiederverwendet, statt für jeden Aufruf ein neues Handle auf dem Server
+ * anzulegen und wieder freizugeben.
+ *
+ * <p>Eine {@link StatementRegistry} lebt nur so lange wie die Verbindung geliehen ist: Der Pool schließt offene
+ * Anweisungen ohnehin, sobald die Verbindung zurückgegeben wird. Über mehrere Ausleihen hinweg übernimmt der
+ * Anweisungs-Cache des Treibers ({@code cachePrepStmts}) die Wiederverwendung. Eine {@link StatementRegistry} ist
+ * nicht thread-sicher, ebenso wenig wie die Verbindung selbst.</p>
+ */
+final class StatementRegistry implements AutoCloseable {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Verbindung, auf der die Anweisungen vorbereitet werden. */
+    private final Connection conn;
+    /** Die bereits vorbereiteten Anweisungen je SQL-Anweisung. */
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt eine neue, leere {@link StatementRegistry}.
+     *
+     * @param conn Die Verbindung, auf der die Anweisungen vorbereitet werden.
+     */
+    StatementRegistry(final Connection conn) {
+        this.conn = conn;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="prepare">
+
+    /**
+     * Gibt das {@link PreparedStatement} zu der übergebenen SQL-Anweisung zurück. Wurde die Anweisung auf dieser
+     * Verbindung bereits vorbereitet, werden nur ihre Parameter zurückgesetzt. Das {@link PreparedStatement} darf nicht
+     * geschlossen werden; es wird mit {@link #close()} freigegeben.
+     *
+     * @param sql Die SQL-Anweisung.
+     *
+     * @return Das vorbereitete {@link PreparedStatement}.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Anweisung nicht vorbereitet werden kann.
+     */
+    PreparedStatement prepare(final String sql) throws SQLException {
+        final PreparedStatement cached = statements.get(sql);
+        if (cached != null) {
+            cached.clearParameters();
+            return cached;
+        }
+
+        final PreparedStatement stmt = conn.prepareStatement(sql);
+        statements.put(sql, stmt);
+        return stmt;
+    }
+    //</editor-fold>
+
+
+    /**
+     * Schließt alle vorbereiteten Anweisungen. Schlägt das Schließen einer Anweisung fehl, werden die übrigen trotzdem
+     * geschlossen und die weiteren Fehlermeldungen an die erste angehängt.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn eine Anweisung nicht geschlossen werden kann.
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException error = null;
+        for (final PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (final SQLException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        statements.clear();
+
+        if (error != null) {
+            throw error;
+        }
+    }
+}
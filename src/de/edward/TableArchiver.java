@@ -0,0 +1,420 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Ein {@link TableArchiver} hält die Tabelle eines {@link Repository} klein, indem er Datensätze, die länger als ein
+ * heißes Zeitfenster nicht geschrieben wurden, in eine nach Monaten partitionierte Archiv-Tabelle verschiebt. Abfragen
+ * auf aktuelle Daten laufen dadurch gegen eine Tabelle, deren Größe nicht mit der Historie wächst, und Abfragen auf die
+ * Historie lesen nur die Partitionen ihres Zeitraums.
+ *
+ * <p>Die Tabelle selbst bleibt unpartitioniert, da MariaDB die Spalte der Partitionierung in jedem eindeutigen
+ * Schlüssel verlangt und der Schlüssel eines Datensatzes sonst nicht mehr eindeutig wäre. Die Archiv-Tabelle nutzt dagegen
+ * Schlüssel und Zeitstempel gemeinsam als Primärschlüssel und bewahrt so auch ältere Fassungen eines Schlüssels.</p>
+ *
+ * <p>Die Monats-Partitionen werden vor dem Verschieben einige Monate im Voraus angelegt, sodass die Partition
+ * {@link EntityDescriptor#ARCHIVE_TAIL_PARTITION} leer bleibt und das Anlegen keine Zeilen umkopieren muss. Verschoben
+ * wird in kleinen Transaktionen mit einer Pause dazwischen, damit das Archivieren den laufenden Betrieb nicht
+ * blockiert. Verschobene Datensätze werden wie jedes Löschen über das {@link Repository} gemeldet, sodass dessen Cache,
+ * {@link ChangeFeed} und {@link WriteListener} wie ein {@link TableSnapshot}, ein {@link DAVSnapshot} oder ein
+ * {@link SearchIndex} sie nicht weiter liefern.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class TableArchiver<K, T> implements AutoCloseable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Das Format, mit dem aus einem Monat der Name seiner Partition gebildet wird. */
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    /** Die SQL-Abfrage, mit der die Namen aller Partitionen einer Tabelle der aktuellen Datenbank gelesen werden. */
+    private static final String SELECT_PARTITIONS_SQL = "SELECT PARTITION_NAME FROM INFORMATION_SCHEMA.PARTITIONS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL";
+    /** Die {@link TransactionOptions}, mit denen ein Block verschoben wird. */
+    private static final TransactionOptions ARCHIVE_OPTIONS = TransactionOptions.DEFAULT
+            .withPriority(ConnectionPriority.BULK);
+    /** Die Anzahl an Datensätzen, die standardmäßig in einer Transaktion verschoben werden. */
+    public static final int DEFAULT_BATCH_SIZE = DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE;
+    /** Die Pause zwischen zwei verschobenen Blöcken, die standardmäßig genutzt wird. */
+    public static final Duration DEFAULT_BATCH_PAUSE = Duration.ofMillis(50);
+    /** Die Anzahl an Monaten, für die standardmäßig im Voraus Partitionen angelegt werden. */
+    public static final int DEFAULT_MONTHS_AHEAD = 2;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Das {@link Repository}, dessen Tabelle archiviert wird. */
+    private final Repository<K, T> repository;
+    /** Der {@link EntityDescriptor}, der die Tabelle beschreibt. */
+    private final EntityDescriptor<K, T> descriptor;
+    /** Der {@link DatabaseHandler}, über den auf die Datenbank zugegriffen wird. */
+    private final DatabaseHandler databaseHandler;
+    /** Das Zeitfenster, in dem ein Datensatz nach seinem letzten Schreiben in der Tabelle bleibt. */
+    private final Duration hotWindow;
+    /** Die Anzahl an Datensätzen, die in einer Transaktion verschoben werden. */
+    private final int batchSize;
+    /** Die Pause in Nanosekunden zwischen zwei verschobenen Blöcken. */
+    private final long batchPauseNanos;
+    /** Die Anzahl an Monaten, für die im Voraus Partitionen angelegt werden. */
+    private final int monthsAhead;
+    /** Der Dienst, der regelmäßig archiviert, oder {@code null}, wenn nur auf Aufruf archiviert wird. */
+    private ScheduledExecutorService scheduler;
+    /** Ob dieser {@link TableArchiver} geschlossen wurde und nicht mehr verschieben soll. */
+    private volatile boolean closed;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link TableArchiver} mit den Standardwerten für Blockgröße, Pause und Vorlauf.
+     *
+     * @param repository Das {@link Repository}, dessen Tabelle archiviert wird.
+     * @param hotWindow  Das Zeitfenster, in dem ein Datensatz nach seinem letzten Schreiben in der Tabelle bleibt.
+     */
+    public TableArchiver(
+            final Repository<K, T> repository,
+            final Duration hotWindow
+    ) {
+        this(repository, hotWindow, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_PAUSE, DEFAULT_MONTHS_AHEAD);
+    }
+
+    /**
+     * Erzeugt einen neuen {@link TableArchiver}.
+     *
+     * @param repository  Das {@link Repository}, dessen Tabelle archiviert wird.
+     * @param hotWindow   Das Zeitfenster, in dem ein Datensatz nach seinem letzten Schreiben in der Tabelle bleibt.
+     * @param batchSize   Die Anzahl an Datensätzen, die in einer Transaktion verschoben werden.
+     * @param batchPause  Die Pause zwischen zwei verschobenen Blöcken, die den Betrieb entlastet.
+     * @param monthsAhead Die Anzahl an Monaten, für die im Voraus Partitionen angelegt werden.
+     */
+    public TableArchiver(
+            final Repository<K, T> repository,
+            final Duration hotWindow,
+            final int batchSize,
+            final Duration batchPause,
+            final int monthsAhead
+    ) {
+        // check the parameters for validity
+        if (hotWindow.isNegative() || hotWindow.isZero()) {
+            throw new IllegalArgumentException("The supplied hot window must be positive!");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The supplied batch size must be positive!");
+        }
+        if (batchPause.isNegative()) {
+            throw new IllegalArgumentException("The supplied batch pause must not be negative!");
+        }
+        if (monthsAhead < 0) {
+            throw new IllegalArgumentException("The supplied number of months ahead must not be negative!");
+        }
+
+        this.repository = repository;
+        this.descriptor = repository.getDescriptor();
+        this.databaseHandler = repository.getDatabaseHandler();
+        this.hotWindow = hotWindow;
+        this.batchSize = batchSize;
+        this.batchPauseNanos = batchPause.toNanos();
+        this.monthsAhead = monthsAhead;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="partitions">
+
+    /**
+     * Legt die Archiv-Tabelle an, sofern sie noch nicht existiert, und ergänzt ihre Monats-Partitionen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht angelegt werden konnte.
+     */
+    public void createArchiveTable() throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection(ConnectionPriority.BULK);
+             final PreparedStatement stmt = conn.prepareStatement(descriptor.getCreateArchiveTableSql())) {
+            stmt.executeUpdate();
+        }
+        ensurePartitions();
+    }
+
+    /**
+     * Legt die Archiv-Tabelle wie {@link #createArchiveTable()} an, sendet die DDL-Anweisung aber nur, wenn der
+     * {@link SchemaCache} sie seit dem letzten Start nicht schon gesendet hat. Die Monats-Partitionen werden immer
+     * ergänzt.
+     *
+     * @param schemaCache Der {@link SchemaCache}, in dem die gesendeten DDL-Anweisungen vermerkt werden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht angelegt werden konnte.
+     */
+    public void createArchiveTable(final SchemaCache schemaCache) throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection(ConnectionPriority.BULK)) {
+            schemaCache.ensure(conn, descriptor.getArchiveTable(), descriptor.getCreateArchiveTableSql());
+        }
+        ensurePartitions();
+    }
+
+    /**
+     * Ergänzt die Monats-Partitionen der Archiv-Tabelle bis einschließlich des Monats, der {@code monthsAhead} Monate
+     * nach dem aktuellen liegt. Gibt es noch keine Monats-Partition, beginnt die erste mit dem Monat des ältesten
+     * Datensatzes der Tabelle, damit sich nicht die gesamte Historie in einer Partition sammelt.
+     *
+     * @return Die Anzahl an neu angelegten Partitionen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Partitionen nicht angelegt werden konnten.
+     */
+    public synchronized int ensurePartitions() throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection(ConnectionPriority.BULK)) {
+            final List<YearMonth> months = readPartitions(conn);
+            final YearMonth current = YearMonth.now();
+            final YearMonth last = current.plusMonths(monthsAhead);
+
+            final YearMonth next;
+            if (months.isEmpty()) {
+                final YearMonth oldest = readOldestMonth(conn);
+                next = oldest == null || oldest.isAfter(current) ? current : oldest;
+            } else {
+                next = months.get(months.size() - 1).plusMonths(1);
+            }
+            if (next.isAfter(last)) {
+                return 0;
+            }
+
+            // split the always empty tail, so that no row has to be copied
+            final StringJoiner partitions = new StringJoiner(", ");
+            int created = 0;
+            for (YearMonth month = next; !month.isAfter(last); month = month.plusMonths(1)) {
+                partitions.add("PARTITION " + PARTITION_NAME.format(month)
+                        + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "')");
+                created++;
+            }
+            partitions.add("PARTITION " + EntityDescriptor.ARCHIVE_TAIL_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+
+            final String sql = "ALTER TABLE " + descriptor.getArchiveTable() + " REORGANIZE PARTITION "
+                    + EntityDescriptor.ARCHIVE_TAIL_PARTITION + " INTO (" + partitions + ")";
+            try (final PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.executeUpdate();
+            }
+            return created;
+        }
+    }
+
+    /**
+     * Löscht alle Monats-Partitionen der Archiv-Tabelle, die vollständig vor dem übergebenen Monat liegen. Das Löschen
+     * einer Partition entfernt ihre Zeilen auf einmal, ohne sie einzeln zu löschen.
+     *
+     * @param month Der erste Monat, dessen Partition erhalten bleibt.
+     *
+     * @return Die Anzahl an gelöschten Partitionen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Partitionen nicht gelöscht werden konnten.
+     */
+    public synchronized int dropPartitionsBefore(final YearMonth month) throws SQLException {
+        try (final Connection conn = databaseHandler.getConnection(ConnectionPriority.BULK)) {
+            final StringJoiner expired = new StringJoiner(", ");
+            int dropped = 0;
+            for (final YearMonth partition : readPartitions(conn)) {
+                if (partition.isBefore(month)) {
+                    expired.add(PARTITION_NAME.format(partition));
+                    dropped++;
+                }
+            }
+            if (dropped == 0) {
+                return 0;
+            }
+
+            final String sql = "ALTER TABLE " + descriptor.getArchiveTable() + " DROP PARTITION " + expired;
+            try (final PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.executeUpdate();
+            }
+            return dropped;
+        }
+    }
+
+    /**
+     * Liest die Monate aller Monats-Partitionen der Archiv-Tabelle.
+     *
+     * @param conn Die Verbindung, über die gelesen wird.
+     *
+     * @return Die Monate aller Monats-Partitionen in aufsteigender Reihenfolge.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Partitionen nicht gelesen werden konnten.
+     */
+    private List<YearMonth> readPartitions(final Connection conn) throws SQLException {
+        final List<YearMonth> months = new ArrayList<>();
+        try (final PreparedStatement stmt = conn.prepareStatement(SELECT_PARTITIONS_SQL)) {
+            stmt.setString(1, descriptor.getArchiveTable());
+            try (final ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    final String name = rs.getString(1);
+                    if (name.equals(EntityDescriptor.ARCHIVE_TAIL_PARTITION)) {
+                        continue;
+                    }
+                    try {
+                        months.add(YearMonth.parse(name, PARTITION_NAME));
+                    } catch (final DateTimeParseException e) {
+                        throw new SQLException("The partition " + name + " was not created by the archiver!", e);
+                    }
+                }
+            }
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    /**
+     * Liest den Monat des ältesten Datensatzes der Tabelle.
+     *
+     * @param conn Die Verbindung, über die gelesen wird.
+     *
+     * @return Der Monat des ältesten Datensatzes oder {@code null}, wenn die Tabelle leer ist.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn nicht gelesen werden konnte.
+     */
+    private YearMonth readOldestMonth(final Connection conn) throws SQLException {
+        try (final PreparedStatement stmt = conn.prepareStatement(descriptor.getSelectOldestSql());
+             final ResultSet rs = stmt.executeQuery()) {
+            final Timestamp oldest = rs.next() ? rs.getTimestamp(1) : null;
+            return oldest == null ? null : YearMonth.from(oldest.toLocalDateTime());
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="archive">
+
+    /**
+     * Verschiebt alle Datensätze, die vor dem heißen Zeitfenster zuletzt geschrieben wurden, blockweise in die
+     * Archiv-Tabelle. Jeder Block sperrt seine ältesten Datensätze über den Index auf dem Zeitstempel, kopiert sie und
+     * löscht sie in derselben Transaktion, sodass ein gleichzeitiges Schreiben auf denselben Schlüssel entweder vorher
+     * oder nachher gilt. Zwischen zwei Blöcken wird die Pause eingehalten.
+     *
+     * @return Die Anzahl an verschobenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block nicht verschoben werden konnte.
+     *                      Bereits verschobene Blöcke bleiben verschoben.
+     */
+    public long archive() throws SQLException {
+        final Timestamp cutoff = Timestamp.from(Instant.now().minus(hotWindow));
+        long moved = 0;
+
+        while (!closed) {
+            final List<K> keys = databaseHandler.inTransaction(ARCHIVE_OPTIONS, tx -> {
+                final List<K> expired = tx.query(
+                        descriptor.getSelectExpiredKeysSql(),
+                        rs -> rs.getObject(1, descriptor.getKeyType()),
+                        cutoff,
+                        batchSize
+                );
+                if (!expired.isEmpty()) {
+                    final Object[] parameters = expired.toArray();
+                    tx.update(descriptor.getArchiveByKeysSql(expired.size()), parameters);
+                    tx.update(descriptor.getDeleteByKeysSql(expired.size()), parameters);
+
+                    // every moved row was written before the cutoff, while every later write is stamped after it
+                    tx.onCommit(() -> repository.deleted(expired, cutoff.getTime()));
+                }
+                return expired;
+            });
+
+            moved += keys.size();
+            if (keys.size() < batchSize) {
+                break;
+            }
+
+            // leave the table to the regular traffic for a moment
+            LockSupport.parkNanos(batchPauseNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Gibt alle archivierten Datensätze, die in dem halboffenen Zeitraum zuletzt geschrieben wurden, nach ihrem
+     * Zeitstempel sortiert als {@link Stream} zurück. Der Server liest nur die Partitionen, die den Zeitraum berühren.
+     * Der {@link Stream} muss geschlossen werden, um seine Verbindung freizugeben.
+     *
+     * @param from Der Beginn des Zeitraums (einschließlich).
+     * @param to   Das Ende des Zeitraums (ausschließlich).
+     *
+     * @return Ein {@link Stream} über die archivierten Datensätze des Zeitraums.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage nicht gestartet werden konnte.
+     */
+    public Stream<T> streamArchived(
+            final Instant from,
+            final Instant to
+    ) throws SQLException {
+        return databaseHandler.stream(
+                descriptor.getSelectArchivedRangeSql(),
+                descriptor.getMapper(),
+                Timestamp.from(from),
+                Timestamp.from(to)
+        );
+    }
+
+    /**
+     * Ergänzt ab sofort in dem übergebenen Abstand die Partitionen und archiviert anschließend. Die Arbeit läuft auf
+     * einem eigenen Daemon-Thread; Fehler werden ausgegeben und im nächsten Durchlauf erneut versucht.
+     *
+     * @param interval Der Abstand zwischen zwei Durchläufen.
+     */
+    public synchronized void runEvery(final Duration interval) {
+        // check the interval for validity
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The supplied interval must be positive!");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("The archiver is already running periodically!");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "archiver-" + descriptor.getTable());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                ensurePartitions();
+                archive();
+            } catch (final SQLException e) {
+                e.printStackTrace();
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="close">
+
+    /**
+     * Beendet das regelmäßige Archivieren. Ein laufender Block wird noch bestätigt oder zurückgerollt, es folgt aber
+     * kein weiterer.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,526 @@
+package de.edward;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Ein {@link TableSnapshot} hält den Inhalt einer Tabelle im Speicher und schreibt ihn regelmäßig sowie beim Beenden in
+ * eine lokale Datei. Nach einem Neustart wird die Datei über {@link #restore()} eingeblendet und nur um die Datensätze
+ * ergänzt, die seit dem neuesten Zeitstempel der Datei geschrieben wurden, statt die gesamte Tabelle erneut aus der
+ * Datenbank zu lesen. Anschließend wird der {@link ReadThroughCache} des {@link Repository} mit den zuletzt
+ * geschriebenen Datensätzen vorgewärmt.
+ *
+ * <p>Die Datei beginnt mit einer Kennung, der Version ihres Formats, dem Namen und der Beschreibung der Tabelle sowie
+ * dem neuesten Zeitstempel und endet mit einer CRC32-Prüfsumme. Passt eine dieser Angaben nicht, wird die Datei
+ * verworfen und die Tabelle vollständig gelesen. Geschrieben wird in eine temporäre Datei, die anschließend atomar
+ * umbenannt wird, sodass ein Absturz beim Schreiben die bisherige Datei nicht beschädigt.</p>
+ *
+ * <p>Der {@link TableSnapshot} muss als {@link WriteListener} des {@link Repository} registriert werden, um dessen
+ * Schreib- und Löschzugriffe zu übernehmen. Alle Zeitpunkte sind die Zeitstempel der Spalte
+ * {@value EntityDescriptor#TIMESTAMP_COLUMN}, sodass gemeldete und gelesene Stände derselben Uhr folgen. Ein gelöschter
+ * Schlüssel bleibt als Grabstein mit seinem Zeitpunkt erhalten, damit ein verspätet gelesener älterer Stand ihn nicht
+ * wiederbelebt. Was ein {@link TableArchiver} verschiebt, meldet er über {@link #deleted(Collection, long)}.
+ * Schreibzugriffe anderer Instanzen werden erst beim nächsten {@link #restore()} übernommen; dabei werden genau die
+ * Fassungen verworfen, die inzwischen in der Archiv-Tabelle liegen. Was andere Instanzen auf anderem Weg löschen,
+ * bleibt bis zum nächsten vollständigen Lesen erhalten.</p>
+ *
+ * @param <K> Der Typ des Schlüssels der Tabelle.
+ * @param <T> Der Typ der Datensätze der Tabelle.
+ */
+public final class TableSnapshot<K, T> implements WriteListener<K, T>, AutoCloseable {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Kennung, mit der jede Snapshot-Datei beginnt. */
+    private static final int MAGIC = 0x44425350;
+    /** Die Version des Dateiformats, die bei jeder Änderung des Formats erhöht wird. */
+    private static final int FORMAT_VERSION = 1;
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Das {@link Repository}, dessen Tabelle gehalten wird. */
+    private final Repository<K, T> repository;
+    /** Die Datei, in die der Inhalt der Tabelle geschrieben wird. */
+    private final Path file;
+    /** Der {@link SnapshotCodec}, mit dem die Datensätze geschrieben und gelesen werden. */
+    private final SnapshotCodec<T> codec;
+    /** Die Datensätze und die Grabsteine gelöschter Datensätze mit ihren Zeitpunkten über ihren Schlüssel. */
+    private final Map<K, Stamped<T>> rows = new ConcurrentHashMap<>();
+    /** Der neueste bekannte Zeitpunkt eines Schreibzugriffs in Millisekunden seit der Epoche. */
+    private final AtomicLong watermarkMillis = new AtomicLong(Long.MIN_VALUE);
+    /** Der {@link ScheduledExecutorService}, der die Datei regelmäßig schreibt, oder {@code null}. */
+    private ScheduledExecutorService scheduler;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen, leeren {@link TableSnapshot}.
+     *
+     * @param repository Das {@link Repository}, dessen Tabelle gehalten wird.
+     * @param file       Die Datei, in die der Inhalt der Tabelle geschrieben wird.
+     * @param codec      Der {@link SnapshotCodec}, mit dem die Datensätze geschrieben und gelesen werden.
+     */
+    public TableSnapshot(
+            final Repository<K, T> repository,
+            final Path file,
+            final SnapshotCodec<T> codec
+    ) {
+        this.repository = repository;
+        this.file = file;
+        this.codec = codec;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="restore">
+
+    /**
+     * Liest die Snapshot-Datei, ergänzt sie um alle Datensätze, die seit ihrem neuesten Zeitstempel geschrieben wurden,
+     * und wärmt den Cache des {@link Repository} vor. Fehlt die Datei oder ist sie nicht nutzbar, wird die gesamte
+     * Tabelle gelesen. Da der Zeitstempel schon beim Binden gesetzt wird, wird um {@link ChangeFeed#REPLAY_OVERLAP}
+     * weiter zurückgelesen. Datensätze der Datei, deren Fassung inzwischen archiviert wurde, werden verworfen.
+     *
+     * @return Die Anzahl an Datensätzen, die aus der Datenbank gelesen wurden.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Tabelle nicht gelesen werden konnte.
+     */
+    public int restore() throws SQLException {
+        boolean restored;
+        try {
+            restored = readFile();
+        } catch (final IOException e) {
+            e.printStackTrace();
+            rows.clear();
+            watermarkMillis.set(Long.MIN_VALUE);
+            restored = false;
+        }
+
+        final EntityDescriptor<K, T> descriptor = repository.getDescriptor();
+        final int read;
+        if (restored && watermarkMillis.get() != Long.MIN_VALUE) {
+            final Instant since = Instant.ofEpochMilli(watermarkMillis.get()).minus(ChangeFeed.REPLAY_OVERLAP);
+            read = sync(descriptor.getSelectSinceSql(), Timestamp.from(since));
+            pruneArchived();
+        } else {
+            read = sync(descriptor.getSelectAllTimestampedSql());
+        }
+
+        warmCache();
+        return read;
+    }
+
+    /**
+     * Liest Datensätze samt ihres Zeitstempels aus der Datenbank und übernimmt sie.
+     *
+     * @param sql        Die SQL-Anweisung, die Datensätze samt Zeitstempel als letzter Spalte liest.
+     * @param parameters Die Parameter der SQL-Anweisung.
+     *
+     * @return Die Anzahl an gelesenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Datensätze nicht gelesen werden konnten.
+     */
+    private int sync(
+            final String sql,
+            final Object... parameters
+    ) throws SQLException {
+        final EntityDescriptor<K, T> descriptor = repository.getDescriptor();
+        final RowMapper<T> mapper = descriptor.getMapper();
+        final int timestampIndex = descriptor.getColumnNames().size() + 1;
+
+        int read = 0;
+        try (final Stream<Stamped<T>> stream = repository.getDatabaseHandler().stream(
+                sql,
+                rs -> {
+                    final Timestamp timestamp = rs.getTimestamp(timestampIndex);
+                    return new Stamped<>(mapper.map(rs), timestamp == null ? Long.MIN_VALUE : timestamp.getTime());
+                },
+                parameters
+        )) {
+            final Iterator<Stamped<T>> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                final Stamped<T> stamped = iterator.next();
+                merge(stamped.row, stamped.epochMillis);
+                read++;
+            }
+        } catch (final UncheckedSQLException e) {
+            throw e.getCause();
+        }
+        return read;
+    }
+
+    /**
+     * Verwirft genau die Datensätze, deren Fassung ein {@link TableArchiver} verschoben hat, während die Datei nicht
+     * aktuell gehalten wurde. Jede archivierte Fassung ab dem ältesten Datensatz der Datei wird als Grabstein mit ihrem
+     * Zeitstempel übernommen, sodass ein danach erneut geschriebener Schlüssel seinen neueren Stand behält.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Archiv-Tabelle nicht gelesen werden konnte.
+     */
+    private void pruneArchived() throws SQLException {
+        long oldest = Long.MAX_VALUE;
+        for (final Stamped<T> stamped : rows.values()) {
+            if (stamped.row != null && stamped.epochMillis != Long.MIN_VALUE) {
+                oldest = Math.min(oldest, stamped.epochMillis);
+            }
+        }
+        if (oldest == Long.MAX_VALUE) {
+            return;
+        }
+
+        final EntityDescriptor<K, T> descriptor = repository.getDescriptor();
+        try (final Stream<Map.Entry<K, Long>> archived = repository.getDatabaseHandler().stream(
+                descriptor.getSelectArchivedKeysSinceSql(),
+                rs -> Map.entry(rs.getObject(1, descriptor.getKeyType()), rs.getTimestamp(2).getTime()),
+                new Timestamp(oldest)
+        )) {
+            final Iterator<Map.Entry<K, Long>> iterator = archived.iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<K, Long> version = iterator.next();
+                // keys that are not held are skipped, as their tombstones would only be dropped again
+                if (rows.containsKey(version.getKey())) {
+                    apply(version.getKey(), new Stamped<>(null, version.getValue()));
+                }
+            }
+        } catch (final UncheckedSQLException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Legt die zuletzt geschriebenen Datensätze im {@link ReadThroughCache} des {@link Repository} ab, höchstens so
+     * viele, wie der Cache hält. Der neueste Datensatz wird zuletzt abgelegt, damit er zuletzt verdrängt wird. Was der
+     * Cache bereits hält oder gerade lädt, wird nicht überschrieben.
+     */
+    private void warmCache() {
+        final ReadThroughCache<K, T> cache = repository.getCache();
+        if (cache == null) {
+            return;
+        }
+
+        final List<Stamped<T>> newest = rows.values().stream()
+                .filter(stamped -> stamped.row != null)
+                .sorted(Comparator.comparingLong((Stamped<T> stamped) -> stamped.epochMillis).reversed())
+                .limit(cache.getMaximumSize())
+                .collect(Collectors.toList());
+        final EntityDescriptor<K, T> descriptor = repository.getDescriptor();
+        for (int i = newest.size() - 1; i >= 0; i--) {
+            final T row = newest.get(i).row;
+            cache.putIfAbsent(descriptor.keyOf(row), row);
+        }
+    }
+
+    /**
+     * Liest die Snapshot-Datei als Stream und übernimmt ihre Datensätze erst, nachdem die Prüfsumme bestätigt wurde.
+     *
+     * @return Ob die Datei gelesen wurde; {@code false}, wenn sie fehlt oder zu einem anderen Format oder einer anderen
+     *     Tabelle gehört.
+     *
+     * @throws IOException Die Fehlermeldung, die auftritt, wenn die Datei nicht gelesen werden konnte oder beschädigt
+     *     ist.
+     */
+    private boolean readFile() throws IOException {
+        final EntityDescriptor<K, T> descriptor = repository.getDescriptor();
+        final CRC32 crc = new CRC32();
+        final List<Stamped<T>> read = new ArrayList<>();
+        final long watermark;
+        try (final DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)),
+                crc
+        ))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return false;
+            }
+            if (!in.readUTF().equals(descriptor.getTable()) || !in.readUTF().equals(descriptor.getCreateTableSql())) {
+                return false;
+            }
+
+            watermark = in.readLong();
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final long epochMillis = in.readLong();
+                read.add(new Stamped<>(codec.read(in), epochMillis));
+            }
+
+            // verify the checksum before trusting any of the content
+            final long checksum = crc.getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("The snapshot file is corrupt!");
+            }
+        } catch (final NoSuchFileException e) {
+            return false;
+        } catch (final EOFException e) {
+            throw new IOException("The snapshot file is truncated!", e);
+        }
+
+        for (final Stamped<T> stamped : read) {
+            merge(stamped.row, stamped.epochMillis);
+        }
+        watermarkMillis.accumulateAndGet(watermark, Math::max);
+        return true;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="save">
+
+    /**
+     * Schreibt den Inhalt der Tabelle in die Snapshot-Datei. Der Zeitstempel wird vor den Datensätzen bestimmt, sodass
+     * die Datei nie einen neueren Zeitstempel als ihre Datensätze trägt. Grabsteine werden nicht geschrieben; wer älter
+     * als das Zeitfenster des Aufholens ist, wird dabei auch im Speicher verworfen, da kein späteres Lesen einen noch
+     * älteren Stand mehr liefern kann.
+     *
+     * @throws IOException Die Fehlermeldung, die auftreten kann, wenn die Datei nicht geschrieben werden konnte.
+     */
+    public synchronized void save() throws IOException {
+        final EntityDescriptor<K, T> descriptor = repository.getDescriptor();
+        final long watermark = watermarkMillis.get();
+        final long horizon = watermark - ChangeFeed.REPLAY_OVERLAP.toMillis();
+        rows.values().removeIf(stamped -> stamped.row == null && stamped.epochMillis < horizon);
+
+        final List<Stamped<T>> current = new ArrayList<>(rows.size());
+        for (final Stamped<T> stamped : rows.values()) {
+            if (stamped.row != null) {
+                current.add(stamped);
+            }
+        }
+
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        final CRC32 crc = new CRC32();
+        try (final DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)),
+                crc
+        ))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(descriptor.getTable());
+            out.writeUTF(descriptor.getCreateTableSql());
+            out.writeLong(watermark);
+            out.writeInt(current.size());
+            for (final Stamped<T> stamped : current) {
+                out.writeLong(stamped.epochMillis);
+                codec.write(out, stamped.row);
+            }
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Schreibt die Snapshot-Datei regelmäßig im Hintergrund.
+     *
+     * @param interval Die Zeit zwischen zwei Schreibvorgängen.
+     */
+    public synchronized void saveEvery(final Duration interval) {
+        // check the interval for validity
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The supplied interval must be positive!");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("The snapshot is already saved periodically!");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "snapshot-" + repository.getDescriptor().getTable());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                save();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Beendet das regelmäßige Schreiben und schreibt die Snapshot-Datei ein letztes Mal.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+
+        try {
+            save();
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="access">
+
+    /**
+     * Gibt den Datensatz zu dem übergebenen Schlüssel zurück, ohne die Datenbank anzufragen.
+     *
+     * @param key Der Schlüssel, dessen Datensatz gesucht wird.
+     *
+     * @return Der Datensatz zu dem Schlüssel oder ein leeres {@link Optional}, wenn er nicht bekannt ist.
+     */
+    public Optional<T> find(final K key) {
+        final Stamped<T> stamped = rows.get(key);
+        return stamped == null ? Optional.empty() : Optional.ofNullable(stamped.row);
+    }
+
+    /**
+     * Gibt alle bekannten Datensätze zurück.
+     *
+     * @return Eine Kopie aller bekannten Datensätze.
+     */
+    public Collection<T> values() {
+        final List<T> values = new ArrayList<>(rows.size());
+        for (final Stamped<T> stamped : rows.values()) {
+            if (stamped.row != null) {
+                values.add(stamped.row);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gibt die Anzahl an bekannten Datensätzen zurück.
+     *
+     * @return Die Anzahl an bekannten Datensätzen.
+     */
+    public int size() {
+        int size = 0;
+        for (final Stamped<T> stamped : rows.values()) {
+            if (stamped.row != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gibt den neuesten bekannten Zeitpunkt eines Schreibzugriffs zurück.
+     *
+     * @return Der neueste Zeitpunkt oder ein leeres {@link Optional}, wenn noch keiner bekannt ist.
+     */
+    public Optional<Instant> getWatermark() {
+        final long watermark = watermarkMillis.get();
+        return watermark == Long.MIN_VALUE ? Optional.empty() : Optional.of(Instant.ofEpochMilli(watermark));
+    }
+
+    @Override
+    public void written(
+            final Collection<? extends T> changed,
+            final long epochMillis
+    ) {
+        for (final T row : changed) {
+            merge(row, epochMillis);
+        }
+    }
+
+    @Override
+    public void deleted(
+            final Collection<? extends K> keys,
+            final long epochMillis
+    ) {
+        for (final K key : keys) {
+            apply(key, new Stamped<>(null, epochMillis));
+        }
+    }
+
+    /**
+     * Übernimmt einen Datensatz, sofern kein neuerer Stand zu seinem Schlüssel bekannt ist, und schiebt den neuesten
+     * bekannten Zeitpunkt vor.
+     *
+     * @param row         Der Datensatz.
+     * @param epochMillis Der Zeitstempel, mit dem der Datensatz geschrieben wurde.
+     */
+    private void merge(
+            final T row,
+            final long epochMillis
+    ) {
+        apply(repository.getDescriptor().keyOf(row), new Stamped<>(row, epochMillis));
+        watermarkMillis.accumulateAndGet(epochMillis, Math::max);
+    }
+
+    /**
+     * Übernimmt einen Stand oder Grabstein, sofern kein neuerer Stand zu seinem Schlüssel bekannt ist. Ein Grabstein
+     * verdrängt jeden Stand mit demselben Zeitpunkt, da er höchstens so alte Stände gelöscht hat.
+     *
+     * @param key     Der Schlüssel.
+     * @param stamped Der Stand oder Grabstein mit seinem Zeitpunkt.
+     */
+    private void apply(
+            final K key,
+            final Stamped<T> stamped
+    ) {
+        rows.merge(key, stamped, (previous, next) -> {
+            if (next.epochMillis != previous.epochMillis) {
+                return next.epochMillis > previous.epochMillis ? next : previous;
+            }
+            return previous.row == null ? previous : next;
+        });
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="types">
+
+    /**
+     * Ein Datensatz mit dem Zeitpunkt, zu dem er geschrieben wurde.
+     *
+     * @param <T> Der Typ des Datensatzes.
+     */
+    private static final class Stamped<T> {
+
+        /** Der Datensatz oder {@code null}, wenn der Schlüssel gelöscht wurde. */
+        private final T row;
+        /** Der Zeitpunkt in Millisekunden seit der Epoche oder {@link Long#MIN_VALUE}, wenn er fehlt. */
+        private final long epochMillis;
+
+        /**
+         * Erzeugt einen neuen {@link Stamped}.
+         *
+         * @param row         Der Datensatz oder {@code null} für einen Grabstein.
+         * @param epochMillis Der Zeitpunkt in Millisekunden seit der Epoche.
+         */
+        private Stamped(
+                final T row,
+                final long epochMillis
+        ) {
+            this.row = row;
+            this.epochMillis = epochMillis;
+        }
+    }
+    //</editor-fold>
+}
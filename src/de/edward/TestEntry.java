@@ -0,0 +1,92 @@
+package de.edward;
+
+import java.util.Objects;
+
+/**
+ * Ein {@link TestEntry} ist ein einzelner Datensatz der Test-Tabelle, welcher aus einem Nutzernamen und einem Alter
+ * besteht. Der Zeitstempel wird beim Schreiben durch die Datenbank-Anbindung gesetzt.
+ */
+public final class TestEntry {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Der {@link EntityDescriptor}, der die Test-Tabelle beschreibt. */
+    public static final EntityDescriptor<String, TestEntry> DESCRIPTOR = EntityDescriptor
+            .<String, TestEntry>builder("testTable", String.class, TestEntry::getUserName)
+            .key("userName", "VARCHAR(255)", (stmt, i, entry) -> stmt.setString(i, entry.getUserName()))
+            .column("age", "INT", (stmt, i, entry) -> stmt.setInt(i, entry.getAge()))
+            .build(rs -> new TestEntry(rs.getString(1), rs.getInt(2)));
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Der Nutzername, welcher den Datensatz eindeutig identifiziert. */
+    private final String userName;
+    /** Das Alter, welches zu dem Nutzernamen gehört. */
+    private final int age;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt einen neuen {@link TestEntry} mit einem Nutzernamen und einem Alter.
+     *
+     * @param userName Der Nutzername, welcher den Datensatz eindeutig identifiziert.
+     * @param age      Das Alter, welches zu dem Nutzernamen gehört.
+     */
+    public TestEntry(
+            final String userName,
+            final int age
+    ) {
+        this.userName = Objects.requireNonNull(userName, "userName");
+        this.age = age;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt den Nutzernamen zurück, welcher den Datensatz eindeutig identifiziert.
+     *
+     * @return Der Nutzername, welcher den Datensatz eindeutig identifiziert.
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Gibt das Alter zurück, welches zu dem Nutzernamen gehört.
+     *
+     * @return Das Alter, welches zu dem Nutzernamen gehört.
+     */
+    public int getAge() {
+        return age;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="object">
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof TestEntry)) {
+            return false;
+        }
+        final TestEntry entry = (TestEntry) other;
+        return age == entry.age && userName.equals(entry.userName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userName, age);
+    }
+
+    @Override
+    public String toString() {
+        return "TestEntry{userName=" + userName + ", age=" + age + "}";
+    }
+    //</editor-fold>
+}
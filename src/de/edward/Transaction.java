@@ -0,0 +1,340 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Eine {@link Transaction} hält für die Dauer von {@link DatabaseHandler#inTransaction(TransactionCallback)} genau eine
+ * Verbindung fest, sodass alle Anweisungen einer logischen Arbeit mit einer einzigen Bestätigung geschrieben werden.
+ * Teile der Arbeit können über Savepoints einzeln zurückgerollt werden. Arbeit außerhalb der Datenbank, etwa das
+ * Aktualisieren eines Caches, wird über {@link #onCommit(Runnable)} erst nach der Bestätigung ausgeführt.
+ *
+ * <p>Ist der {@link QueryResultCache} des {@link DatabaseHandler} eingeschaltet, werden die Ergebnisse aller Tabellen,
+ * in die über {@link #update(String, Object...)} oder {@link #batch(String, Iterable, StatementBinder)} geschrieben
+ * wurde, nach der Bestätigung verworfen, noch bevor die Aufgaben aus {@link #onCommit(Runnable)} laufen. Wer über
+ * {@link #getConnection()} schreibt, muss die Tabelle selbst über {@link DatabaseHandler#invalidateResults(String)}
+ * verwerfen.</p>
+ *
+ * <p>Wird dieselbe SQL-Anweisung innerhalb einer Transaktion mehrfach ausgeführt, wird ihr {@link PreparedStatement}
+ * wiederverwendet und erst am Ende der Transaktion geschlossen.</p>
+ *
+ * <p>Eine {@link Transaction} wird nur von dem {@link DatabaseHandler} erzeugt und darf nicht über den Aufruf des
+ * {@link TransactionCallback} hinaus verwendet werden.</p>
+ */
+public final class Transaction {
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Verbindung, die für die Dauer der Transaktion festgehalten wird. */
+    private final Connection conn;
+    /** Die {@link DatabaseMetrics}, in denen die Anweisungen erfasst werden. */
+    private final DatabaseMetrics metrics;
+    /** Die {@link StatementRegistry}, in der die Anweisungen der Transaktion wiederverwendet werden. */
+    private final StatementRegistry statements;
+    /** Der {@link QueryResultCache}, dessen Ergebnisse nach der Bestätigung verworfen werden, oder {@code null}. */
+    private final QueryResultCache resultCache;
+    /** Die schreibenden Anweisungen, deren Tabellen nach der Bestätigung im {@link #resultCache} verworfen werden. */
+    private final Set<String> writtenStatements = new LinkedHashSet<>();
+    /** Die Aufgaben, die nach der Bestätigung ausgeführt werden. */
+    private final List<Runnable> commitActions = new ArrayList<>();
+    /** Die Aufgaben, die nach dem Zurückrollen ausgeführt werden. */
+    private final List<Runnable> rollbackActions = new ArrayList<>();
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt eine neue {@link Transaction} auf einer Verbindung, deren automatische Bestätigung bereits abgeschaltet
+     * ist.
+     *
+     * @param conn        Die Verbindung, die für die Dauer der Transaktion festgehalten wird.
+     * @param metrics     Die {@link DatabaseMetrics}, in denen die Anweisungen erfasst werden.
+     * @param resultCache Der {@link QueryResultCache}, dessen Ergebnisse der geschriebenen Tabellen nach der
+     *                    Bestätigung verworfen werden, oder {@code null}, wenn er ausgeschaltet ist.
+     */
+    Transaction(
+            final Connection conn,
+            final DatabaseMetrics metrics,
+            final QueryResultCache resultCache
+    ) {
+        this.conn = conn;
+        this.metrics = metrics;
+        this.statements = new StatementRegistry(conn);
+        this.resultCache = resultCache;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="statements">
+
+    /**
+     * Führt eine schreibende Anweisung innerhalb der Transaktion aus.
+     *
+     * @param sql        Die SQL-Anweisung.
+     * @param parameters Die Werte der Parameter der Anweisung in ihrer Reihenfolge.
+     *
+     * @return Die Anzahl an betroffenen Zeilen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Anweisung fehlschlägt.
+     */
+    public int update(
+            final String sql,
+            final Object... parameters
+    ) throws SQLException {
+        final PreparedStatement stmt = statements.prepare(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            stmt.setObject(i + 1, parameters[i]);
+        }
+
+        final long start = System.nanoTime();
+        final int rows = stmt.executeUpdate();
+        metrics.recordStatement(sql, System.nanoTime() - start, rows);
+        written(sql);
+        return rows;
+    }
+
+    /**
+     * Führt eine schreibende Anweisung für einen einzelnen Datensatz innerhalb der Transaktion aus.
+     *
+     * @param sql    Die SQL-Anweisung.
+     * @param row    Der Datensatz, dessen Werte übertragen werden.
+     * @param binder Der {@link StatementBinder}, mit dem die Werte des Datensatzes übertragen werden.
+     * @param <T>    Der Typ des Datensatzes.
+     *
+     * @return Die Anzahl an betroffenen Zeilen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Anweisung fehlschlägt.
+     */
+    public <T> int update(
+            final String sql,
+            final T row,
+            final StatementBinder<T> binder
+    ) throws SQLException {
+        final PreparedStatement stmt = statements.prepare(sql);
+        binder.bind(stmt, row);
+
+        final long start = System.nanoTime();
+        final int rows = stmt.executeUpdate();
+        metrics.recordStatement(sql, System.nanoTime() - start, rows);
+        written(sql);
+        return rows;
+    }
+
+    /**
+     * Führt eine schreibende Anweisung für alle übergebenen Datensätze als Stapel innerhalb der Transaktion aus. Anders
+     * als bei {@link DatabaseHandler#upsertBatch(String, Iterable, StatementBinder)} wird erst mit der gesamten
+     * Transaktion bestätigt.
+     *
+     * @param sql    Die SQL-Anweisung, welche für jeden Datensatz ausgeführt wird.
+     * @param rows   Die Datensätze, deren Werte übertragen werden.
+     * @param binder Der {@link StatementBinder}, mit dem die Werte eines Datensatzes übertragen werden.
+     * @param <T>    Der Typ der Datensätze.
+     *
+     * @return Die Anzahl an übertragenen Datensätzen.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn ein Block fehlschlägt.
+     */
+    public <T> int batch(
+            final String sql,
+            final Iterable<? extends T> rows,
+            final StatementBinder<T> binder
+    ) throws SQLException {
+        final PreparedStatement stmt = statements.prepare(sql);
+        // discard rows left over from an earlier batch that failed part way
+        stmt.clearBatch();
+
+        int total = 0;
+        int pending = 0;
+        for (final T row : rows) {
+            binder.bind(stmt, row);
+            stmt.addBatch();
+
+            if (++pending == DatabaseHandler.DEFAULT_BATCH_CHUNK_SIZE) {
+                total += executeBatch(stmt, sql, pending);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            total += executeBatch(stmt, sql, pending);
+        }
+        written(sql);
+        return total;
+    }
+
+    /**
+     * Führt eine Abfrage innerhalb der Transaktion aus und sammelt alle umgewandelten Zeilen in einer Liste.
+     *
+     * @param sql        Die SQL-Abfrage.
+     * @param mapper     Der {@link RowMapper}, mit dem die Zeilen umgewandelt werden.
+     * @param parameters Die Werte der Parameter der Abfrage in ihrer Reihenfolge.
+     * @param <T>        Der Typ der Objekte, in die die Zeilen umgewandelt werden.
+     *
+     * @return Die umgewandelten Zeilen der Abfrage.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Abfrage fehlschlägt.
+     */
+    public <T> List<T> query(
+            final String sql,
+            final RowMapper<T> mapper,
+            final Object... parameters
+    ) throws SQLException {
+        final PreparedStatement stmt = statements.prepare(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            stmt.setObject(i + 1, parameters[i]);
+        }
+
+        final long start = System.nanoTime();
+        final List<T> rows = new ArrayList<>();
+        try (final ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+        }
+        metrics.recordStatement(sql, System.nanoTime() - start, rows.size());
+        return rows;
+    }
+
+    /**
+     * Sendet einen gesammelten Block und erfasst seine Laufzeit.
+     *
+     * @param stmt Das {@link PreparedStatement}, dessen Block gesendet wird.
+     * @param sql  Die SQL-Anweisung des Blocks.
+     * @param size Die Anzahl an Datensätzen in dem Block.
+     *
+     * @return Die Anzahl an Datensätzen in dem Block.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Block fehlschlägt.
+     */
+    private int executeBatch(
+            final PreparedStatement stmt,
+            final String sql,
+            final int size
+    ) throws SQLException {
+        final long start = System.nanoTime();
+        stmt.executeBatch();
+        metrics.recordStatement(sql, System.nanoTime() - start, size);
+        return size;
+    }
+
+    /**
+     * Vermerkt eine schreibende Anweisung, deren Tabelle nach der Bestätigung im {@link QueryResultCache} verworfen
+     * wird.
+     *
+     * @param sql Die schreibende SQL-Anweisung.
+     */
+    private void written(final String sql) {
+        if (resultCache != null) {
+            writtenStatements.add(sql);
+        }
+    }
+
+    /**
+     * Schließt alle Anweisungen, die innerhalb der Transaktion vorbereitet wurden, bevor die Verbindung zurückgegeben
+     * wird.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn eine Anweisung nicht geschlossen werden kann.
+     */
+    void closeStatements() throws SQLException {
+        statements.close();
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="savepoints">
+
+    /**
+     * Setzt einen Savepoint, bis zu dem später zurückgerollt werden kann, ohne die gesamte Transaktion zu verwerfen.
+     *
+     * @return Der neue {@link Savepoint}.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Savepoint nicht gesetzt werden kann.
+     */
+    public Savepoint savepoint() throws SQLException {
+        return conn.setSavepoint();
+    }
+
+    /**
+     * Rollt alle Änderungen seit dem übergebenen Savepoint zurück. Die Transaktion selbst bleibt offen.
+     *
+     * @param savepoint Der {@link Savepoint}, bis zu dem zurückgerollt wird.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn nicht zurückgerollt werden kann.
+     */
+    public void rollbackTo(final Savepoint savepoint) throws SQLException {
+        conn.rollback(savepoint);
+    }
+
+    /**
+     * Gibt den übergebenen Savepoint frei, wenn er nicht mehr benötigt wird.
+     *
+     * @param savepoint Der {@link Savepoint}, der freigegeben wird.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn der Savepoint nicht freigegeben werden kann.
+     */
+    public void release(final Savepoint savepoint) throws SQLException {
+        conn.releaseSavepoint(savepoint);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="callbacks">
+
+    /**
+     * Merkt eine Aufgabe vor, die erst nach der erfolgreichen Bestätigung der Transaktion ausgeführt wird.
+     *
+     * @param action Die Aufgabe, die nach der Bestätigung ausgeführt wird.
+     */
+    public void onCommit(final Runnable action) {
+        commitActions.add(action);
+    }
+
+    /**
+     * Merkt eine Aufgabe vor, die ausgeführt wird, wenn dieser Versuch der Transaktion zurückgerollt wurde.
+     *
+     * @param action Die Aufgabe, die nach dem Zurückrollen ausgeführt wird.
+     */
+    public void onRollback(final Runnable action) {
+        rollbackActions.add(action);
+    }
+
+    /**
+     * Verwirft die Ergebnisse aller geschriebenen Tabellen und führt danach alle Aufgaben aus, die für die Bestätigung
+     * vorgemerkt wurden.
+     */
+    void committed() {
+        for (final String sql : writtenStatements) {
+            resultCache.invalidateWritten(sql);
+        }
+        for (final Runnable action : commitActions) {
+            action.run();
+        }
+    }
+
+    /**
+     * Führt alle Aufgaben aus, die für das Zurückrollen vorgemerkt wurden.
+     */
+    void rolledBack() {
+        for (final Runnable action : rollbackActions) {
+            action.run();
+        }
+    }
+    //</editor-fold>
+
+
+    /**
+     * Gibt die Verbindung zurück, die für die Dauer der Transaktion festgehalten wird, etwa für Anweisungen, die diese
+     * Klasse nicht abdeckt. Die Verbindung darf weder geschlossen noch bestätigt werden.
+     *
+     * @return Die Verbindung der Transaktion.
+     */
+    public Connection getConnection() {
+        return conn;
+    }
+}
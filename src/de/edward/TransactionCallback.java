@@ -0,0 +1,26 @@
+package de.edward;
+
+import java.sql.SQLException;
+
+/**
+ * Ein {@link TransactionCallback} beschreibt die Arbeit einer einzelnen {@link Transaction}. Da eine Transaktion nach
+ * einem Deadlock oder einer abgelaufenen Sperre wiederholt werden kann, muss die Arbeit beliebig oft ausführbar sein und
+ * darf außerhalb der Datenbank erst nach {@link Transaction#onCommit(Runnable) der Bestätigung} etwas verändern.
+ *
+ * @param <R> Der Typ des Ergebnisses der Arbeit.
+ */
+@FunctionalInterface
+public interface TransactionCallback<R> {
+
+    /**
+     * Führt die Arbeit innerhalb der übergebenen {@link Transaction} aus.
+     *
+     * @param tx Die {@link Transaction}, deren Verbindung für die Dauer des Aufrufs festgehalten wird.
+     *
+     * @return Das Ergebnis der Arbeit.
+     *
+     * @throws SQLException Die Fehlermeldung, die auftreten kann, wenn die Arbeit fehlschlägt. Die Transaktion wird
+     *                      dann zurückgerollt.
+     */
+    R execute(Transaction tx) throws SQLException;
+}
@@ -0,0 +1,204 @@
+package de.edward;
+
+import java.sql.Connection;
+import java.time.Duration;
+
+/**
+ * Die {@link TransactionOptions} legen fest, mit welcher Isolationsstufe eine {@link Transaction} läuft, ob sie nur
+ * liest, mit welcher {@link ConnectionPriority} sie ihre Verbindung leiht und wie oft sie nach einem Deadlock oder
+ * einer abgelaufenen Sperre wiederholt wird. Die Optionen sind
+ * unveränderlich; jede {@code with}-Methode gibt eine angepasste Kopie zurück.
+ */
+public final class TransactionOptions {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Optionen, mit denen eine Transaktion ohne weitere Angaben läuft. */
+    public static final TransactionOptions DEFAULT = new TransactionOptions(
+            Connection.TRANSACTION_REPEATABLE_READ,
+            false,
+            ConnectionPriority.INTERACTIVE,
+            5,
+            Duration.ofMillis(10),
+            Duration.ofSeconds(1)
+    );
+    //</editor-fold>
+
+
+    //<editor-fold desc="LOCAL FIELDS">
+    /** Die Isolationsstufe als Konstante aus {@link Connection}. */
+    private final int isolation;
+    /** Ob die Transaktion nur liest. */
+    private final boolean readOnly;
+    /** Die {@link ConnectionPriority}, mit der eine schreibende Transaktion ihre Verbindung leiht. */
+    private final ConnectionPriority priority;
+    /** Die maximale Anzahl an Versuchen einschließlich des ersten. */
+    private final int maxAttempts;
+    /** Die Wartezeit vor der ersten Wiederholung, die sich mit jeder weiteren verdoppelt. */
+    private final Duration initialBackoff;
+    /** Die längste Wartezeit vor einer Wiederholung. */
+    private final Duration maxBackoff;
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+
+    /**
+     * Erzeugt neue {@link TransactionOptions}.
+     *
+     * @param isolation      Die Isolationsstufe als Konstante aus {@link Connection}.
+     * @param readOnly       Ob die Transaktion nur liest.
+     * @param priority       Die {@link ConnectionPriority}, mit der eine schreibende Transaktion ihre Verbindung leiht.
+     * @param maxAttempts    Die maximale Anzahl an Versuchen einschließlich des ersten.
+     * @param initialBackoff Die Wartezeit vor der ersten Wiederholung.
+     * @param maxBackoff     Die längste Wartezeit vor einer Wiederholung.
+     */
+    private TransactionOptions(
+            final int isolation,
+            final boolean readOnly,
+            final ConnectionPriority priority,
+            final int maxAttempts,
+            final Duration initialBackoff,
+            final Duration maxBackoff
+    ) {
+        // check the limits for validity
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("The supplied number of attempts must be positive!");
+        }
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("The supplied backoff must not be negative or exceed its maximum!");
+        }
+
+        this.isolation = isolation;
+        this.readOnly = readOnly;
+        this.priority = priority;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="with">
+
+    /**
+     * Gibt eine Kopie mit der übergebenen Isolationsstufe zurück.
+     *
+     * @param isolation Die Isolationsstufe als Konstante aus {@link Connection}, etwa
+     *                  {@link Connection#TRANSACTION_READ_COMMITTED}.
+     *
+     * @return Eine Kopie mit der übergebenen Isolationsstufe.
+     */
+    public TransactionOptions withIsolation(final int isolation) {
+        return new TransactionOptions(isolation, readOnly, priority, maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    /**
+     * Gibt eine Kopie zurück, die festlegt, ob die Transaktion nur liest. Der Server muss für lesende Transaktionen
+     * keine Schreib-Verwaltung anlegen.
+     *
+     * @param readOnly Ob die Transaktion nur liest.
+     *
+     * @return Eine Kopie mit dem übergebenen Hinweis.
+     */
+    public TransactionOptions withReadOnly(final boolean readOnly) {
+        return new TransactionOptions(isolation, readOnly, priority, maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    /**
+     * Gibt eine Kopie mit der übergebenen {@link ConnectionPriority} zurück. Hintergrund-Arbeiten wie das Archivieren
+     * nutzen {@link ConnectionPriority#BULK}, damit sie bei Überlast hinter gewöhnlichen Anfragen zurückstehen.
+     * Lesende Transaktionen leihen ihre Verbindung unabhängig davon über
+     * {@link DatabaseHandler#getReadConnection()}.
+     *
+     * @param priority Die {@link ConnectionPriority}, mit der eine schreibende Transaktion ihre Verbindung leiht.
+     *
+     * @return Eine Kopie mit der übergebenen {@link ConnectionPriority}.
+     */
+    public TransactionOptions withPriority(final ConnectionPriority priority) {
+        return new TransactionOptions(isolation, readOnly, priority, maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    /**
+     * Gibt eine Kopie mit der übergebenen maximalen Anzahl an Versuchen zurück.
+     *
+     * @param maxAttempts Die maximale Anzahl an Versuchen einschließlich des ersten; {@code 1} schaltet die
+     *                    Wiederholung ab.
+     *
+     * @return Eine Kopie mit der übergebenen maximalen Anzahl an Versuchen.
+     */
+    public TransactionOptions withMaxAttempts(final int maxAttempts) {
+        return new TransactionOptions(isolation, readOnly, priority, maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    /**
+     * Gibt eine Kopie mit den übergebenen Wartezeiten zwischen den Versuchen zurück.
+     *
+     * @param initialBackoff Die Wartezeit vor der ersten Wiederholung, die sich mit jeder weiteren verdoppelt.
+     * @param maxBackoff     Die längste Wartezeit vor einer Wiederholung.
+     *
+     * @return Eine Kopie mit den übergebenen Wartezeiten.
+     */
+    public TransactionOptions withBackoff(
+            final Duration initialBackoff,
+            final Duration maxBackoff
+    ) {
+        return new TransactionOptions(isolation, readOnly, priority, maxAttempts, initialBackoff, maxBackoff);
+    }
+    //</editor-fold>
+
+
+    //<editor-fold desc="getter">
+
+    /**
+     * Gibt die Isolationsstufe als Konstante aus {@link Connection} zurück.
+     *
+     * @return Die Isolationsstufe als Konstante aus {@link Connection}.
+     */
+    public int getIsolation() {
+        return isolation;
+    }
+
+    /**
+     * Gibt zurück, ob die Transaktion nur liest.
+     *
+     * @return Ob die Transaktion nur liest.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Gibt die {@link ConnectionPriority} zurück, mit der eine schreibende Transaktion ihre Verbindung leiht.
+     *
+     * @return Die {@link ConnectionPriority} der Transaktion.
+     */
+    public ConnectionPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Gibt die maximale Anzahl an Versuchen einschließlich des ersten zurück.
+     *
+     * @return Die maximale Anzahl an Versuchen.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gibt die längste Wartezeit vor der Wiederholung nach dem übergebenen Versuch zurück. Die tatsächliche Wartezeit
+     * wird zufällig zwischen null und diesem Wert gewählt, damit sich konkurrierende Transaktionen nicht erneut im
+     * Gleichschritt sperren.
+     *
+     * @param attempt Die Nummer des fehlgeschlagenen Versuchs, beginnend bei {@code 1}.
+     *
+     * @return Die längste Wartezeit in Nanosekunden.
+     */
+    long getBackoffCeilingNanos(final int attempt) {
+        final long initial = initialBackoff.toNanos();
+        final long ceiling = maxBackoff.toNanos();
+        final int shift = Math.min(attempt - 1, 30);
+        return initial > (ceiling >> shift) ? ceiling : initial << shift;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,27 @@
+package de.edward;
+
+import java.sql.SQLException;
+
+/**
+ * Eine {@link UncheckedSQLException} umhüllt eine {@link SQLException} an Stellen, an denen keine geprüften Ausnahmen
+ * geworfen werden dürfen, etwa in einem {@link java.util.Iterator} oder einem {@link java.util.stream.Stream}.
+ */
+public final class UncheckedSQLException extends RuntimeException {
+
+    /** Die Versionsnummer der serialisierten Form. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Erzeugt eine neue {@link UncheckedSQLException}, die die übergebene {@link SQLException} umhüllt.
+     *
+     * @param cause Die {@link SQLException}, die umhüllt wird.
+     */
+    public UncheckedSQLException(final SQLException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
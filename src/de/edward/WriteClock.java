@@ -0,0 +1,53 @@
+package de.edward;
+
+import java.sql.Timestamp;
+
+/**
+ * Die {@link WriteClock} liefert den Zeitpunkt, mit dem die Spalte {@code date} beim Schreiben gefüllt wird. Da die
+ * Spalte als {@code DATETIME(1)} nur Zehntelsekunden speichert und MariaDB feinere Anteile abschneidet, teilen sich
+ * alle Schreibzugriffe innerhalb derselben Zehntelsekunde einen einzigen {@link Timestamp}, statt für jede Zeile einen
+ * neuen anzulegen.
+ *
+ * <p>Der Zeitpunkt wird nicht als Epochen-Wert über {@code FROM_UNIXTIME(?)} übertragen, da dieser von der Zeitzone
+ * der Sitzung abhängt und so von den übrigen {@link Timestamp}-Parametern abweichen könnte.</p>
+ */
+final class WriteClock {
+
+    //<editor-fold desc="CONSTANTS">
+    /** Die Auflösung der Spalte {@code date} in Millisekunden. */
+    private static final long RESOLUTION_MILLIS = 100;
+    //</editor-fold>
+
+
+    //<editor-fold desc="STATIC FIELDS">
+    /** Der zuletzt erzeugte Zeitpunkt, abgerundet auf die Auflösung der Spalte. */
+    private static volatile Timestamp current = new Timestamp(0);
+    //</editor-fold>
+
+
+    //<editor-fold desc="CONSTRUCTORS">
+    private WriteClock() {
+        throw new UnsupportedOperationException("This class cannot be instantiated!");
+    }
+    //</editor-fold>
+
+
+    /**
+     * Gibt den aktuellen Zeitpunkt, abgerundet auf die Auflösung der Spalte {@code date}, zurück. Der zurückgegebene
+     * {@link Timestamp} wird geteilt und darf daher nicht verändert werden. Wechseln mehrere Threads gleichzeitig in
+     * eine neue Zehntelsekunde, legt jeder höchstens einen eigenen {@link Timestamp} an.
+     *
+     * @return Der aktuelle Zeitpunkt in der Auflösung der Spalte {@code date}.
+     */
+    static Timestamp now() {
+        final long tick = System.currentTimeMillis() / RESOLUTION_MILLIS * RESOLUTION_MILLIS;
+        final Timestamp cached = current;
+        if (cached.getTime() == tick) {
+            return cached;
+        }
+
+        final Timestamp next = new Timestamp(tick);
+        current = next;
+        return next;
+    }
+}
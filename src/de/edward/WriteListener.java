@@ -0,0 +1,41 @@
+package de.edward;
+
+import java.util.Collection;
+
+/**
+ * Ein {@link WriteListener} wird von einem {@link Repository} benachrichtigt, nachdem Datensätze erfolgreich geschrieben
+ * und bestätigt wurden. Er wird auf dem schreibenden Thread aufgerufen und sollte daher schnell zurückkehren.
+ *
+ * <p>Der übergebene Zeitpunkt ist stets derselbe, der in die Spalte {@value EntityDescriptor#TIMESTAMP_COLUMN}
+ * geschrieben wurde, sodass er sich mit den Zeitstempeln vergleichen lässt, die später aus der Tabelle gelesen
+ * werden.</p>
+ *
+ * @param <K> Der Typ der Schlüssel, über deren Löschen benachrichtigt wird.
+ * @param <T> Der Typ der Datensätze, über die benachrichtigt wird.
+ */
+@FunctionalInterface
+public interface WriteListener<K, T> {
+
+    /**
+     * Wird aufgerufen, nachdem die übergebenen Datensätze bestätigt wurden.
+     *
+     * @param rows        Die Datensätze, die geschrieben wurden.
+     * @param epochMillis Der Zeitstempel in Millisekunden seit der Epoche, mit dem die Datensätze geschrieben wurden.
+     */
+    void written(Collection<? extends T> rows, long epochMillis);
+
+    /**
+     * Wird aufgerufen, nachdem die Datensätze zu den übergebenen Schlüsseln gelöscht oder archiviert wurden. Gelöscht
+     * wurden nur Stände, die höchstens mit dem übergebenen Zeitstempel geschrieben wurden; ein neuerer Stand desselben
+     * Schlüssels besteht weiter. Standardmäßig wird das Löschen ignoriert.
+     *
+     * @param keys        Die Schlüssel der gelöschten Datensätze.
+     * @param epochMillis Der neueste Zeitstempel in Millisekunden seit der Epoche, den ein gelöschter Stand tragen
+     *                    konnte.
+     */
+    default void deleted(
+            final Collection<? extends K> keys,
+            final long epochMillis
+    ) {
+    }
+}
@@ -0,0 +1,78 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prüft, dass ein {@link BulkImporter} Zeilen mit einem Zeilenumbruch in einem Feld in Anführungszeichen auch dann
+ * vollständig importiert, wenn der Umbruch auf der Grenze zweier Abschnitte liegt. Geschrieben wird über einen
+ * {@link DatabaseHandlerTest.FakeDriver}.
+ */
+final class BulkImporterTest {
+
+    /** Die Adresse des Primärservers, die der {@link DatabaseHandlerTest.FakeDriver} bedient. */
+    private static final String PRIMARY_URL = "jdbc:fake:primary";
+    /** Der Anfang der Zeile, deren Feld in Anführungszeichen über die Grenze der Abschnitte reicht. */
+    private static final String QUOTED_PREFIX = "quoted,eng,noun,\"erste Zeile";
+
+    @Test
+    void quotedLineBreakOnSegmentBoundaryStaysInField(@TempDir final Path directory) throws IOException, SQLException {
+        final StringBuilder text = new StringBuilder();
+        int lines = 0;
+        // fill up to just before the boundary, so that the quoted line break falls exactly on it
+        while (BulkImporter.SEGMENT_SIZE - text.length() - QUOTED_PREFIX.length() >= 64) {
+            text.append(String.format("w%07d,eng,noun,filler\n", lines++));
+        }
+        final int padding = BulkImporter.SEGMENT_SIZE - text.length() - QUOTED_PREFIX.length() - "pad,eng,noun,\n"
+                .length();
+        text.append("pad,eng,noun,").append("x".repeat(padding)).append('\n');
+        text.append(QUOTED_PREFIX).append("\nzweite Zeile\"\n");
+        text.append("last,eng,noun,filler\n");
+        lines += 3;
+        assertEquals('\n', text.charAt(BulkImporter.SEGMENT_SIZE));
+
+        final Path file = directory.resolve("dictionary.csv");
+        Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+
+        final Properties properties = new Properties();
+        properties.put("jdbcUrl", PRIMARY_URL);
+        properties.put("driverClassName", DatabaseHandlerTest.FakeDriver.class.getName());
+        properties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
+
+        try (final DatabaseHandler databaseHandler = new DatabaseHandler("BulkImporterTest", properties)) {
+            final Repository<String, DictionaryEntry> repository = new Repository<>(
+                    databaseHandler,
+                    DictionaryEntry.DESCRIPTOR
+            );
+            final Map<String, String> definitions = new ConcurrentHashMap<>();
+            repository.addWriteListener((final Collection<? extends DictionaryEntry> rows, final long epochMillis) -> {
+                for (final DictionaryEntry row : rows) {
+                    if (!row.getStrangWord().startsWith("w")) {
+                        definitions.put(row.getStrangWord(), row.getDefinition());
+                    }
+                }
+            });
+
+            final BulkImporter.Result result = BulkImporter.dictionary(repository, ',', false, 2)
+                    .importFile(file, (committed, total, written, rejected) -> {
+                    });
+
+            assertEquals(0, result.getRowsRejected());
+            assertEquals(lines, result.getRowsWritten());
+            assertEquals("erste Zeile\nzweite Zeile", definitions.get("quoted"));
+            assertEquals("filler", definitions.get("last"));
+        }
+    }
+}
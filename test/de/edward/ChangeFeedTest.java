@@ -0,0 +1,153 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prüft das Veröffentlichen und Lesen des Ringpuffers eines {@link ChangeFeed}, ohne dabei aufzuholen. Da die geprüften
+ * {@link ChangeFeed ChangeFeeds} keine Datenbank haben, schlägt ein Aufholen nach einer Überholung fehl, und die
+ * {@link ChangeFeed.Subscription} liest danach im Ringpuffer weiter.
+ */
+final class ChangeFeedTest {
+
+    /**
+     * Erzeugt einen {@link ChangeFeed} ohne Datenbank, der daher nicht aufholen kann.
+     *
+     * @param capacity Die Anzahl an Ereignissen, die der Ringpuffer hält.
+     *
+     * @return Der leere {@link ChangeFeed}.
+     */
+    private static ChangeFeed<String, String> feedOf(final int capacity) {
+        return new ChangeFeed<>(null, null, capacity);
+    }
+
+    /**
+     * Erzeugt ein Ereignis für den übergebenen Schlüssel.
+     *
+     * @param key         Der Schlüssel des Datensatzes.
+     * @param epochMillis Der Zeitpunkt des Ereignisses.
+     *
+     * @return Das neue Ereignis.
+     */
+    private static ChangeEvent<String, String> eventOf(
+            final String key,
+            final long epochMillis
+    ) {
+        return new ChangeEvent<>("table", key, null, key.toUpperCase(), epochMillis, false);
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(8, feedOf(5).getCapacity());
+        assertEquals(8, feedOf(8).getCapacity());
+        assertEquals(1, feedOf(1).getCapacity());
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> feedOf(0));
+        assertThrows(IllegalArgumentException.class, () -> feedOf((1 << 30) + 1));
+    }
+
+    @Test
+    void deliversEventsInPublishOrder() throws SQLException {
+        final ChangeFeed<String, String> feed = feedOf(4);
+        final ChangeFeed<String, String>.Subscription subscription = feed.subscribe();
+        final long now = System.currentTimeMillis();
+        feed.publish(eventOf("a", now));
+        feed.publish(eventOf("b", now + 1));
+        feed.publish(eventOf("c", now + 2));
+
+        assertEquals("a", subscription.poll().getKey());
+        assertEquals("b", subscription.poll().getKey());
+        assertEquals("C", subscription.poll().getNewValue());
+        assertNull(subscription.poll());
+        assertEquals(3, feed.getPublishedCount());
+        assertEquals(0, subscription.getOverruns());
+        assertFalse(subscription.isReplaying());
+    }
+
+    @Test
+    void subscriptionOnlySeesLaterEvents() throws SQLException {
+        final ChangeFeed<String, String> feed = feedOf(4);
+        feed.publish(eventOf("a", System.currentTimeMillis()));
+        final ChangeFeed<String, String>.Subscription subscription = feed.subscribe();
+        feed.publish(eventOf("b", System.currentTimeMillis()));
+
+        assertEquals("b", subscription.poll().getKey());
+        assertNull(subscription.poll());
+    }
+
+    @Test
+    void subscriptionsReadIndependently() throws SQLException {
+        final ChangeFeed<String, String> feed = feedOf(4);
+        final ChangeFeed<String, String>.Subscription first = feed.subscribe();
+        final ChangeFeed<String, String>.Subscription second = feed.subscribe();
+        feed.publish(eventOf("a", System.currentTimeMillis()));
+        feed.publish(eventOf("b", System.currentTimeMillis()));
+
+        assertEquals("a", first.poll().getKey());
+        assertEquals("b", first.poll().getKey());
+        assertEquals("a", second.poll().getKey());
+    }
+
+    @Test
+    void wrappingRingNeverDeliversOverwrittenSlot() throws SQLException, InterruptedException {
+        final ChangeFeed<String, String> feed = feedOf(4);
+        final ChangeFeed<String, String>.Subscription subscription = feed.subscribe();
+        final int count = 200_000;
+        final Thread publisher = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                feed.publish(eventOf(String.valueOf(i), i));
+            }
+        });
+        publisher.start();
+
+        long last = -1;
+        long overruns = 0;
+        while (true) {
+            final boolean finished = !publisher.isAlive();
+            final ChangeEvent<String, String> event;
+            try {
+                event = subscription.poll();
+            } catch (final RuntimeException e) {
+                // without a database an overrun cannot replay, so the subscription continues with the ring
+                continue;
+            }
+            if (event == null) {
+                if (finished) {
+                    break;
+                }
+                continue;
+            }
+
+            // without an overrun every event must follow its predecessor, or a later lap was delivered
+            final long number = Long.parseLong(event.getKey());
+            if (subscription.getOverruns() == overruns) {
+                assertEquals(last + 1, number);
+            } else {
+                assertTrue(number > last);
+                overruns = subscription.getOverruns();
+            }
+            last = number;
+        }
+        publisher.join();
+
+        assertEquals(count, feed.getPublishedCount());
+    }
+
+    @Test
+    void timedPollReturnsNullWithoutEvents() throws SQLException, InterruptedException {
+        final ChangeFeed<String, String>.Subscription subscription = feedOf(2).subscribe();
+
+        assertNull(subscription.poll(5, TimeUnit.MILLISECONDS));
+    }
+}
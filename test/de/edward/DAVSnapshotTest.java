@@ -0,0 +1,61 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prüft, wie ein {@link DAVSnapshot} als {@link WriteListener} gemeldete Schreib- und Löschzugriffe übernimmt, ohne
+ * dafür die Datenbank anzufragen.
+ */
+final class DAVSnapshotTest {
+
+    /**
+     * Erzeugt einen Teilnehmer der übergebenen Disziplin.
+     *
+     * @param name      Der Name des Teilnehmers.
+     * @param disziplin Die Disziplin des Teilnehmers.
+     *
+     * @return Der neue Teilnehmer.
+     */
+    private static DAVEntry entryOf(
+            final String name,
+            final String disziplin
+    ) {
+        return new DAVEntry(name, "Vorname", "w", LocalDate.of(2000, 1, 1), disziplin);
+    }
+
+    @Test
+    void archivedParticipantIsNoLongerCounted() {
+        final DAVSnapshot snapshot = new DAVSnapshot(null);
+        snapshot.written(List.of(entryOf("Atkins", "a"), entryOf("Berger", "b")), 1_000);
+
+        snapshot.deleted(List.of("Atkins"), 1_000);
+
+        assertEquals(1, snapshot.size());
+        assertEquals(1, snapshot.query().count());
+        assertEquals(Map.of("b", 1L), snapshot.query().countByDisziplin());
+    }
+
+    @Test
+    void deleteKeepsNewerStateAndOnlyNewerWriteRevives() {
+        final DAVSnapshot snapshot = new DAVSnapshot(null);
+        snapshot.written(List.of(entryOf("Atkins", "a")), 2_000);
+
+        // an older state was archived, the newer one stays
+        snapshot.deleted(List.of("Atkins"), 1_000);
+        assertEquals(1, snapshot.query().count());
+
+        // a late copy of the deleted state must not revive the participant
+        snapshot.deleted(List.of("Atkins"), 2_000);
+        snapshot.written(List.of(entryOf("Atkins", "a")), 2_000);
+        assertEquals(0, snapshot.query().count());
+
+        snapshot.written(List.of(entryOf("Atkins", "c")), 3_000);
+        assertEquals(Map.of("c", 1L), snapshot.query().countByDisziplin());
+    }
+}
@@ -0,0 +1,216 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prüft, von welchem Server ein {@link DatabaseHandler} beim Streamen und beim Füllen des Caches liest und wann er
+ * Ergebnisse des Caches verwirft. Statt einer Datenbank antwortet ein {@link FakeDriver}, der für jede Adresse feste
+ * Zeilen liefert.
+ */
+final class DatabaseHandlerTest {
+
+    /** Die Adresse des Primärservers. */
+    private static final String PRIMARY_URL = "jdbc:fake:primary";
+    /** Die Adresse des Replikats. */
+    private static final String REPLICA_URL = "jdbc:fake:replica";
+    /** Die Zeilen, die jeder Server auf jede Abfrage liefert; dem Replikat fehlt die zuletzt bestätigte Zeile. */
+    private static final Map<String, List<String>> ROWS = Map.of(
+            PRIMARY_URL, List.of("alt", "neu"),
+            REPLICA_URL, List.of("alt")
+    );
+
+    @Test
+    void primaryStreamSeesRowMissingOnReplica() throws SQLException {
+        final Properties properties = new Properties();
+        properties.put("jdbcUrl", PRIMARY_URL);
+        properties.put("driverClassName", FakeDriver.class.getName());
+        properties.put(DatabaseHandler.REPLICA_URLS_PROPERTY, REPLICA_URL);
+        properties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
+
+        try (final DatabaseHandler databaseHandler = new DatabaseHandler("DatabaseHandlerTest", properties)) {
+            try (final Stream<String> rows = databaseHandler.stream("SELECT key", rs -> rs.getString(1))) {
+                assertEquals(List.of("alt"), rows.collect(Collectors.toList()));
+            }
+            try (final Stream<String> rows = databaseHandler.stream(
+                    ConnectionPriority.BULK,
+                    "SELECT key",
+                    rs -> rs.getString(1)
+            )) {
+                assertEquals(List.of("alt", "neu"), rows.collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    void cachedQueryReadsFromPrimary() throws SQLException {
+        final Properties properties = new Properties();
+        properties.put("jdbcUrl", PRIMARY_URL);
+        properties.put("driverClassName", FakeDriver.class.getName());
+        properties.put(DatabaseHandler.REPLICA_URLS_PROPERTY, REPLICA_URL);
+        properties.put(DatabaseHandler.RESULT_CACHE_BYTES_PROPERTY, "65536");
+        properties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
+
+        try (final DatabaseHandler databaseHandler = new DatabaseHandler("DatabaseHandlerTest", properties)) {
+            assertEquals(List.of("alt", "neu"), databaseHandler.queryCached("SELECT key", rs -> rs.getString(1)));
+        }
+    }
+
+    @Test
+    void transactionalWriteDiscardsCachedResults() throws SQLException {
+        final Properties properties = new Properties();
+        properties.put("jdbcUrl", PRIMARY_URL);
+        properties.put("driverClassName", FakeDriver.class.getName());
+        properties.put(DatabaseHandler.RESULT_CACHE_BYTES_PROPERTY, "65536");
+        properties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
+
+        try (final DatabaseHandler databaseHandler = new DatabaseHandler("DatabaseHandlerTest", properties)) {
+            final QueryResultCache cache = databaseHandler.getResultCache();
+            databaseHandler.queryCached("SELECT key FROM entries", rs -> rs.getString(1));
+            databaseHandler.queryCached("SELECT key FROM entries", rs -> rs.getString(1));
+            assertEquals(1, cache.getHitCount());
+
+            databaseHandler.inTransaction(tx -> tx.update("UPDATE entries SET key = ?", "neu"));
+            databaseHandler.queryCached("SELECT key FROM entries", rs -> rs.getString(1));
+            assertEquals(1, cache.getHitCount());
+        }
+    }
+
+    /**
+     * Erzeugt ein Objekt der übergebenen JDBC-Schnittstelle, das auf alle nicht behandelten Aufrufe mit dem
+     * Standardwert des Rückgabetyps antwortet.
+     *
+     * @param type    Die JDBC-Schnittstelle.
+     * @param handler Die Antworten je Name einer Methode; alle übrigen Methoden liefern den Standardwert.
+     * @param <T>     Der Typ der Schnittstelle.
+     *
+     * @return Das neue Objekt.
+     */
+    private static <T> T fake(
+            final Class<T> type,
+            final Map<String, Function<Object[], Object>> handler
+    ) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            final Function<Object[], Object> answer = handler.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            final Class<?> result = method.getReturnType();
+            if (result == boolean.class) {
+                return false;
+            }
+            if (result == int.class) {
+                return 0;
+            }
+            if (result == long.class) {
+                return 0L;
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Ein {@link Driver}, der Verbindungen zu {@code jdbc:fake:}-Adressen liefert, die auf jede Abfrage mit den
+     * festen Zeilen ihrer Adresse antworten.
+     */
+    public static final class FakeDriver implements Driver {
+
+        /**
+         * Erzeugt einen neuen {@link FakeDriver}. Hikari legt ihn anhand seines Klassennamens an.
+         */
+        public FakeDriver() {
+        }
+
+        @Override
+        public Connection connect(
+                final String url,
+                final Properties info
+        ) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+
+            final List<String> rows = ROWS.get(url);
+            final PreparedStatement stmt = fake(PreparedStatement.class, Map.of(
+                    "executeQuery", args -> resultSetOf(rows.iterator())
+            ));
+            return fake(Connection.class, Map.of(
+                    "isValid", args -> true,
+                    "getAutoCommit", args -> true,
+                    "getTransactionIsolation", args -> Connection.TRANSACTION_REPEATABLE_READ,
+                    "prepareStatement", args -> stmt
+            ));
+        }
+
+        /**
+         * Erzeugt ein {@link ResultSet}, das die übergebenen Zeilen als einzige Spalte liefert.
+         *
+         * @param rows Die Zeilen.
+         *
+         * @return Das neue {@link ResultSet}.
+         */
+        private static ResultSet resultSetOf(final Iterator<String> rows) {
+            final String[] current = new String[1];
+            return fake(ResultSet.class, Map.of(
+                    "next", args -> {
+                        current[0] = rows.hasNext() ? rows.next() : null;
+                        return current[0] != null;
+                    },
+                    "getString", args -> current[0],
+                    "getObject", args -> current[0],
+                    "getMetaData", args -> fake(ResultSetMetaData.class, Map.of("getColumnCount", ignored -> 1))
+            ));
+        }
+
+        @Override
+        public boolean acceptsURL(final String url) {
+            return ROWS.containsKey(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(
+                final String url,
+                final Properties info
+        ) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prüft, dass ein {@link QueryResultCache} kein Ergebnis ablegt, das während seiner Abfrage ungültig wurde.
+ */
+final class QueryResultCacheTest {
+
+    /** Die Abfrage, deren Ergebnis im Cache abgelegt wird. */
+    private static final String SQL = "SELECT key FROM entries";
+
+    @Test
+    void keepsResultOfUndisturbedQuery() throws SQLException {
+        final QueryResultCache cache = new QueryResultCache(65_536, 0);
+        cache.get(SQL, new Object[0], () -> new QueryResultCache.Loaded<>(List.of("alt"), 64));
+
+        assertEquals(
+                List.of("alt"),
+                cache.get(SQL, new Object[0], () -> new QueryResultCache.Loaded<>(List.of("neu"), 64))
+        );
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void dropsQueryInFlightDuringInvalidateAll() throws SQLException {
+        final QueryResultCache cache = new QueryResultCache(65_536, 0);
+
+        // no result of the table is stored yet, so only the global epoch can tell that the query is stale
+        cache.get(SQL, new Object[0], () -> {
+            cache.invalidateAll();
+            return new QueryResultCache.Loaded<>(List.of("alt"), 64);
+        });
+
+        assertEquals(
+                List.of("neu"),
+                cache.get(SQL, new Object[0], () -> new QueryResultCache.Loaded<>(List.of("neu"), 64))
+        );
+        assertEquals(0, cache.getHitCount());
+    }
+}
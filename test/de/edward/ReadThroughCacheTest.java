@@ -0,0 +1,171 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prüft das Nachladen, Verdrängen und Verwerfen des {@link ReadThroughCache}.
+ */
+final class ReadThroughCacheTest {
+
+    /** Die Datensätze, aus denen der {@link ReadThroughCache.Loader} liest. */
+    private final Map<Integer, String> table = new HashMap<>();
+    /** Die Schlüssel in der Reihenfolge, in der sie geladen wurden. */
+    private final List<Integer> loaded = new ArrayList<>();
+
+    /**
+     * Erzeugt einen {@link ReadThroughCache}, der aus {@link #table} lädt.
+     *
+     * @param maximumSize Die maximale Anzahl an Einträgen.
+     *
+     * @return Der leere {@link ReadThroughCache}.
+     */
+    private ReadThroughCache<Integer, String> cacheOf(final int maximumSize) {
+        return new ReadThroughCache<>(maximumSize, Duration.ZERO, key -> {
+            loaded.add(key);
+            return table.get(key);
+        });
+    }
+
+    @Test
+    void loadsMissesOnceAndCountsHits() throws Exception {
+        table.put(1, "eins");
+        final ReadThroughCache<Integer, String> cache = cacheOf(16);
+
+        assertEquals(Optional.of("eins"), cache.get(1));
+        assertEquals(Optional.of("eins"), cache.get(1));
+        assertEquals(List.of(1), loaded);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void remembersAbsentRows() throws Exception {
+        final ReadThroughCache<Integer, String> cache = cacheOf(16);
+
+        assertEquals(Optional.empty(), cache.get(7));
+        assertEquals(Optional.empty(), cache.get(7));
+        assertEquals(List.of(7), loaded);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntry() throws Exception {
+        table.put(1, "eins");
+        table.put(2, "zwei");
+        table.put(3, "drei");
+        final ReadThroughCache<Integer, String> cache = cacheOf(2);
+
+        cache.get(1);
+        cache.get(2);
+        cache.get(1);
+        cache.get(3);
+        assertTrue(cache.size() <= 2);
+        assertEquals(1, cache.getEvictionCount());
+
+        // a single segment keeps the exact order of access
+        final ReadThroughCache<Integer, String> single = cacheOf(1);
+        single.get(1);
+        single.get(2);
+        loaded.clear();
+        single.get(1);
+        assertEquals(List.of(1), loaded);
+    }
+
+    @Test
+    void discardsLoadWhenSameKeyIsWritten() throws Exception {
+        final AtomicReference<ReadThroughCache<Integer, String>> self = new AtomicReference<>();
+        final ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(16, Duration.ZERO, key -> {
+            loaded.add(key);
+            // a write of the same key commits while the old row is being read
+            self.get().invalidate(key);
+            return "alt";
+        });
+        self.set(cache);
+
+        assertEquals(Optional.of("alt"), cache.get(1));
+        assertEquals(0, cache.size());
+        cache.get(1);
+        assertEquals(List.of(1, 1), loaded);
+    }
+
+    @Test
+    void keepsLoadThatStartedAfterWrite() throws Exception {
+        final AtomicReference<ReadThroughCache<Integer, String>> self = new AtomicReference<>();
+        final ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(16, Duration.ZERO, key -> {
+            loaded.add(key);
+            if (loaded.size() == 1) {
+                // a write commits while the old row is being read, and another reader starts loading afterwards
+                self.get().invalidate(key);
+                assertEquals(Optional.of("neu"), self.get().get(key));
+                return "alt";
+            }
+            return "neu";
+        });
+        self.set(cache);
+
+        assertEquals(Optional.of("alt"), cache.get(1));
+        assertEquals(Optional.of("neu"), cache.get(1));
+        assertEquals(List.of(1, 1), loaded);
+    }
+
+    @Test
+    void keepsLoadWhenOtherKeyIsWritten() throws Exception {
+        final AtomicReference<ReadThroughCache<Integer, String>> self = new AtomicReference<>();
+        final ReadThroughCache<Integer, String> cache = new ReadThroughCache<>(16, Duration.ZERO, key -> {
+            loaded.add(key);
+            self.get().invalidate(key + 1);
+            return "wert";
+        });
+        self.set(cache);
+
+        cache.get(1);
+        cache.get(1);
+        assertEquals(List.of(1), loaded);
+    }
+
+    @Test
+    void invalidateReturnsPreviousRow() throws Exception {
+        table.put(1, "eins");
+        final ReadThroughCache<Integer, String> cache = cacheOf(16);
+
+        assertNull(cache.invalidate(1));
+        cache.get(1);
+        assertEquals("eins", cache.invalidate(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void putIfAbsentKeepsExistingEntry() throws Exception {
+        table.put(1, "neu");
+        final ReadThroughCache<Integer, String> cache = cacheOf(16);
+        cache.get(1);
+
+        assertFalse(cache.putIfAbsent(1, "alt"));
+        assertTrue(cache.putIfAbsent(2, "zwei"));
+        assertEquals(Optional.of("neu"), cache.get(1));
+        assertEquals(Optional.of("zwei"), cache.get(2));
+        assertEquals(List.of(1), loaded);
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> cacheOf(0));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new ReadThroughCache<Integer, String>(1, Duration.ofSeconds(-1), key -> null)
+        );
+    }
+}
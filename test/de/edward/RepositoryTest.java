@@ -0,0 +1,106 @@
+package de.edward;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prüft, was ein {@link Repository} nach einem bestätigten Löschen meldet und vergisst. Die Datenbank wird dabei nicht erreicht; der
+ * {@link DatabaseHandler} startet verzögert und wird nur für das Verwerfen zwischengespeicherter Ergebnisse genutzt.
+ */
+final class RepositoryTest {
+
+    /** Der Eintrag, der in den Tests gelöscht wird. */
+    private static final DictionaryEntry ENTRY = new DictionaryEntry("tchó", "person", "noun", "individual human");
+
+    /** Der {@link DatabaseHandler}, dessen Pool nie eine Verbindung herstellt. */
+    private DatabaseHandler databaseHandler;
+
+    @BeforeEach
+    void startHandler() {
+        final Properties properties = new Properties();
+        properties.put("jdbcUrl", "jdbc:mariadb://localhost:1/none");
+        properties.put(DatabaseHandler.LAZY_START_PROPERTY, "true");
+        databaseHandler = new DatabaseHandler("RepositoryTest", properties);
+    }
+
+    @AfterEach
+    void closeHandler() {
+        databaseHandler.close();
+    }
+
+    @Test
+    void deleteEventCarriesCachedRow() throws SQLException {
+        final Repository<String, DictionaryEntry> repository = new Repository<>(
+                databaseHandler,
+                DictionaryEntry.DESCRIPTOR,
+                16,
+                Duration.ZERO
+        );
+        final ChangeFeed<String, DictionaryEntry>.Subscription subscription = repository.enableChangeFeed(4)
+                .subscribe();
+        repository.getCache().put(ENTRY.getStrangWord(), ENTRY);
+
+        repository.deleted(List.of(ENTRY.getStrangWord()), 1);
+
+        final ChangeEvent<String, DictionaryEntry> event = subscription.poll();
+        assertTrue(event.isDeleted());
+        assertSame(ENTRY, event.getOldValue());
+    }
+
+    @Test
+    void deleteEventLacksRowWithoutCache() throws SQLException {
+        final Repository<String, DictionaryEntry> repository = new Repository<>(
+                databaseHandler,
+                DictionaryEntry.DESCRIPTOR
+        );
+        final ChangeFeed<String, DictionaryEntry>.Subscription subscription = repository.enableChangeFeed(4)
+                .subscribe();
+
+        repository.deleted(List.of(ENTRY.getStrangWord()), 1);
+
+        final ChangeEvent<String, DictionaryEntry> event = subscription.poll();
+        assertTrue(event.isDeleted());
+        assertNull(event.getOldValue());
+    }
+
+    @Test
+    void archivingNewestRowDropsItFromLatestEntries() {
+        final Repository<String, DictionaryEntry> repository = new Repository<>(
+                databaseHandler,
+                DictionaryEntry.DESCRIPTOR
+        );
+        repository.getLatestEntries().record("alt", 1_000);
+        repository.getLatestEntries().record("neu", 2_000);
+
+        // archive every row that was written up to the cutoff
+        repository.deleted(List.of("neu"), 2_000);
+
+        assertEquals("alt", repository.getLatestEntries().getNewest().getKey());
+        assertEquals(1, repository.getLatestEntries().getNewest(16).size());
+    }
+
+    @Test
+    void deleteKeepsLatestEntryOfNewerWrite() {
+        final Repository<String, DictionaryEntry> repository = new Repository<>(
+                databaseHandler,
+                DictionaryEntry.DESCRIPTOR
+        );
+        repository.getLatestEntries().record("neu", 3_000);
+
+        // the key was written again after the deleted version
+        repository.deleted(List.of("neu"), 2_000);
+
+        assertEquals("neu", repository.getLatestEntries().getNewest().getKey());
+    }
+}
@@ -0,0 +1,111 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prüft die Präfix- und unscharfen Anfragen des {@link SearchIndex}.
+ */
+final class SearchIndexTest {
+
+    /**
+     * Erzeugt einen {@link SearchIndex}, in dem jeder Wert sein eigener Schlüssel ist, und indiziert die übergebenen
+     * Werte.
+     *
+     * @param values Die Werte, die indiziert werden.
+     *
+     * @return Der gefüllte {@link SearchIndex}.
+     */
+    private static SearchIndex<String, String> indexOf(final String... values) {
+        final SearchIndex<String, String> index = new SearchIndex<>(
+                Function.identity(),
+                List.of(Function.identity())
+        );
+        for (final String value : values) {
+            index.index(value);
+        }
+        return index;
+    }
+
+    @Test
+    void prefixFindsValuesAndWords() {
+        final SearchIndex<String, String> index = indexOf("Bad Oeynhausen", "Badenweiler", "Bremen");
+
+        assertEquals(List.of("Bad Oeynhausen", "Badenweiler"), index.prefix("bad", 10));
+        assertEquals(List.of("Bad Oeynhausen"), index.prefix("oey", 10));
+        assertEquals(List.of("Bad Oeynhausen"), index.prefix("bad", 1));
+    }
+
+    @Test
+    void prefixIgnoresCaseAndAccents() {
+        final SearchIndex<String, String> index = indexOf("Café Müller");
+
+        assertEquals(List.of("Café Müller"), index.prefix("CAFE", 10));
+        assertEquals(List.of("Café Müller"), index.prefix("mull", 10));
+    }
+
+    @Test
+    void fuzzyFindsTermsWithinDistance() {
+        final SearchIndex<String, String> index = indexOf("Hamburg", "Homburg", "Hannover");
+
+        assertEquals(List.of("Hamburg"), index.fuzzy("hamburg", 0, 10));
+        assertEquals(List.of("Hamburg", "Homburg"), index.fuzzy("hamburg", 1, 10));
+        assertEquals(List.of("Hamburg"), index.fuzzy("hanburg", 1, 10));
+        assertTrue(index.fuzzy("hannober", 0, 10).isEmpty());
+        assertEquals(List.of("Hannover"), index.fuzzy("hannober", 1, 10));
+    }
+
+    @Test
+    void fuzzyFindsTermsWithRepeatedGrams() {
+        final SearchIndex<String, String> index = indexOf("banana", "mississippi", "aaaaaaaaaa");
+
+        assertEquals(List.of("banana"), index.fuzzy("banana", 0, 10));
+        assertEquals(List.of("mississippi"), index.fuzzy("mississippi", 0, 10));
+        assertEquals(List.of("mississippi"), index.fuzzy("misisippi", 2, 10));
+        assertEquals(List.of("aaaaaaaaaa"), index.fuzzy("aaaaaaaaaa", 1, 10));
+        assertEquals(List.of("aaaaaaaaaa"), index.fuzzy("aaaaaaaaa", 1, 10));
+    }
+
+    @Test
+    void reindexReplacesPreviousTerms() {
+        final SearchIndex<Integer, String[]> index = new SearchIndex<>(
+                row -> Integer.valueOf(row[0]),
+                List.of(row -> row[1])
+        );
+        index.index(new String[]{"1", "Berlin"});
+        index.index(new String[]{"1", "Bonn"});
+
+        assertTrue(index.prefix("ber", 10).isEmpty());
+        assertEquals(List.of(1), index.prefix("bon", 10));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        assertTrue(index.prefix("bon", 10).isEmpty());
+        assertEquals(0, index.getTermCount());
+    }
+
+    @Test
+    void deletedKeysLeaveTheIndex() {
+        final SearchIndex<String, String> index = indexOf("Berlin", "Bern");
+
+        index.deleted(List.of("Berlin"), System.currentTimeMillis());
+
+        assertEquals(List.of("Bern"), index.prefix("ber", 10));
+        assertTrue(index.fuzzy("berlin", 0, 10).isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        final SearchIndex<String, String> index = indexOf("Berlin");
+
+        assertThrows(IllegalArgumentException.class, () -> index.prefix("b", 0));
+        assertThrows(IllegalArgumentException.class, () -> index.fuzzy("b", -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.fuzzy("b", 1, 0));
+    }
+}
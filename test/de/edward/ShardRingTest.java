@@ -0,0 +1,33 @@
+package de.edward;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Prüft, dass ein {@link ShardRing} Schlüssel, die MariaDB als gleich ansieht, demselben Shard zuordnet.
+ */
+final class ShardRingTest {
+
+    @Test
+    void normalizesCaseAccentsAndTrailingSpaces() {
+        assertEquals("tcho", ShardRing.normalize("tchó"));
+        assertEquals("tcho", ShardRing.normalize("TCHÓ  "));
+        assertEquals("kathe", ShardRing.normalize("Käthe"));
+        assertEquals(" a b", ShardRing.normalize(" a b "));
+        assertEquals("classen", ShardRing.normalize("Claßen"));
+        assertNotEquals(ShardRing.normalize("tcho"), ShardRing.normalize("tchi"));
+    }
+
+    @Test
+    void routesAccentedAndUnaccentedKeysToSameShard() {
+        final ShardRing ring = new ShardRing(16);
+
+        for (final String[] pair : new String[][]{{"tchó", "tcho"}, {"Käthe", "kathe"}, {"Éclair ", "eclair"}, {"Claßen", "CLASSEN"}}) {
+            assertEquals(ring.shardOf(pair[0]), ring.shardOf(pair[1]), pair[0] + " / " + pair[1]);
+        }
+        // a precomposed and a decomposed accent are the same key as well
+        assertEquals(ring.shardOf("tch\u00f3"), ring.shardOf("tcho\u0301"));
+    }
+}